@@ -29,8 +29,10 @@ import org.projectforge.Constants
 import org.projectforge.common.FormatterUtils
 import org.projectforge.framework.utils.FileCheck
 import org.projectforge.rest.config.Rest
+import org.projectforge.rest.core.ExpiringSessionAttributes
 import org.projectforge.rest.core.PagesResolver
 import org.projectforge.rest.dto.BankAccount
+import org.projectforge.rest.importer.AbstractImportPageRest
 import org.projectforge.rest.importer.CsvImporter
 import org.projectforge.ui.ResponseAction
 import org.projectforge.ui.TargetType
@@ -82,6 +84,13 @@ class BankingServicesRest {
             throw IllegalArgumentException("Excel not yet supported.")
         } else {
             importStorage = BankingImportStorage(bankAccount.importSettings, bankAccount)
+            // Available for the import page while parsing (progress), stored again by the transactions importer:
+            ExpiringSessionAttributes.setAttribute(
+                request,
+                AbstractImportPageRest.getSessionAttributeName(BankAccountRecordImportPageRest::class.java),
+                importStorage,
+                20,
+            )
             // Try to import CSV
             file.inputStream.use {
                 CsvImporter.parse(it, importStorage, importStorage.importSettings.charSet)
@@ -29,6 +29,7 @@ import net.fortuna.ical4j.util.CompatibilityHints;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.projectforge.business.configuration.DomainService;
+import org.projectforge.business.scripting.kotlin.KotlinScriptCompiler;
 import org.projectforge.business.system.SystemInfoCache;
 import org.projectforge.common.CanonicalFileUtils;
 import org.projectforge.common.EmphasizedLogSupport;
@@ -211,6 +212,11 @@ public class ProjectForgeApp {
         }
 
         SystemInfoCache.internalInitialize(systemInfoCache);
+
+        if (!junitTestMode) {
+            // Resolving the classpath for Kotlin scripts takes several seconds:
+            KotlinScriptCompiler.warmUp();
+        }
     }
 
     private void internalShutdown() {
@@ -31,10 +31,7 @@ import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
 import javax.naming.directory.*;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 /**
  * @author Kai Reinhard (k.reinhard@micromata.de)
@@ -188,6 +185,64 @@ public abstract class LdapDao<I extends Serializable, T extends LdapObject<I>>
     modify(ctx, obj, getModificationItems(new ArrayList<>(), obj));
   }
 
+  /**
+   * Writes only the attributes of the given object differing from the original values. Used for bulk updates, the
+   * original object is read before via {@link #findAll(DirContext, String)}, so no further search is needed.
+   *
+   * @param obj                 The object to write.
+   * @param dn                  The dn of the original object stored in the LDAP.
+   * @param origAttributeValues The attribute values of the original object, see {@link #getAttributeValues(LdapObject)}.
+   * @return true, if any attribute was modified, otherwise false.
+   * @throws NamingException
+   */
+  public boolean updateChanged(final DirContext ctx, final T obj, final String dn,
+      final Map<String, Set<String>> origAttributeValues) throws NamingException
+  {
+    final List<ModificationItem> modificationItems = getModificationItems(new ArrayList<>(), obj);
+    final Map<String, Set<String>> newAttributeValues = getAttributeValues(modificationItems);
+    final List<ModificationItem> changedItems = new ArrayList<>();
+    for (final ModificationItem modificationItem : modificationItems) {
+      final String attrId = modificationItem.getAttribute().getID();
+      if ("objectClass".equalsIgnoreCase(attrId)
+          || !Objects.equals(newAttributeValues.get(attrId), origAttributeValues.get(attrId))) {
+        // Object classes are only added if missed.
+        changedItems.add(modificationItem);
+      }
+    }
+    if (changedItems.isEmpty()) {
+      return false;
+    }
+    modify(ctx, obj, dn, changedItems);
+    return true;
+  }
+
+  /**
+   * The values of all attributes written by {@link #update(DirContext, String, LdapObject, Object...)}. Must be
+   * called before modifying the given object, used by {@link #updateChanged(DirContext, LdapObject, String, Map)}.
+   *
+   * @return The attribute values by attribute id.
+   */
+  public Map<String, Set<String>> getAttributeValues(final T obj)
+  {
+    return getAttributeValues(getModificationItems(new ArrayList<>(), obj));
+  }
+
+  private Map<String, Set<String>> getAttributeValues(final List<ModificationItem> modificationItems)
+  {
+    final Map<String, Set<String>> map = new HashMap<>();
+    for (final ModificationItem modificationItem : modificationItems) {
+      final Attribute attr = modificationItem.getAttribute();
+      String value;
+      try {
+        value = attr.get() != null ? attr.get().toString() : null;
+      } catch (final NamingException ex) {
+        value = null;
+      }
+      map.computeIfAbsent(attr.getID(), k -> new HashSet<>()).add(value);
+    }
+    return map;
+  }
+
   protected abstract List<ModificationItem> getModificationItems(final List<ModificationItem> list, final T obj);
 
   /**
@@ -331,8 +386,17 @@ public abstract class LdapDao<I extends Serializable, T extends LdapObject<I>>
           + "'. Can't modify the object: "
           + obj);
     }
-    final String dn = origObject.getDn();
+    modify(ctx, obj, origObject.getDn(), modificationItems);
+  }
 
+  /**
+   * Modifies the entry with the given dn without searching the entry by id first.
+   *
+   * @param dn The dn of the entry, e. g. read before via {@link #findAll(DirContext, String)}.
+   */
+  protected void modify(final DirContext ctx, final T obj, final String dn,
+      final List<ModificationItem> modificationItems) throws NamingException
+  {
     // Build detailed change information for logging
     StringBuilder changes = new StringBuilder();
     for (ModificationItem mi : modificationItems) {
@@ -70,6 +70,8 @@ public class LdapMasterLoginHandler extends LdapLoginHandler {
   @Autowired
   private UserGroupCache userGroupCache;
 
+  private final LdapSyncJournal syncJournal = new LdapSyncJournal();
+
   /**
    * @see org.projectforge.business.ldap.LdapLoginHandler#initialize()
    */
@@ -163,19 +165,27 @@ public class LdapMasterLoginHandler extends LdapLoginHandler {
     new LdapTemplate(ldapConnector) {
       @Override
       protected Object call() throws Exception {
-        log.info("Updating LDAP...");
+        final long now = System.currentTimeMillis();
+        final boolean fullSync = syncJournal.startSync(now);
+        log.info("Updating LDAP" + (fullSync ? " (full synchronization)" : "") + "...");
         // First, get set of all ldap entries:
-        final List<LdapUser> ldapUsers = getAllLdapUsers(ctx);
+        final LdapUserIndex ldapUsers = new LdapUserIndex(getAllLdapUsers(ctx));
         final List<LdapUser> updatedLdapUsers = new ArrayList<>();
         int error = 0, unmodified = 0, created = 0, updated = 0, deleted = 0, renamed = 0;
         final boolean sambaConfigured = ldapConfig.getSambaAccountsConfig() != null;
         for (final PFUserDO user : users) {
           final LdapUser updatedLdapUser = pfUserDOConverter.convert(user);
           try {
-            final LdapUser ldapUser = getLdapUser(ldapUsers, user);
-            if (ldapUser == null) {
+            final LdapUser ldapUser = ldapUsers.get(user);
+            final boolean ldapUserExpected = !user.getDeleted() && !user.getLocalUser()
+                && StringUtils.isNotBlank(user.getUsername());
+            if (!syncJournal.isModified(user) && (ldapUser != null) == ldapUserExpected) {
+              // Not modified since last synchronization:
+              updatedLdapUser.setOrganizationalUnit(ldapUser != null ? ldapUser.getOrganizationalUnit() : userBase);
+              unmodified++;
+            } else if (ldapUser == null) {
               updatedLdapUser.setOrganizationalUnit(userBase);
-              if (!user.getDeleted() && !user.getLocalUser() && StringUtils.isNotBlank(user.getUsername())) {
+              if (ldapUserExpected) {
                 // Do not add deleted or local users.
                 // TODO: if (ldapConfig.isSupportPosixAccounts() == true &&) {
                 // updatedLdapUser.addObjectClass(LdapUserDao.OBJECT_CLASS_POSIX_ACCOUNT);
@@ -194,15 +204,25 @@ public class LdapMasterLoginHandler extends LdapLoginHandler {
                 ldapUserDao.delete(ctx, updatedLdapUser);
                 deleted++;
               } else {
+                // Attribute values must be read before copying the fields into ldapUser:
+                final Map<String, Set<String>> origAttributeValues = ldapUserDao.getAttributeValues(ldapUser);
                 final boolean modified = pfUserDOConverter.copyUserFields(updatedLdapUser, ldapUser);
+                boolean dnChanged = false;
                 if (!StringUtils.equals(updatedLdapUser.getUid(), ldapUser.getUid())) {
                   // uid (dn) changed.
                   ldapUserDao.rename(ctx, updatedLdapUser, ldapUser);
+                  dnChanged = true;
                   renamed++;
                 }
                 if (modified) {
                   updatedLdapUser.setObjectClasses(ldapUser.getObjectClasses());
-                  ldapUserDao.update(ctx, userBase, updatedLdapUser);
+                  if (dnChanged) {
+                    // The entry has to be searched by its id:
+                    ldapUserDao.update(ctx, userBase, updatedLdapUser);
+                  } else {
+                    // Writes only the changed attributes:
+                    ldapUserDao.updateChanged(ctx, updatedLdapUser, ldapUser.getDn(), origAttributeValues);
+                  }
                   updated++;
                 } else {
                   unmodified++;
@@ -227,9 +247,11 @@ public class LdapMasterLoginHandler extends LdapLoginHandler {
             }
             ldapUserDao.buildDn(userBase, updatedLdapUser);
             updatedLdapUsers.add(updatedLdapUser);
+            syncJournal.synced(user);
           } catch (final Exception ex) {
             ldapUserDao.buildDn(userBase, updatedLdapUser);
             updatedLdapUsers.add(updatedLdapUser);
+            syncJournal.remove(user);
             log.error("Error while proceeding user '" + user.getUsername() + "'. Continuing with next user.", ex);
             error++;
           }
@@ -248,16 +270,23 @@ public class LdapMasterLoginHandler extends LdapLoginHandler {
             + deleted
             + " deleted.");
         // Now get all groups:
-        final List<LdapGroup> ldapGroups = getAllLdapGroups(ctx);
+        final Map<String, LdapGroup> ldapGroups = getLdapGroupMap(getAllLdapGroups(ctx));
         final Map<Long, LdapUser> ldapUserMap = getUserMap(updatedLdapUsers);
         error = unmodified = created = updated = renamed = deleted = 0;
         for (final GroupDO group : groups) {
           try {
+            final LdapGroup ldapGroup = ldapGroups.get(groupDOConverter.buildBusinessCategory(group));
+            final boolean ldapGroupExpected = !group.getDeleted() && !group.getLocalGroup();
+            if (!syncJournal.isModified(group) && (ldapGroup != null) == ldapGroupExpected) {
+              // Neither the group nor any of its members is modified since last synchronization:
+              unmodified++;
+              syncJournal.synced(group);
+              continue;
+            }
             final LdapGroup updatedLdapGroup = groupDOConverter.convert(group, baseDN, ldapUserMap);
-            final LdapGroup ldapGroup = getLdapGroup(ldapGroups, group);
             if (ldapGroup == null) {
               updatedLdapGroup.setOrganizationalUnit(groupBase);
-              if (!group.getDeleted() && !group.getLocalGroup()) {
+              if (ldapGroupExpected) {
                 // Do not add deleted or local groups.
                 setMembers(updatedLdapGroup, group.getAssignedUsers(), ldapUserMap);
                 ldapGroupDao.create(ctx, groupBase, updatedLdapGroup);
@@ -270,11 +299,15 @@ public class LdapMasterLoginHandler extends LdapLoginHandler {
                 ldapGroupDao.delete(ctx, updatedLdapGroup);
                 deleted++;
               } else {
+                // Attribute values must be read before copying the fields into ldapGroup:
+                final Map<String, Set<String>> origAttributeValues = ldapGroupDao.getAttributeValues(ldapGroup);
+                final String origDn = ldapGroup.getDn();
                 final boolean modified = groupDOConverter.copyGroupFields(updatedLdapGroup, ldapGroup);
                 if (modified) {
                   updatedLdapGroup.setObjectClasses(ldapGroup.getObjectClasses());
                   setMembers(updatedLdapGroup, group.getAssignedUsers(), ldapUserMap);
-                  ldapGroupDao.update(ctx, groupBase, updatedLdapGroup);
+                  // Writes only the changed attributes:
+                  ldapGroupDao.updateChanged(ctx, updatedLdapGroup, origDn, origAttributeValues);
                   updated++;
                 } else {
                   unmodified++;
@@ -286,7 +319,9 @@ public class LdapMasterLoginHandler extends LdapLoginHandler {
                 }
               }
             }
+            syncJournal.synced(group);
           } catch (final Exception ex) {
+            syncJournal.remove(group);
             log.error("Error while proceeding group '" + group.getName() + "'. Continuing with next group.", ex);
             error++;
           }
@@ -303,6 +338,7 @@ public class LdapMasterLoginHandler extends LdapLoginHandler {
             + " renamed, "
             + deleted
             + " deleted.");
+        syncJournal.finishSync(now);
         log.info("LDAP update done.");
         return null;
       }
@@ -406,22 +442,45 @@ public class LdapMasterLoginHandler extends LdapLoginHandler {
     return map;
   }
 
-  private LdapUser getLdapUser(final List<LdapUser> ldapUsers, final PFUserDO user) {
-    for (final LdapUser ldapUser : ldapUsers) {
-      if (StringUtils.equals(ldapUser.getUid(), user.getUsername())
-          || StringUtils.equals(ldapUser.getEmployeeNumber(), PFUserDOConverter.buildEmployeeNumber(user))) {
-        return ldapUser;
-      }
+  private Map<String, LdapGroup> getLdapGroupMap(final Collection<LdapGroup> ldapGroups) {
+    final Map<String, LdapGroup> map = new HashMap<>();
+    for (final LdapGroup ldapGroup : ldapGroups) {
+      // First one wins (as the former linear search did).
+      map.putIfAbsent(ldapGroup.getBusinessCategory(), ldapGroup);
     }
-    return null;
+    return map;
   }
 
-  private LdapGroup getLdapGroup(final List<LdapGroup> ldapGroups, final GroupDO group) {
-    for (final LdapGroup ldapGroup : ldapGroups) {
-      if (StringUtils.equals(ldapGroup.getBusinessCategory(), groupDOConverter.buildBusinessCategory(group))) {
-        return ldapGroup;
+  /**
+   * Hashed lookup of LDAP users by uid or employee number. If both match different LDAP users, the first one of the
+   * given list is returned.
+   */
+  private static class LdapUserIndex {
+    private final List<LdapUser> ldapUsers;
+
+    private final Map<String, Integer> byUid = new HashMap<>();
+
+    private final Map<String, Integer> byEmployeeNumber = new HashMap<>();
+
+    LdapUserIndex(final List<LdapUser> ldapUsers) {
+      // findAll returns a linked list:
+      this.ldapUsers = new ArrayList<>(ldapUsers);
+      for (int i = 0; i < this.ldapUsers.size(); i++) {
+        final LdapUser ldapUser = this.ldapUsers.get(i);
+        byUid.putIfAbsent(ldapUser.getUid(), i);
+        byEmployeeNumber.putIfAbsent(ldapUser.getEmployeeNumber(), i);
+      }
+    }
+
+    LdapUser get(final PFUserDO user) {
+      final Integer uidIndex = byUid.get(user.getUsername());
+      final Integer employeeNumberIndex = byEmployeeNumber.get(PFUserDOConverter.buildEmployeeNumber(user));
+      if (uidIndex == null && employeeNumberIndex == null) {
+        return null;
       }
+      final int index = uidIndex == null ? employeeNumberIndex
+          : employeeNumberIndex == null ? uidIndex : Math.min(uidIndex, employeeNumberIndex);
+      return ldapUsers.get(index);
     }
-    return null;
   }
 }
@@ -0,0 +1,150 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+package org.projectforge.business.ldap;
+
+import org.projectforge.Constants;
+import org.projectforge.framework.persistence.user.entities.GroupDO;
+import org.projectforge.framework.persistence.user.entities.PFUserDO;
+
+import java.util.*;
+
+/**
+ * Journal of the users and groups written to the LDAP server by {@link LdapMasterLoginHandler}. For every synchronized
+ * user and group the fingerprint of all fields relevant for the LDAP entry is stored. So the next synchronization
+ * has to proceed only users and groups modified since the last synchronization.
+ * <br>
+ * Changes made directly in the LDAP server are not detected, therefore a full synchronization is done on start-up and
+ * at least every {@link #FULL_SYNC_INTERVAL} ms.
+ */
+class LdapSyncJournal {
+  static final long FULL_SYNC_INTERVAL = Constants.MILLIS_PER_DAY;
+
+  private final Map<Long, List<Object>> userFingerprints = new HashMap<>();
+
+  private final Map<Long, List<Object>> groupFingerprints = new HashMap<>();
+
+  private long lastFullSync;
+
+  private boolean fullSync;
+
+  /**
+   * Must be called before the synchronization. Clears the journal, if a full synchronization is due.
+   *
+   * @return true, if a full synchronization is due.
+   */
+  synchronized boolean startSync(final long now) {
+    fullSync = lastFullSync == 0 || now - lastFullSync > FULL_SYNC_INTERVAL;
+    if (fullSync) {
+      userFingerprints.clear();
+      groupFingerprints.clear();
+    }
+    return fullSync;
+  }
+
+  /**
+   * Must be called after the synchronization.
+   */
+  synchronized void finishSync(final long now) {
+    if (fullSync) {
+      lastFullSync = now;
+      fullSync = false;
+    }
+  }
+
+  /**
+   * @return true, if the given user wasn't synchronized before or is modified since the last synchronization.
+   */
+  synchronized boolean isModified(final PFUserDO user) {
+    return !Objects.equals(userFingerprints.get(user.getId()), getFingerprint(user));
+  }
+
+  /**
+   * @return true, if the given group wasn't synchronized before or is modified since the last synchronization. A group
+   * is also modified, if any of its assigned users is modified.
+   */
+  synchronized boolean isModified(final GroupDO group) {
+    return !Objects.equals(groupFingerprints.get(group.getId()), getFingerprint(group));
+  }
+
+  /**
+   * Stores the fingerprint of the successfully synchronized user.
+   */
+  synchronized void synced(final PFUserDO user) {
+    if (user.getId() != null) {
+      userFingerprints.put(user.getId(), getFingerprint(user));
+    }
+  }
+
+  /**
+   * Stores the fingerprint of the successfully synchronized group. Should be called after all users are synchronized.
+   */
+  synchronized void synced(final GroupDO group) {
+    if (group.getId() != null) {
+      groupFingerprints.put(group.getId(), getFingerprint(group));
+    }
+  }
+
+  /**
+   * The user will be synchronized next time (e. g. after an error).
+   */
+  synchronized void remove(final PFUserDO user) {
+    userFingerprints.remove(user.getId());
+  }
+
+  /**
+   * The group will be synchronized next time (e. g. after an error).
+   */
+  synchronized void remove(final GroupDO group) {
+    groupFingerprints.remove(group.getId());
+  }
+
+  /**
+   * All fields used by {@link PFUserDOConverter#convert(PFUserDO)} and {@link LdapMasterLoginHandler}.
+   */
+  static List<Object> getFingerprint(final PFUserDO user) {
+    return Arrays.asList(user.getId(), user.getUsername(), user.getFirstname(), user.getLastname(),
+        user.getOrganization(), user.getDescription(), user.getEmail(), user.getMobilePhone(), user.getDeleted(),
+        user.getDeactivated(), user.getLocalUser(), user.getRestrictedUser(), user.getLdapValues(),
+        user.getLastWlanPasswordChange(), user.getCreated());
+  }
+
+  /**
+   * All fields used by {@link GroupDOConverter#convert(GroupDO, String, Map)} and {@link LdapMasterLoginHandler}
+   * including the fingerprints of the assigned users (members are identified by their dn).
+   */
+  private List<Object> getFingerprint(final GroupDO group) {
+    final List<Object> fingerprint = new ArrayList<>(Arrays.asList(group.getId(), group.getName(),
+        group.getOrganization(), group.getDescription(), group.getDeleted(), group.getLocalGroup(),
+        group.getLdapValues()));
+    final Set<PFUserDO> assignedUsers = group.getAssignedUsers();
+    if (assignedUsers != null) {
+      final SortedMap<Long, Integer> members = new TreeMap<>();
+      for (final PFUserDO user : assignedUsers) {
+        final List<Object> userFingerprint = userFingerprints.get(user.getId());
+        members.put(user.getId(), userFingerprint != null ? userFingerprint.hashCode() : null);
+      }
+      fingerprint.add(members);
+    }
+    return fingerprint;
+  }
+}
@@ -416,6 +416,23 @@ public class LdapUserDao extends LdapDao<String, LdapUser> {
     updateRestrictedUserStatus(ctx, user);
   }
 
+  /**
+   * @see LdapDao#updateChanged(DirContext, LdapObject, String, Map)
+   */
+  @Override
+  public boolean updateChanged(final DirContext ctx, final LdapUser user, final String dn,
+                               final Map<String, Set<String>> origAttributeValues) throws NamingException {
+    if (user.isDeleted()) {
+      log.info("Given LDAP user is deleted, so the user will be removed from the LDAP system.");
+      delete(ctx, user);
+      return true;
+    }
+    final boolean modified = super.updateChanged(ctx, user, dn, origAttributeValues);
+    updateActivatedStatus(ctx, user);
+    updateRestrictedUserStatus(ctx, user);
+    return modified;
+  }
+
   public void changePassword(final LdapUser user, final char[] oldPassword, final char[] newPassword) {
     final String userPasswordId = "userPassword";
     log.info("Change attribute " + userPasswordId + " for " + getObjectClass() + ": " + buildDn(null, user));
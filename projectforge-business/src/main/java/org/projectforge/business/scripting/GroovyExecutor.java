@@ -33,6 +33,7 @@ import groovy.text.TemplateEngine;
 import org.apache.commons.lang3.StringUtils;
 import org.codehaus.groovy.control.CompilationFailedException;
 import org.projectforge.framework.access.AccessException;
+import org.projectforge.framework.cache.LruCache;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
@@ -48,6 +49,19 @@ import java.util.Map;
 public class GroovyExecutor {
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(GroovyExecutor.class);
 
+    private static final int MAX_CACHE_SIZE = 200;
+
+    /**
+     * Compiled script classes by content hash of the script (shared by all instances).
+     */
+    private static final LruCache<String, Class<?>> scriptClassCache = new LruCache<>(MAX_CACHE_SIZE);
+
+    /**
+     * Templates parsed by the default template engine by content hash of the template (shared by all instances).
+     * Templates are thread safe, every call of {@link Template#make(Map)} creates its own script object.
+     */
+    private static final LruCache<String, Template> templateCache = new LruCache<>(MAX_CACHE_SIZE);
+
     public ScriptExecutionResult execute(final ScriptExecutionResult result, final String script, final Map<String, Object> variables, final ScriptLogger scriptLogger) {
         if (script == null) {
             return result;
@@ -59,9 +73,41 @@ public class GroovyExecutor {
         return execute(result, groovyObject, variables, scriptLogger);
     }
 
+    /**
+     * The parsed template is cached, so it's parsed only once as long as the template isn't modified.
+     */
     public String executeTemplate(final String template, final Map<String, Object> variables) {
+        if (template == null) {
+            return null;
+        }
+        final String key = LruCache.contentHash(template);
+        Template templateObject = templateCache.get(key);
+        if (templateObject == null) {
+            templateObject = createTemplate(template);
+            if (templateObject == null) {
+                return null;
+            }
+            templateCache.put(key, templateObject);
+        }
+        return executeTemplate(templateObject, template, variables);
+    }
+
+    /**
+     * Parses the given template by the default template engine (without caching, see {@link GroovyTemplateRegistry}).
+     *
+     * @return The parsed template or null, if the template couldn't be parsed.
+     */
+    public static Template createTemplate(final String template) {
         securityChecks(template);
-        return executeTemplate(new SimpleTemplateEngine(), template, variables);
+        if (template == null) {
+            return null;
+        }
+        try {
+            return new SimpleTemplateEngine().createTemplate(template);
+        } catch (final CompilationFailedException | IOException | ClassNotFoundException ex) {
+            log.error(ex.getMessage() + " while parsing template: " + template, ex);
+            return null;
+        }
     }
 
     public String executeTemplate(final TemplateEngine templateEngine, final String template,
@@ -70,8 +116,22 @@ public class GroovyExecutor {
         if (template == null) {
             return null;
         }
+        final Template templateObject;
+        try {
+            templateObject = templateEngine.createTemplate(template);
+        } catch (final CompilationFailedException | IOException | ClassNotFoundException ex) {
+            log.error(ex.getMessage() + " while executing template: " + template, ex);
+            return null;
+        }
+        return executeTemplate(templateObject, template, variables);
+    }
+
+    /**
+     * @param template The source (or name) of the template, only used for logging errors.
+     */
+    public String executeTemplate(final Template templateObject, final String template,
+                                  final Map<String, Object> variables) {
         try {
-            final Template templateObject = templateEngine.createTemplate(template);
             final Writable writable = templateObject.make(variables);
             final StringWriter writer = new StringWriter();
             writable.writeTo(writer);
@@ -80,7 +140,7 @@ public class GroovyExecutor {
                 log.debug(writer.toString());
             }
             return writer.toString();
-        } catch (final CompilationFailedException | IOException | ClassNotFoundException ex) {
+        } catch (final CompilationFailedException | IOException ex) {
             log.error(ex.getMessage() + " while executing template: " + template, ex);
         }
         return null;
@@ -102,6 +162,45 @@ public class GroovyExecutor {
      */
     public Script compileGroovy(final ScriptExecutionResult result, final String script, final boolean bindScriptResult) {
         securityChecks(script);
+        final String key = LruCache.contentHash(script);
+        Class<?> groovyClass = scriptClassCache.get(key);
+        if (result != null) {
+            result.setCompiledScriptCacheHit(groovyClass != null);
+            result.setCompileTimeMillis(0L);
+        }
+        if (groovyClass == null) {
+            final long started = System.currentTimeMillis();
+            groovyClass = parseClass(result, script);
+            if (groovyClass == null) {
+                return null;
+            }
+            scriptClassCache.put(key, groovyClass);
+            if (result != null) {
+                result.setCompileTimeMillis(System.currentTimeMillis() - started);
+            }
+        }
+        if (result != null) {
+            result.setCompiledScriptCacheStatistics(scriptClassCache.toString());
+        }
+        // Every call gets its own script object (with own binding):
+        Script groovyObject;
+        try {
+            groovyObject = (Script) groovyClass.newInstance();
+        } catch (final InstantiationException | IllegalAccessException ex) {
+            log.error(ex.getMessage(), ex);
+            if (result != null) {
+                result.setException(ex);
+            }
+            return null;
+        }
+        if (bindScriptResult) {
+            final Binding binding = groovyObject.getBinding();
+            binding.setVariable("scriptResult", result);
+        }
+        return groovyObject;
+    }
+
+    private Class<?> parseClass(final ScriptExecutionResult result, final String script) {
         final GroovyClassLoader gcl = new GroovyClassLoader() {
             @SuppressWarnings("rawtypes")
             @Override
@@ -119,9 +218,8 @@ public class GroovyExecutor {
             }
         };
 
-        Class<?> groovyClass;
         try {
-            groovyClass = gcl.parseClass(script);
+            return gcl.parseClass(script);
         } catch (final CompilationFailedException ex) {
             log.info("Groovy-CompilationFailedException: " + ex.getMessage());
             if (result != null) {
@@ -129,21 +227,6 @@ public class GroovyExecutor {
             }
             return null;
         }
-        Script groovyObject;
-        try {
-            groovyObject = (Script) groovyClass.newInstance();
-        } catch (final InstantiationException | IllegalAccessException ex) {
-            log.error(ex.getMessage(), ex);
-            if (result != null) {
-                result.setException(ex);
-            }
-            return null;
-        }
-        if (bindScriptResult) {
-            final Binding binding = groovyObject.getBinding();
-            binding.setVariable("scriptResult", result);
-        }
-        return groovyObject;
     }
 
     public ScriptExecutionResult execute(final Script groovyScript, final ScriptLogger scriptLogger) {
@@ -182,7 +265,7 @@ public class GroovyExecutor {
      *
      * @param script
      */
-    private void securityChecks(final String script) {
+    private static void securityChecks(final String script) {
         final String[] forbiddenKeyWords = {"__baseDao", "__baseObject", "System.ex"};
         for (final String forbiddenKeyWord : forbiddenKeyWords) {
             if (StringUtils.contains(script, forbiddenKeyWord)) {
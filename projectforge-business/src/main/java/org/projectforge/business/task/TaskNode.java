@@ -43,9 +43,12 @@ import java.io.Serial;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Represents a single task as part of the TaskTree. The data of a task node is stored in the database.
@@ -69,9 +72,16 @@ public class TaskNode implements IdObject<Long>, Serializable {
   ProjektDO projekt;
 
   /**
-   * Total duration of all time sheets of this task (excluding the child tasks) in seconds.
+   * Total duration of all time sheets of this task (excluding the child tasks) in seconds. Maintained by the task tree
+   * as running sum.
    */
-  long totalDuration = 0;
+  volatile long totalDuration = 0;
+
+  /**
+   * Total duration of all time sheets of this task including all descendant tasks in seconds. Maintained by the task
+   * tree as running sum.
+   */
+  volatile long recursiveDuration = 0;
 
   /**
    * Sum of all ordered person days excluding descendant nodes. Ordered person days are defined by the sum of all
@@ -80,9 +90,10 @@ public class TaskNode implements IdObject<Long>, Serializable {
   BigDecimal orderedPersonDays;
 
   /**
-   * References to all child nodes in an ArrayList from element typ TaskNode.
+   * References to all child nodes in an ArrayList from element typ TaskNode. The list is replaced (copy on write) on
+   * every modification, so readers may iterate it without locking.
    */
-  List<TaskNode> children = null;
+  volatile List<TaskNode> children = null;
 
   /**
    * The data of this TaskNode.
@@ -92,9 +103,10 @@ public class TaskNode implements IdObject<Long>, Serializable {
   boolean bookableForTimesheets;
 
   /**
-   * For every group with access to this node the permissions will be stored here.
+   * For every group with access to this node the permissions will be stored here. Read without locking by every
+   * access check (modifications are rare).
    */
-  private final List<GroupTaskAccessDO> groupTaskAccessList = new ArrayList<>();
+  private final List<GroupTaskAccessDO> groupTaskAccessList = new CopyOnWriteArrayList<>();
 
   public TaskNode() {
   }
@@ -215,17 +227,18 @@ public class TaskNode implements IdObject<Long>, Serializable {
 
   public List<Long> getDescendantIds() {
     final List<Long> descendants = new ArrayList<>();
-    getDescendantIds(descendants);
+    getDescendantIds(descendants, new HashSet<>());
     return descendants;
   }
 
-  private void getDescendantIds(final List<Long> descendants) {
-    if (this.children != null) {
-      for (final TaskNode node : this.children) {
-        if (!descendants.contains(node.getId())) {
+  private void getDescendantIds(final List<Long> descendants, final Set<Long> visited) {
+    final List<TaskNode> list = this.children;
+    if (list != null) {
+      for (final TaskNode node : list) {
+        if (visited.add(node.getId())) {
           // Paranoia setting for cyclic references.
           descendants.add(node.getId());
-          node.getDescendantIds(descendants);
+          node.getDescendantIds(descendants, visited);
         }
       }
     }
@@ -259,10 +272,8 @@ public class TaskNode implements IdObject<Long>, Serializable {
    * Returns all children of this task in an ArrayList with elements from type TaskNode.
    */
   public List<TaskNode> getChildren() {
-    if (this.children == null) {
-      this.children = new ArrayList<>();
-    }
-    return this.children;
+    final List<TaskNode> list = this.children;
+    return list != null ? list : Collections.emptyList();
   }
 
   /**
@@ -277,17 +288,19 @@ public class TaskNode implements IdObject<Long>, Serializable {
    * Has this task any children?
    */
   public boolean hasChildren() {
-    return this.children != null && !this.children.isEmpty() ? true : false;
+    final List<TaskNode> list = this.children;
+    return list != null && !list.isEmpty();
   }
 
   /**
    * Checks if the given node is a child / descendant of this node.
    */
   public boolean isParentOf(final TaskNode node) {
-    if (this.children == null) {
+    final List<TaskNode> list = this.children;
+    if (list == null) {
       return false;
     }
-    for (final TaskNode child : this.children) {
+    for (final TaskNode child : list) {
       if (child.equals(node)) {
         return true;
       } else if (child.isParentOf(node)) {
@@ -355,10 +368,9 @@ public class TaskNode implements IdObject<Long>, Serializable {
         log.error("Oups, cyclic reference detection: taskId = " + getId() + ", parentTaskId = " + parent.getId());
         return;
       }
-      if (this.children == null) {
-        this.children = new ArrayList<>();
-      }
-      this.children.add(child);
+      final List<TaskNode> list = this.children != null ? new ArrayList<>(this.children) : new ArrayList<>();
+      list.add(child);
+      this.children = list;
     }
   }
 
@@ -374,7 +386,9 @@ public class TaskNode implements IdObject<Long>, Serializable {
       log.error("Oups, this node doesn't contain given child.");
     } else {
       log.debug("Removing child " + child.getTaskId() + " from parent " + this.getTaskId());
-      this.children.remove(child);
+      final List<TaskNode> list = new ArrayList<>(this.children);
+      list.remove(child);
+      this.children = list;
     }
   }
 
@@ -413,11 +427,9 @@ public class TaskNode implements IdObject<Long>, Serializable {
    */
   GroupTaskAccessDO getGroupTaskAccess(final Long groupId) {
     Validate.notNull(groupId);
-    synchronized (groupTaskAccessList) {
-      for (final GroupTaskAccessDO access : groupTaskAccessList) {
-        if (groupId.equals(access.getGroupId())) {
-          return access;
-        }
+    for (final GroupTaskAccessDO access : groupTaskAccessList) {
+      if (groupId.equals(access.getGroupId())) {
+        return access;
       }
     }
     return null;
@@ -450,38 +462,20 @@ public class TaskNode implements IdObject<Long>, Serializable {
   boolean removeGroupTaskAccess(final Long groupId) {
     // TODO: Should be called after deleting from database.
     Validate.notNull(groupId);
-    boolean result = false;
     synchronized (groupTaskAccessList) {
-      final Iterator<GroupTaskAccessDO> it = groupTaskAccessList.iterator();
-      while (it.hasNext()) {
-        final GroupTaskAccessDO access = it.next();
-        if (groupId.equals(access.getGroupId())) {
-          it.remove();
-          result = true;
-        }
-      }
+      return groupTaskAccessList.removeIf(access -> groupId.equals(access.getGroupId()));
     }
-    return result;
   }
 
   /**
    * Gets the total duration of all time sheets in seconds.
    *
+   * @param taskTree  Not needed anymore, the durations are maintained by the task tree as running sums.
    * @param recursive If true, then the durations of all time sheets of the sub tasks will be added.
    * @return duration in seconds
    */
   public long getDuration(final TaskTree taskTree, final boolean recursive) {
-    if (totalDuration < 0) {
-      taskTree.readTotalDuration(this.getId());
-    }
-    if (!recursive || children == null) {
-      return totalDuration;
-    }
-    long duration = totalDuration;
-    for (final TaskNode child : children) {
-      duration += child.getDuration(taskTree, true);
-    }
-    return duration;
+    return recursive ? recursiveDuration : totalDuration;
   }
 
   @Override
@@ -519,8 +513,9 @@ public class TaskNode implements IdObject<Long>, Serializable {
   Element addXMLElement(final Element parent) {
     final Element el = parent.addElement("task").addAttribute("id", String.valueOf(this.getId()))
             .addAttribute("name", this.task.getTitle());
-    if (this.children != null) {
-      for (final TaskNode node : this.children) {
+    final List<TaskNode> list = this.children;
+    if (list != null) {
+      for (final TaskNode node : list) {
         node.addXMLElement(el);
       }
     }
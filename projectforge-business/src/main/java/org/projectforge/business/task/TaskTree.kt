@@ -48,6 +48,7 @@ import org.projectforge.framework.time.DateHelper
 import org.projectforge.framework.utils.NumberHelper.greaterZero
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.context.annotation.Lazy
+import org.springframework.scheduling.annotation.Scheduled
 import org.springframework.stereotype.Service
 import java.io.IOException
 import java.io.Serializable
@@ -55,6 +56,7 @@ import java.io.StringWriter
 import java.math.BigDecimal
 import java.math.RoundingMode
 import java.util.*
+import java.util.concurrent.atomic.AtomicLong
 import kotlin.collections.set
 
 private val log = KotlinLogging.logger {}
@@ -63,6 +65,10 @@ private val log = KotlinLogging.logger {}
  * Holds the complete task list in a tree. It will be initialized by the values read from the database. Any changes will
  * be written to this tree and to the database.
  *
+ * Readers don't lock: the task map and the pre-order numbering of the nodes are published as a [TaskTreeSnapshot],
+ * which is rebuilt and swapped by every structural modification (serialized by a write lock). The task nodes themselves
+ * are shared between the snapshots and remain mutable.
+ *
  * @author Kai Reinhard (k.reinhard@micromata.de)
  */
 @Service
@@ -109,14 +115,32 @@ class TaskTree : AbstractCache(TICKS_PER_HOUR),
     var timeOfLastModification: Long = 0
 
     /**
-     * For faster searching of entries.
+     * Incremented on each modification of the tree or of the group task accesses, so caches of access rights (e. g.
+     * of TimesheetDao) may detect outdated entries.
+     */
+    val accessModificationCounter = AtomicLong()
+
+    /**
+     * Current immutable view of the tree (task map and pre-order numbering).
+     */
+    @Volatile
+    private var snapshot = TaskTreeSnapshot(null, emptyMap())
+
+    /**
+     * Serializes all structural modifications of the tree.
+     */
+    private val writeLock = Any()
+
+    /**
+     * Serializes all modifications of the duration sums of the task nodes.
      */
-    private var taskMap = mutableMapOf<Long, TaskNode>()
+    private val durationLock = Any()
 
     /**
      * The root node of all tasks. The only node with parent null.
      */
-    private var root: TaskNode? = null
+    private val root: TaskNode?
+        get() = snapshot.root
 
     /**
      * The order position references are stored in a map. The key is the task id and the value is a set of order position
@@ -132,20 +156,6 @@ class TaskTree : AbstractCache(TICKS_PER_HOUR),
             return this.root!!
         }
 
-    /**
-     * Adds the given node as child of the given parent.
-     */
-    @Synchronized
-    private fun addTaskNode(node: TaskNode, parent: TaskNode?): TaskNode {
-        checkRefresh()
-        if (parent != null) {
-            node.setParent(parent)
-            parent.addChild(node)
-        }
-        updateTimeOfLastModification()
-        return node
-    }
-
     /**
      * Adds a new node with the given data. The given Task holds all data and the information (id) of the parent node of
      * the node to add. Will be called by TaskDAO after inserting a new task.
@@ -153,18 +163,22 @@ class TaskTree : AbstractCache(TICKS_PER_HOUR),
     private fun addTaskNode(task: TaskDO): TaskNode {
         val node = TaskNode()
         node.setTask(task)
-        val parent = getTaskNodeById(task.parentTaskId)
-        if (parent != null) {
-            node.setParent(parent)
-        } else if (root == null) {
-            // this is the root node:
-            root = node
-        } else if (node.id != root!!.id) {
-            // This node is not the root node:
-            node.setParent(root)
-        }
-        synchronized(taskMap) {
-            taskMap[node.id!!] = node
+        synchronized(writeLock) {
+            val current = snapshot
+            var newRoot = current.root
+            val parent = getTaskNodeById(task.parentTaskId, false)
+            if (parent != null) {
+                node.setParent(parent)
+                parent.addChild(node)
+            } else if (newRoot == null) {
+                // this is the root node:
+                newRoot = node
+            } else if (node.id != newRoot.id) {
+                // This node is not the root node:
+                node.setParent(newRoot)
+            }
+            snapshot = TaskTreeSnapshot(newRoot, current.taskMap + (node.id!! to node))
+            updateTimeOfLastModification()
         }
         val timesheet = TimesheetDO()
         timesheet.task = task
@@ -173,7 +187,7 @@ class TaskTree : AbstractCache(TICKS_PER_HOUR),
             checkTaskTreeRefresh = false,
         )
         node.bookableForTimesheets = bookable
-        return addTaskNode(node, parent)
+        return node
     }
 
     /**
@@ -224,20 +238,21 @@ class TaskTree : AbstractCache(TICKS_PER_HOUR),
         return result
     }
 
+    /**
+     * @return All descendants (not only the children) of the given task in pre-order, a slice of the current snapshot.
+     */
     fun getDescendants(taskId: Long?, includeSelf: Boolean): List<TaskNode> {
-        val resultList: MutableList<TaskNode> = ArrayList()
-        val node = getTaskNodeById(taskId) ?: return resultList
-        if (includeSelf) {
-            resultList.add(node)
-        }
-        addDescendants(resultList, node)
-        return resultList
+        val node = getTaskNodeById(taskId) ?: return EMPTY_LIST
+        return snapshot.getDescendants(node, includeSelf)
     }
 
-    private fun addDescendants(resultList: MutableList<TaskNode>, node: TaskNode) {
-        for (child in node.getChildren()) {
-            resultList.add(child)
-        }
+    /**
+     * Constant time check by the pre-order numbering of the current snapshot (in contrast to [TaskNode.isParentOf]).
+     * @return True, if the given node is a child / descendant of the given ancestor.
+     */
+    fun isParentOf(ancestor: TaskNode, node: TaskNode): Boolean {
+        checkRefresh()
+        return snapshot.isAncestorOf(ancestor, node)
     }
 
     /**
@@ -253,9 +268,7 @@ class TaskTree : AbstractCache(TICKS_PER_HOUR),
         if (checkRefresh) {
             checkRefresh()
         }
-        synchronized(taskMap) {
-            return taskMap[taskId]
-        }
+        return snapshot.taskMap[taskId]
     }
 
     fun getTaskById(id: Long?): TaskDO? {
@@ -424,17 +437,36 @@ class TaskTree : AbstractCache(TICKS_PER_HOUR),
     }
 
     /**
-     * Should be called after modification of a time sheet assigned to the given task id.
+     * Adds the given delta to the total duration of the given task and to the recursive durations of the task and all
+     * its ancestor tasks. Should be called after every modification of a time sheet assigned to the given task id
+     * (negative delta for removed durations).
      *
      * @param taskId
+     * @param seconds The delta in seconds.
      */
-    fun resetTotalDuration(taskId: Long) {
+    fun addTotalDuration(taskId: Long?, seconds: Long) {
+        if (taskId == null || seconds == 0L) {
+            return
+        }
         val node = getTaskNodeById(taskId)
         if (node == null) {
             log.error("Task id '$taskId' not found.")
             return
         }
-        node.totalDuration = -1
+        synchronized(durationLock) {
+            node.totalDuration += seconds
+            addRecursiveDuration(node, seconds)
+        }
+    }
+
+    private fun addRecursiveDuration(node: TaskNode, seconds: Long) {
+        var current: TaskNode? = node
+        var counter = 0
+        val max = snapshot.taskMap.size + 1 // Paranoia setting for cyclic references.
+        while (current != null && counter++ <= max) {
+            current.recursiveDuration += seconds
+            current = current.parent
+        }
     }
 
     /**
@@ -446,6 +478,13 @@ class TaskTree : AbstractCache(TICKS_PER_HOUR),
         checkRefresh()
         requireNotNull(task.id)
         val node = getTaskNodeById(task.id) ?: return addTaskNode(task)
+        synchronized(writeLock) {
+            updateTaskNode(node, task)
+        }
+        return node
+    }
+
+    private fun updateTaskNode(node: TaskNode, task: TaskDO) {
         node.setTask(task)
         if (task.parentTaskId != null && task.parentTaskId != node.getParent().id) {
             log.debug { "Task hierarchy was changed for task: $task" }
@@ -468,12 +507,17 @@ class TaskTree : AbstractCache(TICKS_PER_HOUR),
 
             val oldParent = node.getParent()
             requireNotNull(oldParent)
-            oldParent.removeChild(node)
-            node.setParent(newParent)
-            newParent!!.addChild(node)
+            synchronized(durationLock) {
+                // Move the durations of the subtree from the old ancestors to the new ones:
+                addRecursiveDuration(oldParent, -node.recursiveDuration)
+                oldParent.removeChild(node)
+                node.setParent(newParent)
+                newParent!!.addChild(node)
+                addRecursiveDuration(newParent, node.recursiveDuration)
+            }
+            snapshot.let { snapshot = TaskTreeSnapshot(it.root, it.taskMap) }
         }
         updateTimeOfLastModification()
-        return node
     }
 
     /**
@@ -487,6 +531,7 @@ class TaskTree : AbstractCache(TICKS_PER_HOUR),
         val taskId = groupTaskAccess.taskId
         val node = getTaskNodeById(taskId, false)!!
         node.setGroupTaskAccess(groupTaskAccess)
+        accessModificationCounter.incrementAndGet()
     }
 
     /**
@@ -497,12 +542,9 @@ class TaskTree : AbstractCache(TICKS_PER_HOUR),
      */
     fun removeGroupTaskAccess(groupTaskAccess: GroupTaskAccessDO) {
         checkRefresh()
-        val taskId = groupTaskAccess.taskId
-        val node: TaskNode
-        synchronized(taskMap) {
-            node = taskMap[taskId]!!
-        }
+        val node = getTaskNodeById(groupTaskAccess.taskId, false)!!
         node.removeGroupTaskAccess(groupTaskAccess.groupId)
+        accessModificationCounter.incrementAndGet()
     }
 
     override fun toString(): String {
@@ -604,7 +646,9 @@ class TaskTree : AbstractCache(TICKS_PER_HOUR),
                             }
                         }
                     }
-                    resetOrderPersonDays(root!!)
+                    snapshot.let { current ->
+                        current.root?.let { current.getDescendants(it, true) }?.forEach { it.orderedPersonDays = null }
+                    }
                     references.forEach orderPositions@{ (key, value) ->
                         val node = getTaskNodeById(key)
                         node!!.orderedPersonDays = null
@@ -623,15 +667,6 @@ class TaskTree : AbstractCache(TICKS_PER_HOUR),
             }
         }
 
-    private fun resetOrderPersonDays(node: TaskNode) {
-        node.orderedPersonDays = null
-        if (node.hasChildren()) {
-            for (child in node.getChildren()) {
-                resetOrderPersonDays(child)
-            }
-        }
-    }
-
     /**
      * @param taskId
      * @return Set of all order positions assigned to the given task.
@@ -675,14 +710,9 @@ class TaskTree : AbstractCache(TICKS_PER_HOUR),
             return true
         }
         if (recursive) {
-            val node = getTaskNodeById(taskId)
-            if (node != null && node.hasChildren()) {
-                for (child in node.getChildren()) {
-                    if (hasOrderPositions(child.id, recursive)) {
-                        return true
-                    }
-                }
-            }
+            val node = getTaskNodeById(taskId) ?: return false
+            val entries = orderPositionEntries ?: return false
+            return !snapshot.visitSubtree(node) { CollectionUtils.isEmpty(entries[it.id]) }
         }
         return false
     }
@@ -750,19 +780,9 @@ class TaskTree : AbstractCache(TICKS_PER_HOUR),
      */
     fun getOrderedPersonDaysSum(node: TaskNode): BigDecimal? {
         var personDays: BigDecimal? = null
-        if (node.orderedPersonDays != null) {
-            personDays = node.orderedPersonDays
-        }
-        if (node.hasChildren()) {
-            for (child in node.getChildren()) {
-                val childPersonDays = getOrderedPersonDaysSum(child)
-                if (childPersonDays != null) {
-                    personDays = if (personDays == null) {
-                        childPersonDays
-                    } else {
-                        personDays.add(childPersonDays)
-                    }
-                }
+        snapshot.getDescendants(node, true).forEach { descendant ->
+            descendant.orderedPersonDays?.let {
+                personDays = personDays?.add(it) ?: it
             }
         }
         return personDays
@@ -783,34 +803,58 @@ class TaskTree : AbstractCache(TICKS_PER_HOUR),
 
     /**
      * Reads the sum of all time sheet durations grouped by task id and set the total duration of found taskNodes.
+     * @return Number of corrected task nodes (total duration differs from the database).
      */
-    private fun readTotalDurations() {
-        val list = taskDao.readTotalDurations()
-        for (res in list) {
-            val taskId = res[1] as Long
-            val node = getTaskNodeById(taskId, false)
-            if (node == null) {
+    private fun readTotalDurations(): Int {
+        val durations = mutableMapOf<Long, Long>()
+        taskDao.readTotalDurations().forEach { res ->
+            durations[res[1] as Long] = (res[0] as Number).toLong()
+        }
+        var corrected = 0
+        synchronized(durationLock) {
+            val current = snapshot
+            durations.keys.filter { !current.taskMap.containsKey(it) }.forEach { taskId ->
                 log.warn { "Task not found: $taskId" }
-            } else {
-                if (res[0] is Int) {
-                    node.totalDuration = (res[0] as Int).toLong()
-                } else {
-                    node.totalDuration = (res[0] as Long)
+            }
+            current.taskMap.values.forEach { node ->
+                val duration = durations[node.id] ?: 0L
+                if (node.totalDuration != duration) {
+                    node.totalDuration = duration
+                    ++corrected
                 }
             }
+            initRecursiveDurations(current)
         }
+        return corrected
     }
 
     /**
-     * Reads the sum of all time sheet durations grouped by task id and set the total duration of found taskNodes.
+     * Sums up the total durations of all nodes bottom-up (reverse pre-order visits children before their parents).
      */
-    fun readTotalDuration(taskId: Long) {
-        val duration = taskDao.readTotalDuration(taskId)
-        val node = getTaskNodeById(taskId)
-        if (node == null) {
-            log.warn("Task not found: $taskId")
+    private fun initRecursiveDurations(current: TaskTreeSnapshot) {
+        current.taskMap.values.forEach { it.recursiveDuration = it.totalDuration }
+        val root = current.root ?: return
+        current.getDescendants(root, false).asReversed().forEach { node ->
+            node.parent?.let { it.recursiveDuration += node.recursiveDuration }
+        }
+    }
+
+    /**
+     * The durations are maintained as running sums by [addTotalDuration] (called by TimesheetDao after commits). They
+     * may drift from the database by modifications outside ProjectForge, so they are reconciled periodically in the
+     * background (the task tree refresh itself takes over the sums of the previous nodes).
+     */
+    @Scheduled(initialDelay = RECONCILE_DURATIONS_INTERVAL, fixedDelay = RECONCILE_DURATIONS_INTERVAL)
+    fun reconcileTotalDurations() {
+        if (snapshot.root == null) {
+            return // Not yet initialized.
+        }
+        val duration = LogDuration()
+        val corrected = persistenceService.runIsolatedReadOnly { readTotalDurations() }
+        if (corrected > 0) {
+            log.info { "TaskTree: total durations of $corrected tasks reconciled with database: $duration" }
         } else {
-            node.totalDuration = duration
+            log.debug { "TaskTree: total durations are up to date: $duration" }
         }
     }
 
@@ -818,7 +862,7 @@ class TaskTree : AbstractCache(TICKS_PER_HOUR),
      * Should only be called by test suite!
      */
     fun clear() {
-        this.root = null
+        this.snapshot = TaskTreeSnapshot(null, emptyMap())
         this.setExpired()
     }
 
@@ -832,6 +876,7 @@ class TaskTree : AbstractCache(TICKS_PER_HOUR),
      */
     public override fun refresh() {
         log.info("Initializing task tree ...")
+        val previousTaskMap = snapshot.taskMap
         persistenceService.runIsolatedReadOnly(recordCallStats = true) { context ->
             var newRoot: TaskNode? = null
             val nTaskMap = mutableMapOf<Long, TaskNode>()
@@ -857,7 +902,6 @@ class TaskTree : AbstractCache(TICKS_PER_HOUR),
             if (newRoot == null) {
                 throw IllegalArgumentException("No root task found. Corrupted data-base or not correct initialized one.")
             }
-            this.root = newRoot
             log.debug { "Creating tree for " + taskList.size + " tasks ..." }
             taskList.forEach { task ->
                 val node = nTaskMap[task.id]!!
@@ -870,7 +914,7 @@ class TaskTree : AbstractCache(TICKS_PER_HOUR),
                     log.debug { "Processing root node:$node" }
                 }
             }
-            log.debug { root.toString() }
+            log.debug { newRoot.toString() }
 
             // Now read all explicit group task access' from the database:
             accessDao.selectAll(checkAccess = false).forEach { access ->
@@ -892,9 +936,23 @@ class TaskTree : AbstractCache(TICKS_PER_HOUR),
                     }
                 }
             }
+            if (previousTaskMap.isEmpty()) {
+                synchronized(writeLock) {
+                    this.snapshot = TaskTreeSnapshot(newRoot, nTaskMap)
+                }
+                readTotalDurations()
+            } else {
+                synchronized(writeLock) {
+                    synchronized(durationLock) {
+                        // Take over the running sums, the background reconciliation corrects them if needed.
+                        nTaskMap.values.forEach { it.totalDuration = previousTaskMap[it.id]?.totalDuration ?: 0L }
+                        this.snapshot = TaskTreeSnapshot(newRoot, nTaskMap)
+                        initRecursiveDurations(snapshot)
+                    }
+                }
+            }
+            accessModificationCounter.incrementAndGet()
             log.debug { this.toString() }
-            this.taskMap = nTaskMap
-            readTotalDurations()
             refreshOrderPositionReferences()
             // Now update the status: bookable for time sheets:
             val timesheet = TimesheetDO()
@@ -916,6 +974,7 @@ class TaskTree : AbstractCache(TICKS_PER_HOUR),
 
     private fun updateTimeOfLastModification() {
         this.timeOfLastModification = Date().time
+        accessModificationCounter.incrementAndGet()
     }
 
     companion object {
@@ -925,6 +984,8 @@ class TaskTree : AbstractCache(TICKS_PER_HOUR),
 
         private val EMPTY_LIST: List<TaskNode> = ArrayList()
 
+        private const val RECONCILE_DURATIONS_INTERVAL = 6 * AbstractCache.TICKS_PER_HOUR
+
         @JvmStatic
         val instance: TaskTree
             get() = backingInstance!!
@@ -29,11 +29,16 @@ import org.projectforge.business.teamcal.event.model.TeamEventDO;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 
 /**
  * Own abstraction of a RangeMap. You can add TeamEvents and access them through their start and end date.
+ * <br>
+ * The events are sorted by start date and augmented by the running maximum of the end dates (built lazily on first
+ * access). A period query only visits the events between the first one whose running maximum end date reaches the
+ * start of the period and the last one starting before the end of the period, both found by binary search.
  *
  * @author Johannes Unterstein (j.unterstein@micromata.de)
  */
@@ -43,28 +48,46 @@ public class SubscriptionHolder implements Serializable {
   // one day in milliseconds
   private static final int ONE_DAY = 86400000; // 60*60*24*1000
 
-  // private static final long MIN_DATE_1800 = lendar
-
   private final List<TeamEventDO> eventList;
 
+  private final Map<String, TeamEventDO> eventsByUid;
+
+  /**
+   * Start times of the sorted events (index equals index of eventList).
+   */
+  private long[] startTimes;
+
+  /**
+   * maxEndTimes[i] is the maximum end time of the sorted events 0..i, so it's non-decreasing.
+   */
+  private long[] maxEndTimes;
+
   private boolean sorted;
 
   public SubscriptionHolder() {
     eventList = new ArrayList<>();
+    eventsByUid = new HashMap<>();
     sorted = false;
   }
 
-  public void clear() {
+  public synchronized void clear() {
     eventList.clear();
+    eventsByUid.clear();
+    startTimes = null;
+    maxEndTimes = null;
     sorted = false;
   }
 
-  public void add(final TeamEventDO value) {
+  public synchronized void add(final TeamEventDO value) {
     eventList.add(value);
+    if (value.getUid() != null) {
+      // First one wins (as the former linear search did).
+      eventsByUid.putIfAbsent(value.getUid(), value);
+    }
     sorted = false;
   }
 
-  public void sort() {
+  public synchronized void sort() {
     // the following comparator compares by startDate
     final Comparator<TeamEventDO> comparator = new Comparator<TeamEventDO>() {
       @Override
@@ -83,31 +106,42 @@ public class SubscriptionHolder implements Serializable {
       }
     };
     eventList.sort(comparator);
+    final int size = eventList.size();
+    final long[] starts = new long[size];
+    final long[] maxEnds = new long[size];
+    long maxEnd = Long.MIN_VALUE;
+    for (int i = 0; i < size; i++) {
+      final TeamEventDO event = eventList.get(i);
+      starts[i] = getStartTime(event);
+      maxEnd = Math.max(maxEnd, getEndTime(event));
+      maxEnds[i] = maxEnd;
+    }
+    startTimes = starts;
+    maxEndTimes = maxEnds;
     sorted = true;
   }
 
-  public TeamEventDO getEvent(final String uid) {
-    for (final TeamEventDO teamEventDO : eventList) {
-      if (teamEventDO.getUid() != null && Objects.equals(uid, teamEventDO.getUid()))
-        return teamEventDO;
+  public synchronized TeamEventDO getEvent(final String uid) {
+    if (uid == null) {
+      return null;
     }
-    return null;
+    return eventsByUid.get(uid);
   }
 
-  public List<TeamEventDO> getResultList(final Long startTime, final Long endTime, final boolean minimalAccess) {
-    // sorting should by synchronized
-    synchronized (this) {
-      if (!sorted) {
-        sort();
-      }
+  public synchronized List<TeamEventDO> getResultList(final Long startTime, final Long endTime, final boolean minimalAccess) {
+    if (!sorted) {
+      sort();
     }
+    // Following period extension is needed due to all day events which are stored in UTC. The additional events in the result list not
+    // matching the time period have to be removed by caller!
+    final long extendedStartTime = startTime - ONE_DAY;
+    // All events before this index end before the (extended) start time:
+    final int fromIndex = firstIndexOf(maxEndTimes, extendedStartTime);
+    // all our events are sorted, events starting after the end date don't match:
+    final int toIndex = firstIndexOf(startTimes, endTime + 1);
     final List<TeamEventDO> result = new ArrayList<>();
-    for (final TeamEventDO teamEventDo : eventList) {
-      // all our events are sorted, if we find a event which starts
-      // after the end date, we can break this iteration
-      if (teamEventDo.getStartDate().getTime() > endTime) {
-        break;
-      }
+    for (int i = fromIndex; i < toIndex; i++) {
+      final TeamEventDO teamEventDo = eventList.get(i);
       if (matches(teamEventDo, startTime, endTime)) {
         if (minimalAccess) {
           result.add(teamEventDo.createMinimalCopy());
@@ -120,10 +154,36 @@ public class SubscriptionHolder implements Serializable {
     return result;
   }
 
-  public int size() {
+  public synchronized int size() {
     return eventList.size();
   }
 
+  /**
+   * @return The index of the first element of the given non-decreasing array which is greater or equal to the given
+   * value or the length of the array, if no such element exists.
+   */
+  private static int firstIndexOf(final long[] array, final long value) {
+    int low = 0;
+    int high = array.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (array[mid] < value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static long getStartTime(final TeamEventDO teamEventDo) {
+    return teamEventDo.getStartDate() != null ? teamEventDo.getStartDate().getTime() : TeamEventDao.MIN_DATE_1800;
+  }
+
+  private static long getEndTime(final TeamEventDO teamEventDo) {
+    return teamEventDo.getEndDate() != null ? teamEventDo.getEndDate().getTime() : TeamEventDao.MAX_DATE_3000;
+  }
+
   private boolean matches(final TeamEventDO teamEventDo, Long startTime, Long endTime) {
     // Following period extension is needed due to all day events which are stored in UTC. The additional events in the result list not
     // matching the time period have to be removed by caller!
@@ -137,10 +197,8 @@ public class SubscriptionHolder implements Serializable {
     // // get events whose duration overlap with chosen duration.
     // (Restrictions.and(Restrictions.le("startDate", startDate), Restrictions.ge("endDate", endDate)))));
 
-    final Long eventStartTime = teamEventDo.getStartDate() != null ? teamEventDo.getStartDate().getTime()
-            : TeamEventDao.MIN_DATE_1800;
-    final Long eventEndTime = teamEventDo.getEndDate() != null ? teamEventDo.getEndDate().getTime()
-            : TeamEventDao.MAX_DATE_3000;
+    final Long eventStartTime = getStartTime(teamEventDo);
+    final Long eventEndTime = getEndTime(teamEventDo);
     if (between(eventStartTime, startTime, endTime) || between(eventEndTime, startTime, endTime)) {
       return true;
     }
@@ -23,7 +23,14 @@
 
 package org.projectforge.business.teamcal.externalsubscription;
 
+import jakarta.annotation.PreDestroy;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.Timeout;
 import org.projectforge.business.common.DataobjectAccessType;
 import org.projectforge.business.teamcal.admin.TeamCalCache;
 import org.projectforge.business.teamcal.admin.TeamCalDao;
@@ -42,6 +49,7 @@ import org.projectforge.framework.time.DateHelper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -60,6 +68,23 @@ public class TeamEventExternalSubscriptionCache {
 
     private transient TeamCalRight teamCalRight;
 
+    /**
+     * One pooled client for all subscriptions, so connections (and TLS sessions) to the same host are reused.
+     */
+    private final CloseableHttpClient httpClient = HttpClients.custom()
+            .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                    .setMaxConnTotal(20)
+                    .setMaxConnPerRoute(4)
+                    .setDefaultConnectionConfig(ConnectionConfig.custom()
+                            .setConnectTimeout(Timeout.ofSeconds(30))
+                            .setSocketTimeout(Timeout.ofMinutes(2))
+                            .build())
+                    .build())
+            .setDefaultRequestConfig(RequestConfig.custom()
+                    .setResponseTimeout(Timeout.ofMinutes(2))
+                    .build())
+            .build();
+
     private boolean initialized;
 
     @Autowired
@@ -172,7 +197,7 @@ public class TeamEventExternalSubscriptionCache {
                 teamEventSubscription = new TeamEventSubscription();
                 subscriptions.put(calendar.getId(), teamEventSubscription);
             }
-            teamEventSubscription.update(teamCalDao, calendar);
+            teamEventSubscription.update(teamCalDao, calendar, httpClient);
         } else if (force || teamEventSubscription.getLastUpdated() == null
                 || teamEventSubscription.getLastUpdated() + addedTime <= now) {
             if (!force && teamEventSubscription.getNumberOfFailedUpdates() > 0) {
@@ -182,7 +207,7 @@ public class TeamEventExternalSubscriptionCache {
                     lastRun = teamEventSubscription.getLastFailedUpdate();
                 }
                 if (lastRun == null || lastRun + teamEventSubscription.getNumberOfFailedUpdates() * addedTime <= now) {
-                    teamEventSubscription.update(teamCalDao, calendar);
+                    teamEventSubscription.update(teamCalDao, calendar, httpClient);
                 } else if (lastRun + MAX_WAIT_MS_AFTER_FAILED_UPDATE > now) {
                     log.info("Try to update subscribed calendar after "
                             + (MAX_WAIT_MS_AFTER_FAILED_UPDATE / 1000 / 60 / 60)
@@ -192,15 +217,24 @@ public class TeamEventExternalSubscriptionCache {
                             + (teamEventSubscription.getLastUpdated() != null
                             ? DateHelper.formatAsUTC(new Date(teamEventSubscription.getLastUpdated()))
                             : "-"));
-                    teamEventSubscription.update(teamCalDao, calendar);
+                    teamEventSubscription.update(teamCalDao, calendar, httpClient);
                 }
             } else {
                 // update the calendar
-                teamEventSubscription.update(teamCalDao, calendar);
+                teamEventSubscription.update(teamCalDao, calendar, httpClient);
             }
         }
     }
 
+    @PreDestroy
+    private void shutdown() {
+        try {
+            httpClient.close();
+        } catch (final IOException ex) {
+            log.warn("Error while closing http client: " + ex.getMessage());
+        }
+    }
+
     public boolean isExternalSubscribedCalendar(final Long calendarId) {
         init();
         return subscriptions.keySet().contains(calendarId);
@@ -27,8 +27,9 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHeaders;
 import org.apache.hc.core5.http.HttpStatus;
 import org.projectforge.business.teamcal.admin.TeamCalDao;
 import org.projectforge.business.teamcal.admin.model.TeamCalDO;
@@ -36,15 +37,18 @@ import org.projectforge.business.teamcal.ical.ICalParser;
 import org.projectforge.business.teamcal.event.model.TeamEventDO;
 import org.projectforge.framework.time.DateHelper;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
 import java.math.BigInteger;
+import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 
 /**
  * Holds and updates events of a subscribed calendar.
@@ -64,8 +68,16 @@ public class TeamEventSubscription implements Serializable {
 
   private List<TeamEventDO> recurrenceEvents;
 
+  private Map<String, TeamEventDO> recurrenceEventsByUid;
+
   private String currentInitializedHash;
 
+  /**
+   * Validators of the last successful download, sent as If-None-Match/If-Modified-Since on the next update, so
+   * unchanged feeds aren't downloaded and parsed again.
+   */
+  private String etag, lastModified, validatorsUrl;
+
   private Long lastUpdated, lastFailedUpdate;
 
   private int numberOfFailedUpdates = 0;
@@ -101,29 +113,40 @@ public class TeamEventSubscription implements Serializable {
   /**
    * We update the cache softly, therefore we create a new instance and replace the old instance in the cached map then
    * creation and update is therefore the same two lines of code, but semantically different things.
+   *
+   * @param httpClient The (pooled) client shared by all subscriptions, see {@link TeamEventExternalSubscriptionCache}.
    */
-  public void update(final TeamCalDao teamCalDao, final TeamCalDO teamCalDO) {
+  public void update(final TeamCalDao teamCalDao, final TeamCalDO teamCalDO, final CloseableHttpClient httpClient) {
     this.teamCalId = teamCalDO.getId();
-    currentInitializedHash = null;
-    lastUpdated = null;
     this.initialized = true;
     String url = teamCalDO.getExternalSubscriptionUrl();
     if (!teamCalDO.getExternalSubscription() || StringUtils.isEmpty(url)) {
       // No external subscription.
+      currentInitializedHash = null;
+      lastUpdated = null;
       clear();
       return;
     }
     url = StringUtils.replace(url, "webcal", "http");
     final String displayUrl = teamCalDO.getExternalSubscriptionUrlAnonymized();
     log.info("Getting subscribed calendar #" + teamCalDO.getId() + " from: " + displayUrl);
-    byte[] bytes = null;
-
-    // Create a method instance.
-    try (final CloseableHttpClient client = HttpClients.createDefault()) {
-      final HttpGet method = new HttpGet(url);
-
-      bytes = client.execute(method, response -> {
+    // Conditional get only, if the current subscription was initialized from the same url:
+    final boolean conditional = subscription != null && currentInitializedHash != null
+        && StringUtils.equals(url, validatorsUrl);
+    final Download download;
+    final HttpGet method = new HttpGet(url);
+    if (conditional && etag != null) {
+      method.setHeader(HttpHeaders.IF_NONE_MATCH, etag);
+    }
+    if (conditional && lastModified != null) {
+      method.setHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+    }
+    try {
+      download = httpClient.execute(method, response -> {
         final int statusCode = response.getCode();
+        if (statusCode == HttpStatus.SC_NOT_MODIFIED && conditional) {
+          return Download.NOT_MODIFIED;
+        }
         if (statusCode != HttpStatus.SC_OK) {
           error("Unable to gather subscription calendar #"
               + teamCalDO.getId()
@@ -137,23 +160,38 @@ public class TeamEventSubscription implements Serializable {
         if (responseEntity == null) {
           return null;
         }
-        try (InputStream inputStream = responseEntity.getContent()) {
-          return IOUtils.toByteArray(inputStream);
+        // The bytes are needed anyway as database fallback, the hash is calculated while reading them:
+        final MessageDigest md = getMD5();
+        final byte[] content;
+        try (InputStream inputStream = md != null ? new DigestInputStream(responseEntity.getContent(), md)
+            : responseEntity.getContent()) {
+          content = IOUtils.toByteArray(inputStream);
         }
+        return new Download(content, md != null ? calcHexHash(md.digest()) : null,
+            getHeaderValue(response.getFirstHeader(HttpHeaders.ETAG)),
+            getHeaderValue(response.getFirstHeader(HttpHeaders.LAST_MODIFIED)));
       });
     } catch (IOException ex) {
       log.error(ex.getMessage());
       return;
     }
-    if (bytes == null) {
+    if (download == null) {
+      return;
+    }
+    if (download == Download.NOT_MODIFIED) {
+      log.info("Subscribed calendar #" + teamCalDO.getId() + " not modified (HTTP 304) at: " + displayUrl
+          + " (OK, nothing to be done).");
+      lastUpdated = System.currentTimeMillis();
+      clear();
       return;
     }
+    byte[] bytes = download.bytes;
 
     try {
-
-      final MessageDigest md = MessageDigest.getInstance("MD5");
-
-      final String md5 = calcHexHash(md.digest(bytes));
+      final String md5 = download.md5;
+      if (md5 == null) {
+        throw new IllegalStateException("MD5 algorithm not available.");
+      }
       if (!StringUtils.equals(md5, teamCalDO.getExternalSubscriptionHash())) {
         teamCalDO.setExternalSubscriptionHash(md5);
         teamCalDO.setExternalSubscriptionCalendarBinary(bytes);
@@ -176,24 +214,27 @@ public class TeamEventSubscription implements Serializable {
           null);
       return;
     }
-    if (currentInitializedHash != null
+    if (subscription != null && currentInitializedHash != null
         && StringUtils.equals(currentInitializedHash, teamCalDO.getExternalSubscriptionHash())) {
       // nothing to do here if the hashes are equal
       log.info("No modification of subscribed calendar #" + teamCalDO.getId() + " found from: " + displayUrl
           + " (OK, nothing to be done).");
+      rememberValidators(url, download);
+      lastUpdated = System.currentTimeMillis();
       clear();
       return;
     }
 
     final SubscriptionHolder newSubscription = new SubscriptionHolder();
     final ArrayList<TeamEventDO> newRecurrenceEvents = new ArrayList<>();
+    final Map<String, TeamEventDO> newRecurrenceEventsByUid = new HashMap<>();
     try {
       final Date timeInPast = new Date(System.currentTimeMillis() - TIME_IN_THE_PAST);
       Long startId = -1L;
       ICalParser parser = new ICalParser();
 
       // the event id must (!) be negative and decrementing (different on each event)
-      for (TeamEventDO event : parser.parse(bytes)) {
+      for (TeamEventDO event : parser.parse(new ByteArrayInputStream(bytes))) {
         if (event.getStartDate().getTime() < timeInPast.getTime() && event.getRecurrenceRule() == null) {
           continue;
         }
@@ -203,18 +244,25 @@ public class TeamEventSubscription implements Serializable {
         if (event.hasRecurrence()) {
           // special treatment for recurrence events ..
           newRecurrenceEvents.add(event);
+          if (event.getUid() != null) {
+            newRecurrenceEventsByUid.putIfAbsent(event.getUid(), event);
+          }
         } else {
           newSubscription.add(event);
         }
 
         startId--;
       }
+      // Build the index now and not while serving the first calendar request:
+      newSubscription.sort();
 
       // OK, update the subscription:
       recurrenceEvents = newRecurrenceEvents;
+      recurrenceEventsByUid = newRecurrenceEventsByUid;
       subscription = newSubscription;
       lastUpdated = System.currentTimeMillis();
       currentInitializedHash = teamCalDO.getExternalSubscriptionHash();
+      rememberValidators(url, download);
       clear();
       log.info("Subscribed calendar #" + teamCalDO.getId() + " successfully received from: " + displayUrl);
     } catch (final Exception e) {
@@ -227,6 +275,43 @@ public class TeamEventSubscription implements Serializable {
     }
   }
 
+  private void rememberValidators(final String url, final Download download) {
+    this.validatorsUrl = url;
+    this.etag = download.etag;
+    this.lastModified = download.lastModified;
+  }
+
+  private static String getHeaderValue(final Header header) {
+    return header != null ? StringUtils.trimToNull(header.getValue()) : null;
+  }
+
+  private static MessageDigest getMD5() {
+    try {
+      return MessageDigest.getInstance("MD5");
+    } catch (final Exception ex) {
+      log.error("Can't get MD5 algorithm: " + ex.getMessage(), ex);
+      return null;
+    }
+  }
+
+  /**
+   * Result of a download of the subscribed calendar.
+   */
+  private static class Download {
+    private static final Download NOT_MODIFIED = new Download(null, null, null, null);
+
+    private final byte[] bytes;
+
+    private final String md5, etag, lastModified;
+
+    private Download(final byte[] bytes, final String md5, final String etag, final String lastModified) {
+      this.bytes = bytes;
+      this.md5 = md5;
+      this.etag = etag;
+      this.lastModified = lastModified;
+    }
+  }
+
   private void clear() {
     this.lastErrorMessage = null;
     this.lastFailedUpdate = null;
@@ -277,15 +362,11 @@ public class TeamEventSubscription implements Serializable {
     if (subscription == null && recurrenceEvents == null) {
       return null;
     }
-    TeamEventDO teamEvent = subscription.getEvent(uid);
+    TeamEventDO teamEvent = subscription != null ? subscription.getEvent(uid) : null;
     if (teamEvent != null) {
       return teamEvent;
     }
-    for (final TeamEventDO teamEventDO : recurrenceEvents) {
-      if (teamEventDO.getUid() != null && Objects.equals(uid, teamEventDO.getUid()))
-        return teamEventDO;
-    }
-    return null;
+    return recurrenceEventsByUid != null ? recurrenceEventsByUid.get(uid) : null;
   }
 
   public List<TeamEventDO> getEvents(final Long startTime, final Long endTime, final boolean minimalAccess) {
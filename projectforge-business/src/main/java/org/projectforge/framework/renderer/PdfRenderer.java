@@ -124,7 +124,7 @@ public class PdfRenderer {
 
       // Setup XSLT
       final TransformerFactory factory = TransformerFactory.newInstance();
-      Object[] result = configurationService.getResourceAsInputStream(stylesheet);
+      final Object[] result = configurationService.getResourceAsInputStream(stylesheet);
       xsltInputStream = (InputStream) result[0];
       final StreamSource xltStreamSource = new StreamSource(xsltInputStream);
       final String url = (String) result[1];
@@ -141,12 +141,10 @@ public class PdfRenderer {
         transformer.setParameter(entry.getKey(), entry.getValue());
       }
 
-      // First run jelly through xmlData:
-      result = configurationService.getResourceContentAsString(groovyXml);
+      // First run jelly through xmlData (the parsed template is cached by the GroovyTemplateRegistry):
       final GroovyEngine groovyEngine = new GroovyEngine(configurationService, data, ThreadLocalUserContext.getLocale(),
               ThreadLocalUserContext.getTimeZone());
-      final String groovyXmlInput = groovyEngine.preprocessGroovyXml((String) result[0]);
-      final String xmlData = groovyEngine.executeTemplate(groovyXmlInput);
+      final String xmlData = groovyEngine.executeGroovyXmlTemplateFile(groovyXml);
 
       // Setup input for XSLT transformation
       final StringReader xmlDataReader = new StringReader(xmlData);
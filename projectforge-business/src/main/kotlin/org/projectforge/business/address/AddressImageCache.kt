@@ -26,11 +26,13 @@ package org.projectforge.business.address
 import jakarta.annotation.PostConstruct
 import jakarta.persistence.Tuple
 import mu.KotlinLogging
+import org.projectforge.Constants
 import org.projectforge.framework.cache.AbstractCache
 import org.projectforge.framework.persistence.database.TupleUtils
 import org.projectforge.framework.persistence.jpa.PfPersistenceService
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.stereotype.Component
+import java.util.*
 
 private val log = KotlinLogging.logger {}
 
@@ -47,6 +49,16 @@ open class AddressImageCache : AbstractCache() {
      */
     private var imageMap = mapOf<Long, AddressImageDO>()
 
+    /**
+     * Encoded bytes of small renditions (thumbnails and previews) in LRU order, bounded by [MAX_IMAGE_BYTES_SIZE].
+     * Entries are only valid for the lastUpdate of the image.
+     */
+    private val imageBytesMap = LinkedHashMap<String, ImageBytes>(16, 0.75f, true)
+
+    private var imageBytesSize = 0L
+
+    private class ImageBytes(val lastUpdate: Long, val bytes: ByteArray)
+
     @PostConstruct
     private fun postConstruct() {
         instance = this
@@ -64,6 +76,55 @@ open class AddressImageCache : AbstractCache() {
         return imageMap[addressId]
     }
 
+    /**
+     * @param lastUpdate The last update of the image (the cached bytes of older versions aren't returned).
+     * @return The cached bytes of the given rendition or null, if not cached.
+     */
+    fun getImageBytes(addressId: Long, rendition: AddressImageRendition, lastUpdate: Date): ByteArray? {
+        synchronized(imageBytesMap) {
+            val entry = imageBytesMap[getImageBytesKey(addressId, rendition)] ?: return null
+            return if (entry.lastUpdate == lastUpdate.time) entry.bytes else null
+        }
+    }
+
+    fun putImageBytes(addressId: Long, rendition: AddressImageRendition, lastUpdate: Date, bytes: ByteArray) {
+        if (bytes.size > MAX_IMAGE_BYTES_SIZE / 10) {
+            return // Don't let a single image evict too many others.
+        }
+        synchronized(imageBytesMap) {
+            imageBytesMap.put(getImageBytesKey(addressId, rendition), ImageBytes(lastUpdate.time, bytes))?.let {
+                imageBytesSize -= it.bytes.size
+            }
+            imageBytesSize += bytes.size
+            val it = imageBytesMap.values.iterator()
+            while (imageBytesSize > MAX_IMAGE_BYTES_SIZE && it.hasNext()) {
+                imageBytesSize -= it.next().bytes.size // Eldest (least recently used) first.
+                it.remove()
+            }
+        }
+    }
+
+    fun evictImageBytes(addressId: Long) {
+        synchronized(imageBytesMap) {
+            AddressImageRendition.entries.forEach { rendition ->
+                imageBytesMap.remove(getImageBytesKey(addressId, rendition))?.let {
+                    imageBytesSize -= it.bytes.size
+                }
+            }
+        }
+    }
+
+    fun evictAllImageBytes() {
+        synchronized(imageBytesMap) {
+            imageBytesMap.clear()
+            imageBytesSize = 0L
+        }
+    }
+
+    private fun getImageBytesKey(addressId: Long, rendition: AddressImageRendition): String {
+        return "$addressId:$rendition"
+    }
+
     /**
      * This method will be called by CacheHelper and is synchronized via getData();
      */
@@ -96,6 +157,11 @@ open class AddressImageCache : AbstractCache() {
         lateinit var instance: AddressImageCache
             private set
 
+        /**
+         * Thumbnails are about 2-3 KB, so several thousands of them fit.
+         */
+        private const val MAX_IMAGE_BYTES_SIZE = 20L * Constants.MB
+
         private val SELECT_ADDRESS_IMAGE_INFO =
             "SELECT address.id as addressId,lastUpdate as lastUpdate,imageType as imageType FROM ${AddressImageDO::class.simpleName}"
     }
@@ -45,6 +45,10 @@ import java.util.Date
         name = AddressImageDO.SELECT_IMAGE_PREVIEW_ONLY,
         query = "select id as id,lastUpdate as lastUpdate,imageType as imageType,imagePreview as imagePreview from AddressImageDO where address.id = :addressId"
     ),
+    NamedQuery(
+        name = AddressImageDO.SELECT_IMAGE_MEDIUM_ONLY,
+        query = "select id as id,lastUpdate as lastUpdate,imageType as imageType,imageMedium as imageMedium from AddressImageDO where address.id = :addressId"
+    ),
     NamedQuery(
         name = AddressImageDO.DELETE_ALL_IMAGES_BY_ADDRESS_ID,
         query = "delete from AddressImageDO where address.id = :addressId"
@@ -74,6 +78,13 @@ open class AddressImageDO : IdObject<Long> {
     @get:Basic(fetch = FetchType.LAZY)
     open var imagePreview: ByteArray? = null
 
+    /**
+     * Medium sized rendition, see [AddressImageRendition.PREVIEW]. Null for images uploaded before 8.0.24.
+     */
+    @get:Column(name = "image_medium", columnDefinition = "BLOB")
+    @get:Basic(fetch = FetchType.LAZY)
+    open var imageMedium: ByteArray? = null
+
     @get:Column(name = "image_type", length = 5)
     @get:Enumerated(EnumType.STRING)
     open var imageType: ImageType? = null
@@ -82,6 +93,7 @@ open class AddressImageDO : IdObject<Long> {
         internal const val SELECT_WITHOUT_IMAGES = "AddressImageDO.selectWithoutImages"
         internal const val SELECT_IMAGE_ONLY = "AddressImageDO.selectImage"
         internal const val SELECT_IMAGE_PREVIEW_ONLY = "AddressImageDO.selectImagePreview"
+        internal const val SELECT_IMAGE_MEDIUM_ONLY = "AddressImageDO.selectImageMedium"
         internal const val DELETE_ALL_IMAGES_BY_ADDRESS_ID = "AddressImageDO.deleteAllImagesByAddressId"
     }
 }
@@ -57,7 +57,8 @@ open class AddressImageDao {
         addressId: Long,
         fetchImage: Boolean = false,
         fetchPreviewImage: Boolean = false,
-        checkAccess: Boolean = true
+        checkAccess: Boolean = true,
+        fetchMediumImage: Boolean = false,
     ): AddressImageDO? {
         if (checkAccess) {
             addressDao.find(addressId, checkAccess = true) ?: return null // For access checking!
@@ -76,6 +77,8 @@ open class AddressImageDao {
             AddressImageDO.SELECT_IMAGE_ONLY
         } else if (fetchPreviewImage) {
             AddressImageDO.SELECT_IMAGE_PREVIEW_ONLY
+        } else if (fetchMediumImage) {
+            AddressImageDO.SELECT_IMAGE_MEDIUM_ONLY
         } else {
             AddressImageDO.SELECT_WITHOUT_IMAGES
         }
@@ -88,6 +91,8 @@ open class AddressImageDao {
                 result.image = it.get("image", ByteArray::class.java)
             } else if (fetchPreviewImage) {
                 result.imagePreview = it.get("imagePreview", ByteArray::class.java)
+            } else if (fetchMediumImage) {
+                result.imageMedium = it.get("imageMedium", ByteArray::class.java)
             }
         }
         // Fix: lastUpdate is not set in the database for older entries.
@@ -95,6 +100,48 @@ open class AddressImageDao {
         return result
     }
 
+    /**
+     * Gets the image info (lastUpdate and image type, no image data) from the [AddressImageCache]. Does the access
+     * checking. The user may only get images, if he has the select access to the given address.
+     * @return The image info or null, if the address has no image or the user has no access.
+     */
+    @JvmOverloads
+    open fun getImageInfo(addressId: Long, checkAccess: Boolean = true): AddressImageDO? {
+        val info = addressImageCache.getImage(addressId) ?: return null
+        if (checkAccess) {
+            addressDao.find(addressId, checkAccess = true) ?: return null // For access checking!
+        }
+        return info
+    }
+
+    /**
+     * Gets the bytes of the given rendition. The small renditions are held by the [AddressImageCache], so they're read
+     * only once from the data base. For images without preview rendition (uploaded before 8.0.24), the full image is
+     * returned instead.
+     * Does the access checking. The user may only get images, if he has the select access to the given address.
+     */
+    @JvmOverloads
+    open fun getImage(addressId: Long, rendition: AddressImageRendition, checkAccess: Boolean = true): ByteArray? {
+        val info = getImageInfo(addressId, checkAccess) ?: return null
+        val lastUpdate = info.lastUpdate ?: Date(0L)
+        if (rendition.cacheable) {
+            addressImageCache.getImageBytes(addressId, rendition, lastUpdate)?.let { return it }
+        }
+        val image = when (rendition) {
+            AddressImageRendition.THUMBNAIL -> getPreviewImage(addressId, checkAccess = false)
+            AddressImageRendition.PREVIEW -> {
+                findImage(addressId, fetchMediumImage = true, checkAccess = false)?.imageMedium
+                    ?: getImage(addressId, checkAccess = false)
+            }
+
+            AddressImageRendition.FULL -> getImage(addressId, checkAccess = false)
+        }
+        if (image != null && rendition.cacheable) {
+            addressImageCache.putImageBytes(addressId, rendition, lastUpdate, image)
+        }
+        return image
+    }
+
     /**
      * Does the access checking. The user may only get images, if he has the select access to the given address.
      */
@@ -159,12 +206,7 @@ open class AddressImageDao {
             ) ?: AddressImageDO()
             addressImage.address = address
             addressImage.image = imageResult.bytes
-            addressImage.imagePreview = imageService.resizeImagePreserveRatio(
-                imageResult.bytes,
-                MAX_WIDTH_OF_PREVIEW_IMAGES,
-                MAX_HEIGHT_OF_PREVIEW_IMAGES,
-                imageResult.imageType,
-            )
+            createRenditions(addressImage, imageResult.imageType)
             addressImage.imageType = imageResult.imageType  // Use actual format (JPEG or PNG)
             addressImage.lastUpdate = Date()
             if (addressImage.id != null) {
@@ -176,6 +218,7 @@ open class AddressImageDao {
             }
         }
         log.info("New image for address ${address.id} (${address.fullName}) saved.")
+        addressImageCache.evictImageBytes(addressId)
         addressImageCache.setExpired()
         return true
     }
@@ -205,6 +248,7 @@ open class AddressImageDao {
                 success = true
             }
         }
+        addressImageCache.evictImageBytes(addressId)
         addressImageCache.setExpired()
         return success
     }
@@ -293,12 +337,7 @@ open class AddressImageDao {
                             attached.image = finalImageBytes
                         }
                         attached.imageType = finalImageType  // Use actual format (JPEG or PNG)
-                        attached.imagePreview = imageService.resizeImagePreserveRatio(
-                            finalImageBytes,
-                            MAX_WIDTH_OF_PREVIEW_IMAGES,
-                            MAX_HEIGHT_OF_PREVIEW_IMAGES,
-                            finalImageType,
-                        )
+                        createRenditions(attached, finalImageType)
                         result.append("Preview image of address ${addressImage.address?.id} of size ${attached.imagePreview?.size.formatBytesForUser()} generated.\n")
                         attached.lastUpdate = Date()
                         context.update(attached)
@@ -342,14 +381,24 @@ open class AddressImageDao {
         result.append("  Duration: $duration seconds\n")
 
         log.info("Image shrinking completed: $shrinkedImages shrinked, $skippedImages skipped, $failedImages failed, saved $savedMB MB")
+        addressImageCache.evictAllImageBytes()
         addressImageCache.setExpired()
 
         return result.toString()
     }
 
+    /**
+     * Creates the thumbnail and preview renditions from the (full) image of the given address image.
+     */
+    private fun createRenditions(addressImage: AddressImageDO, imageType: ImageType) {
+        val image = addressImage.image ?: return
+        val renditions = listOf(AddressImageRendition.THUMBNAIL, AddressImageRendition.PREVIEW)
+        val result = imageService.createRenditions(image, renditions.map { Pair(it.maxWidth!!, it.maxHeight!!) }, imageType)
+        addressImage.imagePreview = result[0]
+        addressImage.imageMedium = result[1]
+    }
+
     companion object {
         private const val MAX_SIZE_BYTES_OF_SHRINKED_IMAGES = 100L * Constants.KB
-        private const val MAX_WIDTH_OF_PREVIEW_IMAGES = 50
-        private const val MAX_HEIGHT_OF_PREVIEW_IMAGES = 50
     }
 }
@@ -0,0 +1,54 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.business.address
+
+/**
+ * The renditions of an address image, all of them are created once on upload.
+ * @param maxWidth Maximum width in pixels (null for the full image as uploaded and shrunk to the max file size).
+ * @param maxHeight Maximum height in pixels.
+ * @param cacheable If true, the bytes are held by the [AddressImageCache] (small renditions only).
+ */
+enum class AddressImageRendition(val maxWidth: Int?, val maxHeight: Int?, val cacheable: Boolean) {
+    /**
+     * Avatar used by the address list, stored in [AddressImageDO.imagePreview] (for historical reasons).
+     */
+    THUMBNAIL(50, 50, true),
+
+    /**
+     * Used by the address view page, stored in [AddressImageDO.imageMedium].
+     */
+    PREVIEW(300, 300, true),
+
+    /**
+     * Stored in [AddressImageDO.image].
+     */
+    FULL(null, null, false);
+
+    companion object {
+        fun fromString(value: String?): AddressImageRendition? {
+            value ?: return null
+            return entries.find { it.name.equals(value, ignoreCase = true) }
+        }
+    }
+}
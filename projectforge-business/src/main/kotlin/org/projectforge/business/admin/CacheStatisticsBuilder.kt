@@ -0,0 +1,44 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.business.admin
+
+import org.projectforge.framework.cache.AbstractCache
+
+/**
+ * Number and durations of full and delta refreshes of all caches.
+ */
+class CacheStatisticsBuilder : SystemsStatisticsBuilderInterface {
+    override fun addStatisticsEntries(stats: SystemStatisticsData) {
+        AbstractCache.getCaches()
+            .sortedBy { it::class.simpleName }
+            .forEach { cache ->
+                val name = cache::class.simpleName ?: cache::class.java.name
+                val refreshStats = cache.refreshStatistics
+                val value = "full=${format(refreshStats.fullRefreshCount)} (${format(refreshStats.fullRefreshDurationMillis)}ms), " +
+                        "delta=${format(refreshStats.deltaRefreshCount)} (${format(refreshStats.deltaRefreshDurationMillis)}ms, " +
+                        "entries=${format(refreshStats.deltaRefreshedEntriesCount)})"
+                stats.add(name, "caches", "'$name", value)
+            }
+    }
+}
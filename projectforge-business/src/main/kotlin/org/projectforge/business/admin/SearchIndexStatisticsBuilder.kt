@@ -0,0 +1,47 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.business.admin
+
+import org.projectforge.framework.persistence.search.HibernateSearchDependentObjectsReindexer
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.stereotype.Service
+
+/**
+ * Queue depth and throughput of the re-indexing of dependent objects.
+ */
+@Service
+class SearchIndexStatisticsBuilder : SystemsStatisticsBuilderInterface {
+    @Autowired
+    private lateinit var reindexer: HibernateSearchDependentObjectsReindexer
+
+    override fun addStatisticsEntries(stats: SystemStatisticsData) {
+        val value = "queued=${format(reindexer.queueDepth)}, " +
+                "enqueued=${format(reindexer.enqueuedCounter.get())}, " +
+                "deduplicated=${format(reindexer.deduplicatedCounter.get())}, " +
+                "rejected=${format(reindexer.rejectedCounter.get())}, " +
+                "batches=${format(reindexer.batchCounter.get())} (${format(reindexer.durationMillis.get())}ms), " +
+                "re-indexed=${format(reindexer.reindexedCounter.get())}"
+        stats.add("dependentObjectsReindexer", "search index", "'Dependent objects re-indexing", value)
+    }
+}
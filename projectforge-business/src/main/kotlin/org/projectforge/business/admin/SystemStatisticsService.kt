@@ -46,6 +46,9 @@ class SystemStatistics {
     @Autowired
     private lateinit var diskUsageStatisticsBuilder: DiskUsageStatisticsBuilder
 
+    @Autowired
+    private lateinit var searchIndexStatisticsBuilder: SearchIndexStatisticsBuilder
+
     private var statisticsBuilderRegistry = mutableSetOf<SystemsStatisticsBuilderInterface>()
 
     @PostConstruct
@@ -56,6 +59,8 @@ class SystemStatistics {
         registerStatisticsBuilder(databaseStatisticsBuilder)
         registerStatisticsBuilder(MemoryStatisticsBuilder())
         registerStatisticsBuilder(diskUsageStatisticsBuilder)
+        registerStatisticsBuilder(CacheStatisticsBuilder())
+        registerStatisticsBuilder(searchIndexStatisticsBuilder)
     }
 
     /**
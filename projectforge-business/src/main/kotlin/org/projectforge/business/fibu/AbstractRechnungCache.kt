@@ -48,6 +48,8 @@ abstract class AbstractRechnungCache(
 
     open fun update(invoice: AbstractRechnungDO) {
         invoiceInfoMap[invoice.id!!] = RechnungCalculator.calculate(invoice)
+        // Positions and cost assignments are re-read from the database by the next (delta) refresh:
+        setExpired(listOf(invoice.id!!))
     }
 
     /**
@@ -117,20 +119,50 @@ abstract class AbstractRechnungCache(
         log.info("Getting all invoices ($entityName)...")
         val nInvoiceInfoMap = ConcurrentHashMap<Long, RechnungInfo>()
         val nInvoicePosInfoMap = ConcurrentHashMap<Long, RechnungPosInfo>()
-        rechnungJdbcService.selectRechnungInfos(entityClass).forEach { rechnungInfo ->
-            nInvoiceInfoMap[rechnungInfo.id] = rechnungInfo.also { info ->
+        putAll(rechnungJdbcService.selectRechnungInfos(entityClass), nInvoiceInfoMap, nInvoicePosInfoMap)
+        this.invoiceInfoMap = nInvoiceInfoMap
+        this.invoicePosInfoMap = nInvoicePosInfoMap
+        log.info { "Initializing cache (${entityName}) done: ${duration.toSeconds()}." }
+    }
+
+    override val isDeltaRefreshSupported: Boolean
+        get() = true
+
+    /**
+     * Re-reads only the given invoices with their positions. Works on copies of the maps (copy-on-write), so readers
+     * always see consistent data.
+     */
+    override fun refreshDelta(ids: Set<Long>) {
+        val infos = rechnungJdbcService.selectRechnungInfos(entityClass, ids)
+        val nInvoiceInfoMap = ConcurrentHashMap(invoiceInfoMap)
+        val nInvoicePosInfoMap = ConcurrentHashMap(invoicePosInfoMap)
+        ids.forEach { id ->
+            nInvoiceInfoMap.remove(id)?.positions?.forEach { pos ->
+                pos.id?.let { nInvoicePosInfoMap.remove(it) }
+            }
+        }
+        putAll(infos, nInvoiceInfoMap, nInvoicePosInfoMap)
+        this.invoiceInfoMap = nInvoiceInfoMap
+        this.invoicePosInfoMap = nInvoicePosInfoMap
+        log.debug { "Delta refresh of cache (${entityName}) done for ${ids.size} invoices." }
+    }
+
+    private fun putAll(
+        infos: List<RechnungInfo>,
+        infoMap: MutableMap<Long, RechnungInfo>,
+        posInfoMap: MutableMap<Long, RechnungPosInfo>,
+    ) {
+        infos.forEach { rechnungInfo ->
+            infoMap[rechnungInfo.id] = rechnungInfo.also { info ->
                 info.positions?.forEach { pos ->
                     val posId = pos.id
                     if (posId != null) {
-                        nInvoicePosInfoMap[posId] = pos
+                        posInfoMap[posId] = pos
                     } else {
                         log.error { "Position without id found in invoice: ${info.id}." }
                     }
                 }
             }
         }
-        this.invoiceInfoMap = nInvoiceInfoMap
-        this.invoicePosInfoMap = nInvoicePosInfoMap
-        log.info { "Initializing cache (${entityName}) done: ${duration.toSeconds()}." }
     }
 }
@@ -51,6 +51,7 @@ import org.projectforge.framework.persistence.api.QueryFilter.Companion.or
 import org.projectforge.framework.persistence.api.SortProperty.Companion.desc
 import org.projectforge.framework.persistence.api.impl.DBPredicate
 import org.projectforge.framework.persistence.history.FlatHistoryFormatService
+import org.projectforge.framework.persistence.history.HistoryEmbeddedEntities
 import org.projectforge.framework.persistence.history.HistoryLoadContext
 import org.projectforge.framework.persistence.utils.SQLHelper.getYearsByTupleOfLocalDate
 import org.projectforge.framework.utils.NumberHelper.parseInteger
@@ -578,16 +579,10 @@ open class AuftragDao : BaseDao<AuftragDO>(AuftragDO::class.java) {
         return persistenceService.getNextNumber("AuftragDO", "nummer", START_NUMBER)
     }
 
-    override fun addOwnHistoryEntries(
-        obj: AuftragDO,
-        context: HistoryLoadContext
-    ) {
-        obj.positionenIncludingDeleted?.forEach { position ->
-            historyService.loadAndMergeHistory(position, context)
-        }
-        obj.paymentSchedules?.forEach { schedule ->
-            historyService.loadAndMergeHistory(schedule, context)
-        }
+    override fun getHistoryEmbeddedEntities(obj: AuftragDO): HistoryEmbeddedEntities {
+        return HistoryEmbeddedEntities(
+            (obj.positionenIncludingDeleted ?: emptyList()) + (obj.paymentSchedules ?: emptyList()),
+        )
     }
 
     override fun getHistoryPropertyPrefix(context: HistoryLoadContext): String? {
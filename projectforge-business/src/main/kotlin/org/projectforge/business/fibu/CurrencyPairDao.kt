@@ -30,7 +30,7 @@ import org.projectforge.framework.persistence.api.BaseDao
 import org.projectforge.framework.persistence.api.BaseSearchFilter
 import org.projectforge.framework.persistence.api.QueryFilter
 import org.projectforge.framework.persistence.api.SortProperty
-import org.projectforge.framework.persistence.history.HistoryLoadContext
+import org.projectforge.framework.persistence.history.HistoryEmbeddedEntities
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.stereotype.Service
 
@@ -66,10 +66,8 @@ open class CurrencyPairDao : BaseDao<CurrencyPairDO>(CurrencyPairDO::class.java)
     /**
      * Gets history entries of super and adds all history entries of the CurrencyConversionRateDO children.
      */
-    override fun addOwnHistoryEntries(obj: CurrencyPairDO, context: HistoryLoadContext) {
-        currencyConversionService.selectAllRates(obj.id!!, deleted = null).forEach { rateDO ->
-            historyService.loadAndMergeHistory(rateDO, context)
-        }
+    override fun getHistoryEmbeddedEntities(obj: CurrencyPairDO): HistoryEmbeddedEntities {
+        return HistoryEmbeddedEntities(currencyConversionService.selectAllRates(obj.id!!, deleted = null))
     }
 
     init {
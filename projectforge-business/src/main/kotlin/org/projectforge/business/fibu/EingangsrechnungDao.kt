@@ -36,6 +36,7 @@ import org.projectforge.framework.persistence.api.BaseDao
 import org.projectforge.framework.persistence.api.BaseSearchFilter
 import org.projectforge.framework.persistence.api.QueryFilter.Companion.isIn
 import org.projectforge.framework.persistence.api.SortProperty.Companion.desc
+import org.projectforge.framework.persistence.history.HistoryEmbeddedEntities
 import org.projectforge.framework.persistence.history.HistoryLoadContext
 import org.projectforge.framework.persistence.utils.SQLHelper.getYearsByTupleOfLocalDate
 import org.springframework.beans.factory.annotation.Autowired
@@ -189,13 +190,9 @@ open class EingangsrechnungDao : BaseDao<EingangsrechnungDO>(EingangsrechnungDO:
      *
      * @see org.projectforge.framework.persistence.api.BaseDao.selectFlatDisplayHistoryEntries
      */
-    override fun addOwnHistoryEntries(obj: EingangsrechnungDO, context: HistoryLoadContext) {
-        obj.positionen?.forEach { position ->
-            historyService.loadAndMergeHistory(position, context)
-            position.kostZuweisungen?.forEach { zuweisung ->
-                historyService.loadAndMergeHistory(zuweisung, context)
-            }
-        }
+    override fun getHistoryEmbeddedEntities(obj: EingangsrechnungDO): HistoryEmbeddedEntities? {
+        val positionen = obj.positionen ?: return null
+        return HistoryEmbeddedEntities(positionen + positionen.flatMap { it.kostZuweisungen ?: emptyList() })
     }
 
     override fun getHistoryPropertyPrefix(context: HistoryLoadContext): String? {
@@ -35,7 +35,7 @@ import org.projectforge.framework.persistence.api.BaseDao
 import org.projectforge.framework.persistence.api.BaseSearchFilter
 import org.projectforge.framework.persistence.api.QueryFilter
 import org.projectforge.framework.persistence.api.SortProperty
-import org.projectforge.framework.persistence.history.HistoryLoadContext
+import org.projectforge.framework.persistence.history.HistoryEmbeddedEntities
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.stereotype.Service
 import java.util.*
@@ -207,10 +207,8 @@ open class EmployeeDao : BaseDao<EmployeeDO>(EmployeeDO::class.java) {
     /**
      * Gets history entries of super and adds all history entries of the RechnungsPositionDO children.
      */
-    override fun addOwnHistoryEntries(obj: EmployeeDO, context: HistoryLoadContext) {
-        employeeService.selectAllValidSinceAttrs(obj, deleted = null).forEach { validityAttr ->
-            historyService.loadAndMergeHistory(validityAttr, context)
-        }
+    override fun getHistoryEmbeddedEntities(obj: EmployeeDO): HistoryEmbeddedEntities {
+        return HistoryEmbeddedEntities(employeeService.selectAllValidSinceAttrs(obj, deleted = null))
     }
 
     init {
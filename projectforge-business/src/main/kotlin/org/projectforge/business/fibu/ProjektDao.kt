@@ -40,6 +40,7 @@ import org.projectforge.framework.persistence.api.QueryFilter.Companion.isNull
 import org.projectforge.framework.persistence.api.QueryFilter.Companion.ne
 import org.projectforge.framework.persistence.api.QueryFilter.Companion.or
 import org.projectforge.framework.persistence.api.SortProperty.Companion.asc
+import org.projectforge.framework.persistence.history.HistoryEmbeddedEntities
 import org.projectforge.framework.persistence.history.HistoryLoadContext
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.stereotype.Service
@@ -197,10 +198,8 @@ open class ProjektDao : BaseDao<ProjektDO>(ProjektDO::class.java) {
     /**
      * Gets history entries of super and adds all history entries of the RechnungsPositionDO children.
      */
-    override fun addOwnHistoryEntries(obj: ProjektDO, context: HistoryLoadContext) {
-        kostCache.getKost2ForProjekt(obj.id).forEach { kost2 ->
-            historyService.loadAndMergeHistory(kost2, context)
-        }
+    override fun getHistoryEmbeddedEntities(obj: ProjektDO): HistoryEmbeddedEntities {
+        return HistoryEmbeddedEntities(kostCache.getKost2ForProjekt(obj.id))
     }
 
     override fun getHistoryPropertyPrefix(context: HistoryLoadContext): String? {
@@ -85,17 +85,11 @@ class RechnungCache(rechnungJdbcService: RechnungJdbcService) :
     }
 
     fun update(invoice: RechnungDO) {
-        val rechnungInfo = synchronized(invoiceInfoMap) {
-            RechnungCalculator.calculate(invoice, useCaches = false).also {
-                invoiceInfoMap[invoice.id!!] = it
-            }
-        }
         synchronized(invoiceInfoMap) {
-            rechnungInfo.positions?.forEach { posInfo ->
-                invoicePosInfoMap[invoice.id!!] = posInfo
-            }
+            invoiceInfoMap[invoice.id!!] = RechnungCalculator.calculate(invoice, useCaches = false)
         }
-
+        // Positions and cost assignments are re-read from the database by the next (delta) refresh:
+        setExpired(listOf(invoice.id!!))
     }
 
     fun update(invoice: EingangsrechnungDO) {
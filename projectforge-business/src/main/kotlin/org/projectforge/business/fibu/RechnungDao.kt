@@ -38,6 +38,7 @@ import org.projectforge.framework.persistence.api.BaseDao
 import org.projectforge.framework.persistence.api.BaseSearchFilter
 import org.projectforge.framework.persistence.api.SortProperty.Companion.desc
 import org.projectforge.framework.persistence.api.impl.DBPredicate
+import org.projectforge.framework.persistence.history.HistoryEmbeddedEntities
 import org.projectforge.framework.persistence.history.HistoryLoadContext
 import org.projectforge.framework.persistence.utils.SQLHelper.getYearsByTupleOfLocalDate
 import org.projectforge.framework.time.PFDateTime.Companion.from
@@ -356,13 +357,9 @@ open class RechnungDao : BaseDao<RechnungDO>(RechnungDO::class.java) {
     /**
      * Gets history entries of super and adds all history entries of the RechnungsPositionDO children.
      */
-    override fun addOwnHistoryEntries(obj: RechnungDO, context: HistoryLoadContext) {
-        obj.positionen?.forEach { position ->
-            historyService.loadAndMergeHistory(position, context)
-            position.kostZuweisungen?.forEach { zuweisung ->
-                historyService.loadAndMergeHistory(zuweisung, context)
-            }
-        }
+    override fun getHistoryEmbeddedEntities(obj: RechnungDO): HistoryEmbeddedEntities? {
+        val positionen = obj.positionen ?: return null
+        return HistoryEmbeddedEntities(positionen + positionen.flatMap { it.kostZuweisungen ?: emptyList() })
     }
 
     override fun getHistoryPropertyPrefix(context: HistoryLoadContext): String? {
@@ -51,10 +51,24 @@ class RechnungJdbcService {
     @Autowired
     private lateinit var jdbcTemplate: JdbcTemplate
 
-    fun selectRechnungInfos(entityClass: KClass<out AbstractRechnungDO>): List<RechnungInfo> {
+    /**
+     * @param ids If given, only the invoices with these ids are selected (used by delta refreshes of the caches).
+     * Otherwise, all invoices are selected.
+     */
+    fun selectRechnungInfos(
+        entityClass: KClass<out AbstractRechnungDO>,
+        ids: Collection<Long>? = null,
+    ): List<RechnungInfo> {
+        if (ids != null && ids.isEmpty()) {
+            return emptyList()
+        }
         val rechnungen = mutableMapOf<Long, AbstractRechnungDO>()
-        val sql =
+        var sql =
             if (entityClass == RechnungDO::class) SELECT_RECHNUNG_WITH_KOST else SELECT_EINGANGS_RECHNUNG_WITH_KOST
+        val args = ids?.toTypedArray() ?: emptyArray()
+        if (ids != null) {
+            sql = "$sql\nWHERE r.pk IN (${ids.joinToString(",") { "?" }})"
+        }
         jdbcTemplate.query(sql, ResultSetExtractor { rs ->
             while (rs.next()) {
                 val rechnungId = rs.getLong("rechnung_id")
@@ -120,7 +134,7 @@ class RechnungJdbcService {
                 pos.kostZuweisungen = pos.kostZuweisungen ?: mutableListOf()
                 pos.kostZuweisungen!!.add(kost)
             }
-        })
+        }, *args)
         return rechnungen.map { RechnungCalculator.calculate(it.value, useCaches = false) }
     }
 
@@ -28,9 +28,7 @@ import jakarta.persistence.LockModeType
 import mu.KotlinLogging
 import org.projectforge.business.fibu.KundeDO
 import org.projectforge.business.fibu.KundeDao
-import org.projectforge.framework.access.OperationType
 import org.projectforge.framework.cache.AbstractCache
-import org.projectforge.framework.persistence.api.BaseDOModifiedListener
 import org.projectforge.framework.persistence.api.HibernateUtils
 import org.projectforge.framework.persistence.jpa.PfPersistenceService
 import org.springframework.beans.factory.annotation.Autowired
@@ -59,11 +57,7 @@ class KundeCache : AbstractCache() {
     @PostConstruct
     private fun postConstruct() {
         instance = this
-        kundeDao.register(object : BaseDOModifiedListener<KundeDO> {
-            override fun afterInsertOrModify(obj: KundeDO, operationType: OperationType) {
-                setExpired()
-            }
-        })
+        kundeDao.register(createModifiedListener())
     }
 
     /**
@@ -104,6 +98,28 @@ class KundeCache : AbstractCache() {
         }
     }
 
+    override val isDeltaRefreshSupported: Boolean
+        get() = true
+
+    /**
+     * Reloads only the modified entries (copy-on-write of the map).
+     */
+    override fun refreshDelta(ids: Set<Long>) {
+        persistenceService.runIsolatedReadOnly { context ->
+            val modified = context.executeQuery(
+                "from KundeDO t where t.nummer in :ids",
+                KundeDO::class.java,
+                Pair("ids", ids),
+                lockModeType = LockModeType.NONE,
+            )
+            val map = kundeMap.toMutableMap()
+            ids.forEach { map.remove(it) }
+            modified.forEach { map[it.nummer!!] = it }
+            this.kundeMap = map
+            log.debug { "Delta refresh of KundeCache done for ${ids.size} entries." }
+        }
+    }
+
     companion object {
         lateinit var instance: KundeCache
             private set
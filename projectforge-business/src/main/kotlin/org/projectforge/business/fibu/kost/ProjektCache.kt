@@ -28,9 +28,7 @@ import jakarta.persistence.LockModeType
 import mu.KotlinLogging
 import org.projectforge.business.fibu.ProjektDO
 import org.projectforge.business.fibu.ProjektDao
-import org.projectforge.framework.access.OperationType
 import org.projectforge.framework.cache.AbstractCache
-import org.projectforge.framework.persistence.api.BaseDOModifiedListener
 import org.projectforge.framework.persistence.api.HibernateUtils
 import org.projectforge.framework.persistence.jpa.PfPersistenceService
 import org.springframework.beans.factory.annotation.Autowired
@@ -59,11 +57,7 @@ class ProjektCache : AbstractCache() {
     @PostConstruct
     private fun postConstruct() {
         instance = this
-        projektDao.register(object : BaseDOModifiedListener<ProjektDO> {
-            override fun afterInsertOrModify(obj: ProjektDO, operationType: OperationType) {
-                setExpired()
-            }
-        })
+        projektDao.register(createModifiedListener())
     }
 
     fun getProjekt(projektId: Long?): ProjektDO? {
@@ -100,6 +94,28 @@ class ProjektCache : AbstractCache() {
         }
     }
 
+    override val isDeltaRefreshSupported: Boolean
+        get() = true
+
+    /**
+     * Reloads only the modified entries (copy-on-write of the map).
+     */
+    override fun refreshDelta(ids: Set<Long>) {
+        persistenceService.runIsolatedReadOnly { context ->
+            val modified = context.executeQuery(
+                "from ProjektDO t where t.id in :ids",
+                ProjektDO::class.java,
+                Pair("ids", ids),
+                lockModeType = LockModeType.NONE,
+            )
+            val map = projektMap.toMutableMap()
+            ids.forEach { map.remove(it) }
+            modified.forEach { map[it.id!!] = it }
+            this.projektMap = map
+            log.debug { "Delta refresh of ProjektCache done for ${ids.size} entries." }
+        }
+    }
+
     companion object {
         lateinit var instance: ProjektCache
             private set
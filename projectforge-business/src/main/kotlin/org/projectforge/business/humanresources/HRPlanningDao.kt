@@ -35,8 +35,8 @@ import org.projectforge.framework.persistence.api.BaseDao
 import org.projectforge.framework.persistence.api.BaseSearchFilter
 import org.projectforge.framework.persistence.api.QueryFilter
 import org.projectforge.framework.persistence.api.SortProperty
+import org.projectforge.framework.persistence.history.HistoryEmbeddedEntities
 import org.projectforge.framework.persistence.history.HistoryFormatUtils
-import org.projectforge.framework.persistence.history.HistoryLoadContext
 import org.projectforge.framework.persistence.user.api.ThreadLocalUserContext
 import org.projectforge.framework.persistence.user.entities.PFUserDO
 import org.projectforge.framework.time.PFDateTime
@@ -275,15 +275,17 @@ class HRPlanningDao protected constructor() : BaseDao<HRPlanningDO>(HRPlanningDO
     /**
      * Gets history entries of super and adds all history entries of the HRPlanningEntryDO children.
      */
-    override fun addOwnHistoryEntries(obj: HRPlanningDO, context: HistoryLoadContext) {
-        obj.entries?.forEach { position ->
+    override fun getHistoryEmbeddedEntities(obj: HRPlanningDO): HistoryEmbeddedEntities? {
+        val entries = obj.entries ?: return null
+        val prefixes = entries.associate { position ->
             var prefix = if (position.projekt != null) position.projektName else position.status.toString()
             if (prefix == null) {
                 prefix = "" // Just in case.
             }
-            historyService.loadAndMergeHistory(position, context) { entry ->
-                HistoryFormatUtils.setNumberAsPropertyNameForListEntries(entry, prefix)
-            }
+            position.id to prefix
+        }
+        return HistoryEmbeddedEntities(entries) { entry ->
+            HistoryFormatUtils.setNumberAsPropertyNameForListEntries(entry, prefixes[entry.entityId] ?: "")
         }
     }
 
@@ -0,0 +1,144 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.business.image
+
+import mu.KotlinLogging
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+private val log = KotlinLogging.logger {}
+
+/**
+ * Bounded pool for CPU intensive image processing, so concurrent uploads of large photos can't occupy all cores
+ * (request threads are waiting for the result). If the queue is full, the task is executed by the calling thread.
+ * @param threads Number of worker threads.
+ * @param queueCapacity Maximum number of waiting tasks.
+ */
+class ImageProcessingExecutor(
+    val threads: Int = DEFAULT_THREADS,
+    val queueCapacity: Int = DEFAULT_QUEUE_CAPACITY,
+) {
+    internal val statistics = Statistics()
+
+    private val executor = ThreadPoolExecutor(
+        threads, threads, 60L, TimeUnit.SECONDS, ArrayBlockingQueue(queueCapacity)
+    ) { runnable ->
+        Thread(runnable, "ImageProcessing").also {
+            it.isDaemon = true
+            it.priority = Thread.NORM_PRIORITY - 1
+        }
+    }.also { it.allowCoreThreadTimeOut(true) }
+
+    private val workerThread = ThreadLocal.withInitial { false }
+
+    val queueSize: Int
+        get() = executor.queue.size
+
+    val activeCount: Int
+        get() = executor.activeCount
+
+    /**
+     * Executes the given task in the pool and waits for its result. Exceptions of the task are rethrown.
+     */
+    fun <T> execute(task: () -> T): T {
+        if (workerThread.get()) {
+            return task() // Nested call, e.g. shrinking inside another task. Don't wait for a free worker (deadlock).
+        }
+        val queued = System.nanoTime()
+        val future = try {
+            executor.submit<T> {
+                statistics.addWaitTime(System.nanoTime() - queued)
+                workerThread.set(true)
+                try {
+                    run(task)
+                } finally {
+                    workerThread.set(false)
+                }
+            }
+        } catch (ex: RejectedExecutionException) {
+            statistics.rejected.incrementAndGet()
+            log.warn { "Image processing queue is full (capacity=$queueCapacity), processing image in calling thread." }
+            return run(task)
+        }
+        try {
+            return future.get()
+        } catch (ex: ExecutionException) {
+            throw ex.cause ?: ex
+        }
+    }
+
+    private fun <T> run(task: () -> T): T {
+        val started = System.nanoTime()
+        try {
+            return task()
+        } finally {
+            statistics.addProcessingTime(System.nanoTime() - started)
+        }
+    }
+
+    internal class Statistics {
+        val processed = AtomicLong()
+        val rejected = AtomicLong()
+        private val waitNanos = AtomicLong()
+        private val maxWaitNanos = AtomicLong()
+        private val processingNanos = AtomicLong()
+        private val maxProcessingNanos = AtomicLong()
+
+        fun addWaitTime(nanos: Long) {
+            waitNanos.addAndGet(nanos)
+            maxWaitNanos.accumulateAndGet(nanos, ::maxOf)
+        }
+
+        fun addProcessingTime(nanos: Long) {
+            processed.incrementAndGet()
+            processingNanos.addAndGet(nanos)
+            maxProcessingNanos.accumulateAndGet(nanos, ::maxOf)
+        }
+
+        /**
+         * Average waiting time in the queue in millis.
+         */
+        val averageWaitMillis: Long
+            get() = processed.get().let { if (it == 0L) 0L else waitNanos.get() / it / 1_000_000 }
+
+        val maxWaitMillis: Long
+            get() = maxWaitNanos.get() / 1_000_000
+
+        val averageProcessingMillis: Long
+            get() = processed.get().let { if (it == 0L) 0L else processingNanos.get() / it / 1_000_000 }
+
+        val maxProcessingMillis: Long
+            get() = maxProcessingNanos.get() / 1_000_000
+    }
+
+    companion object {
+        val DEFAULT_THREADS = (Runtime.getRuntime().availableProcessors() / 2).coerceIn(1, 4)
+
+        const val DEFAULT_QUEUE_CAPACITY = 50
+    }
+}
@@ -0,0 +1,61 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.business.image
+
+import org.projectforge.business.admin.SystemStatisticsData
+import org.projectforge.business.admin.SystemsStatisticsBuilderInterface
+import org.projectforge.common.extensions.formatForUser
+
+internal class ImageProcessingStatisticsBuilder(private val imageService: ImageService) :
+    SystemsStatisticsBuilderInterface {
+    override fun addStatisticsEntries(stats: SystemStatisticsData) {
+        val executor = imageService.processingExecutor
+        val statistics = executor.statistics
+        val sb = StringBuilder()
+        sb.append("threads=")
+            .append(executor.threads.formatForUser())
+            .append(", active=")
+            .append(executor.activeCount.formatForUser())
+            .append(", queue=")
+            .append(executor.queueSize.formatForUser())
+            .append("/")
+            .append(executor.queueCapacity.formatForUser())
+            .append(", processed=")
+            .append(statistics.processed.get().formatForUser())
+            .append(", rejected (processed by caller)=")
+            .append(statistics.rejected.get().formatForUser())
+            .append(", encodings=")
+            .append(imageService.encodings.get().formatForUser())
+            .append(", wait time avg/max=")
+            .append(statistics.averageWaitMillis.formatForUser())
+            .append("/")
+            .append(statistics.maxWaitMillis.formatForUser())
+            .append("ms, processing time avg/max=")
+            .append(statistics.averageProcessingMillis.formatForUser())
+            .append("/")
+            .append(statistics.maxProcessingMillis.formatForUser())
+            .append("ms")
+        stats.add("ImageProcessing", "system", "'Image processing", sb.toString())
+    }
+}
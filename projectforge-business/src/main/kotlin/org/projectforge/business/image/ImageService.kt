@@ -23,23 +23,62 @@
 
 package org.projectforge.business.image
 
+import jakarta.annotation.PostConstruct
 import mu.KotlinLogging
 import org.projectforge.business.address.ImageType
+import org.projectforge.business.admin.SystemStatistics
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
 import org.springframework.stereotype.Service
 import java.awt.image.BufferedImage
 import java.io.ByteArrayInputStream
 import java.io.ByteArrayOutputStream
 import java.io.IOException
 import java.util.*
+import java.util.concurrent.atomic.AtomicLong
 import javax.imageio.IIOImage
 import javax.imageio.ImageIO
 import javax.imageio.ImageWriteParam
+import javax.imageio.ImageWriter
 import kotlin.math.min
+import kotlin.math.sqrt
 
 private val log = KotlinLogging.logger {}
 
 @Service
 class ImageService {
+    @Autowired
+    private lateinit var systemStatistics: SystemStatistics
+
+    /**
+     * Number of threads for processing (shrinking) images. 0 means default (half of the cores, max. 4).
+     */
+    @Value("\${projectforge.image.processing.threads:0}")
+    private var processingThreads: Int = 0
+
+    /**
+     * Maximum number of images waiting for processing. If the queue is full, images are processed by the calling thread.
+     */
+    @Value("\${projectforge.image.processing.queueCapacity:50}")
+    private var processingQueueCapacity: Int = ImageProcessingExecutor.DEFAULT_QUEUE_CAPACITY
+
+    internal val processingExecutor by lazy {
+        ImageProcessingExecutor(
+            threads = if (processingThreads > 0) processingThreads else ImageProcessingExecutor.DEFAULT_THREADS,
+            queueCapacity = processingQueueCapacity.coerceAtLeast(1),
+        )
+    }
+
+    /**
+     * Number of image encodings (JPEG/PNG), for statistics.
+     */
+    internal val encodings = AtomicLong()
+
+    @PostConstruct
+    private fun postConstruct() {
+        systemStatistics.registerStatisticsBuilder(ImageProcessingStatisticsBuilder(this))
+    }
+
     /**
      * Resizes image to fit within max dimensions while preserving aspect ratio.
      * Attempts to convert to JPEG. If that fails (e.g., transparency), uses PNG.
@@ -85,14 +124,52 @@ class ImageService {
     }
 
     /**
-     * Shrinks an image to fit within a maximum file size using binary search for optimal dimensions.
+     * Creates scaled renditions (e.g. thumbnail and preview) of the given image. The image is decoded only once and
+     * renditions are never larger than the original image. Like [resizeImagePreserveRatio], JPEG is preferred and PNG
+     * is used as fallback.
+     * @param originalImage Original image bytes
+     * @param maxDimensions Maximum width and height in pixels of each rendition.
+     * @param format The format of the input image (used for determining output format)
+     * @return The renditions in the order of the given dimensions (null, if the image couldn't be encoded). If the
+     * original image couldn't be decoded, the original bytes are returned for all renditions.
+     */
+    fun createRenditions(
+        originalImage: ByteArray,
+        maxDimensions: List<Pair<Int, Int>>,
+        format: ImageType,
+    ): List<ByteArray?> {
+        val image = createImageFromBytes(originalImage)
+        if (image == null) {
+            log.error("Could not decode image for creating renditions")
+            return maxDimensions.map { originalImage }
+        }
+        return maxDimensions.map { (maxWidth, maxHeight) ->
+            val scale = min(1.0, min(maxWidth.toDouble() / image.width, maxHeight.toDouble() / image.height))
+            val resized = if (scale < 1.0) {
+                minimizeImage(image, (image.width * scale).toInt().coerceAtLeast(1), (image.height * scale).toInt().coerceAtLeast(1))
+            } else {
+                image
+            }
+            createBytesFromImage(resized, ImageType.JPEG, 0.85f) ?: createBytesFromImage(resized, format)
+        }
+    }
+
+    /**
+     * Shrinks an image to fit within a maximum file size using binary search for optimal JPEG quality and dimensions.
      * Attempts to convert to JPEG for optimal compression. If JPEG conversion fails (e.g., due to
      * transparency in PNG), falls back to PNG format.
+     *
+     * The image is processed by the bounded [ImageProcessingExecutor], so concurrent uploads of large images can't
+     * occupy all CPU cores.
      * @param originalImage The original image as byte array
      * @param maxSizeBytes Maximum file size in bytes
      * @return ImageResult containing the minimized image bytes and the format (JPEG or PNG)
      */
     fun shrinkToMaxFileSize(originalImage: ByteArray, maxSizeBytes: Long): ImageResult {
+        return processingExecutor.execute { shrink(originalImage, maxSizeBytes) }
+    }
+
+    private fun shrink(originalImage: ByteArray, maxSizeBytes: Long): ImageResult {
         val image = createImageFromBytes(originalImage)
         if (image == null) {
             log.error("Could not decode image for minimization")
@@ -100,12 +177,26 @@ class ImageService {
             val detectedType = detectImageType(originalImage)
             return ImageResult(originalImage, detectedType)
         }
+        // One JPEG writer is reused for all encodings of this image.
+        val jpegWriter = ImageIO.getImageWritersByFormatName("jpg").next()
+        try {
+            return shrink(originalImage, image, maxSizeBytes, jpegWriter)
+        } finally {
+            jpegWriter.dispose()
+        }
+    }
 
+    private fun shrink(
+        originalImage: ByteArray,
+        image: BufferedImage,
+        maxSizeBytes: Long,
+        jpegWriter: ImageWriter,
+    ): ImageResult {
         // Try JPEG conversion first for optimal compression
         var format = ImageType.JPEG
 
         // Attempt JPEG conversion - will fail for images with transparency (e.g., PNG with alpha channel)
-        var imageBytes = createBytesFromImage(image, format, DEFAULT_JPEG_QUALITY)
+        var imageBytes = createBytesFromImage(image, format, DEFAULT_JPEG_QUALITY, jpegWriter)
 
         if (imageBytes == null) {
             // JPEG conversion failed, fall back to PNG
@@ -130,62 +221,56 @@ class ImageService {
         // Define optimal range (95-100% of maxSizeBytes)
         val targetMinSize = (maxSizeBytes * 0.95).toLong()
 
-        // Constants
-        val MIN_DIMENSION = 100
-        val MAX_ITERATIONS = 10
-
-        // Work with JPEG-converted image from here on
-        var bestResult: ByteArray = imageBytes
-        val originalWidth = image.width
-        val originalHeight = image.height
-
-        // Track best quality found - will be used in Strategy 2 if needed
-        var bestQuality = if (format == ImageType.JPEG) DEFAULT_JPEG_QUALITY else 1.0f
-
-        // Strategy 1: Try JPEG quality reduction first (only for JPEG format)
+        // Strategy 1: Binary search for the highest JPEG quality fitting in full resolution (only for JPEG format).
         if (format == ImageType.JPEG) {
-            val qualityResultPair = tryReduceJpegQuality(image, maxSizeBytes, targetMinSize)
-            if (qualityResultPair != null) {
-                val qualityResult = qualityResultPair.first
-                val usedQuality = qualityResultPair.second
-
-                // If result is in optimal range, return it immediately
-                if (qualityResult.size >= targetMinSize && qualityResult.size <= maxSizeBytes) {
-                    log.info(
-                        "Image shrinked by reducing JPEG quality to optimal range: {} bytes -> {} bytes (quality={})",
-                        originalImage.size, qualityResult.size, usedQuality
-                    )
-                    return ImageResult(qualityResult, ImageType.JPEG)
-                } else if (qualityResult.size <= maxSizeBytes) {
-                    bestResult = qualityResult // Keep as fallback, but try to get closer to target
-                    bestQuality = usedQuality // Use this quality for further processing
-                }
+            val qualityResult = searchJpegQuality(image, maxSizeBytes, targetMinSize, jpegWriter)
+            if (qualityResult != null) {
+                log.info(
+                    "Image shrinked by reducing JPEG quality: {} bytes -> {} bytes (quality={})",
+                    originalImage.size, qualityResult.first.size, qualityResult.second
+                )
+                return ImageResult(qualityResult.first, ImageType.JPEG)
             }
         }
 
-        // Strategy 2: Binary search for optimal scale factor
+        // Strategy 2: Binary search for optimal scale factor (with default quality).
+        // The file size is roughly proportional to the number of pixels, so the search starts with an estimated scale
+        // and the search range is narrowed around it:
+        val estimatedScale = sqrt(maxSizeBytes.toDouble() / imageBytes.size)
         var minScale = 0.0
-        var maxScale = 1.0
-        var result: ByteArray? = null
+        var maxScale = min(1.0, estimatedScale * 1.5)
+        // All scaled images are drawn from this raster, which is much smaller than the original image:
+        val baseImage = if (maxScale < 1.0) {
+            minimizeImage(image, scaled(image.width, maxScale), scaled(image.height, maxScale)) ?: image
+        } else {
+            image
+        }
+        var bestFit: ByteArray? = null
+        var smallest: ByteArray = imageBytes
 
         for (iteration in 0..<MAX_ITERATIONS) {
-            val currentScale = (minScale + maxScale) / 2.0
+            val currentScale = if (iteration == 0) min(estimatedScale, maxScale) else (minScale + maxScale) / 2.0
 
-            val newWidth = (originalWidth * currentScale).toInt()
-            val newHeight = (originalHeight * currentScale).toInt()
+            val newWidth = scaled(image.width, currentScale)
+            val newHeight = scaled(image.height, currentScale)
 
             // Check minimum dimension constraint BEFORE creating the image
             if (newWidth < MIN_DIMENSION || newHeight < MIN_DIMENSION) {
-                log.warn(
-                    "Reached minimum dimension limit ({}x{}) during binary search at iteration {}, using best result from previous iterations",
-                    newWidth, newHeight, iteration + 1
-                )
+                if (bestFit == null) {
+                    log.warn(
+                        "Reached minimum dimension limit ({}x{}) during binary search at iteration {}, using best result from previous iterations",
+                        newWidth, newHeight, iteration + 1
+                    )
+                }
                 break
             }
 
-            // Resize image and use best quality found from Strategy 1
-            val resized = minimizeImage(image, newWidth, newHeight)
-            result = createBytesFromImage(resized, format, bestQuality)
+            val resized = if (newWidth == baseImage.width && newHeight == baseImage.height) {
+                baseImage
+            } else {
+                minimizeImage(baseImage, newWidth, newHeight)
+            }
+            val result = createBytesFromImage(resized, format, DEFAULT_JPEG_QUALITY, jpegWriter)
 
             if (result == null) {
                 log.warn("Failed to create image bytes at scale {} during iteration {}", currentScale, iteration + 1)
@@ -199,67 +284,70 @@ class ImageService {
                 log.info(
                     "Image minimized via binary search (iteration {}): {} bytes -> {} bytes ({}x{} -> {}x{}, scale={}%)",
                     iteration + 1, originalImage.size, resultSize,
-                    originalWidth, originalHeight, newWidth, newHeight, (currentScale * 100).toInt()
+                    image.width, image.height, newWidth, newHeight, (currentScale * 100).toInt()
                 )
                 return ImageResult(result, format)
             }
 
-            // Update best result - always keep the smallest result we've created
-            // Even if it's slightly over the limit, it's better than what we had before
-            if (resultSize < bestResult.size) {
-                bestResult = result
-            }
-
-            // Adjust search range for binary search
-            if (resultSize > maxSizeBytes) {
+            if (resultSize <= maxSizeBytes) {
+                // Fits: keep the largest fitting result and search larger scales to get closer to target.
+                if (bestFit == null || resultSize > bestFit.size) {
+                    bestFit = result
+                }
+                minScale = currentScale
+            } else {
                 // Image too large, search smaller scales
+                if (resultSize < smallest.size) {
+                    smallest = result
+                }
                 maxScale = currentScale
-            } else {
-                // Image too small, search larger scales to get closer to target
-                minScale = currentScale
             }
         }
 
         // Return best result found
-        if (bestResult.size <= maxSizeBytes) {
-            log.info("Image minimized to best fit: {} bytes -> {} bytes", originalImage.size, bestResult.size)
-            return ImageResult(bestResult, format)
+        if (bestFit != null) {
+            log.info("Image minimized to best fit: {} bytes -> {} bytes", originalImage.size, bestFit.size)
+            return ImageResult(bestFit, format)
         }
 
         // If still too large, return best effort
-        log.warn("Could not minimize image to {} bytes, returning best effort: {} bytes", maxSizeBytes, bestResult.size)
-        return ImageResult(bestResult, format)
+        log.warn("Could not minimize image to {} bytes, returning best effort: {} bytes", maxSizeBytes, smallest.size)
+        return ImageResult(smallest, format)
     }
 
     /**
-     * Tries to shrink JPEG quality to fit within size constraints.
-     * Only reduces quality down to 0.7 to maintain acceptable image quality.
-     * Tests qualities in descending order: 0.85, 0.8, 0.7
+     * Binary search for the highest JPEG quality between [MIN_JPEG_QUALITY] and [DEFAULT_JPEG_QUALITY] fitting within
+     * size constraints (the image is known to be too large with the default quality). The search stops as soon as a
+     * result in the optimal range (95-100% of max size) is found.
      * @param image The image to compress
      * @param maxSizeBytes Maximum file size in bytes
      * @param targetMinSize Minimum target size (95% of maxSizeBytes) for optimal result
-     * @return Pair of (shrinked image bytes, quality used), or null if no acceptable result found
+     * @return Pair of (shrinked image bytes, quality used), or null if the image doesn't fit even with minimum quality.
      */
-    private fun tryReduceJpegQuality(
+    private fun searchJpegQuality(
         image: BufferedImage,
         maxSizeBytes: Long,
-        targetMinSize: Long
+        targetMinSize: Long,
+        jpegWriter: ImageWriter,
     ): Pair<ByteArray, Float>? {
-        // Test quality levels from 0.85 down to 0.7 (initial conversion was 0.9)
-        val qualities = floatArrayOf(0.85f, 0.8f, 0.7f)
-        var bestResult: Pair<ByteArray, Float>? = null
-
-        for (quality in qualities) {
-            val result = createBytesFromImage(image, ImageType.JPEG, quality)
-            if (result != null) {
-                // If in optimal range (95-100% of target), return immediately
-                if (result.size >= targetMinSize && result.size <= maxSizeBytes) {
-                    return Pair(result, quality)
-                }
-                // Keep best result that fits under the limit
-                if (result.size <= maxSizeBytes) {
-                    bestResult = Pair(result, quality)
-                }
+        var minQuality = MIN_JPEG_QUALITY
+        var maxQuality = DEFAULT_JPEG_QUALITY
+        val minQualityResult = createBytesFromImage(image, ImageType.JPEG, minQuality, jpegWriter)
+        if (minQualityResult == null || minQualityResult.size > maxSizeBytes) {
+            return null
+        }
+        var bestResult = Pair(minQualityResult, minQuality)
+        for (iteration in 0..<QUALITY_ITERATIONS) {
+            if (bestResult.first.size >= targetMinSize) {
+                break // In optimal range.
+            }
+            val quality = (minQuality + maxQuality) / 2f
+            val result = createBytesFromImage(image, ImageType.JPEG, quality, jpegWriter) ?: break
+            if (result.size <= maxSizeBytes) {
+                bestResult = Pair(result, quality)
+                minQuality = quality
+            } else {
+                maxQuality = quality
             }
         }
         return bestResult
@@ -281,24 +369,33 @@ class ImageService {
         image: BufferedImage?,
         format: ImageType = ImageType.JPEG,
         quality: Float = DEFAULT_JPEG_QUALITY,
+        jpegWriter: ImageWriter? = null,
     ): ByteArray? {
         if (image != null) {
+            encodings.incrementAndGet()
             try {
                 val baos = ByteArrayOutputStream()
 
                 if (format == ImageType.JPEG) {
                     // Use JPEG compression with specified quality
-                    val writer = ImageIO.getImageWritersByFormatName("jpg").next()
-                    val param = writer.defaultWriteParam
-                    if (param.canWriteCompressed()) {
-                        param.compressionMode = ImageWriteParam.MODE_EXPLICIT
-                        param.compressionQuality = quality // 0.0 - 1.0
+                    val writer = jpegWriter ?: ImageIO.getImageWritersByFormatName("jpg").next()
+                    try {
+                        val param = writer.defaultWriteParam
+                        if (param.canWriteCompressed()) {
+                            param.compressionMode = ImageWriteParam.MODE_EXPLICIT
+                            param.compressionQuality = quality // 0.0 - 1.0
+                        }
+                        ImageIO.createImageOutputStream(baos).use { ios ->
+                            writer.output = ios
+                            writer.write(null, IIOImage(image, null, null), param)
+                        }
+                    } finally {
+                        if (jpegWriter == null) {
+                            writer.dispose()
+                        } else {
+                            writer.reset() // Ready for the next encoding.
+                        }
                     }
-                    val ios = ImageIO.createImageOutputStream(baos)
-                    writer.output = ios
-                    writer.write(null, IIOImage(image, null, null), param)
-                    writer.dispose()
-                    ios.close()
                 } else {
                     // Use PNG or other format
                     ImageIO.write(image, format.extension, baos)
@@ -354,8 +451,23 @@ class ImageService {
         return ImageType.PNG
     }
 
+    private fun scaled(size: Int, scale: Double): Int {
+        return (size * scale).toInt().coerceAtLeast(1)
+    }
+
     companion object {
         const val DEFAULT_JPEG_QUALITY = 0.9f  // Use high quality for dimensional scaling
+
+        /**
+         * JPEG quality isn't reduced below this value to maintain acceptable image quality.
+         */
+        const val MIN_JPEG_QUALITY = 0.7f
+
+        private const val QUALITY_ITERATIONS = 4
+
+        private const val MIN_DIMENSION = 100
+
+        private const val MAX_ITERATIONS = 10
     }
 }
 
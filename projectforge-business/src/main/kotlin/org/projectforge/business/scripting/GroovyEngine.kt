@@ -47,7 +47,6 @@ import org.projectforge.framework.utils.NumberHelper.getAsString
 import java.math.BigDecimal
 import java.time.LocalDate
 import java.util.*
-import java.util.regex.Pattern
 
 private val log = KotlinLogging.logger {}
 
@@ -83,10 +82,7 @@ class GroovyEngine @JvmOverloads constructor(
    * @return
    */
   fun preprocessGroovyXml(template: String?): String? {
-    return template?.replace("<groovy>".toRegex(), "<% ")?.replace("</groovy>".toRegex(), " %>")
-      ?.replace("<groovy-out>".toRegex(), "<%= ")?.replace(
-      "</groovy-out>".toRegex(), " %>"
-    )
+    return template?.let { GroovyTemplateRegistry.preprocessGroovyXml(it) }
   }
 
   /**
@@ -113,53 +109,32 @@ class GroovyEngine @JvmOverloads constructor(
   }
 
   /**
+   * Includes (#INCLUDE{filename}) are resolved. The parsed template is cached by the [GroovyTemplateRegistry].
    * @param template
    * @see GroovyExecutor.executeTemplate
    */
   fun executeTemplate(template: String): String {
-    val content = replaceIncludes(template)!!.replace("#HURZ1#".toRegex(), "\\\\")
-      .replace("#HURZ2#".toRegex(), "\\$") // see replaceIncludes
-    return groovyExecutor.executeTemplate(content, variables)
-  }
-
-  private fun replaceIncludes(template: String?): String? {
-    if (template == null) {
-      return null
-    }
-    val p = Pattern.compile("#INCLUDE\\{([0-9\\-\\.a-zA-Z/]*)\\}", Pattern.MULTILINE)
-    val buf = StringBuilder()
-    val m = p.matcher(template)
-    while (m.find()) {
-      if (m.group(1) != null) {
-        val filename = m.group(1)
-        val res = configurationService.getResourceContentAsString(filename)
-        var content = res[0] as? String
-        if (content != null) {
-          content = replaceIncludes(content)!!.replace("\\\\".toRegex(), "#HURZ1#").replace("\\$".toRegex(), "#HURZ2#")
-          m.appendReplacement(buf, content) // Doesn't work with '$' or '\' in content
-        } else {
-          m.appendReplacement(buf, "*** $filename not found! ***")
-        }
-      }
-    }
-    m.appendTail(buf)
-    return buf.toString()
+    val templateObject = GroovyTemplateRegistry.getTemplate(configurationService, template) ?: return ""
+    return groovyExecutor.executeTemplate(templateObject, template, variables) ?: ""
   }
 
   /**
+   * The parsed template is cached by the [GroovyTemplateRegistry] until the file (or any included file) is modified.
    * @see ConfigurationService.getResourceContentAsString
    */
   fun executeTemplateFile(file: String): String {
-    val res = configurationService.getResourceContentAsString(file)
-    val template = res[0] as? String
-    if (template == null) {
-      log.error(
-        "Template with filename '" + file
-            + "' not found (neither in resource path nor in ProjectForge's application dir."
-      )
-      return ""
-    }
-    return executeTemplate(template)
+    val templateObject = GroovyTemplateRegistry.getTemplateFile(configurationService, file) ?: return ""
+    return groovyExecutor.executeTemplate(templateObject, file, variables) ?: ""
+  }
+
+  /**
+   * Executes the given template file after replacing the groovy xml tags.
+   * @see preprocessGroovyXml
+   * @see executeTemplateFile
+   */
+  fun executeGroovyXmlTemplateFile(file: String): String {
+    val templateObject = GroovyTemplateRegistry.getTemplateFile(configurationService, file, true) ?: return ""
+    return groovyExecutor.executeTemplate(templateObject, file, variables) ?: ""
   }
 
   /**
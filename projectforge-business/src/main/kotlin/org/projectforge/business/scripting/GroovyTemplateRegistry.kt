@@ -0,0 +1,181 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.business.scripting
+
+import groovy.text.Template
+import mu.KotlinLogging
+import org.projectforge.business.configuration.ConfigurationService
+import org.projectforge.framework.cache.LruCache
+import java.io.File
+import java.util.regex.Matcher
+import java.util.regex.Pattern
+
+private val log = KotlinLogging.logger {}
+
+/**
+ * Registry of parsed Groovy templates (mail, html and pdf templates). The includes (#INCLUDE{filename}) are resolved
+ * and the resulting template is parsed only once. Templates are thread safe, so a template may be rendered for any
+ * number of recipients.
+ *
+ * A template is parsed again, if the template file itself or any included file was modified (or created) in the
+ * application's resource dir (checked at most every [checkIntervalMillis]).
+ */
+object GroovyTemplateRegistry {
+    private const val MAX_SIZE = 200
+
+    private val includePattern = Pattern.compile("#INCLUDE\\{([0-9\\-\\.a-zA-Z/]*)\\}", Pattern.MULTILINE)
+
+    private val cache = LruCache<String, Entry>(MAX_SIZE)
+
+    /**
+     * Minimal interval between checks of the modification of the used files.
+     */
+    internal var checkIntervalMillis = 5_000L
+
+    /**
+     * @param filename The template file (resource dir of the application or class path).
+     * @param preprocessGroovyXml If true, the Groovy xml tags are replaced before parsing, see [preprocessGroovyXml].
+     * @return The parsed template or null, if the file doesn't exist or the template couldn't be parsed.
+     * @see ConfigurationService.getResourceContentAsString
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun getTemplateFile(
+        configurationService: ConfigurationService,
+        filename: String,
+        preprocessGroovyXml: Boolean = false,
+    ): Template? {
+        val key = if (preprocessGroovyXml) "xml:$filename" else "file:$filename"
+        getValidEntry(key)?.let { return it.template }
+        val dependencies = mutableListOf<Dependency>()
+        val content = readResource(configurationService, filename, dependencies)
+        if (content == null) {
+            log.error { "Template with filename '$filename' not found (neither in resource path nor in ProjectForge's application dir." }
+            return null
+        }
+        val source = if (preprocessGroovyXml) preprocessGroovyXml(content) else content
+        return parse(key, configurationService, source, dependencies)
+    }
+
+    /**
+     * @param template The template source (may contain includes).
+     * @return The parsed template or null, if the template couldn't be parsed.
+     */
+    @JvmStatic
+    fun getTemplate(configurationService: ConfigurationService, template: String): Template? {
+        val key = "content:${LruCache.contentHash(template)}"
+        getValidEntry(key)?.let { return it.template }
+        return parse(key, configurationService, template, mutableListOf())
+    }
+
+    /**
+     * For achieving well-formed XML files you can replace '&lt;% ... %&gt;' by '&lt;groovy&gt; ... &lt;/groovy&gt;' and
+     * '&lt;%= ... %&gt;' by '&lt;groovy-out&gt; ... &lt;/groovy-out&gt;'
+     */
+    fun preprocessGroovyXml(template: String): String {
+        return template.replace("<groovy>", "<% ").replace("</groovy>", " %>")
+            .replace("<groovy-out>", "<%= ").replace("</groovy-out>", " %>")
+    }
+
+    fun clear() {
+        cache.clear()
+    }
+
+    val cacheStatistics: String
+        get() = cache.toString()
+
+    private fun parse(
+        key: String,
+        configurationService: ConfigurationService,
+        source: String,
+        dependencies: MutableList<Dependency>,
+    ): Template? {
+        val resolved = resolveIncludes(configurationService, source, dependencies)
+        val template = GroovyExecutor.createTemplate(resolved) ?: return null
+        cache.put(key, Entry(template, dependencies))
+        log.debug { "Template '$key' parsed (${dependencies.size} files used)." }
+        return template
+    }
+
+    private fun getValidEntry(key: String): Entry? {
+        val entry = cache.get(key) ?: return null
+        val now = System.currentTimeMillis()
+        if (now - entry.lastChecked < checkIntervalMillis) {
+            return entry
+        }
+        entry.dependencies.find { it.isModified }?.let { dependency ->
+            log.info { "File '${dependency.file}' modified, template '$key' will be parsed again." }
+            cache.remove(key)
+            return null
+        }
+        entry.lastChecked = now
+        return entry
+    }
+
+    private fun resolveIncludes(
+        configurationService: ConfigurationService,
+        template: String,
+        dependencies: MutableList<Dependency>,
+    ): String {
+        val matcher = includePattern.matcher(template)
+        val sb = StringBuilder()
+        while (matcher.find()) {
+            val filename = matcher.group(1)
+            val content = readResource(configurationService, filename, dependencies)
+            val replacement = if (content != null) {
+                resolveIncludes(configurationService, content, dependencies)
+            } else {
+                "*** $filename not found! ***"
+            }
+            matcher.appendReplacement(sb, Matcher.quoteReplacement(replacement))
+        }
+        matcher.appendTail(sb)
+        return sb.toString()
+    }
+
+    /**
+     * The file in the resource dir is registered as dependency, also if it doesn't exist (the resource is taken from
+     * the class path in this case), so creating it later will be detected as well.
+     */
+    private fun readResource(
+        configurationService: ConfigurationService,
+        filename: String,
+        dependencies: MutableList<Dependency>,
+    ): String? {
+        dependencies.add(Dependency(File(configurationService.resourceDirName, filename)))
+        return configurationService.getResourceContentAsString(filename)[0] as? String
+    }
+
+    private class Dependency(val file: File) {
+        private val lastModified = file.lastModified() // 0, if file doesn't exist.
+
+        val isModified: Boolean
+            get() = file.lastModified() != lastModified
+    }
+
+    private class Entry(val template: Template, val dependencies: List<Dependency>) {
+        @Volatile
+        var lastChecked = System.currentTimeMillis()
+    }
+}
@@ -26,15 +26,14 @@ package org.projectforge.business.scripting
 import mu.KotlinLogging
 import org.projectforge.business.scripting.kotlin.CustomScriptingHost
 import org.projectforge.business.scripting.kotlin.JarExtractor
+import org.projectforge.business.scripting.kotlin.KotlinScriptCompiler
 import org.projectforge.business.scripting.kotlin.KotlinScriptUtils
 import org.projectforge.framework.i18n.translate
-import java.net.URLClassLoader
 import java.util.concurrent.Executors
 import java.util.concurrent.Future
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.TimeoutException
 import kotlin.script.experimental.api.*
-import kotlin.script.experimental.host.toScriptSource
 import kotlin.script.experimental.jvm.*
 
 private val log = KotlinLogging.logger {}
@@ -44,28 +43,11 @@ private val log = KotlinLogging.logger {}
  */
 class KotlinScriptExecutor(scriptLogger: ScriptLogger) : ScriptExecutor(scriptLogger) {
     override fun execute(): ScriptExecutionResult {
-        log.debug { "Updated classpathFiles: ${JarExtractor.classpathFiles?.joinToString()}" }
-        log.debug { "Updated classpath URLs: ${JarExtractor.classpathUrls?.joinToString()}" }
-        val classLoader = if (JarExtractor.runningInFatJar) {
-            URLClassLoader(JarExtractor.classpathUrls, Thread.currentThread().contextClassLoader).also {
-                Thread.currentThread().contextClassLoader = it
-            }
-        } else {
-            Thread.currentThread().contextClassLoader
+        val classLoader = KotlinScriptCompiler.classLoader
+        if (JarExtractor.runningInFatJar) {
+            Thread.currentThread().contextClassLoader = classLoader
         }
         val scriptingHost = CustomScriptingHost(scriptLogger)
-        val compilationConfiguration = ScriptCompilationConfiguration {
-            jvm {
-                if (JarExtractor.classpathFiles != null) {
-                    dependenciesFromClassloader(classLoader = classLoader, wholeClasspath = true)
-                    updateClasspath(JarExtractor.classpathFiles)
-                } else {
-                    dependenciesFromCurrentContext(wholeClasspath = true)
-                }
-            }
-            providedProperties("context" to KotlinScriptContext::class)
-            compilerOptions.append("-nowarn")
-        }
         val context = KotlinScriptContext()
         variables.forEach {
             context.setProperty(it.key, it.value)
@@ -79,23 +61,27 @@ class KotlinScriptExecutor(scriptLogger: ScriptLogger) : ScriptExecutor(scriptLo
             }
             providedProperties("context" to context)
         }
-        val scriptSource = effectiveScript.trimIndent().toScriptSource()
-        val result = execute(scriptingHost, scriptSource, compilationConfiguration, evaluationConfiguration)
+        val result = execute(scriptingHost, effectiveScript.trimIndent(), evaluationConfiguration)
         KotlinScriptUtils.handleResult(scriptExecutionResult, result, effectiveScript)
         return scriptExecutionResult
     }
 
     private fun execute(
         scriptingHost: CustomScriptingHost,
-        scriptSource: SourceCode,
-        compilationConfiguration: ScriptCompilationConfiguration,
+        script: String,
         evaluationConfiguration: ScriptEvaluationConfiguration,
     ): ResultWithDiagnostics<EvaluationResult>? {
         val executor = Executors.newSingleThreadExecutor()
         var future: Future<ResultWithDiagnostics<EvaluationResult>>? = null
         try {
             future = executor.submit<ResultWithDiagnostics<EvaluationResult>> {
-                scriptingHost.eval(scriptSource, compilationConfiguration, evaluationConfiguration)
+                val compileResult = KotlinScriptCompiler.compile(script)
+                scriptExecutionResult.compiledScriptCacheHit = compileResult.cacheHit
+                scriptExecutionResult.compileTimeMillis = compileResult.compileTimeMillis
+                scriptExecutionResult.compiledScriptCacheStatistics = KotlinScriptCompiler.cacheStatistics
+                val compiledScript = compileResult.result.valueOrNull()
+                    ?: return@submit ResultWithDiagnostics.Failure(compileResult.result.reports)
+                scriptingHost.eval(compiledScript, evaluationConfiguration)
             }
             return future.get(300, TimeUnit.SECONDS)  // Timeout
         } catch (ex: TimeoutException) {
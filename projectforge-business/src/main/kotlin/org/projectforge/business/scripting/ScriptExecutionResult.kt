@@ -44,6 +44,21 @@ class ScriptExecutionResult(val scriptLogger: ScriptLogger) : Serializable {
 
     var resultAsUserFriendlyString: String? = null
 
+    /**
+     * True, if the compiled script was taken from the cache of compiled scripts (Kotlin scripts and Groovy scripts).
+     */
+    var compiledScriptCacheHit: Boolean? = null
+
+    /**
+     * Time of compilation (0, if the compiled script was taken from the cache).
+     */
+    var compileTimeMillis: Long? = null
+
+    /**
+     * Size, hits and misses of the cache of compiled scripts.
+     */
+    var compiledScriptCacheStatistics: String? = null
+
     fun hasResult(): Boolean {
         return result != null
     }
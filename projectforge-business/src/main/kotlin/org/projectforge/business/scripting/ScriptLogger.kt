@@ -42,7 +42,19 @@ class ScriptLogger {
     val messages = mutableListOf<Message>()
 
     val lastModified: Date?
-        get() = messages.maxOfOrNull { it.timestamp }
+        get() = synchronized(messages) { messages.maxOfOrNull { it.timestamp } }
+
+    /**
+     * Called after each new message, e.g. for pushing the messages to the client (see AbstractScriptExecutePageRest).
+     */
+    var onChange: (() -> Unit)? = null
+
+    /**
+     * @return A copy of the messages, safe to iterate while the script is still logging.
+     */
+    fun getMessagesSnapshot(): List<Message> {
+        return synchronized(messages) { messages.toList() }
+    }
 
     fun error(msg: Any?) {
         error { msg }
@@ -51,7 +63,7 @@ class ScriptLogger {
     fun error(msg: () -> Any?) {
         val message = msg()?.toString()
         log.error { message }
-        messages.add(Message(message, LogLevel.ERROR))
+        add(Message(message, LogLevel.ERROR))
     }
 
     fun warn(msg: Any?) {
@@ -61,7 +73,7 @@ class ScriptLogger {
     fun warn(msg: () -> Any?) {
         val message = msg()?.toString()
         log.info { message }
-        messages.add(Message(message, LogLevel.WARN))
+        add(Message(message, LogLevel.WARN))
     }
 
     fun info(msg: Any?) {
@@ -71,7 +83,7 @@ class ScriptLogger {
     fun info(msg: () -> Any?) {
         val message = msg()?.toString()
         log.info { message }
-        messages.add(Message(message, LogLevel.INFO))
+        add(Message(message, LogLevel.INFO))
     }
 
     fun debug(msg: Any?) {
@@ -81,7 +93,14 @@ class ScriptLogger {
     fun debug(msg: () -> Any?) {
         val message = msg()?.toString()
         log.debug { message }
-        messages.add(Message(message, LogLevel.DEBUG))
+        add(Message(message, LogLevel.DEBUG))
+    }
+
+    private fun add(message: Message) {
+        synchronized(messages) {
+            messages.add(message)
+        }
+        onChange?.invoke()
     }
 
     internal fun add(msg: String?, logLevel: ScriptDiagnostic.Severity) {
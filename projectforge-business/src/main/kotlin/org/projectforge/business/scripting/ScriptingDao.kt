@@ -25,10 +25,13 @@ package org.projectforge.business.scripting
 
 import org.projectforge.business.PfCaches
 import org.projectforge.framework.access.AccessException
+import org.projectforge.framework.configuration.ApplicationContextProvider
 import org.projectforge.framework.persistence.api.BaseDao
 import org.projectforge.framework.persistence.api.BaseSearchFilter
 import org.projectforge.framework.persistence.api.ExtendedBaseDO
 import org.projectforge.framework.persistence.api.QueryFilter
+import org.projectforge.framework.persistence.history.FlatDisplayHistoryEntry
+import org.projectforge.framework.persistence.history.FlatHistoryFormatService
 import java.io.Serializable
 
 open class ScriptingDao<O : ExtendedBaseDO<Long>>
@@ -83,6 +86,17 @@ open class ScriptingDao<O : ExtendedBaseDO<Long>>
         return __baseDao.find(id)
     }
 
+    /**
+     * Gets the history entries of the given objects (e.g. for exporting the history of all invoices of a year). The
+     * history entries are selected page by page (see [FlatHistoryFormatService.selectHistoryEntriesAsSequence]), so
+     * iterate over the result instead of converting it into a list for large numbers of objects.
+     * Objects without history access of the user are skipped.
+     */
+    fun selectHistoryEntries(items: Collection<O>): Sequence<FlatDisplayHistoryEntry> {
+        return ApplicationContextProvider.getApplicationContext().getBean(FlatHistoryFormatService::class.java)
+            .selectHistoryEntriesAsSequence(__baseDao, items)
+    }
+
     val dOClass: Class<O>
         get() = __baseDao.getEntityClass()
 }
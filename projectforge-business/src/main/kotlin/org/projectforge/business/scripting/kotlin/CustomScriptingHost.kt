@@ -49,4 +49,23 @@ class CustomScriptingHost(val logger: ScriptLogger) : BasicJvmScriptingHost() {
             ThreadLocalScriptingContext.clear()
         }
     }
+
+    /**
+     * Evaluates the given already compiled script (see [KotlinScriptCompiler]).
+     */
+    fun eval(
+        compiledScript: CompiledScript,
+        evaluationConfiguration: ScriptEvaluationConfiguration,
+    ): ResultWithDiagnostics<EvaluationResult> {
+        try {
+            ThreadLocalUserContext.setUser(loggedInUser)
+            ThreadLocalScriptingContext.setLogger(logger)
+            return runInCoroutineContext {
+                evaluator(compiledScript, evaluationConfiguration)
+            }
+        } finally {
+            ThreadLocalUserContext.clear()
+            ThreadLocalScriptingContext.clear()
+        }
+    }
 }
@@ -0,0 +1,131 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+package org.projectforge.business.scripting.kotlin
+
+import kotlinx.coroutines.runBlocking
+import mu.KotlinLogging
+import org.projectforge.business.scripting.KotlinScriptContext
+import org.projectforge.framework.cache.LruCache
+import java.net.URLClassLoader
+import kotlin.script.experimental.api.*
+import kotlin.script.experimental.host.toScriptSource
+import kotlin.script.experimental.jvm.dependenciesFromClassloader
+import kotlin.script.experimental.jvm.dependenciesFromCurrentContext
+import kotlin.script.experimental.jvm.jvm
+import kotlin.script.experimental.jvm.updateClasspath
+import kotlin.script.experimental.jvmhost.JvmScriptCompiler
+
+private val log = KotlinLogging.logger {}
+
+/**
+ * Compiles Kotlin scripts. The class loader, the compilation configuration (resolving the whole classpath is
+ * expensive) and the compiler are created only once. The compiled scripts are cached by the hash of the script
+ * source, so a script is compiled only once as long as it isn't modified (or evicted from the cache).
+ */
+object KotlinScriptCompiler {
+    private const val MAX_CACHE_SIZE = 50
+
+    class CompileResult(
+        val result: ResultWithDiagnostics<CompiledScript>,
+        /**
+         * True, if the compiled script was taken from the cache.
+         */
+        val cacheHit: Boolean,
+        val compileTimeMillis: Long,
+    )
+
+    private val cache = LruCache<String, CompiledScript>(MAX_CACHE_SIZE)
+
+    /**
+     * The class loader used for compiling and evaluating the scripts. In fat jar mode the extracted jars are added.
+     */
+    val classLoader: ClassLoader by lazy {
+        log.debug { "Updated classpathFiles: ${JarExtractor.classpathFiles?.joinToString()}" }
+        log.debug { "Updated classpath URLs: ${JarExtractor.classpathUrls?.joinToString()}" }
+        if (JarExtractor.runningInFatJar) {
+            URLClassLoader(JarExtractor.classpathUrls, Thread.currentThread().contextClassLoader)
+        } else {
+            Thread.currentThread().contextClassLoader
+        }
+    }
+
+    private val compilationConfiguration: ScriptCompilationConfiguration by lazy {
+        ScriptCompilationConfiguration {
+            jvm {
+                if (JarExtractor.classpathFiles != null) {
+                    dependenciesFromClassloader(classLoader = classLoader, wholeClasspath = true)
+                    updateClasspath(JarExtractor.classpathFiles)
+                } else {
+                    dependenciesFromCurrentContext(wholeClasspath = true)
+                }
+            }
+            providedProperties("context" to KotlinScriptContext::class)
+            compilerOptions.append("-nowarn")
+        }
+    }
+
+    private val compiler by lazy { JvmScriptCompiler() }
+
+    /**
+     * Statistics of the cache (size, hits and misses).
+     */
+    val cacheStatistics: String
+        get() = cache.toString()
+
+    /**
+     * Gets the compiled script from the cache or compiles it. Failed compilations aren't cached.
+     */
+    fun compile(script: String): CompileResult {
+        val key = LruCache.contentHash(script)
+        cache.get(key)?.let { compiledScript ->
+            return CompileResult(compiledScript.asSuccess(), cacheHit = true, compileTimeMillis = 0)
+        }
+        val started = System.currentTimeMillis()
+        val result = runBlocking {
+            compiler(script.toScriptSource(), compilationConfiguration)
+        }
+        val compileTimeMillis = System.currentTimeMillis() - started
+        log.info { "Kotlin script compiled in ${compileTimeMillis}ms (cache: $cacheStatistics)." }
+        result.valueOrNull()?.let { cache.put(key, it) }
+        return CompileResult(result, cacheHit = false, compileTimeMillis = compileTimeMillis)
+    }
+
+    /**
+     * Initializes the class loader, the compilation configuration and the compiler by compiling a trivial script in
+     * the background. Should be called once on start-up, so the first script execution of a user isn't delayed.
+     */
+    @JvmStatic
+    fun warmUp() {
+        Thread {
+            try {
+                val result = compile("val warmUp = 1")
+                log.info { "Kotlin scripting warmed up in ${result.compileTimeMillis}ms." }
+            } catch (ex: Throwable) {
+                log.warn(ex) { "Warming up Kotlin scripting failed (ignoring): ${ex.message}" }
+            }
+        }.also {
+            it.name = "KotlinScriptWarmUp"
+            it.isDaemon = true
+        }.start()
+    }
+}
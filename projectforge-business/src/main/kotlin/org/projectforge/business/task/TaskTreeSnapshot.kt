@@ -0,0 +1,114 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.business.task
+
+/**
+ * Consistent view of the task tree structure (task map and pre-order numbering), published by [TaskTree] after every
+ * structural modification. Readers only need a volatile read of the current snapshot, no locks.
+ *
+ * Only the map and the numbering are owned by the snapshot: the [TaskNode]s are shared with the tree and their
+ * mutable state (durations, access settings, task data etc.) isn't frozen.
+ *
+ * The nodes reachable from the root are numbered in pre-order (Euler tour): the subtree of a node is the contiguous
+ * range `[preOrderIndex, subtreeEnd)` of [nodes], so descendant and ancestor checks are O(1) and descendant lists
+ * are simple slices without recursion.
+ *
+ * @property taskMap For faster searching of entries. Taken over without copying, the caller mustn't modify it afterwards.
+ */
+internal class TaskTreeSnapshot(val root: TaskNode?, val taskMap: Map<Long, TaskNode>) {
+    /**
+     * All nodes reachable from the root in pre-order.
+     */
+    private val nodes: Array<TaskNode>
+
+    private val preOrderIndexById: Map<Long, Int>
+
+    /**
+     * subtreeEnd[i] is the (exclusive) end index of the subtree of nodes[i].
+     */
+    private val subtreeEnd: IntArray
+
+    init {
+        val list = ArrayList<TaskNode>(this.taskMap.size)
+        val indexById = HashMap<Long, Int>(this.taskMap.size * 2)
+        val ends = IntArray(this.taskMap.size + 1)
+        if (root != null) {
+            // Iterative depth-first traversal, the stack holds (node, index of next child).
+            val stack = ArrayDeque<Pair<TaskNode, Int>>()
+            indexById[root.id] = 0
+            list.add(root)
+            stack.addLast(Pair(root, 0))
+            while (stack.isNotEmpty()) {
+                val (node, childIndex) = stack.removeLast()
+                val children = node.children
+                if (children != null && childIndex < children.size) {
+                    stack.addLast(Pair(node, childIndex + 1))
+                    val child = children[childIndex]
+                    if (indexById.containsKey(child.id) || list.size >= ends.size) {
+                        continue // Paranoia setting for cyclic references.
+                    }
+                    indexById[child.id] = list.size
+                    list.add(child)
+                    stack.addLast(Pair(child, 0))
+                } else {
+                    ends[indexById[node.id]!!] = list.size
+                }
+            }
+        }
+        nodes = list.toTypedArray()
+        preOrderIndexById = indexById
+        subtreeEnd = ends
+    }
+
+    /**
+     * @return All descendants of the given node in pre-order (parents before their children).
+     */
+    fun getDescendants(node: TaskNode, includeSelf: Boolean): List<TaskNode> {
+        val index = preOrderIndexById[node.id] ?: return if (includeSelf) listOf(node) else emptyList()
+        val from = if (includeSelf) index else index + 1
+        return nodes.asList().subList(from, subtreeEnd[index])
+    }
+
+    /**
+     * @return True if the given node is a descendant of the given ancestor (not if both are the same).
+     */
+    fun isAncestorOf(ancestor: TaskNode, node: TaskNode): Boolean {
+        val ancestorIndex = preOrderIndexById[ancestor.id] ?: return false
+        val index = preOrderIndexById[node.id] ?: return false
+        return index > ancestorIndex && index < subtreeEnd[ancestorIndex]
+    }
+
+    /**
+     * Visits the given node and all its descendants until the given block returns false.
+     * @return false, if the visit was stopped by the given block, otherwise true.
+     */
+    inline fun visitSubtree(node: TaskNode, block: (TaskNode) -> Boolean): Boolean {
+        getDescendants(node, true).forEach {
+            if (!block(it)) {
+                return false
+            }
+        }
+        return true
+    }
+}
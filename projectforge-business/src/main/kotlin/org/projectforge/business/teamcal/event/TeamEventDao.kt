@@ -61,8 +61,8 @@ import org.projectforge.framework.persistence.api.QueryFilter.Companion.le
 import org.projectforge.framework.persistence.api.QueryFilter.Companion.lt
 import org.projectforge.framework.persistence.api.QueryFilter.Companion.or
 import org.projectforge.framework.persistence.api.SortProperty.Companion.desc
+import org.projectforge.framework.persistence.history.HistoryEmbeddedEntities
 import org.projectforge.framework.persistence.history.HistoryFormatUtils
-import org.projectforge.framework.persistence.history.HistoryLoadContext
 import org.projectforge.framework.persistence.user.api.ThreadLocalUserContext.timeZone
 import org.projectforge.framework.time.DateHelper
 import org.projectforge.framework.time.PFDateTime
@@ -629,11 +629,11 @@ open class TeamEventDao : BaseDao<TeamEventDO>(TeamEventDO::class.java) {
     /**
      * Gets history entries of super and adds all history entries of the TeamEventAttendeeDO children.
      */
-    override fun addOwnHistoryEntries(obj: TeamEventDO, context: HistoryLoadContext) {
-        obj.attendees?.forEach { attendee ->
-            historyService.loadAndMergeHistory(attendee, context) { entry ->
-                HistoryFormatUtils.setNumberAsPropertyNameForListEntries(entry, attendee.toString())
-            }
+    override fun getHistoryEmbeddedEntities(obj: TeamEventDO): HistoryEmbeddedEntities? {
+        val attendees = obj.attendees ?: return null
+        val prefixes = attendees.associate { it.id to it.toString() }
+        return HistoryEmbeddedEntities(attendees) { entry ->
+            HistoryFormatUtils.setNumberAsPropertyNameForListEntries(entry, prefixes[entry.entityId] ?: "")
         }
     }
 
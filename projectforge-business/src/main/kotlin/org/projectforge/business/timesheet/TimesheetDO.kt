@@ -53,7 +53,7 @@ import java.util.*
     indexes = [jakarta.persistence.Index(name = "idx_fk_t_timesheet_kost2_id", columnList = "kost2_id"),
         jakarta.persistence.Index(name = "idx_fk_t_timesheet_task_id", columnList = "task_id"),
         jakarta.persistence.Index(name = "idx_fk_t_timesheet_user_id", columnList = "user_id"),
-        jakarta.persistence.Index(name = "idx_timesheet_user_time", columnList = "user_id, start_time")]
+        jakarta.persistence.Index(name = "idx_timesheet_user_time_range", columnList = "user_id, start_time, stop_time")]
 )
 @NamedQueries(
     NamedQuery(
@@ -72,6 +72,14 @@ import java.util.*
         name = TimesheetDO.SELECT_RECENT_USED_LOCATIONS_BY_USER_AND_LAST_UPDATE,
         query = "select distinct location from TimesheetDO where deleted=false and user.id=:userId and lastUpdate>:lastUpdate and location!='' order by location"
     ),
+    NamedQuery(
+        name = TimesheetDO.FIND_OVERLAPPING_BY_USER,
+        query = "select id, startTime, stopTime from TimesheetDO where user.id=:userId and deleted=false and startTime<:stopTime and stopTime>:startTime and id<>:excludeId"
+    ),
+    NamedQuery(
+        name = TimesheetDO.SELECT_TIME_PERIODS_BY_USERS,
+        query = "select id, user.id, startTime, stopTime from TimesheetDO where user.id in :userIds and deleted=false and startTime<:stopTime and stopTime>:startTime"
+    ),
     NamedQuery(
         name = TimesheetDO.SELECT_REFERENCES_BY_TASK_ID,
         query = "select distinct reference from TimesheetDO where deleted=false and task.id in :taskIds and reference is not NULL"
@@ -318,5 +326,7 @@ open class TimesheetDO : DefaultBaseDO(), Comparable<TimesheetDO> {
         internal const val SELECT_RECENT_USED_LOCATIONS_BY_USER_AND_LAST_UPDATE =
             "TimesheetDO_SelectRecentUsedLocationsByUserAndLastUpdate"
         internal const val SELECT_REFERENCES_BY_TASK_ID = "TimesheetDO_SelectReferencesByTaskId"
+        internal const val FIND_OVERLAPPING_BY_USER = "TimesheetDO_FindOverlappingByUser"
+        internal const val SELECT_TIME_PERIODS_BY_USERS = "TimesheetDO_SelectTimePeriodsByUsers"
     }
 }
@@ -60,6 +60,7 @@ import org.projectforge.framework.persistence.api.QueryFilter.Companion.lt
 import org.projectforge.framework.persistence.api.QueryFilter.Companion.ne
 import org.projectforge.framework.persistence.api.SortProperty.Companion.asc
 import org.projectforge.framework.persistence.api.SortProperty.Companion.desc
+import org.projectforge.framework.persistence.api.impl.DBPredicate
 import org.projectforge.framework.persistence.user.api.ThreadLocalUserContext
 import org.projectforge.framework.persistence.user.entities.PFUserDO
 import org.projectforge.framework.persistence.utils.SQLHelper.getYearsByTupleOfDate
@@ -72,6 +73,7 @@ import org.springframework.beans.factory.annotation.Value
 import org.springframework.stereotype.Service
 import java.math.BigDecimal
 import java.util.*
+import java.util.concurrent.ConcurrentHashMap
 
 private val log = KotlinLogging.logger {}
 
@@ -278,10 +280,61 @@ open class TimesheetDao : BaseDao<TimesheetDO>(TimesheetDO::class.java) {
     }
 
     /**
-     * Rechecks the time sheet overlaps.
+     * Adds the duration to the running sums of the task tree.
      */
-    override fun afterInsertOrModify(obj: TimesheetDO, operationType: OperationType) {
-        taskTree.resetTotalDuration(obj.taskId!!)
+    override fun afterInsert(obj: TimesheetDO) {
+        if (!obj.deleted) {
+            addTotalDurationAfterCommit(obj.taskId, getDurationInSeconds(obj))
+        }
+    }
+
+    /**
+     * Removes the duration from the running sums of the task tree (marked as deleted or deleted finally). Time sheets
+     * already marked as deleted before aren't part of the sums.
+     */
+    override fun onDelete(obj: TimesheetDO) {
+        val dbObj = findDbObj(obj) ?: return
+        if (!dbObj.deleted) {
+            addTotalDurationAfterCommit(dbObj.taskId, -getDurationInSeconds(dbObj))
+        }
+    }
+
+    /**
+     * Adds the duration to the running sums of the task tree (if the time sheet was marked as deleted before).
+     */
+    override fun onUndelete(obj: TimesheetDO) {
+        val dbObj = findDbObj(obj) ?: return
+        if (!dbObj.deleted) {
+            addTotalDurationAfterCommit(dbObj.taskId, -getDurationInSeconds(dbObj))
+        }
+        addTotalDurationAfterCommit(obj.taskId, getDurationInSeconds(obj))
+    }
+
+    /**
+     * Gets the current state of the time sheet inside the running transaction (the same attached object is modified
+     * afterward by the caller).
+     */
+    private fun findDbObj(obj: TimesheetDO): TimesheetDO? {
+        return persistenceService.runInTransaction { context ->
+            context.find(TimesheetDO::class.java, obj.id, attached = true)
+        }
+    }
+
+    /**
+     * The running sums of the task tree are modified after the commit only, so rolled back transactions don't falsify
+     * them.
+     */
+    private fun addTotalDurationAfterCommit(taskId: Long?, durationInSeconds: Long) {
+        if (taskId == null || durationInSeconds == 0L) {
+            return
+        }
+        persistenceService.runAfterCommit {
+            taskTree.addTotalDuration(taskId, durationInSeconds)
+        }
+    }
+
+    private fun getDurationInSeconds(timesheet: TimesheetDO): Long {
+        return timesheet.duration / 1000
     }
 
     /**
@@ -343,9 +396,15 @@ open class TimesheetDao : BaseDao<TimesheetDO>(TimesheetDO::class.java) {
         }
     }
 
+    /**
+     * Moves the duration delta (time period or task changed) to the running sums of the task tree.
+     */
     override fun onUpdate(obj: TimesheetDO, dbObj: TimesheetDO) {
-        if (compareValues(obj.taskId, dbObj.taskId) != 0) {
-            taskTree.resetTotalDuration(dbObj.taskId!!)
+        if (!dbObj.deleted) {
+            addTotalDurationAfterCommit(dbObj.taskId, -getDurationInSeconds(dbObj))
+        }
+        if (!obj.deleted) {
+            addTotalDurationAfterCommit(obj.taskId, getDurationInSeconds(obj))
         }
     }
 
@@ -394,40 +453,196 @@ open class TimesheetDao : BaseDao<TimesheetDO>(TimesheetDO::class.java) {
      * Checks if the time sheet overlaps with another time sheet of the same user. Should be checked on every insert or
      * update (also undelete). For time collision detection deleted time sheets are ignored.
      *
+     * Only an existence check: the ids and time periods of at most one overlapping time sheet are selected (no entities,
+     * no access checks), supported by the index on (user_id, start_time, stop_time).
+     *
      * @return The existing time sheet with the time period collision.
      */
     open fun hasTimeOverlap(timesheet: TimesheetDO, throwException: Boolean): Boolean {
+        val userId = requireNotNull(timesheet.user?.id)
+        val startTime = timesheet.startTime
+        val stopTime = timesheet.stopTime
+        if (startTime == null || stopTime == null) {
+            // Time sheets without time period can't be saved anyway (not null constraints).
+            return false
+        }
+        timesheet.id?.let { id ->
+            if (validatedTimePeriods.get()?.get(id) == timePeriodKey(timesheet)) {
+                return false // Already validated by runWithValidatedTimeOverlaps, user and time period unchanged.
+            }
+        }
         val begin = System.currentTimeMillis()
-        requireNotNull(timesheet.user)
-        val queryFilter = QueryFilter()
-        queryFilter.add(eq("user", timesheet.user!!))
-        queryFilter.add(eq("deleted", false))
-        timesheet.stopTime?.let { queryFilter.add(lt("startTime", it)) }
-        timesheet.startTime?.let { queryFilter.add(gt("stopTime", it)) }
-        if (timesheet.id != null) {
-            // Update time sheet, do not compare with itself.
-            queryFilter.add(ne("id", timesheet.id!!))
-        }
-        val list = select(queryFilter)
-        if (list.isNotEmpty()) {
-            val ts = list[0]
-            if (throwException) {
-                log.info("Time sheet collision detected of time sheet $timesheet with existing time sheet $ts")
-                val startTime = DateHelper.formatIsoTimestamp(ts.startTime)
-                val stopTime = DateHelper.formatIsoTimestamp(ts.stopTime)
-                throw UserException(
-                    "timesheet.error.timeperiodOverlapDetection", MessageParam(
-                        ts.id
-                    ), MessageParam(startTime), MessageParam(stopTime)
-                )
+        val tuple = persistenceService.executeNamedQuery(
+            TimesheetDO.FIND_OVERLAPPING_BY_USER,
+            Tuple::class.java,
+            Pair("userId", userId),
+            Pair("startTime", startTime),
+            Pair("stopTime", stopTime),
+            Pair("excludeId", timesheet.id ?: NO_ID), // Update time sheet, do not compare with itself.
+            maxResults = 1,
+        ).firstOrNull()
+        log.debug { "TimesheetDao.hasTimeOverlap took: ${System.currentTimeMillis() - begin} ms." }
+        if (tuple == null) {
+            return false
+        }
+        if (throwException) {
+            val overlap = TimeOverlap(
+                timesheet,
+                tuple.get(0, java.lang.Long::class.java)?.toLong(),
+                tuple.get(1, Date::class.java),
+                tuple.get(2, Date::class.java),
+            )
+            log.info { "Time sheet collision detected of time sheet $timesheet with existing time sheet #${overlap.overlappingId}." }
+            throw overlap.toUserException()
+        }
+        return true
+    }
+
+    /**
+     * Batch variant of [hasTimeOverlap] for mass updating time sheets (see [runWithValidatedTimeOverlaps]): All time sheets are validated with
+     * one single query (of the time periods of all concerned users within the whole time window of the given time
+     * sheets). The given time sheets are also checked against each other, updated time sheets (with id) replace
+     * their persisted versions.
+     *
+     * Deleted time sheets and time sheets without user or time period are ignored.
+     *
+     * @return The collisions found (at most one per given time sheet), empty if none.
+     */
+    open fun findTimeOverlaps(timesheets: Collection<TimesheetDO>): List<TimeOverlap> {
+        val candidates = timesheets.filter { !it.deleted && it.user?.id != null && it.startTime != null && it.stopTime != null }
+        if (candidates.isEmpty()) {
+            return emptyList()
+        }
+        val begin = System.currentTimeMillis()
+        val periodsByUser = mutableMapOf<Long, MutableList<TimePeriod>>()
+        val updatedIds = candidates.mapNotNull { it.id }.toSet()
+        persistenceService.executeNamedQuery(
+            TimesheetDO.SELECT_TIME_PERIODS_BY_USERS,
+            Tuple::class.java,
+            Pair("userIds", candidates.map { it.user!!.id!! }.distinct()),
+            Pair("startTime", candidates.minOf { it.startTime!! }),
+            Pair("stopTime", candidates.maxOf { it.stopTime!! }),
+        ).forEach { tuple ->
+            val id = tuple.get(0, java.lang.Long::class.java).toLong()
+            if (id in updatedIds) {
+                return@forEach // Replaced by the given (modified) time sheet.
             }
-            val end = System.currentTimeMillis()
-            log.info("TimesheetDao.hasTimeOverlap took: " + (end - begin) + " ms.")
-            return true
+            periodsByUser.getOrPut(tuple.get(1, java.lang.Long::class.java).toLong()) { mutableListOf() }
+                .add(TimePeriod(id, tuple.get(2, Date::class.java), tuple.get(3, Date::class.java), null))
+        }
+        candidates.forEach {
+            periodsByUser.getOrPut(it.user!!.id!!) { mutableListOf() }.add(TimePeriod(it.id, it.startTime!!, it.stopTime!!, it))
+        }
+        val indexByUser = periodsByUser.mapValues { TimePeriodIndex(it.value) }
+        val result = candidates.mapNotNull { timesheet ->
+            indexByUser[timesheet.user!!.id!!]!!.findOverlap(timesheet)?.let {
+                TimeOverlap(timesheet, it.id, it.startTime, it.stopTime)
+            }
+        }
+        log.debug { "TimesheetDao.findTimeOverlaps of ${candidates.size} time sheets took: ${System.currentTimeMillis() - begin} ms." }
+        return result
+    }
+
+    /**
+     * For mass updates: validates all given time sheets with one single query (see [findTimeOverlaps]) and runs the
+     * given block. Within the block, the per-row check [hasTimeOverlap] of updates is skipped for the given time sheets
+     * without collision, as long as their user and time period are unchanged. Time sheets with collisions are still
+     * checked (and refused) per row.
+     */
+    fun <T> runWithValidatedTimeOverlaps(timesheets: Collection<TimesheetDO>, block: () -> T): T {
+        val overlappingIds = findTimeOverlaps(timesheets).mapNotNull { it.timesheet.id }.toSet()
+        val validated = timesheets
+            .filter { it.id != null && it.id !in overlappingIds && !it.deleted }
+            .associate { it.id!! to timePeriodKey(it) }
+        val previous = validatedTimePeriods.get()
+        validatedTimePeriods.set(validated)
+        try {
+            return block()
+        } finally {
+            if (previous == null) {
+                validatedTimePeriods.remove()
+            } else {
+                validatedTimePeriods.set(previous)
+            }
+        }
+    }
+
+    private fun timePeriodKey(timesheet: TimesheetDO): Triple<Long?, Long?, Long?> {
+        return Triple(timesheet.user?.id, timesheet.startTime?.time, timesheet.stopTime?.time)
+    }
+
+    /**
+     * Time sheets validated by [runWithValidatedTimeOverlaps] (key is the id, value is the user and time period).
+     */
+    private val validatedTimePeriods = ThreadLocal<Map<Long, Triple<Long?, Long?, Long?>>>()
+
+    /**
+     * A detected collision of a time sheet with another (existing or also given) time sheet of the same user.
+     * @param overlappingId The id of the colliding time sheet, or null if the colliding time sheet isn't persisted yet.
+     */
+    class TimeOverlap(
+        val timesheet: TimesheetDO,
+        val overlappingId: Long?,
+        val startTime: Date,
+        val stopTime: Date,
+    ) {
+        fun toUserException(): UserException {
+            return UserException(
+                "timesheet.error.timeperiodOverlapDetection",
+                MessageParam(overlappingId),
+                MessageParam(DateHelper.formatIsoTimestamp(startTime)),
+                MessageParam(DateHelper.formatIsoTimestamp(stopTime)),
+            )
+        }
+    }
+
+    /**
+     * @param source The given time sheet (for detecting the overlap with itself), null for persisted ones.
+     */
+    private class TimePeriod(val id: Long?, val startTime: Date, val stopTime: Date, val source: TimesheetDO?)
+
+    /**
+     * Time periods of one user sorted by start time together with the running maximum of the stop times, so only the
+     * periods between the last one starting before the stop time and the first one whose running maximum exceeds the
+     * start time have to be visited.
+     */
+    private class TimePeriodIndex(periods: List<TimePeriod>) {
+        private val sorted = periods.sortedBy { it.startTime.time }
+        private val startTimes = LongArray(sorted.size) { sorted[it].startTime.time }
+        private val maxStopTimes = LongArray(sorted.size).also { array ->
+            var max = Long.MIN_VALUE
+            sorted.forEachIndexed { i, period ->
+                max = maxOf(max, period.stopTime.time)
+                array[i] = max
+            }
+        }
+
+        fun findOverlap(timesheet: TimesheetDO): TimePeriod? {
+            val start = timesheet.startTime!!.time
+            val stop = timesheet.stopTime!!.time
+            // All periods from this index on start at or after the stop time:
+            var i = firstIndexOf(startTimes, stop) - 1
+            while (i >= 0 && maxStopTimes[i] > start) {
+                val period = sorted[i]
+                if (period.stopTime.time > start && period.source !== timesheet
+                    && (period.id == null || period.id != timesheet.id)
+                ) {
+                    return period
+                }
+                --i
+            }
+            return null
+        }
+
+        private fun firstIndexOf(array: LongArray, value: Long): Int {
+            var low = 0
+            var high = array.size
+            while (low < high) {
+                val mid = (low + high) ushr 1
+                if (array[mid] < value) low = mid + 1 else high = mid
+            }
+            return low
         }
-        val end = System.currentTimeMillis()
-        log.info("TimesheetDao.hasTimeOverlap took: " + (end - begin) + " ms.")
-        return false
     }
 
     /**
@@ -500,6 +715,63 @@ open class TimesheetDao : BaseDao<TimesheetDO>(TimesheetDO::class.java) {
         return super.hasUserSelectAccess(user, obj, throwException)
     }
 
+    /**
+     * Own time sheets and time sheets of tasks with time sheet select access. No constraint for members of the admin
+     * and finance group and for project managers (they may see all time sheets, protection of privacy is checked by
+     * [hasUserSelectAccess]) or if the user has access to too many tasks (an IN clause wouldn't be faster).
+     */
+    override fun getSelectAccessPredicate(user: PFUserDO): DBPredicate? {
+        if (accessChecker.isUserMemberOfAdminGroup(user)
+            || accessChecker.isUserMemberOfGroup(user, ProjectForgeGroup.FINANCE_GROUP, ProjectForgeGroup.PROJECT_MANAGER)
+        ) {
+            return null
+        }
+        val taskIds = getSelectableTaskIds(user) ?: return null
+        val ownTimesheets = DBPredicate.Equal("user.id", user.id!!)
+        return if (taskIds.isEmpty()) {
+            ownTimesheets
+        } else {
+            DBPredicate.Or(ownTimesheets, DBPredicate.IsIn("task.id", taskIds))
+        }
+    }
+
+    /**
+     * The ids of the tasks with time sheet select access of the given user, cached per user. An entry is valid until
+     * the task tree or its group task accesses are modified or the groups of the user change.
+     * @return The task ids or null, if the user has access to more than [MAX_ACCESS_PREDICATE_TASK_IDS] tasks.
+     */
+    private fun getSelectableTaskIds(user: PFUserDO): List<Long>? {
+        val userId = user.id!!
+        val modificationCounter = taskTree.accessModificationCounter.get()
+        val groupIds = userGroupCache.getUserGroups(user)?.toSet() ?: emptySet()
+        selectableTaskIdsCache[userId]?.let { cached ->
+            if (cached.modificationCounter == modificationCounter && cached.groupIds == groupIds) {
+                return cached.taskIds
+            }
+        }
+        val taskIds = mutableListOf<Long>()
+        var tooMany = false
+        for (node in taskTree.getDescendants(taskTree.rootTaskNode.id, true)) {
+            if (accessChecker.hasPermission(user, node.id, AccessType.TIMESHEETS, OperationType.SELECT, false)) {
+                taskIds.add(node.id)
+                if (taskIds.size > MAX_ACCESS_PREDICATE_TASK_IDS) {
+                    tooMany = true
+                    break
+                }
+            }
+        }
+        val result = if (tooMany) null else taskIds
+        selectableTaskIdsCache[userId] = SelectableTaskIds(modificationCounter, groupIds, result)
+        return result
+    }
+
+    private class SelectableTaskIds(val modificationCounter: Long, val groupIds: Set<Long>, val taskIds: List<Long>?)
+
+    /**
+     * Key is the user id.
+     */
+    private val selectableTaskIdsCache = ConcurrentHashMap<Long, SelectableTaskIds>()
+
     override fun hasHistoryAccess(user: PFUserDO, obj: TimesheetDO, throwException: Boolean): Boolean {
         return hasAccess(user, obj, null, OperationType.SELECT, throwException)
     }
@@ -765,6 +1037,16 @@ open class TimesheetDao : BaseDao<TimesheetDO>(TimesheetDO::class.java) {
     }
 
     companion object {
+        /**
+         * Used as id to exclude for new time sheets in the overlap query (ids are always positive).
+         */
+        private const val NO_ID = -1L
+
+        /**
+         * Maximum number of accessible task ids for the select access predicate.
+         */
+        private const val MAX_ACCESS_PREDICATE_TASK_IDS = 1_000
+
         /**
          * Maximum allowed duration of time sheets is 14 hours.
          */
@@ -24,6 +24,7 @@
 package org.projectforge.business.user
 
 import mu.KotlinLogging
+import org.projectforge.Constants
 import org.projectforge.ShutdownListener
 import org.projectforge.business.user.UserPrefCache.Companion.dontCallShutdownInTestMode
 import org.projectforge.framework.ToStringUtil
@@ -34,12 +35,19 @@ import org.projectforge.framework.persistence.user.api.ThreadLocalUserContext
 import org.projectforge.framework.persistence.user.api.ThreadLocalUserContext.loggedInUserId
 import org.projectforge.framework.persistence.user.entities.PFUserDO
 import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.scheduling.annotation.Scheduled
+import java.util.concurrent.ConcurrentHashMap
 
 private val log = KotlinLogging.logger {}
 
 /**
  * Stores all user persistent objects such as filter settings, personal settings and persists them to the database.
  *
+ * Modified entries (put since the last flush or read and modified in-place, see
+ * [UserPrefCacheData.takeModifiedEntries]) are written periodically to the database by [writeBehind] (write-behind),
+ * all other entries aren't serialized for detecting modifications. The preferences of each user are locked
+ * separately, so flushing doesn't block the preferences of other users.
+ *
  * Extended by [UserPrefCache] and [UserXmlPreferencesCache].
  *
  * @author Kai Reinhard (k.reinhard@micromata.de)
@@ -55,7 +63,7 @@ abstract class AbstractUserPrefCache<DBObj : IUserPref>(
     @Autowired
     private lateinit var persistenceService: PfPersistenceService
 
-    private val allPreferences = mutableMapOf<Long, UserPrefCacheData>()
+    private val allPreferences = ConcurrentHashMap<Long, UserPrefCacheData>()
 
     protected abstract fun selectUserPreferencesByUserId(userId: Long): Collection<DBObj>?
     protected abstract fun saveOrUpdate(userId: Long, key: UserPrefCacheDataKey, value: Any, checkAccess: Boolean)
@@ -73,7 +81,7 @@ abstract class AbstractUserPrefCache<DBObj : IUserPref>(
         area: String?, identifier: String?, userId: Long? = null
     ): Any? {
         val uid = userId ?: ThreadLocalUserContext.requiredLoggedInUserId
-        return ensureAndGetUserPreferencesData(uid).getEntry(area, identifier)
+        return withUserPreferencesData(uid) { it.getEntry(area, identifier) }
     }
 
     @Suppress("UNCHECKED_CAST", "UNUSED_PARAMETER")
@@ -82,7 +90,7 @@ abstract class AbstractUserPrefCache<DBObj : IUserPref>(
         area: String?, identifier: String, expectedType: Class<T>, userId: Long? = null
     ): T? {
         val uid = userId ?: ThreadLocalUserContext.requiredLoggedInUserId
-        return ensureAndGetUserPreferencesData(uid).getEntry(area, identifier) as? T?
+        return withUserPreferencesData(uid) { it.getEntry(area, identifier) } as? T?
     }
 
     @JvmOverloads
@@ -91,11 +99,8 @@ abstract class AbstractUserPrefCache<DBObj : IUserPref>(
         userId: Long? = null
     ) {
         val uid = userId ?: ThreadLocalUserContext.requiredLoggedInUserId
-        val cacheData = ensureAndGetUserPreferencesData(uid)
         val key = UserPrefCacheDataKey(area, identifier)
-        synchronized(cacheData) {
-            cacheData.putEntry(key, value, persistent)
-        }
+        withUserPreferencesData(uid) { it.putEntry(key, value, persistent) }
     }
 
     /**
@@ -112,21 +117,19 @@ abstract class AbstractUserPrefCache<DBObj : IUserPref>(
             // Store user pref for demo user only in user's session.
             return
         }
-        val data = ensureAndGetUserPreferencesData(uid)
         log.debug {
             "$title: Put value for ${createLogMessagePart(userId, key)} (persistent=$persistent): ${
                 ToStringUtil.toJsonString(value ?: "null")
             }"
         }
-        data.putEntry(key, value, persistent)
+        withUserPreferencesData(uid) { it.putEntry(key, value, persistent) }
     }
 
     /**
      * Gets an entry from the user preferences cache.
      */
     fun getEntry(userId: Long, key: UserPrefCacheDataKey): Any? {
-        val data = ensureAndGetUserPreferencesData(userId)
-        return data.getEntry(key)
+        return withUserPreferencesData(userId) { it.getEntry(key) }
     }
 
     @JvmOverloads
@@ -137,26 +140,34 @@ abstract class AbstractUserPrefCache<DBObj : IUserPref>(
     ) {
         val uid = userId ?: ThreadLocalUserContext.requiredLoggedInUserId
         val key = UserPrefCacheDataKey(area, identifier)
-        val data = ensureAndGetUserPreferencesData(uid)
-        data.removeEntry(key)
+        withUserPreferencesData(uid) { it.removeEntry(key) }
         remove(uid, key)
     }
 
+    /**
+     * Writes the entries put since the last flush or read and modified in-place to the database, if modified. The user's data is locked
+     * meanwhile (not the data of other users).
+     */
     internal fun insertOrUpdateUserEntriesIfModified(data: UserPrefCacheData, checkAccess: Boolean) {
         val userId = data.userId ?: return
         var counter = 0
-        data.persistentDataForeach { key, value ->
-            if (isModified(data, key, value)) {
-                log.debug { "${title}: User preference modified: ${createLogMessagePart(userId, key)}" }
-                // Only save if changed to avoid unnecessary database updates.
-                ++counter
-                try {
-                    saveOrUpdate(userId, key, value, checkAccess)
-                } catch (ex: Throwable) {
-                    log.warn(ex.message, ex)
+        synchronized(data) {
+            data.takeModifiedEntries().forEach { (key, value) ->
+                val serializedHashCode = serialize(value).hashCode()
+                if (isModified(data, key, serializedHashCode)) {
+                    log.debug { "${title}: User preference modified: ${createLogMessagePart(userId, key)}" }
+                    // Only save if changed to avoid unnecessary database updates.
+                    ++counter
+                    try {
+                        saveOrUpdate(userId, key, value, checkAccess)
+                        data.setOriginalDataHashCode(key, serializedHashCode)
+                    } catch (ex: Throwable) {
+                        log.warn(ex.message, ex)
+                        data.markAsModified(listOf(key)) // Try again on next flush.
+                    }
+                } else {
+                    log.debug { "User preference not modified: ${createLogMessagePart(userId, key)}" }
                 }
-            } else {
-                log.debug { "User preference not modified: ${createLogMessagePart(userId, key)}" }
             }
         }
         if (counter > 0) {
@@ -165,15 +176,17 @@ abstract class AbstractUserPrefCache<DBObj : IUserPref>(
     }
 
     internal fun isModified(data: UserPrefCacheData, key: UserPrefCacheDataKey, value: Any?): Boolean {
-        val userId = data.userId
+        return isModified(data, key, if (value != null) serialize(value).hashCode() else 0)
+    }
+
+    private fun isModified(data: UserPrefCacheData, key: UserPrefCacheDataKey, currentHashCode: Int): Boolean {
         val originalHashCode = data.getOriginalDataHashCode(key)
-        val currenHashCode = if (value != null) serialize(value).hashCode() else 0
         log.debug {
-            "User preference modification status=${originalHashCode != currenHashCode}, ${
-                createLogMessagePart(userId, key)
-            }, value=$value, originalHashCode=$originalHashCode, currenHashCode=$currenHashCode"
+            "User preference modification status=${originalHashCode != currentHashCode}, ${
+                createLogMessagePart(data.userId, key)
+            }, originalHashCode=$originalHashCode, currentHashCode=$currentHashCode"
         }
-        return originalHashCode != currenHashCode
+        return originalHashCode != currentHashCode
     }
 
     /**
@@ -214,19 +227,32 @@ abstract class AbstractUserPrefCache<DBObj : IUserPref>(
                     }
                 }
             }
-            synchronized(allPreferences) {
-                allPreferences[userId] = data
-            }
+            // Another thread may have loaded the data in the meantime:
+            data = allPreferences.putIfAbsent(userId, data) ?: data
         }
         return data
     }
 
-    internal fun getUserPreferencesData(userId: Long): UserPrefCacheData? {
-        synchronized(allPreferences) {
-            return allPreferences[userId]
+    /**
+     * Runs the given block with the user's data locked. The data is evicted by flushing under the same lock, so
+     * modifications of evicted data (which would get lost) aren't possible.
+     */
+    private fun <T> withUserPreferencesData(userId: Long, block: (UserPrefCacheData) -> T): T {
+        while (true) {
+            val data = ensureAndGetUserPreferencesData(userId)
+            synchronized(data) {
+                if (allPreferences[userId] === data) {
+                    return block(data)
+                }
+            }
+            // Evicted in the meantime, reload.
         }
     }
 
+    internal fun getUserPreferencesData(userId: Long): UserPrefCacheData? {
+        return allPreferences[userId]
+    }
+
     /**
      * Flushes the user settings to the database (independent of the expired mechanism). Should be used after the user's
      * logout. If the user data isn't modified, then nothing will be done.
@@ -242,11 +268,37 @@ abstract class AbstractUserPrefCache<DBObj : IUserPref>(
     private fun flushAllToDB() {
         log.info("$title: Flushing all user preferences to database....")
         persistenceService.runInNewTransaction {
-            synchronized(allPreferences) {
-                allPreferences.forEach { (_, data) ->
+            allPreferences.values.forEach { data ->
+                // Flush and evict under the user's lock, so no modification gets lost in between:
+                synchronized(data) {
                     insertOrUpdateUserEntriesIfModified(data, checkAccess = false)
+                    allPreferences.remove(data.userId, data)
                 }
-                allPreferences.clear()
+            }
+        }
+    }
+
+    @Scheduled(fixedDelay = WRITE_BEHIND_INTERVAL, initialDelay = WRITE_BEHIND_INTERVAL)
+    fun writeBehind() {
+        if (dontCallShutdownInTestMode) {
+            // Test mode (see shutdown): test cases flush explicitly.
+            return
+        }
+        flushModifiedToDB()
+    }
+
+    /**
+     * Write-behind: writes the modified entries of all users to the database (in one transaction) without removing
+     * them from the cache.
+     */
+    internal fun flushModifiedToDB() {
+        if (allPreferences.isEmpty()) {
+            return
+        }
+        log.debug { "$title: Writing modified user preferences to database...." }
+        persistenceService.runInNewTransaction {
+            allPreferences.values.forEach { data ->
+                insertOrUpdateUserEntriesIfModified(data, checkAccess = false)
             }
         }
     }
@@ -264,12 +316,12 @@ abstract class AbstractUserPrefCache<DBObj : IUserPref>(
                 return
             }
         }
+        val data = allPreferences[userId] ?: return
         persistenceService.runInNewTransaction {
-            synchronized(allPreferences) {
-                allPreferences[userId]?.let { data ->
-                    insertOrUpdateUserEntriesIfModified(data, checkAccess)
-                }
-                allPreferences.remove(userId)
+            // Flush and evict under the user's lock, so no modification gets lost in between:
+            synchronized(data) {
+                insertOrUpdateUserEntriesIfModified(data, checkAccess)
+                allPreferences.remove(userId, data)
             }
         }
     }
@@ -292,9 +344,7 @@ abstract class AbstractUserPrefCache<DBObj : IUserPref>(
      * @param userId
      */
     fun clear(userId: Long) {
-        synchronized(allPreferences) {
-            allPreferences.remove(userId)
-        }
+        allPreferences.remove(userId)
     }
 
     private fun createLogMessagePart(userId: Long?, key: UserPrefCacheDataKey): String {
@@ -312,4 +362,11 @@ abstract class AbstractUserPrefCache<DBObj : IUserPref>(
         }
         flushAllToDB()
     }
+
+    companion object {
+        /**
+         * Interval of the write-behind of modified entries, see [writeBehind].
+         */
+        const val WRITE_BEHIND_INTERVAL = Constants.MILLIS_PER_MINUTE
+    }
 }
@@ -32,7 +32,7 @@ import org.projectforge.framework.access.AccessType
 import org.projectforge.framework.access.OperationType
 import org.projectforge.framework.persistence.api.*
 import org.projectforge.framework.persistence.api.QueryFilter.Companion.eq
-import org.projectforge.framework.persistence.history.HistoryLoadContext
+import org.projectforge.framework.persistence.history.HistoryEmbeddedEntities
 import org.projectforge.framework.persistence.history.HistoryEntryDO
 import org.projectforge.framework.persistence.user.api.ThreadLocalUserContext
 import org.projectforge.framework.persistence.user.api.ThreadLocalUserContext.loggedInUserId
@@ -285,10 +285,8 @@ open class UserDao : BaseDao<PFUserDO>(PFUserDO::class.java) {
      *
      * @see org.projectforge.framework.persistence.api.BaseDao.selectFlatDisplayHistoryEntries
      */
-    override fun addOwnHistoryEntries(obj: PFUserDO, context: HistoryLoadContext) {
-        val userId = obj.id!!
-        val rightIds = userRightDao.queryAll(userId).map { it.id!! }
-        historyService.loadAndMergeHistory(UserRightDO::class.java, rightIds, context)
+    override fun getHistoryEmbeddedEntities(obj: PFUserDO): HistoryEmbeddedEntities {
+        return HistoryEmbeddedEntities(userRightDao.queryAll(obj.id!!))
     }
 
     override fun hasHistoryAccess(user: PFUserDO, throwException: Boolean): Boolean {
@@ -27,6 +27,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore
 import com.thoughtworks.xstream.annotations.XStreamAlias
 import com.thoughtworks.xstream.annotations.XStreamOmitField
 import mu.KotlinLogging
+import java.util.concurrent.ConcurrentHashMap
 
 private val log = KotlinLogging.logger {}
 
@@ -46,14 +47,6 @@ class UserPrefCacheData {
 
     private val persistentData = mutableMapOf<UserPrefCacheDataKey, Any>()
 
-    internal fun persistentDataForeach(action: (key: UserPrefCacheDataKey, value: Any) -> Unit) {
-        synchronized(persistentData) {
-            persistentData.forEach { (identifier, value) ->
-                action(identifier, value)
-            }
-        }
-    }
-
     @XStreamOmitField
     @Transient
     @JsonIgnore
@@ -68,6 +61,26 @@ class UserPrefCacheData {
     @JsonIgnore
     private var originalPersistentDataHashCode = mutableMapOf<UserPrefCacheDataKey, Int>()
 
+    /**
+     * Keys of persistent entries put since the last flush (guarded by persistentData).
+     */
+    @XStreamOmitField
+    @Transient
+    @JsonIgnore
+    private var modifiedKeys = mutableSetOf<UserPrefCacheDataKey>()
+
+    /**
+     * Keys of persistent entries handed out by [getEntry] (guarded by persistentData), the caller may modify the values
+     * in-place. Value is the hashCode of the value at the time of reading (or of the last check), if the class of
+     * the value implements a value based hashCode (e.g. collections, data classes). Such entries are checked
+     * cheaply by their hashCode on every flush. Otherwise (null), the entry is a candidate only for the next flush
+     * after reading. Modifications after that flush require [putEntry] (explicit mutation).
+     */
+    @XStreamOmitField
+    @Transient
+    @JsonIgnore
+    private var readKeys = mutableMapOf<UserPrefCacheDataKey, Int?>()
+
 
     fun containsPersistentEntry(key: UserPrefCacheDataKey): Boolean {
         return synchronized(persistentData) {
@@ -93,6 +106,10 @@ class UserPrefCacheData {
         if (persistent) {
             synchronized(persistentData) {
                 persistentData[key] = value
+                if (originalSerializedHashCode == null) {
+                    // Not loaded from the database:
+                    modifiedKeys.add(key)
+                }
             }
             originalSerializedHashCode?.let {
                 synchronized(originalPersistentDataHashCode) {
@@ -115,7 +132,10 @@ class UserPrefCacheData {
      */
     fun getEntry(key: UserPrefCacheDataKey): Any? {
         return synchronized(persistentData) {
-            persistentData[key]
+            persistentData[key]?.also {
+                // The caller may modify the value:
+                readKeys[key] = if (hasValueBasedHashCode(it)) it.hashCode() else null
+            }
         } ?: synchronized(volatileData) {
             volatileData[key]
         }
@@ -135,6 +155,60 @@ class UserPrefCacheData {
         }
     }
 
+    internal fun setOriginalDataHashCode(key: UserPrefCacheDataKey, hashCode: Int) {
+        synchronized(originalPersistentDataHashCode) {
+            originalPersistentDataHashCode[key] = hashCode
+        }
+    }
+
+    /**
+     * Gets the persistent entries which may be modified: the entries put since the last call (see [modifiedKeys]) and
+     * the read entries (see [readKeys]) with a changed hashCode or without a value based hashCode. Only these entries
+     * have to be serialized for detecting modifications.
+     * @return The keys with their current values.
+     */
+    internal fun takeModifiedEntries(): Map<UserPrefCacheDataKey, Any> {
+        synchronized(persistentData) {
+            if (modifiedKeys.isEmpty() && readKeys.isEmpty()) {
+                return emptyMap()
+            }
+            val result = mutableMapOf<UserPrefCacheDataKey, Any>()
+            modifiedKeys.forEach { key -> persistentData[key]?.let { result[key] = it } }
+            modifiedKeys.clear()
+            val iterator = readKeys.entries.iterator()
+            while (iterator.hasNext()) {
+                val entry = iterator.next()
+                val value = persistentData[entry.key]
+                if (value == null) {
+                    iterator.remove()
+                    continue
+                }
+                val readHashCode = entry.value
+                if (readHashCode == null) {
+                    // Can't be checked cheaply, so only serialized once after reading:
+                    result[entry.key] = value
+                    iterator.remove()
+                } else {
+                    val hashCode = value.hashCode()
+                    if (hashCode != readHashCode) {
+                        result[entry.key] = value
+                        entry.setValue(hashCode)
+                    }
+                }
+            }
+            return result
+        }
+    }
+
+    /**
+     * Marks the given entries as modified again (e.g. if they couldn't be written to the database).
+     */
+    internal fun markAsModified(keys: Collection<UserPrefCacheDataKey>) {
+        synchronized(persistentData) {
+            keys.filterTo(modifiedKeys) { persistentData.containsKey(it) }
+        }
+    }
+
     /**
      * Removes the entry from persistent and volatile storage if exist. Does not remove the entry from the database!
      *
@@ -143,6 +217,8 @@ class UserPrefCacheData {
      */
     fun removeEntry(key: UserPrefCacheDataKey): Any? {
         val value = synchronized(persistentData) {
+            modifiedKeys.remove(key)
+            readKeys.remove(key)
             persistentData.remove(key)
         }
         val volatileValue = synchronized(volatileData) {
@@ -151,6 +227,16 @@ class UserPrefCacheData {
         return value ?: volatileValue
     }
 
+    private fun hasValueBasedHashCode(value: Any): Boolean {
+        return valueBasedHashCodeClasses.computeIfAbsent(value.javaClass) { clazz ->
+            try {
+                clazz.getMethod("hashCode").declaringClass != Any::class.java
+            } catch (ex: Exception) {
+                false
+            }
+        }
+    }
+
     /**
      * Clear all volatile data (after logout). Forces refreshing of volatile data after re-login.
      */
@@ -159,4 +245,8 @@ class UserPrefCacheData {
             volatileData.clear()
         }
     }
+
+    companion object {
+        private val valueBasedHashCodeClasses = ConcurrentHashMap<Class<*>, Boolean>()
+    }
 }
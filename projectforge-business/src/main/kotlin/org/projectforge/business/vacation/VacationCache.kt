@@ -41,7 +41,8 @@ import java.time.LocalDate
 private val log = KotlinLogging.logger {}
 
 /**
- * The vacation entries will be cached.
+ * The vacation entries will be cached. The vacations are indexed by month (see [VacationMonthIndex]), so queries for a
+ * period (calendars, team overviews) don't iterate over all vacations.
  *
  * @author Kai Reinhard (k.reinhard@micromata.de)
  */
@@ -59,9 +60,8 @@ open class VacationCache : AbstractCache(), BaseDOModifiedListener<VacationDO> {
     @Autowired
     private lateinit var vacationDao: VacationDao
 
-    private var vacationMap = mutableMapOf<Long?, VacationDO>()
-
-    private var vacations = listOf<VacationDO>() // Thread safe
+    @Volatile
+    private var vacationIndex = VacationMonthIndex()
 
     @PostConstruct
     private fun postConstruct() {
@@ -72,6 +72,7 @@ open class VacationCache : AbstractCache(), BaseDOModifiedListener<VacationDO> {
      * Checks also the select access of the logged in user.
      * @param groupIds Null items should only occur on (de)serialization issues.
      * @param userIds Null items should only occur on (de)serialization issues.
+     * @return The vacations sorted by start date.
      */
     open fun getVacationForPeriodAndUsers(
         startVacationDate: LocalDate, endVacationDate: LocalDate,
@@ -83,37 +84,29 @@ open class VacationCache : AbstractCache(), BaseDOModifiedListener<VacationDO> {
             log.info("No groups given, therefore no vacation will be returned.")
             return result
         }
-        for (vacation in vacations) {
-            if (vacation.endDate?.isBefore(startVacationDate) == true ||
-                vacation.startDate?.isAfter(endVacationDate) == true
-            ) {
-                continue
-            }
-            if (!vacationDao.hasSelectAccess(vacation, ThreadLocalUserContext.requiredLoggedInUser)) {
-                continue
-            }
-            val employeeUser = employeeCache.getUser(vacation.employee) ?: continue
-            var match = groupIds?.any { gid ->
-                userGroupCache.getGroup(gid)?.assignedUsers?.any { user ->
-                    user.id == employeeUser.id // The employee matches with one assigned user of the group.
-                } ?: false // Null doesn't match.
-            } ?: false // Null doesn't match
-            if (!match) { // Search for users
-                match = userIds?.any { uid ->
-                    uid == employeeUser.id // The employee matches with one given user.
-                } ?: false // Null doesn't match
-            }
-            if (match) {
-                result.add(vacation) // Employee is part of group, so return the vacation entry for this user.
+        val groupIdSet = groupIds?.filterNotNull()?.toSet() ?: emptySet()
+        val userIdSet = userIds?.filterNotNull()?.toSet() ?: emptySet()
+        // Group ids of all users, precomputed by UserGroupCache:
+        val userGroupIdMap = if (groupIdSet.isEmpty()) emptyMap() else userGroupCache.getUserGroupIdMap()
+        val loggedInUser = ThreadLocalUserContext.requiredLoggedInUser
+        vacationIndex.forEachInPeriod(startVacationDate, endVacationDate) { vacation ->
+            val employeeUserId = employeeCache.getUser(vacation.employee)?.id ?: return@forEachInPeriod
+            // The employee is one of the given users or member of one of the given groups:
+            val match = userIdSet.contains(employeeUserId) ||
+                    userGroupIdMap[employeeUserId]?.any { groupIdSet.contains(it) } == true
+            if (match && vacationDao.hasSelectAccess(vacation, loggedInUser)) {
+                result.add(vacation)
             }
         }
+        result.sortBy { it.startDate }
         return result
     }
 
     override fun afterInsertOrModify(obj: VacationDO, operationType: OperationType) {
-        synchronized(vacationMap) {
-            vacationMap[obj.id] = obj
-            vacations = vacationMap.values.toList()
+        if (obj.deleted) {
+            vacationIndex.remove(obj.id)
+        } else {
+            vacationIndex.put(obj)
         }
     }
 
@@ -123,15 +116,14 @@ open class VacationCache : AbstractCache(), BaseDOModifiedListener<VacationDO> {
     override fun refresh() {
         log.info("Refreshing VacationCache ...")
         persistenceService.runIsolatedReadOnly {
-            // This method must not be synchronized because it works with a new copy of maps.
-            val map = mutableMapOf<Long?, VacationDO>()
+            // This method must not be synchronized because it works with a new index.
+            val index = VacationMonthIndex()
             vacationDao.selectAll(checkAccess = false).forEach {
                 if (!it.deleted) {
-                    map[it.id] = it
+                    index.put(it)
                 }
             }
-            vacationMap = map
-            vacations = vacationMap.values.toList() // Make a copy for avoiding ConcurrentModificationExceptions
+            vacationIndex = index
         }
         log.info("Refreshing of VacationCache done.")
     }
@@ -0,0 +1,122 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.business.vacation
+
+import org.projectforge.business.vacation.model.VacationDO
+import java.time.LocalDate
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Index of vacations by month (buckets), so vacations of a period are found without iterating over all vacations.
+ * Each vacation is registered in every month it touches. Vacations spanning more than [MAX_MONTHS] months (shouldn't
+ * occur) are kept in a separate list checked on every query.
+ *
+ * Thread safe: modifications ([put], [remove]) are done incrementally and may be done concurrently to queries.
+ */
+internal class VacationMonthIndex {
+    /**
+     * The months are stored at insertion time, so the vacation is removed from the right buckets, even if its dates
+     * were modified in the meantime.
+     */
+    private class Entry(val vacation: VacationDO, val firstMonth: Int, val lastMonth: Int)
+
+    private val vacationsById = ConcurrentHashMap<Long, Entry>()
+
+    /**
+     * Key is the month index (see [monthIndex]), value are the vacations by id touching this month.
+     */
+    private val vacationsByMonth = ConcurrentHashMap<Int, MutableMap<Long, Entry>>()
+
+    private val longVacations = ConcurrentHashMap<Long, Entry>()
+
+    val size: Int
+        get() = vacationsById.size
+
+    /**
+     * Adds or replaces the given vacation.
+     */
+    fun put(vacation: VacationDO) {
+        val id = vacation.id ?: return
+        remove(id)
+        val startDate = vacation.startDate ?: return // Shouldn't occur on db entries.
+        val endDate = vacation.endDate ?: return // Shouldn't occur on db entries.
+        val entry = Entry(vacation, monthIndex(startDate), monthIndex(endDate))
+        vacationsById[id] = entry
+        if (entry.lastMonth - entry.firstMonth >= MAX_MONTHS) {
+            longVacations[id] = entry
+            return
+        }
+        for (month in entry.firstMonth..entry.lastMonth) {
+            vacationsByMonth.computeIfAbsent(month) { ConcurrentHashMap() }[id] = entry
+        }
+    }
+
+    fun remove(id: Long?) {
+        id ?: return
+        val entry = vacationsById.remove(id) ?: return
+        if (longVacations.remove(id) != null) {
+            return
+        }
+        for (month in entry.firstMonth..entry.lastMonth) {
+            vacationsByMonth[month]?.remove(id)
+        }
+    }
+
+    /**
+     * Calls the action for every vacation overlapping the given period (each vacation only once).
+     */
+    fun forEachInPeriod(periodBegin: LocalDate, periodEnd: LocalDate, action: (VacationDO) -> Unit) {
+        val firstMonth = monthIndex(periodBegin)
+        for (month in firstMonth..monthIndex(periodEnd)) {
+            vacationsByMonth[month]?.values?.forEach { entry ->
+                // A vacation touching several months of the period is processed in its first month of the period only:
+                if (maxOf(entry.firstMonth, firstMonth) == month && overlaps(entry.vacation, periodBegin, periodEnd)) {
+                    action(entry.vacation)
+                }
+            }
+        }
+        longVacations.values.forEach { entry ->
+            if (overlaps(entry.vacation, periodBegin, periodEnd)) {
+                action(entry.vacation)
+            }
+        }
+    }
+
+    private fun overlaps(vacation: VacationDO, periodBegin: LocalDate, periodEnd: LocalDate): Boolean {
+        val startDate = vacation.startDate ?: return false
+        val endDate = vacation.endDate ?: return false
+        return !endDate.isBefore(periodBegin) && !startDate.isAfter(periodEnd)
+    }
+
+    companion object {
+        /**
+         * Vacations spanning more months aren't put into the month buckets.
+         */
+        const val MAX_MONTHS = 24
+
+        private fun monthIndex(date: LocalDate): Int {
+            return date.year * 12 + date.monthValue - 1
+        }
+    }
+}
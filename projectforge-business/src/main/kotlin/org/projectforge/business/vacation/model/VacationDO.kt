@@ -60,6 +60,10 @@ import java.time.LocalDate
         name = VacationDO.FIND_CURRENT_AND_FUTURE,
         query = "from VacationDO where endDate>=:endDate and status in :statusList and deleted=false",
     ),
+    NamedQuery(
+        name = VacationDO.FIND_CURRENT_AND_FUTURE_BY_IDS,
+        query = "from VacationDO where id in :ids and endDate>=:endDate and status in :statusList and deleted=false",
+    ),
 )
 @NamedEntityGraph(
     name = VacationDO.ENTITY_GRAPH_WITH_OTHER_REPLACEMENTIDS,
@@ -217,6 +221,8 @@ open class VacationDO : DefaultBaseDO() {
     companion object {
         internal const val FIND_CURRENT_AND_FUTURE = "VacationDO_FindCurrentAndFuture"
 
+        internal const val FIND_CURRENT_AND_FUTURE_BY_IDS = "VacationDO_FindCurrentAndFutureByIds"
+
         const val ENTITY_GRAPH_WITH_OTHER_REPLACEMENTIDS = "VacationDO.withOtherReplacementIds"
 
         private fun hasOverlap(begin1: LocalDate?, end1: LocalDate?, begin2: LocalDate?, end2: LocalDate?): Boolean {
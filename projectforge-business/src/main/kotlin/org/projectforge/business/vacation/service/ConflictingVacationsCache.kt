@@ -39,6 +39,10 @@ private val log = KotlinLogging.logger {}
 /**
  * Cache with vacation conflicts (vacations of employee conflicting to vacations of substitutes / replacements).
  * Only current vacations or vacations in the future are considered.
+ *
+ * After modifications of vacations, only the conflicts of the affected employees and their replacements are checked
+ * again (delta refresh, see [VacationConflictsEngine.update]) on a copy of the engine, which replaces the current one
+ * afterwards.
  */
 @Service
 class ConflictingVacationsCache() : AbstractCache() {
@@ -48,15 +52,11 @@ class ConflictingVacationsCache() : AbstractCache() {
     @Autowired
     private lateinit var vacationService: VacationService
 
-    /**
-     * Key is the employee id.
-     */
-    private var conflictingVacationsByEmployee = mutableMapOf<Long, MutableList<VacationDO>>()
+    @Autowired
+    private lateinit var vacationDao: VacationDao
 
-    /**
-     * List of vacation id's with conflicts.
-     */
-    private var allConflictingVacations = mutableSetOf<Long>()
+    @Volatile
+    private var engine = VacationConflictsEngine(emptyList())
 
     @Autowired
     private lateinit var applicationContext: ApplicationContext
@@ -64,26 +64,12 @@ class ConflictingVacationsCache() : AbstractCache() {
     @PostConstruct
     private fun postConstruct() {
         this.vacationService = applicationContext.getBean(VacationService::class.java)
+        vacationDao.register(createModifiedListener())
     }
 
     fun updateVacation(vacationDO: VacationDO, conflict: Boolean) {
         checkRefresh()
-        synchronized(allConflictingVacations) {
-            vacationDO.id?.let { id ->
-                if (!conflict) {
-                    allConflictingVacations.remove(id) // If given
-                } else {
-                    allConflictingVacations.add(id)
-                }
-            }
-        }
-        synchronized(conflictingVacationsByEmployee) {
-            if (!conflict) {
-                conflictingVacationsByEmployee[vacationDO.employee?.id]?.remove(vacationDO)
-            } else {
-                ensureEmployeeList(conflictingVacationsByEmployee, vacationDO.employee?.id).add(vacationDO)
-            }
-        }
+        engine.setConflict(vacationDO, conflict)
     }
 
     fun hasConflict(vacationDO: VacationDO): Boolean {
@@ -93,67 +79,42 @@ class ConflictingVacationsCache() : AbstractCache() {
     fun hasConflict(vacationId: Long?): Boolean {
         vacationId ?: return false
         checkRefresh()
-        synchronized(allConflictingVacations) {
-            return allConflictingVacations.contains(vacationId)
-        }
+        return engine.hasConflict(vacationId)
     }
 
     fun numberOfConflicts(userId: Long): Int {
         checkRefresh()
-        EmployeeCache.instance.getEmployeeIdByUserId(userId)?.let { employeeId ->
-            synchronized(allConflictingVacations) {
-                return conflictingVacationsByEmployee[employeeId]?.size ?: 0
-            }
-        }
-        return 0
+        val employeeId = EmployeeCache.instance.getEmployeeIdByUserId(userId) ?: return 0
+        return engine.numberOfConflicts(employeeId)
     }
 
     override fun refresh() {
         log.info("Refreshing cache of conflicting vacations...")
         persistenceService.runIsolatedReadOnly(recordCallStats = true) { context ->
-            val vacationByEmployee = mutableMapOf<Long, MutableList<VacationDO>>()
-            // First, order all vacations by employee:
-            val all = vacationService.getCurrentAndFutureVacations()
-            all.forEach { vacation ->
-                vacation.employee?.id?.let { employeeId ->
-                    ensureEmployeeList(vacationByEmployee, employeeId).add(vacation)
-                }
-            }
-            val newConflictingVacations = mutableMapOf<Long, MutableList<VacationDO>>()
-            val newAllConflictingVacations = mutableSetOf<Long>()
-            // Now find conflicting entries:
-            all.forEach { vacation ->
-                val vacationsOfReplacements = mutableListOf<VacationDO>()
-                vacationService.collectAllReplacements(vacation).forEach { replacementEmployee ->
-                    vacationsOfReplacements.addAll(all.filter { it.employee?.id == replacementEmployee.id })
-                }
-                if (vacationService.checkConflict(vacation, vacationsOfReplacements)) {
-                    ensureEmployeeList(newConflictingVacations, vacation.employee?.id).add(vacation)
-                    vacation.id?.let {
-                        newAllConflictingVacations.add(it)
-                    }
-                }
-            }
-            conflictingVacationsByEmployee = newConflictingVacations
-            allConflictingVacations = newAllConflictingVacations
+            val newEngine = VacationConflictsEngine(vacationService.getCurrentAndFutureVacations())
+            engine = newEngine
             log.info {
-                "Refreshing cache of conflicting vacations done. Found ${allConflictingVacations.size} conflicts of ${conflictingVacationsByEmployee.size} employees. ${
+                "Refreshing cache of conflicting vacations done. Found ${newEngine.numberOfConflicts} conflicts of ${newEngine.numberOfEmployeesWithConflicts} employees. ${
                     context.formatStats()
                 }"
             }
         }
     }
 
-    private fun ensureEmployeeList(
-        vacationsByEmployee: MutableMap<Long, MutableList<VacationDO>>,
-        employeeId: Long?,
-    ): MutableList<VacationDO> {
-        employeeId ?: return mutableListOf() // Shouldn't occur.
-        var vacations = vacationsByEmployee[employeeId]
-        if (vacations == null) {
-            vacations = mutableListOf()
-            vacationsByEmployee[employeeId] = vacations
+    override val isDeltaRefreshSupported: Boolean
+        get() = true
+
+    /**
+     * Reads the modified vacations and checks the conflicts of the affected employees and their replacements. A copy of
+     * the engine is updated, so readers never see half-updated conflicts.
+     */
+    override fun refreshDelta(ids: Set<Long>) {
+        persistenceService.runIsolatedReadOnly { _ ->
+            val vacations = vacationService.getCurrentAndFutureVacations(ids)
+            val newEngine = engine.copy()
+            val checked = newEngine.update(ids, vacations)
+            engine = newEngine
+            log.debug { "Delta refresh of conflicting vacations done: ${ids.size} modified, $checked checked vacations." }
         }
-        return vacations
     }
 }
@@ -0,0 +1,273 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.business.vacation.service
+
+import org.projectforge.business.vacation.model.VacationDO
+import java.time.LocalDate
+import java.util.TreeMap
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Detects vacation conflicts: a vacation is in conflict, if all replacements (substitutes) of the employee are on leave
+ * on at least one day of the vacation.
+ *
+ * The vacations are indexed by employee and sorted by start date. The conflicts of a vacation are found by a sweep line
+ * over the leave intervals of its replacements. After modifications, only the vacations of the affected employees and
+ * the vacations using them as replacement are checked again (see [update]).
+ *
+ * The index of an engine in use must not be modified: [ConflictingVacationsCache] updates a [copy] and replaces the
+ * engine afterwards (copy-on-write), so readers never see half-updated conflicts. The conflicts may be read and written
+ * concurrently.
+ */
+class VacationConflictsEngine(vacations: Collection<VacationDO>) {
+    private val vacationsById = mutableMapOf<Long, VacationDO>()
+
+    /**
+     * Key is the employee id, the vacations are sorted by start date.
+     */
+    private val vacationsByEmployee = mutableMapOf<Long, MutableList<VacationDO>>()
+
+    /**
+     * Key is the employee id of the replacement, value are the ids of all vacations with this replacement.
+     */
+    private val vacationIdsByReplacement = mutableMapOf<Long, MutableSet<Long>>()
+
+    private val conflictingVacationIds: MutableSet<Long> = ConcurrentHashMap.newKeySet()
+
+    /**
+     * Key is the employee id, value are the ids of the conflicting vacations of this employee.
+     */
+    private val conflictsByEmployee = ConcurrentHashMap<Long, MutableSet<Long>>()
+
+    init {
+        vacations.forEach { add(it) }
+        vacationsByEmployee.values.forEach { it.sortWith(startDateComparator) }
+        vacationsById.values.forEach { check(it) }
+    }
+
+    val numberOfConflicts: Int
+        get() = conflictingVacationIds.size
+
+    val numberOfEmployeesWithConflicts: Int
+        get() = conflictsByEmployee.values.count { it.isNotEmpty() }
+
+    fun hasConflict(vacationId: Long?): Boolean {
+        vacationId ?: return false
+        return conflictingVacationIds.contains(vacationId)
+    }
+
+    fun numberOfConflicts(employeeId: Long?): Int {
+        employeeId ?: return 0
+        return conflictsByEmployee[employeeId]?.size ?: 0
+    }
+
+    /**
+     * Sets the conflict state of the given vacation, checked by the caller (see [VacationService.getVacationOverlaps]).
+     */
+    fun setConflict(vacation: VacationDO, conflict: Boolean) {
+        val id = vacation.id ?: return
+        setConflict(id, vacation.employee?.id, conflict)
+    }
+
+    /**
+     * @return A copy of this engine with its own index and conflicts (the vacations themselves are shared), which may be
+     * modified by [update] without affecting this engine.
+     */
+    fun copy(): VacationConflictsEngine {
+        val copy = VacationConflictsEngine(emptyList())
+        copy.vacationsById.putAll(vacationsById)
+        vacationsByEmployee.forEach { (employeeId, list) -> copy.vacationsByEmployee[employeeId] = list.toMutableList() }
+        vacationIdsByReplacement.forEach { (replacementId, ids) -> copy.vacationIdsByReplacement[replacementId] = ids.toMutableSet() }
+        copy.conflictingVacationIds.addAll(conflictingVacationIds)
+        conflictsByEmployee.forEach { (employeeId, ids) ->
+            copy.conflictsByEmployee[employeeId] = ConcurrentHashMap.newKeySet<Long>().also { it.addAll(ids) }
+        }
+        return copy
+    }
+
+    /**
+     * Updates the index and checks the conflicts of all vacations affected by the modified ones: vacations of the
+     * employees of the modified vacations and all vacations with these employees as replacement.
+     * @param ids The ids of the modified (inserted, updated or deleted) vacations.
+     * @param vacations The current state of the modified vacations, if they are still relevant (not deleted, current or
+     * future vacations). Modified vacations not contained are removed.
+     * @return The number of checked vacations.
+     */
+    fun update(ids: Collection<Long>, vacations: Collection<VacationDO>): Int {
+        val affectedEmployeeIds = mutableSetOf<Long>()
+        ids.forEach { id ->
+            remove(id)?.employee?.id?.let { affectedEmployeeIds.add(it) }
+        }
+        vacations.forEach { vacation ->
+            remove(vacation.id)?.employee?.id?.let { affectedEmployeeIds.add(it) }
+            add(vacation)
+            vacation.employee?.id?.let { affectedEmployeeIds.add(it) }
+        }
+        val vacationIdsToCheck = mutableSetOf<Long>()
+        affectedEmployeeIds.forEach { employeeId ->
+            vacationsByEmployee[employeeId]?.let { list ->
+                list.sortWith(startDateComparator)
+                list.forEach { vacation -> vacation.id?.let { vacationIdsToCheck.add(it) } }
+            }
+            vacationIdsByReplacement[employeeId]?.let { vacationIdsToCheck.addAll(it) }
+        }
+        vacationIdsToCheck.forEach { id ->
+            vacationsById[id]?.let { check(it) }
+        }
+        return vacationIdsToCheck.size
+    }
+
+    private fun check(vacation: VacationDO) {
+        val id = vacation.id ?: return
+        setConflict(id, vacation.employee?.id, hasConflict(vacation) { vacationsByEmployee[it] })
+    }
+
+    private fun setConflict(vacationId: Long, employeeId: Long?, conflict: Boolean) {
+        if (conflict) {
+            conflictingVacationIds.add(vacationId)
+            employeeId?.let { conflictsByEmployee.computeIfAbsent(it) { ConcurrentHashMap.newKeySet() }.add(vacationId) }
+        } else {
+            conflictingVacationIds.remove(vacationId)
+            employeeId?.let { conflictsByEmployee[it]?.remove(vacationId) }
+        }
+    }
+
+    private fun add(vacation: VacationDO) {
+        val id = vacation.id ?: return
+        val employeeId = vacation.employee?.id ?: return
+        vacationsById[id] = vacation
+        vacationsByEmployee.computeIfAbsent(employeeId) { mutableListOf() }.add(vacation)
+        getReplacementIds(vacation).forEach { replacementId ->
+            vacationIdsByReplacement.computeIfAbsent(replacementId) { mutableSetOf() }.add(id)
+        }
+    }
+
+    /**
+     * Removes the vacation from the index and from the conflicts.
+     * @return The removed vacation, if indexed.
+     */
+    private fun remove(id: Long?): VacationDO? {
+        id ?: return null
+        val vacation = vacationsById.remove(id) ?: return null
+        val employeeId = vacation.employee?.id
+        employeeId?.let { vacationsByEmployee[it]?.removeIf { other -> other.id == id } }
+        getReplacementIds(vacation).forEach { replacementId ->
+            vacationIdsByReplacement[replacementId]?.remove(id)
+        }
+        setConflict(id, employeeId, false)
+        return vacation
+    }
+
+    companion object {
+        private val startDateComparator = compareBy<VacationDO> { it.startDate }
+
+        /**
+         * Checks the given vacation against the given vacations of its replacements.
+         * @see hasConflict
+         */
+        fun hasConflict(vacation: VacationDO, vacationsOfReplacements: Collection<VacationDO>): Boolean {
+            val vacationsByEmployee = vacationsOfReplacements
+                .groupBy { it.employee?.id }
+                .mapValues { it.value.sortedWith(startDateComparator) }
+            return hasConflict(vacation) { vacationsByEmployee[it] }
+        }
+
+        /**
+         * A vacation is in conflict, if all replacements are on leave on at least one day of the vacation. Sweep line
+         * over the (merged) leave intervals of all replacements: the number of absent replacements is increased at the
+         * begin of each interval and decreased after its end.
+         * @param getVacations Gets the vacations of the given employee, sorted by start date.
+         */
+        internal fun hasConflict(vacation: VacationDO, getVacations: (employeeId: Long) -> List<VacationDO>?): Boolean {
+            val startDate = vacation.startDate ?: return false // return should not occur on db entries.
+            val endDate = vacation.endDate ?: return false // return should not occur on db entries.
+            if (startDate > endDate) {
+                return false // startDate after endDate shouldn't occur for db entries.
+            }
+            val replacementIds = getReplacementIds(vacation)
+            if (replacementIds.isEmpty()) {
+                return false
+            }
+            // Key is the date, value the change of the number of absent replacements on this date.
+            val events = TreeMap<LocalDate, Int>()
+            replacementIds.forEach { replacementId ->
+                val intervals = getLeaveIntervals(getVacations(replacementId), startDate, endDate)
+                if (intervals.isEmpty()) {
+                    return false // This replacement is on duty during the whole vacation, no conflict.
+                }
+                intervals.forEach { (from, until) ->
+                    events.merge(from, 1, Int::plus)
+                    events.merge(until.plusDays(1), -1, Int::plus)
+                }
+            }
+            var absentReplacements = 0
+            for ((date, delta) in events) {
+                absentReplacements += delta
+                if (absentReplacements == replacementIds.size && date <= endDate) {
+                    return true // No replacement on duty on this day.
+                }
+            }
+            return false
+        }
+
+        /**
+         * @param vacations The vacations sorted by start date.
+         * @return The leave intervals of the given vacations inside the given period: clipped to the period and merged,
+         * so they don't overlap.
+         */
+        private fun getLeaveIntervals(
+            vacations: List<VacationDO>?,
+            periodBegin: LocalDate,
+            periodEnd: LocalDate,
+        ): List<Pair<LocalDate, LocalDate>> {
+            if (vacations.isNullOrEmpty()) {
+                return emptyList()
+            }
+            val merged = mutableListOf<Pair<LocalDate, LocalDate>>()
+            for (other in vacations) {
+                val start = other.startDate ?: continue
+                val end = other.endDate ?: continue
+                if (start > periodEnd) {
+                    break // Sorted by start date: all following vacations begin after the period.
+                }
+                if (end < periodBegin) {
+                    continue
+                }
+                val from = maxOf(start, periodBegin)
+                val until = minOf(end, periodEnd)
+                val last = merged.lastOrNull()
+                if (last != null && from <= last.second.plusDays(1)) {
+                    merged[merged.size - 1] = last.first to maxOf(last.second, until)
+                } else {
+                    merged.add(from to until)
+                }
+            }
+            return merged
+        }
+
+        private fun getReplacementIds(vacation: VacationDO): Set<Long> {
+            return vacation.allReplacements.mapNotNull { it.id }.toSet()
+        }
+    }
+}
@@ -295,6 +295,24 @@ open class VacationService {
         )
     }
 
+    /**
+     * Same as [getCurrentAndFutureVacations], but only the vacations with the given ids are returned (if current or
+     * future vacations).
+     */
+    open fun getCurrentAndFutureVacations(ids: Collection<Long>): List<VacationDO> {
+        if (ids.isEmpty()) {
+            return emptyList()
+        }
+        return persistenceService.executeNamedQuery(
+            VacationDO.FIND_CURRENT_AND_FUTURE_BY_IDS,
+            VacationDO::class.java,
+            Pair("ids", ids),
+            Pair("endDate", LocalDate.now()),
+            Pair("statusList", listOf(VacationStatus.APPROVED, VacationStatus.IN_PROGRESS)),
+            entityGraphName = VacationDO.ENTITY_GRAPH_WITH_OTHER_REPLACEMENTIDS
+        )
+    }
+
     /**
      * Getting all not deleted vacations for given employee of the current year. Calls [VacationDao.getActiveVacationForYear]
      *
@@ -489,49 +507,15 @@ open class VacationService {
     }
 
 
+    /**
+     * @return true, if all replacements of the given vacation are on leave on at least one day of the vacation.
+     * @see VacationConflictsEngine.hasConflict
+     */
     internal fun checkConflict(vacation: VacationDO, vacationsOfReplacements: List<VacationDO>): Boolean {
         if (vacationsOfReplacements.isEmpty()) {
             return false
         }
-        val allReplacements = collectAllReplacements(vacation)
-        if (allReplacements.isEmpty()) {
-            return false // return should not occur
-        }
-        allReplacements.forEach { employeeDO ->
-            if (vacationsOfReplacements.none { it.employee?.id == employeeDO.id }) {
-                return false // one replacement employee found without any vacation in the vacation period -> no conflict.
-            }
-        }
-
-        val startDate = vacation.startDate ?: return false // return should not occur on db entries.
-        val endDate = vacation.endDate ?: return false // return should not occur on db entries.
-        if (startDate > endDate) {
-            return false // startDate after endDate shouldn't occur fore db entries.
-        }
-        var date = startDate
-        var paranoiaCounter = 10000
-        while (date <= endDate) {
-            if (--paranoiaCounter <= 0) {
-                // Paranoia counter for avoiding endless loops
-                break
-            }
-            var substituteAvailable = false
-            // No check either at least one substitute is on duty or not:
-            allReplacements.forEach replacements@{ replacement ->
-                vacationsOfReplacements.filter { it.employee?.id == replacement.id }.forEach { other ->
-                    if (!other.isInBetween(date)) {
-                        substituteAvailable = true
-                        return@replacements
-                    }
-                }
-            }
-            if (!substituteAvailable) {
-                // No substitute found for at least one day.
-                return true
-            }
-            date = date.plusDays(1)
-        }
-        return false
+        return VacationConflictsEngine.hasConflict(vacation, vacationsOfReplacements)
     }
 
     /**
@@ -28,6 +28,12 @@ import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.SupervisorJob
 import kotlinx.coroutines.launch
 import mu.KotlinLogging
+import org.projectforge.framework.access.OperationType
+import org.projectforge.framework.persistence.api.BaseDOModifiedListener
+import org.projectforge.framework.persistence.api.ExtendedBaseDO
+import java.util.Collections
+import java.util.WeakHashMap
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.CopyOnWriteArrayList
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicLong
@@ -39,6 +45,10 @@ private val log = KotlinLogging.logger {}
  * This class is useful, if the stored object of derived classes has to be cached. After reaching expireTime during a
  * request, the method refresh will be called.
  *
+ * Caches may support delta refreshes (see [isDeltaRefreshSupported]): if only single entries were marked as expired
+ * (see [setExpired] with ids), only these entries are reloaded by [refreshDelta] instead of reloading all entries. A
+ * refresh caused by [expireTime] is always a full refresh (reconciliation of all entries as a safety net).
+ *
  * @author Kai Reinhard (k.reinhard@micromata.de)
  */
 abstract class AbstractCache {
@@ -46,6 +56,10 @@ abstract class AbstractCache {
 
     protected var expireTime: Long = 60 * TICKS_PER_MINUTE
 
+    /**
+     * Time of the last full refresh. Delta refreshes don't touch it, so [expireTime] triggers a full refresh
+     * periodically.
+     */
     @Transient
     @Volatile
     private var timeOfLastRefresh: Long = -1
@@ -84,6 +98,32 @@ abstract class AbstractCache {
     @Volatile
     private var refreshedInvalidation = -1L
 
+    /**
+     * Ids of the entries marked as expired since the last refresh (see [setExpired] with ids). Only used by caches
+     * supporting delta refreshes.
+     */
+    @Transient
+    private val modifiedIds: MutableSet<Long> = ConcurrentHashMap.newKeySet()
+
+    /**
+     * True, if the next refresh has to reload all entries (cache not yet initialized or invalidated by [setExpired]).
+     */
+    @Transient
+    @Volatile
+    private var fullRefreshRequired = true
+
+    /**
+     * Number and durations of full and delta refreshes of this cache.
+     */
+    @Transient
+    val refreshStatistics = CacheRefreshStatistics()
+
+    /**
+     * Override this by returning true, if [refreshDelta] is implemented by the derived cache.
+     */
+    protected open val isDeltaRefreshSupported: Boolean
+        get() = false
+
     /**
      * @return true if the cache is initialized, otherwise false (no refresh has been made yet).
      */
@@ -115,10 +155,48 @@ abstract class AbstractCache {
      * Cache will be refreshed before next use.
      */
     open fun setExpired() {
+        this.fullRefreshRequired = true
+        this.invalidationCounter.incrementAndGet()
+        this.isExpired = true
+    }
+
+    /**
+     * Only the entries with the given ids will be reloaded before next use (delta refresh). Caches not supporting delta
+     * refreshes will be refreshed completely.
+     * @param ids The ids of the inserted, modified or deleted entries.
+     * @see refreshDelta
+     */
+    open fun setExpired(ids: Collection<Long>) {
+        if (!isDeltaRefreshSupported) {
+            setExpired()
+            return
+        }
+        if (ids.isEmpty()) {
+            return
+        }
+        modifiedIds.addAll(ids)
         this.invalidationCounter.incrementAndGet()
         this.isExpired = true
     }
 
+    /**
+     * Creates a listener to register at a dao, e. g. `rechnungDao.register(createModifiedListener())`: the id of each
+     * inserted, modified or deleted object is marked as expired (delta refresh, if supported by this cache).
+     * @see setExpired
+     */
+    fun <O : ExtendedBaseDO<Long>> createModifiedListener(): BaseDOModifiedListener<O> {
+        return object : BaseDOModifiedListener<O> {
+            override fun afterInsertOrModify(obj: O, operationType: OperationType) {
+                val id = obj.id
+                if (id != null) {
+                    setExpired(listOf(id))
+                } else {
+                    setExpired()
+                }
+            }
+        }
+    }
+
     /**
      * Sets the cache to expired and performs a synchronous refresh.
      *
@@ -202,14 +280,10 @@ abstract class AbstractCache {
             try {
                 isRefreshInProgress = true
                 val invalidation = invalidationCounter.get()
-                this.timeOfLastRefresh = System.currentTimeMillis()
-                try {
-                    this.refresh()
-                } catch (ex: Throwable) {
-                    log.error(ex.message, ex)
-                }
+                refreshFullOrDelta(byTimeExpiry)
                 this.refreshedInvalidation = invalidation
-                this.isExpired = false
+                // Entries marked as expired while refreshing weren't part of this refresh:
+                this.isExpired = modifiedIds.isNotEmpty()
             } finally {
                 isRefreshInProgress = false
             }
@@ -221,6 +295,42 @@ abstract class AbstractCache {
         cacheListeners?.forEach { listener -> listener.onAfterCacheRefresh() }
     }
 
+    /**
+     * Does a delta refresh, if supported and only single entries were marked as expired. Otherwise (or if the delta
+     * refresh fails), a full refresh is done.
+     * Must be called by [performRefresh] only (guarded by [refreshLock]).
+     */
+    private fun refreshFullOrDelta(byTimeExpiry: Boolean) {
+        if (!initialized) {
+            allCaches.add(this)
+        }
+        val full = byTimeExpiry || fullRefreshRequired || !initialized || !isDeltaRefreshSupported
+        // Take the ids before refreshing: ids marked as expired while refreshing are kept for the next refresh.
+        val ids = modifiedIds.toSet()
+        modifiedIds.removeAll(ids)
+        val begin = System.currentTimeMillis()
+        if (!full) {
+            try {
+                if (ids.isNotEmpty()) {
+                    refreshDelta(ids)
+                }
+                refreshStatistics.addDeltaRefresh(System.currentTimeMillis() - begin, ids.size)
+                log.debug { "Delta refresh of cache ${this::class.simpleName} done for ${ids.size} entries." }
+                return
+            } catch (ex: Throwable) {
+                log.error(ex) { "Delta refresh of cache ${this::class.simpleName} failed, doing a full refresh: ${ex.message}" }
+            }
+        }
+        this.fullRefreshRequired = false
+        this.timeOfLastRefresh = begin
+        try {
+            this.refresh()
+        } catch (ex: Throwable) {
+            log.error(ex.message, ex)
+        }
+        refreshStatistics.addFullRefresh(System.currentTimeMillis() - begin)
+    }
+
     /**
      * Checks whether a refresh done by another thread while we were waiting for [refreshLock] already delivered the
      * data this caller needs, so refreshing again would only be a waste of resources.
@@ -247,9 +357,37 @@ abstract class AbstractCache {
      */
     protected abstract fun refresh()
 
+    /**
+     * Reloads only the entries with the given ids (and removes entries which don't exist anymore). Please patch a copy
+     * of the cached data and replace the data afterwards (copy-on-write), so readers never see half-updated data.
+     *
+     * Only called, if [isDeltaRefreshSupported] is true. If this method fails, a full refresh is done instead.
+     * The default implementation simply does a full [refresh].
+     * @param ids The ids marked as expired since last refresh (not empty).
+     * @see setExpired
+     */
+    protected open fun refreshDelta(ids: Set<Long>) {
+        refresh()
+    }
+
     companion object {
         private val refreshScope = CoroutineScope(Dispatchers.IO + SupervisorJob())
 
+        /**
+         * All caches refreshed at least once (for statistics). Weak references, so caches not used anymore (tests) may be
+         * garbage collected.
+         */
+        private val allCaches: MutableSet<AbstractCache> = Collections.synchronizedSet(Collections.newSetFromMap(WeakHashMap()))
+
+        /**
+         * @return All caches refreshed at least once.
+         */
+        fun getCaches(): List<AbstractCache> {
+            synchronized(allCaches) {
+                return allCaches.toList()
+            }
+        }
+
         /**
          * Time a caller waits for a refresh running in another thread before giving up and working with the data
          * currently held by the cache. Only relevant for callers which need fresh data (expired cache), so it must
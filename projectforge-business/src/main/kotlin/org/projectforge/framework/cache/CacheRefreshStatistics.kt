@@ -0,0 +1,78 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.framework.cache
+
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Counts the full and delta refreshes of an [AbstractCache] and their durations.
+ *
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ */
+class CacheRefreshStatistics {
+    private val fullRefreshes = AtomicLong(0)
+    private val fullRefreshMillis = AtomicLong(0)
+    private val deltaRefreshes = AtomicLong(0)
+    private val deltaRefreshMillis = AtomicLong(0)
+    private val deltaRefreshedEntries = AtomicLong(0)
+
+    val fullRefreshCount: Long
+        get() = fullRefreshes.get()
+
+    /**
+     * Total duration of all full refreshes in milliseconds.
+     */
+    val fullRefreshDurationMillis: Long
+        get() = fullRefreshMillis.get()
+
+    val deltaRefreshCount: Long
+        get() = deltaRefreshes.get()
+
+    /**
+     * Total duration of all delta refreshes in milliseconds.
+     */
+    val deltaRefreshDurationMillis: Long
+        get() = deltaRefreshMillis.get()
+
+    /**
+     * Total number of entries refreshed by delta refreshes.
+     */
+    val deltaRefreshedEntriesCount: Long
+        get() = deltaRefreshedEntries.get()
+
+    internal fun addFullRefresh(durationMillis: Long) {
+        fullRefreshes.incrementAndGet()
+        fullRefreshMillis.addAndGet(durationMillis)
+    }
+
+    internal fun addDeltaRefresh(durationMillis: Long, numberOfEntries: Int) {
+        deltaRefreshes.incrementAndGet()
+        deltaRefreshMillis.addAndGet(durationMillis)
+        deltaRefreshedEntries.addAndGet(numberOfEntries.toLong())
+    }
+
+    override fun toString(): String {
+        return "full=$fullRefreshCount (${fullRefreshDurationMillis}ms), delta=$deltaRefreshCount (${deltaRefreshDurationMillis}ms, entries=$deltaRefreshedEntriesCount)"
+    }
+}
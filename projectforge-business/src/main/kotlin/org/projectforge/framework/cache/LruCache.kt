@@ -0,0 +1,107 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+package org.projectforge.framework.cache
+
+import java.security.MessageDigest
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Simple thread safe cache of limited size. If the cache is full, the least recently used entry is evicted.
+ * Hits and misses are counted.
+ *
+ * @param maxSize The maximum number of entries.
+ */
+class LruCache<K, V>(val maxSize: Int) {
+    private val map = object : LinkedHashMap<K, V>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<K, V>?): Boolean {
+            return size > maxSize
+        }
+    }
+
+    private val hits = AtomicLong(0)
+
+    private val misses = AtomicLong(0)
+
+    val hitCount: Long
+        get() = hits.get()
+
+    val missCount: Long
+        get() = misses.get()
+
+    val size: Int
+        @Synchronized
+        get() = map.size
+
+    @Synchronized
+    fun get(key: K): V? {
+        val value = map[key]
+        if (value == null) {
+            misses.incrementAndGet()
+        } else {
+            hits.incrementAndGet()
+        }
+        return value
+    }
+
+    @Synchronized
+    fun put(key: K, value: V) {
+        map[key] = value
+    }
+
+    /**
+     * The value is computed outside the lock (computations such as compiling may take a while). So concurrent calls
+     * for the same missing key may compute the value twice, the last one wins.
+     */
+    fun getOrPut(key: K, compute: () -> V): V {
+        get(key)?.let { return it }
+        val value = compute()
+        put(key, value)
+        return value
+    }
+
+    @Synchronized
+    fun remove(key: K): V? {
+        return map.remove(key)
+    }
+
+    @Synchronized
+    fun clear() {
+        map.clear()
+    }
+
+    override fun toString(): String {
+        return "size=$size/$maxSize, hits=$hitCount, misses=$missCount"
+    }
+
+    companion object {
+        /**
+         * Content hash usable as key (e. g. for compiled scripts), so the (large) content itself isn't referenced
+         * by the cache.
+         */
+        @JvmStatic
+        fun contentHash(content: String): String {
+            val digest = MessageDigest.getInstance("SHA-256").digest(content.toByteArray(Charsets.UTF_8))
+            return digest.joinToString("") { "%02x".format(it) }
+        }
+    }
+}
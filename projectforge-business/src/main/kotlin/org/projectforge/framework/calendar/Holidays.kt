@@ -46,7 +46,14 @@ class Holidays private constructor() {
      */
     private val holidaysByYear: MutableMap<Int, Map<Int, Holiday?>?> = HashMap()
     private val reconfiguredHolidays: MutableMap<HolidayDefinition, ConfigureHoliday?> = HashMap()
+    private val workingDayIndexByYear: MutableMap<Int, WorkingDayIndex> = HashMap()
     private var xmlConfiguration: ConfigXml? = null
+
+    /**
+     * The configured holidays of [xmlConfiguration] the cached holidays are computed for. The list is replaced on
+     * re-reading the configuration.
+     */
+    private var configuredHolidays: List<ConfigureHoliday>? = null
     private fun computeHolidays(year: Int): Map<Int, Holiday?> {
         log.info("Compute holidays for year: $year")
         val holidays: MutableMap<Int, Holiday?> = HashMap()
@@ -148,19 +155,32 @@ class Holidays private constructor() {
         holidays[dayOfYear] = holiday
     }
 
-    @Synchronized
-    private fun getHolidays(year: Int): Map<Int, Holiday?>? {
-        if (xmlConfiguration == null) {
-            xmlConfiguration = ConfigXml.getInstance()
-            xmlConfiguration!!.let { xmlConfiguration ->
-                for (holiday in xmlConfiguration.holidays) {
-                    if (holiday.id != null) {
-                        reconfiguredHolidays[holiday.id] = holiday
-                    }
-                }
-                holidaysByYear.clear()
+    /**
+     * Clears all cached holidays and working day indexes, if the holiday configuration was changed (re-read).
+     */
+    private fun checkConfiguration() {
+        val config = ConfigXml.getInstance()
+        if (xmlConfiguration === config && configuredHolidays === config.holidays) {
+            return
+        }
+        if (xmlConfiguration != null) {
+            log.info("Holiday configuration changed, recomputing holidays.")
+        }
+        xmlConfiguration = config
+        configuredHolidays = config.holidays
+        reconfiguredHolidays.clear()
+        for (holiday in config.holidays) {
+            if (holiday.id != null) {
+                reconfiguredHolidays[holiday.id] = holiday
             }
         }
+        holidaysByYear.clear()
+        workingDayIndexByYear.clear()
+    }
+
+    @Synchronized
+    private fun getHolidays(year: Int): Map<Int, Holiday?>? {
+        checkConfiguration()
         var holidays = holidaysByYear[year]
         if (holidays == null) {
             holidays = computeHolidays(year)
@@ -204,6 +224,38 @@ class Holidays private constructor() {
         return day.workFraction
     }
 
+    /**
+     * @return The precomputed working days of the given year.
+     */
+    @Synchronized
+    fun getWorkingDayIndex(year: Int): WorkingDayIndex {
+        checkConfiguration()
+        return workingDayIndexByYear.getOrPut(year) { WorkingDayIndex(year, getHolidays(year)!!) }
+    }
+
+    /**
+     * Determines the number of working days in the given period (both inclusive) by using the precomputed working
+     * day indexes of the years (constant time per year). Please note: there might be also half working days (e. g. on
+     * Xmas or New Years Eve), so a BigDecimal is returned.
+     */
+    fun getNumberOfWorkingDays(from: LocalDate, to: LocalDate): BigDecimal {
+        if (to.isBefore(from)) {
+            return BigDecimal.ZERO
+        }
+        var numberOfFullWorkingDays = 0L
+        var workFractions: BigDecimal? = null
+        for (year in from.year..to.year) {
+            val index = getWorkingDayIndex(year)
+            val fromDayOfYear = if (year == from.year) from.dayOfYear else 1
+            val toDayOfYear = if (year == to.year) to.dayOfYear else index.lengthOfYear
+            numberOfFullWorkingDays += index.getNumberOfFullWorkingDays(fromDayOfYear, toDayOfYear)
+            index.getWorkFractions(fromDayOfYear, toDayOfYear)?.let {
+                workFractions = workFractions?.add(it) ?: it
+            }
+        }
+        return workFractions?.add(BigDecimal.valueOf(numberOfFullWorkingDays)) ?: BigDecimal.valueOf(numberOfFullWorkingDays)
+    }
+
     fun getHolidayInfo(date: IPFDate<*>): String {
         return getHolidayInfo(date.year, date.dayOfYear)
     }
@@ -0,0 +1,98 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.framework.calendar
+
+import java.math.BigDecimal
+import java.time.LocalDate
+import java.util.*
+
+/**
+ * Precomputed working days of one year for answering the number of working days of any period of the year in
+ * constant time: a bitset of the working days and cumulative counts of full working days and sums of work fractions
+ * (e. g. half working days on Xmas or New Years Eve).
+ *
+ * Instances are built and cached by [Holidays] and rebuilt only if the holiday configuration changes.
+ */
+class WorkingDayIndex internal constructor(val year: Int, holidays: Map<Int, Holiday?>) {
+    val lengthOfYear = LocalDate.of(year, 1, 1).lengthOfYear()
+
+    /**
+     * Bit n is set, if day of year n + 1 is a working day.
+     */
+    private val workingDays = BitSet(lengthOfYear)
+
+    // Cumulative values of the days before a day of year (index 0 = before 1st of January):
+    private val fullWorkingDaysBefore = IntArray(lengthOfYear + 1)
+    private val fractionDaysBefore = IntArray(lengthOfYear + 1)
+    private val workFractionsBefore = arrayOfNulls<BigDecimal>(lengthOfYear + 1)
+
+    init {
+        var dayOfWeek = LocalDate.of(year, 1, 1).dayOfWeek
+        var workFractions = BigDecimal.ZERO
+        workFractionsBefore[0] = workFractions
+        for (dayOfYear in 1..lengthOfYear) {
+            var fullWorkingDay = false
+            var workFraction: BigDecimal? = null
+            if (!Holidays.WEEKEND_DAYS.contains(dayOfWeek)) {
+                val holiday = holidays[dayOfYear]
+                if (holiday?.isWorkingDay != false) {
+                    workingDays.set(dayOfYear - 1)
+                    workFraction = holiday?.workFraction
+                    fullWorkingDay = workFraction == null
+                }
+            }
+            fullWorkingDaysBefore[dayOfYear] = fullWorkingDaysBefore[dayOfYear - 1] + if (fullWorkingDay) 1 else 0
+            if (workFraction != null) {
+                fractionDaysBefore[dayOfYear] = fractionDaysBefore[dayOfYear - 1] + 1
+                workFractions = workFractions.add(workFraction)
+            } else {
+                fractionDaysBefore[dayOfYear] = fractionDaysBefore[dayOfYear - 1]
+            }
+            workFractionsBefore[dayOfYear] = workFractions
+            dayOfWeek = dayOfWeek.plus(1)
+        }
+    }
+
+    fun isWorkingDay(dayOfYear: Int): Boolean {
+        return workingDays[dayOfYear - 1]
+    }
+
+    /**
+     * @return The number of full working days in the given period of days of year (both inclusive).
+     */
+    fun getNumberOfFullWorkingDays(fromDayOfYear: Int, toDayOfYear: Int): Int {
+        return fullWorkingDaysBefore[toDayOfYear] - fullWorkingDaysBefore[fromDayOfYear - 1]
+    }
+
+    /**
+     * @return The sum of the work fractions of the partial working days in the given period of days of year (both
+     * inclusive) or null, if there is no partial working day in the period.
+     */
+    fun getWorkFractions(fromDayOfYear: Int, toDayOfYear: Int): BigDecimal? {
+        if (fractionDaysBefore[toDayOfYear] == fractionDaysBefore[fromDayOfYear - 1]) {
+            return null
+        }
+        return workFractionsBefore[toDayOfYear]!!.subtract(workFractionsBefore[fromDayOfYear - 1])
+    }
+}
@@ -36,6 +36,7 @@ import org.projectforge.framework.access.AccessChecker
 import org.projectforge.framework.access.AccessException
 import org.projectforge.framework.access.OperationType
 import org.projectforge.framework.persistence.api.impl.CustomResultFilter
+import org.projectforge.framework.persistence.api.impl.DBPredicate
 import org.projectforge.framework.persistence.api.impl.DBQuery
 import org.projectforge.framework.persistence.api.impl.HibernateSearchMeta
 import org.projectforge.framework.persistence.database.DatabaseDao
@@ -377,7 +378,20 @@ protected constructor(open var doClass: Class<O>) : IDao<O>, BaseDaoPersistenceL
     }
 
     /**
-     * Gets the history entries of the object.
+     * Optional access constraint, pushed into the database query of [select] (if access is checked): Entries not
+     * matching the returned predicate aren't visible for the given user anyway, so the database doesn't need to return
+     * them. The predicate may be less strict than [hasUserSelectAccess] (which is still checked for every result
+     * entry), but never stricter.
+     * @return null at default (no constraint).
+     */
+    open fun getSelectAccessPredicate(user: PFUserDO): DBPredicate? {
+        return null
+    }
+
+    /**
+     * Gets the history entries of the object (including the history entries of the embedded entities, see
+     * [getHistoryEmbeddedEntities]). The history entries of the object and of all embedded entities are selected
+     * together, see [HistoryService.loadHistoryPerEntity].
      * If the user has no access an empty list will be returned.
      */
     @JvmOverloads
@@ -386,29 +400,45 @@ protected constructor(open var doClass: Class<O>) : IDao<O>, BaseDaoPersistenceL
         checkAccess: Boolean = true,
         loadContext: HistoryLoadContext = HistoryLoadContext(this),
     ): HistoryLoadContext {
-        if (obj.id == null || (checkAccess && !hasLoggedInUserHistoryAccess(obj, false))) {
+        val id = obj.id
+        if (id == null || (checkAccess && !hasLoggedInUserHistoryAccess(obj, false))) {
             return loadContext
         }
-        historyService.loadAndMergeHistory(obj, loadContext)
-        addOwnHistoryEntries(obj, loadContext)
-        // Sorts the list by the 'modifiedAt' field, placing entries with null values at the beginning.
-        // The first part of the comparator checks if 'modifiedAt' is null and gives it higher priority
-        // (placing null entries first). The second part sorts the remaining entries based on the
-        // non-null 'modifiedAt' values.
+        @Suppress("UNCHECKED_CAST")
+        val entityClass = HibernateUtils.getRealClass(obj) as Class<out IdObject<Long>>
+        val embeddedEntities = getHistoryEmbeddedEntities(obj)?.let { mapOf(id to it) } ?: emptyMap()
+        historyService.loadHistoryPerEntity(entityClass, listOf(id), embeddedEntities) { loadContext }
         return loadContext
     }
 
     /**
-     * Override this method if you want to add your own history entries to the list or modify the existing ones.
-     * Called by [loadHistory].
-     * Does nothing at default.
+     * Gets the history entries of the given objects, e.g. for exports. The history entries of all objects and of all
+     * their embedded entities (see [getHistoryEmbeddedEntities]) are selected at once, see
+     * [HistoryService.loadHistoryPerEntity].
+     * Objects without history access of the user are skipped.
+     * @return The load contexts, key is the id of the object.
+     */
+    fun loadHistory(objs: Collection<O>, checkAccess: Boolean = true): Map<Long, HistoryLoadContext> {
+        val accessibleObjs = objs.filter { obj ->
+            obj.id != null && (!checkAccess || hasLoggedInUserHistoryAccess(obj, false))
+        }.associateBy { it.id!! }
+        val embeddedEntities = accessibleObjs.mapNotNull { (id, obj) ->
+            getHistoryEmbeddedEntities(obj)?.let { id to it }
+        }.toMap()
+        return historyService.loadHistoryPerEntity(doClass, accessibleObjs.keys, embeddedEntities) {
+            HistoryLoadContext(this)
+        }
+    }
+
+    /**
+     * Override this method, if the history of the given object includes the history entries of other entities, e.g.
+     * the positions of an invoice. Called by [loadHistory], the history entries of the embedded entities are selected
+     * together with the history entries of the object(s).
+     * Returns null at default.
      * @param obj The object for which the history entries are loaded.
-     * @param list The list with entries loaded for given obj. Add here your own entries.
      */
-    protected open fun addOwnHistoryEntries(
-        obj: O,
-        context: HistoryLoadContext
-    ) {
+    protected open fun getHistoryEmbeddedEntities(obj: O): HistoryEmbeddedEntities? {
+        return null
     }
 
     /**
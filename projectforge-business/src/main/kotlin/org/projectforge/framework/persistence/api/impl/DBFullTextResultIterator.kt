@@ -29,7 +29,6 @@ import jakarta.persistence.EntityManager
 import mu.KotlinLogging
 import org.apache.commons.lang3.builder.CompareToBuilder
 import org.hibernate.search.mapper.orm.Search
-import org.projectforge.common.BeanHelper
 import org.projectforge.framework.persistence.api.BaseDao
 import org.projectforge.framework.persistence.api.ExtendedBaseDO
 import org.projectforge.framework.persistence.api.SortProperty
@@ -79,49 +78,51 @@ internal class DBFullTextResultIterator<O : ExtendedBaseDO<Long>>(
         }
     }
 
+    /**
+     * The sort keys are evaluated only once per entry (not twice per comparison), strings as collation keys of the
+     * user's locale (especially for german Umlaute).
+     */
     override fun sort(list: List<O>): List<O> {
+        if (sortProperties.isEmpty() || list.size < 2) {
+            return list
+        }
         val collator = Collator.getInstance(ThreadLocalUserContext.locale)
         val errorProperties = mutableListOf<String>()
-        return list.sortedWith(object : Comparator<O> {
-            override fun compare(o1: O, o2: O): Int {
-                if (sortProperties.isEmpty()) {
-                    return 0
-                }
-                val ctb = CompareToBuilder()
-                for (sortProperty in sortProperties) {
-                    try {
-                        val val1 = BeanHelper.getNestedProperty(o1, sortProperty.property)
-                        val val2 = BeanHelper.getNestedProperty(o2, sortProperty.property)
-                        if (val1 is String) {
-                            // Strings should be compared by using locale dependent collator (especially for german Umlaute)
-                            if (sortProperty.ascending) {
-                                ctb.append(val1, val2, collator)
-                            } else {
-                                ctb.append(val2, val1, collator)
-                            }
-                        } else if (val1 is Comparable<*>) {
-                            if (sortProperty.ascending) {
-                                ctb.append(val1, val2)
-                            } else {
-                                ctb.append(val2, val1)
-                            }
-                        } else {
-                            if (sortProperty.ascending) {
-                                ctb.append(val1?.toString(), val2?.toString())
-                            } else {
-                                ctb.append(val2?.toString(), val1?.toString())
-                            }
-                        }
-                    } catch (ex: Exception) {
-                        if (!errorProperties.contains(ex.message)) {
-                            errorProperties.add("${ex.message}")
-                            log.warn("Ignore sort property (OK): ${ex.message}")
-                        }
+        val entries = list.map { obj ->
+            SortEntry(obj, Array(sortProperties.size) { i ->
+                try {
+                    getSortKey(DBPropertyAccessors.getNestedProperty(obj, sortProperties[i].property), collator)
+                } catch (ex: Exception) {
+                    if (!errorProperties.contains(ex.message)) {
+                        errorProperties.add("${ex.message}")
+                        log.warn("Ignore sort property (OK): ${ex.message}")
                     }
+                    null
+                }
+            })
+        }
+        return entries.sortedWith { e1, e2 ->
+            val ctb = CompareToBuilder()
+            sortProperties.forEachIndexed { i, sortProperty ->
+                if (sortProperty.ascending) {
+                    ctb.append(e1.keys[i], e2.keys[i])
+                } else {
+                    ctb.append(e2.keys[i], e1.keys[i])
                 }
-                return ctb.toComparison()
             }
-        })
+            ctb.toComparison()
+        }.map { it.obj }
+    }
+
+    private class SortEntry<O>(val obj: O, val keys: Array<Any?>)
+
+    private fun getSortKey(value: Any?, collator: Collator): Any? {
+        return when (value) {
+            null -> null
+            is String -> collator.getCollationKey(value)
+            is Comparable<*> -> value
+            else -> value.toString()
+        }
     }
 
     private fun internalNext(): O? {
@@ -24,7 +24,10 @@
 package org.projectforge.framework.persistence.api.impl
 
 import jakarta.persistence.EntityManager
+import jakarta.persistence.criteria.AbstractQuery
+import jakarta.persistence.criteria.CriteriaBuilder
 import jakarta.persistence.criteria.Predicate
+import jakarta.persistence.criteria.Root
 import mu.KotlinLogging
 import org.hibernate.search.mapper.orm.Search
 import org.projectforge.framework.ToStringUtil
@@ -44,6 +47,42 @@ internal object DBHistoryQuery {
         val cb = entityManager.criteriaBuilder
         val cr = cb.createQuery(Long::class.java)
         val root = cr.from(HistoryEntryDO::class.java)
+        val predicates = createCriteriaPredicates(cb, root, clazz, searchParams)
+        val query = entityManager.createQuery(cr.select(root.get("entityId")).where(*predicates.toTypedArray()))
+        query.maxResults = MAX_RESULT_SIZE
+        val result = query.resultList
+        if (result.isNullOrEmpty()) {
+            return emptySet()
+        }
+        return result.toSet()
+    }
+
+    /**
+     * Creates the exists subquery for the history entries of the queried entities matching the given search params:
+     * `exists (select h.entityId from HistoryEntryDO h where h.entityName=:clazz and h.entityId=root.id and ...)`.
+     * The database uses the index ix_pf_history_ent_mod (entity_name, entity_id, modifiedat), so no id set is needed.
+     */
+    fun createExistsPredicate(
+        cb: CriteriaBuilder,
+        query: AbstractQuery<*>,
+        root: Root<*>,
+        clazz: Class<*>,
+        searchParams: DBHistorySearchParams
+    ): Predicate {
+        val subquery = query.subquery(Long::class.javaObjectType)
+        val history = subquery.from(HistoryEntryDO::class.java)
+        val predicates = createCriteriaPredicates(cb, history, clazz, searchParams)
+        predicates.add(cb.equal(history.get<Long>("entityId"), root.get<Long>("id")))
+        subquery.select(history.get("entityId")).where(*predicates.toTypedArray())
+        return cb.exists(subquery)
+    }
+
+    private fun createCriteriaPredicates(
+        cb: CriteriaBuilder,
+        root: Root<HistoryEntryDO>,
+        clazz: Class<*>,
+        searchParams: DBHistorySearchParams
+    ): MutableList<Predicate> {
         val predicates = mutableListOf<Predicate>()
         predicates.add(cb.equal(root.get<String>("entityName"), clazz.name))
         if (searchParams.modifiedByUserId != null) {
@@ -79,13 +118,7 @@ internal object DBHistoryQuery {
                 }"
             )
         }
-        val query = entityManager.createQuery(cr.select(root.get("entityId")).where(*predicates.toTypedArray()))
-        query.maxResults = MAX_RESULT_SIZE
-        val result = query.resultList
-        if (result.isNullOrEmpty()) {
-            return emptySet()
-        }
-        return result.toSet()
+        return predicates
     }
 
     fun searchHistoryEntryByFullTextQuery(
@@ -31,4 +31,16 @@ import org.projectforge.framework.time.PFDateTime
 data class DBHistorySearchParams(var modifiedByUserId: Long? = null,
                                  var modifiedFrom: PFDateTime? = null,
                                  var modifiedTo: PFDateTime? = null,
-                                 var searchHistory: String? = null)
+                                 var searchHistory: String? = null) {
+    /**
+     * True, if any history constraint is given.
+     */
+    val isActive: Boolean
+        get() = modifiedByUserId != null || modifiedFrom != null || modifiedTo != null || !searchHistory.isNullOrBlank()
+
+    /**
+     * True, if the history constraint can be expressed by criteria (no search string for the history values given).
+     */
+    val criteriaSupport: Boolean
+        get() = isActive && searchHistory.isNullOrBlank()
+}
@@ -28,7 +28,6 @@ import mu.KotlinLogging
 import org.apache.commons.lang3.math.NumberUtils
 import org.hibernate.search.engine.search.predicate.dsl.BooleanPredicateOptionsCollector
 import org.hibernate.search.engine.search.predicate.dsl.SearchPredicateFactory
-import org.projectforge.common.BeanHelper
 import org.projectforge.common.logging.LogUtils.logDebugFunCall
 import org.projectforge.framework.ToStringUtil
 import org.projectforge.framework.persistence.jpa.impl.HibernateSearchFilterUtils
@@ -797,7 +796,7 @@ abstract class DBPredicate(
     private fun getProperty(obj: Any?, field: String): Any? {
         if (obj == null)
             return null
-        return BeanHelper.getProperty(obj, field)
+        return DBPropertyAccessors.getProperty(obj, field)
     }
 
     private fun hasNext(path: List<String>, idx: Int): Boolean {
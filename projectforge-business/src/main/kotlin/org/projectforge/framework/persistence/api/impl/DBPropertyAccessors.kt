@@ -0,0 +1,102 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.framework.persistence.api.impl
+
+import mu.KotlinLogging
+import org.projectforge.common.BeanHelper
+import java.lang.invoke.LambdaMetafactory
+import java.lang.invoke.MethodHandles
+import java.lang.invoke.MethodType
+import java.util.concurrent.ConcurrentHashMap
+import java.util.function.Function
+
+private val log = KotlinLogging.logger {}
+
+/**
+ * Getters of properties, compiled once per class and property (by [LambdaMetafactory]) instead of reflective calls
+ * and synchronized getter lookups of [BeanHelper] for every result entry. Used for matching result predicates and
+ * sorting full text search results.
+ */
+internal object DBPropertyAccessors {
+    private val accessors = object : ClassValue<ConcurrentHashMap<String, Function<Any, Any?>>>() {
+        override fun computeValue(type: Class<*>): ConcurrentHashMap<String, Function<Any, Any?>> {
+            return ConcurrentHashMap()
+        }
+    }
+
+    /**
+     * Same as [BeanHelper.getProperty], but with compiled getters.
+     * @throws RuntimeException if no getter for the given property exists.
+     */
+    fun getProperty(obj: Any, property: String): Any? {
+        val clazz = obj.javaClass
+        return accessors.get(clazz).computeIfAbsent(property) { createAccessor(clazz, it) }.apply(obj)
+    }
+
+    /**
+     * Same as [BeanHelper.getNestedProperty], but with compiled getters (indexed properties are delegated to
+     * [BeanHelper]).
+     */
+    fun getNestedProperty(obj: Any?, property: String?): Any? {
+        if (property.isNullOrEmpty() || obj == null) {
+            return null
+        }
+        if (!property.contains('.') && !property.contains('[')) {
+            return getProperty(obj, property)
+        }
+        var value: Any = obj
+        for (prop in property.split('.')) {
+            if (prop.isEmpty()) {
+                continue
+            }
+            value = (if (prop.indexOf('[') > 0) BeanHelper.getIndexedProperty(value, prop) else getProperty(value, prop))
+                ?: return null
+        }
+        return value
+    }
+
+    private fun createAccessor(clazz: Class<*>, property: String): Function<Any, Any?> {
+        val getter = BeanHelper.determineGetter(clazz, property)
+            ?: return Function { throw RuntimeException("Getter for property '$clazz.$property' not found.") }
+        try {
+            val lookup = MethodHandles.privateLookupIn(getter.declaringClass, MethodHandles.lookup())
+            val handle = lookup.unreflect(getter)
+            val callSite = LambdaMetafactory.metafactory(
+                lookup,
+                "apply",
+                MethodType.methodType(Function::class.java),
+                MethodType.methodType(Any::class.java, Any::class.java),
+                handle,
+                handle.type().wrap(),
+            )
+            @Suppress("UNCHECKED_CAST")
+            return callSite.target.invoke() as Function<Any, Any?>
+        } catch (ex: Throwable) {
+            // Shouldn't occur, but reflection is still fine.
+            log.debug { "Can't compile getter for property '$clazz.$property', using reflection: ${ex.message}" }
+            getter.trySetAccessible()
+            return Function { getter.invoke(it) }
+        }
+    }
+}
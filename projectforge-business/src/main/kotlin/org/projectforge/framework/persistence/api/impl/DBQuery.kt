@@ -77,6 +77,9 @@ open class DBQuery {
             return persistenceService.runReadOnly { context ->
                 val begin = System.currentTimeMillis()
                 val dbFilter = filter.createDBFilter()
+                if (checkAccess) {
+                    addSelectAccessPredicate(baseDao, dbFilter)
+                }
                 val queryBuilder = DBQueryBuilder(baseDao, context.em, filter, dbFilter)
                 // Check here mixing fulltext and criteria searches in comparison to full text searches and DBResultMatchers.
                 context.logAndAdd(
@@ -88,12 +91,12 @@ open class DBQuery {
                         .param("customFilters", customResultFilters?.joinToString { it.javaClass.simpleName })
                 )
                 val dbResultIterator = queryBuilder.result()
-                val historSearchParams = DBHistorySearchParams(
-                    filter.modifiedByUserId,
-                    filter.modifiedFrom,
-                    filter.modifiedTo,
-                    filter.searchHistory
-                )
+                // History constraints are already part of the criteria query, if supported:
+                val historSearchParams = if (queryBuilder.historySubqueryApplied) {
+                    DBHistorySearchParams()
+                } else {
+                    queryBuilder.historySearchParams
+                }
                 var list = privateCreateList(
                     baseDao,
                     dbResultIterator,
@@ -121,6 +124,16 @@ open class DBQuery {
         }
     }
 
+    /**
+     * Adds the access constraint of the baseDao (if any) for the logged-in user, so the database returns only visible
+     * entries. The access check of every result entry remains as safety net.
+     * @see BaseDao.getSelectAccessPredicate
+     */
+    private fun <O : ExtendedBaseDO<Long>> addSelectAccessPredicate(baseDao: BaseDao<O>, dbFilter: DBFilter) {
+        val loggedInUser = ThreadLocalUserContext.loggedInUser ?: return
+        baseDao.getSelectAccessPredicate(loggedInUser)?.let { dbFilter.add(it) }
+    }
+
     private fun <O : ExtendedBaseDO<Long>> privateCreateList(
         baseDao: BaseDao<O>,
         dbResultIterator: DBResultIterator<O>,
@@ -138,12 +151,9 @@ open class DBQuery {
         var next: O? = dbResultIterator.next() ?: return list
         val ensureUniqueSet = mutableSetOf<Long>()
         var resultCounter = 0
-        if (historSearchParams.modifiedByUserId != null
-            || historSearchParams.modifiedFrom != null
-            || historSearchParams.modifiedTo != null
-            || !historSearchParams.searchHistory.isNullOrBlank()
-        ) {
-            // Search now all history entries which were modified by the given user and/or in the given time period.
+        if (historSearchParams.isActive) {
+            // Full text search: search now all history entries which were modified by the given user and/or in the
+            // given time period.
             val idSet = persistenceService.runIsolatedReadOnly { innerContext ->
                 val isolatedEm = innerContext.em
                 val set = if (historSearchParams.searchHistory.isNullOrBlank()) {
@@ -183,12 +193,8 @@ open class DBQuery {
                 if (id != null && !ensureUniqueSet.contains(next.id)) {
                     // Current result object wasn't yet proceeded.
                     ensureUniqueSet.add(id) // Mark current object as already proceeded (ensure uniqueness)
-                    if (!checkAccess || baseDao.hasSelectAccess(next, loggedInUser!!) && match(
-                            list,
-                            customResultFilters,
-                            resultPredicates,
-                            next
-                        )
+                    if ((!checkAccess || baseDao.hasSelectAccess(next, loggedInUser!!))
+                        && match(list, customResultFilters, resultPredicates, next)
                     ) {
                         list.add(next)
                         // filter.limitResultSize is a workaround for older rest pages don't using Ag-Grid and
@@ -86,6 +86,23 @@ class DBQueryBuilder<O : ExtendedBaseDO<Long>>(
     private val criteriaSearchAvailable: Boolean
         get() = mode == Mode.CRITERIA
 
+    /**
+     * The history constraints of the query filter (modified by user and/or in time period).
+     */
+    internal val historySearchParams = DBHistorySearchParams(
+        queryFilter.modifiedByUserId,
+        queryFilter.modifiedFrom,
+        queryFilter.modifiedTo,
+        queryFilter.searchHistory
+    )
+
+    /**
+     * True, if the history constraints are part of the criteria query (exists subquery), so the result entries
+     * don't need to be checked against the id set of the history entries.
+     */
+    internal var historySubqueryApplied: Boolean = false
+        private set
+
     private val fullTextSearch: Boolean
         get() = mode == Mode.FULLTEXT || mode == Mode.MULTI_FIELD_FULLTEXT_QUERY
 
@@ -124,6 +141,11 @@ class DBQueryBuilder<O : ExtendedBaseDO<Long>>(
             }
         }
 
+        if (mode == Mode.CRITERIA && historySearchParams.criteriaSupport) {
+            dbQueryBuilderByCriteria.addHistorySubquery(historySearchParams)
+            historySubqueryApplied = true
+        }
+
         var maxOrder = 3
         for (sortProperty in dbFilter.sortProperties) {
             addOrder(sortProperty)
@@ -60,6 +60,14 @@ internal class DBQueryBuilderByCriteria<O : ExtendedBaseDO<Long>>(
         }
     }
 
+    /**
+     * Restricts the entities to the ones with matching history entries by an exists subquery (see
+     * [DBHistoryQuery.createExistsPredicate]).
+     */
+    fun addHistorySubquery(searchParams: DBHistorySearchParams) {
+        predicates.add(DBHistoryQuery.createExistsPredicate(ctx.cb, ctx.cr, ctx.root, baseDao.doClass, searchParams))
+    }
+
     fun createResultIterator(resultPredicates: List<DBPredicate>, queryFilter: QueryFilter): DBResultIterator<O> {
         return DBCriteriaResultIterator(
             entityManager,
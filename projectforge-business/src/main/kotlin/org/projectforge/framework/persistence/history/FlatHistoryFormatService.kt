@@ -58,6 +58,38 @@ class FlatHistoryFormatService {
         return convertToFlatDisplayHistoryEntries(baseDao, entries)
     }
 
+    /**
+     * Selects the history entries of the given items (e.g. for exports) and converts them into flat format.
+     * The items are processed in pages of [pageSize] items: the history entries of all items of a page are loaded at
+     * once, and the history entries of the next page are loaded and converted not until the entries of the previous
+     * page are consumed. The entries of items without access are skipped (if checkAccess is true).
+     * @param baseDao The DAO of the items.
+     * @param items The items.
+     * @param checkAccess If true, the access rights of the user will be checked.
+     * @param pageSize The number of items processed at once.
+     * @return The history entries in flat format, item by item (each sorted by modification time, descending).
+     * @see selectHistoryEntriesAndConvert
+     */
+    @JvmOverloads
+    fun <O : ExtendedBaseDO<Long>> selectHistoryEntriesAsSequence(
+        baseDao: BaseDao<O>,
+        items: Collection<O>,
+        checkAccess: Boolean = true,
+        pageSize: Int = DEFAULT_PAGE_SIZE,
+    ): Sequence<FlatDisplayHistoryEntry> {
+        require(pageSize > 0) { "pageSize must be positive." }
+        return items.asSequence().chunked(pageSize).flatMap { page ->
+            val loadContexts = baseDao.loadHistory(page, checkAccess = checkAccess)
+            page.flatMap { item ->
+                val loadContext = loadContexts[item.id] ?: return@flatMap emptyList()
+                convertToFlatDisplayHistoryEntries(
+                    baseDao,
+                    historyFormatService.convertToDisplayEntries(item, loadContext),
+                )
+            }
+        }
+    }
+
     /**
      * Only used by Wicket pages and e-mail notifications:
      * Gets the history entries of the object in flat format.
@@ -70,9 +102,10 @@ class FlatHistoryFormatService {
         historyEntries: List<DisplayHistoryEntry>
     ): MutableList<FlatDisplayHistoryEntry> {
         val list = mutableListOf<FlatDisplayHistoryEntry>()
+        val keys = mutableSetOf<Pair<Long?, Long?>>()
         historyEntries.forEach { entry ->
             val displayEntries = convertToFlatDisplayHistoryEntries(entry)
-            mergeEntries(list, displayEntries)
+            mergeEntries(list, keys, displayEntries)
         }
         return list
     }
@@ -93,12 +126,21 @@ class FlatHistoryFormatService {
 
     /**
      * Merges the given entries into the list. Already existing entries with same masterId and attributeId are not added twice.
+     * @param keys The pairs of historyEntryId and attributeId of the entries of the list.
      */
-    private fun mergeEntries(list: MutableList<FlatDisplayHistoryEntry>, entries: List<FlatDisplayHistoryEntry>) {
+    private fun mergeEntries(
+        list: MutableList<FlatDisplayHistoryEntry>,
+        keys: MutableSet<Pair<Long?, Long?>>,
+        entries: List<FlatDisplayHistoryEntry>,
+    ) {
         for (entry in entries) {
-            if (list.none { it.historyEntryId == entry.historyEntryId && it.attributeId == entry.attributeId }) {
+            if (keys.add(Pair(entry.historyEntryId, entry.attributeId))) {
                 list.add(entry)
             }
         }
     }
+
+    companion object {
+        const val DEFAULT_PAGE_SIZE = 50
+    }
 }
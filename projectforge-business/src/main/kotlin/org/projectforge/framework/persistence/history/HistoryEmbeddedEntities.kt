@@ -21,38 +21,18 @@
 //
 /////////////////////////////////////////////////////////////////////////////
 
-package org.projectforge.common
+package org.projectforge.framework.persistence.history
+
+import org.projectforge.framework.persistence.api.IdObject
 
 /**
- * This class is used to track the number of active coroutines.
- * This class is used to find any open, non-terminating coroutines.
- * These can be displayed, for example, via system statistics. Example: SseEmitterTool.
+ * Entities whose history entries are part of the history of another object, e.g. the positions of an invoice
+ * (see [org.projectforge.framework.persistence.api.BaseDao.getHistoryEmbeddedEntities]). Their history entries
+ * (including the ones of their own embedded objects) are loaded together with the history entries of the object.
+ * @param customize Optional customization of the history entries of the given entities (not of their embedded
+ * objects), e.g. for setting a property prefix.
  */
-class CoroutineTracker {
-    var actives = 0
-
-    var created = 0
-        private set
-
-    var completed = 0
-
-    var errorMessage: String? = null
-
-    fun increment() {
-        synchronized(this) {
-            actives++
-            created++
-        }
-    }
-
-    fun decrement() {
-        synchronized(this) {
-            if (actives <= 0) {
-                errorMessage = "actives <= 0: $actives. This should not happen!"
-            } else {
-                actives--
-            }
-            completed++
-        }
-    }
-}
+class HistoryEmbeddedEntities(
+    val entities: Collection<IdObject<Long>>,
+    val customize: ((entry: HistoryEntryDO) -> Unit)? = null,
+)
@@ -53,12 +53,8 @@ import java.util.*
  */
 @NamedQueries(
     NamedQuery(
-        name = HistoryEntryDO.SELECT_HISTORY_FOR_BASEDO,
-        query = "from HistoryEntryDO as m left join fetch m.attributes where m.entityId=:entityId and m.entityName=:entityName order by m.id desc"
-    ),
-    NamedQuery(
-        name = HistoryEntryDO.SELECT_HISTORY_BY_ENTITY_IDS,
-        query = "from HistoryEntryDO as m left join fetch m.attributes where m.entityId in :entityIds and m.entityName=:entityName order by m.id desc"
+        name = HistoryEntryDO.SELECT_HISTORY_BY_ENTITY_NAMES_AND_IDS,
+        query = "from HistoryEntryDO as m left join fetch m.attributes where m.entityId in :entityIds and m.entityName in :entityNames"
     ),
     NamedQuery(
         name = HistoryEntryDO.DELETE_HISTORY_ENTRY,
@@ -72,6 +68,7 @@ import java.util.*
     //    name = "ix_pf_history_ent",
     //    columnList = "ENTITY_ID,ENTITY_NAME"
     //), Index(name = "ix_pf_history_mod", columnList = "MODIFIEDAT")]
+    indexes = [Index(name = "ix_pf_history_ent_mod", columnList = "entity_name,entity_id,modifiedat")],
 )
 @Indexed
 //@ClassBridge(impl = HistoryMasterClassBridge::class)
@@ -142,8 +139,7 @@ class HistoryEntryDO : HistoryEntry {
     }
 
     companion object {
-        internal const val SELECT_HISTORY_FOR_BASEDO = "HistoryEntryDO_SelectForBaseDO"
-        internal const val SELECT_HISTORY_BY_ENTITY_IDS = "HistoryEntryDO_SelectByEntityIds"
+        internal const val SELECT_HISTORY_BY_ENTITY_NAMES_AND_IDS = "HistoryEntryDO_SelectByEntityNamesAndIds"
         internal const val DELETE_HISTORY_ENTRY = "HistoryEntryDO_Delete"
 
         fun asEntityName(obj: Any): String {
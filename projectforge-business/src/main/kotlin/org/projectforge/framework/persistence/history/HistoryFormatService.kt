@@ -77,7 +77,21 @@ class HistoryFormatService {
         loadContext: HistoryLoadContext = HistoryLoadContext(baseDao),
         checkAccess: Boolean = true,
     ): List<DisplayHistoryEntry> {
-        val loadContext = baseDao.loadHistory(item, checkAccess = checkAccess, loadContext = loadContext)
+        return convertToDisplayEntries(
+            item,
+            baseDao.loadHistory(item, checkAccess = checkAccess, loadContext = loadContext),
+        )
+    }
+
+    /**
+     * Converts the history entries of the given (already filled) load context into display entries.
+     * @return The display entries, sorted by modification time, descending.
+     * @see BaseDao.loadHistory
+     */
+    fun <O : ExtendedBaseDO<Long>> convertToDisplayEntries(
+        item: O,
+        loadContext: HistoryLoadContext,
+    ): List<DisplayHistoryEntry> {
         val entries = mutableListOf<DisplayHistoryEntry>()
         loadContext.originUnsortedEntries.forEach { historyEntry ->
             entries.add(convert(item, historyEntry, loadContext))
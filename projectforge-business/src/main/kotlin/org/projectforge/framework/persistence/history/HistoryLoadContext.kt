@@ -52,11 +52,22 @@ class HistoryLoadContext(
     }
 
     private val historyEntries = mutableListOf<HistoryEntryDO>()
+
+    /**
+     * Ids of [historyEntries] for merging without linear search.
+     */
+    private val historyEntryIds = mutableSetOf<Long?>()
+
     val loadedEntities = mutableListOf<IdObject<Long>>()
 
+    /**
+     * [loadedEntities] by entity name and id.
+     */
+    private val loadedEntitiesMap = mutableMapOf<Pair<String, Long?>, IdObject<Long>>()
+
     fun merge(entries: List<HistoryEntryDO>) {
         for (entry in entries) {
-            if (historyEntries.none { it.id == entry.id }) {
+            if (historyEntryIds.add(entry.id)) {
                 historyEntries.add(entry)
             }
         }
@@ -105,11 +116,13 @@ class HistoryLoadContext(
     fun findLoadedEntity(historyEntry: HistoryEntryDO): Any? {
         val entityName = historyEntry.entityName
         val entityId = historyEntry.entityId
-        return loadedEntities.find { HistoryEntryDO.asEntityName(it) == entityName && it.id == entityId }
+        entityName ?: return null
+        return loadedEntitiesMap[Pair(entityName, entityId)]
     }
 
     fun addLoadedEntity(entity: IdObject<Long>) {
         loadedEntities.add(entity)
+        loadedEntitiesMap.putIfAbsent(Pair(HistoryEntryDO.asEntityName(entity), entity.id), entity)
     }
 
     fun setCurrent(entry: HistoryEntryDO, attr: HistoryEntryAttrDO? = null) {
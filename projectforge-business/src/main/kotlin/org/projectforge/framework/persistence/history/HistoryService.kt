@@ -32,6 +32,7 @@ import org.projectforge.framework.access.AccessChecker
 import org.projectforge.framework.persistence.api.BaseDO
 import org.projectforge.framework.persistence.api.BaseDao
 import org.projectforge.framework.persistence.api.ExtendedBaseDO
+import org.projectforge.framework.persistence.api.HibernateUtils
 import org.projectforge.framework.persistence.api.IdObject
 import org.projectforge.framework.persistence.jpa.PfPersistenceContext
 import org.projectforge.framework.persistence.jpa.PfPersistenceService
@@ -45,7 +46,9 @@ import org.projectforge.registry.Registry
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.stereotype.Service
 import java.io.Serializable
+import java.lang.reflect.Field
 import java.util.*
+import java.util.concurrent.ConcurrentHashMap
 
 private val log = KotlinLogging.logger {}
 
@@ -210,6 +213,122 @@ class HistoryService {
         }
     }
 
+    /**
+     * Loads all history entries of the given entities (of any classes) at once, see [loadAndMergeHistory] with
+     * map of entity ids.
+     * @param customize Optional customization of the history entries of the given entities (not of their embedded
+     * objects).
+     */
+    fun loadAndMergeHistory(
+        entities: Collection<IdObject<Long>>,
+        loadContext: HistoryLoadContext,
+        customize: ((entry: HistoryEntryDO) -> Unit)? = null,
+    ): HistoryLoadContext {
+        val entityIds = mutableMapOf<Class<out IdObject<Long>>, MutableSet<Long>>()
+        entities.forEach { entity ->
+            entity.id?.let { id ->
+                @Suppress("UNCHECKED_CAST")
+                val clazz = HibernateUtils.getRealClass(entity) as Class<out IdObject<Long>>
+                entityIds.computeIfAbsent(clazz) { mutableSetOf() }.add(id)
+            }
+        }
+        return loadAndMergeHistory(entityIds, loadContext, customize)
+    }
+
+    /**
+     * Batch loading of history entries, e.g. for list views and exports: loads all history entries of the given
+     * entities (of any classes, key is the entity class, value are the entity ids) including the history entries of
+     * their embedded objects.
+     * The history entries with their attributes are selected by one query per level of embedded objects (and per
+     * [MAX_IDS_PER_QUERY] ids), independent of the number of entities and classes.
+     * @param customize Optional customization of the history entries of the given entities (not of their embedded
+     * objects).
+     */
+    fun loadAndMergeHistory(
+        entityIds: Map<out Class<out IdObject<Long>>, Collection<Long>>,
+        loadContext: HistoryLoadContext,
+        customize: ((entry: HistoryEntryDO) -> Unit)? = null,
+    ): HistoryLoadContext {
+        if (entityIds.values.all { it.isEmpty() }) {
+            return loadContext
+        }
+        persistenceService.runReadOnly { context ->
+            loadAndMergeHistory(entityIds, context, loadContext, customize)
+        }
+        return loadContext
+    }
+
+    /**
+     * Batch loading of history entries of entities of one class, e.g. for exports: the history entries of all given
+     * entities and of their embedded entities (including the history entries of their embedded objects) are selected
+     * at once (see [loadAndMergeHistory] with map of entity ids), but they are merged into separate load contexts,
+     * one per entity.
+     * @param embeddedEntities Optional entities whose history entries are part of the history of the entity, key is
+     * the entity id (see [BaseDao.getHistoryEmbeddedEntities]).
+     * @param createLoadContext Creates the load context of the given entity id.
+     * @return The load contexts, key is the entity id.
+     */
+    fun loadHistoryPerEntity(
+        entityClass: Class<out IdObject<Long>>,
+        entityIds: Collection<Long>,
+        embeddedEntities: Map<Long, HistoryEmbeddedEntities> = emptyMap(),
+        createLoadContext: (entityId: Long) -> HistoryLoadContext,
+    ): Map<Long, HistoryLoadContext> {
+        val result = mutableMapOf<Long, HistoryLoadContext>()
+        if (entityIds.isEmpty()) {
+            return result
+        }
+        // Key is the entity (name and id), values are the embedded objects (name and id):
+        val embeddings = mutableMapOf<Pair<String, Long>, MutableSet<Pair<String, Long>>>()
+        // The given entities and all their embedded entities are loaded on the first level:
+        val queryIds = mutableMapOf<Class<out IdObject<Long>>, MutableSet<Long>>()
+        queryIds.computeIfAbsent(entityClass) { mutableSetOf() }.addAll(entityIds)
+        // Customization of the history entries of the embedded entities, key is the embedded entity (name and id):
+        val customizers = mutableMapOf<Pair<String?, Long?>, (HistoryEntryDO) -> Unit>()
+        embeddedEntities.forEach { (entityId, embedded) ->
+            embedded.entities.forEach { entity ->
+                entity.id?.let { id ->
+                    @Suppress("UNCHECKED_CAST")
+                    val clazz = HibernateUtils.getRealClass(entity) as Class<out IdObject<Long>>
+                    queryIds.computeIfAbsent(clazz) { mutableSetOf() }.add(id)
+                    val key = Pair(clazz.name, id)
+                    embeddings.computeIfAbsent(Pair(entityClass.name, entityId)) { mutableSetOf() }.add(key)
+                    embedded.customize?.let { customizers[key] = it }
+                }
+            }
+        }
+        val customize: ((HistoryEntryDO) -> Unit)? = customizers.takeIf { it.isNotEmpty() }?.let { map ->
+            { entry -> map[Pair(entry.entityName, entry.entityId)]?.invoke(entry) }
+        }
+        val allContext = HistoryLoadContext()
+        persistenceService.runReadOnly { context ->
+            loadAndMergeHistory(queryIds, context, allContext, customize, embeddings = embeddings)
+        }
+        val entriesByEntity = allContext.originUnsortedEntries.groupBy { Pair(it.entityName, it.entityId) }
+        val loadedEntitiesByEntity = allContext.loadedEntities.associateBy {
+            Pair(HistoryEntryDO.asEntityName(it), it.id)
+        }
+        entityIds.forEach { entityId ->
+            val loadContext = createLoadContext(entityId)
+            // The entity itself and all its (transitive) embedded objects:
+            val entities = linkedSetOf(Pair(entityClass.name, entityId))
+            val queue = ArrayDeque(entities)
+            while (queue.isNotEmpty()) {
+                embeddings[queue.removeFirst()]?.forEach { embedded ->
+                    if (entities.add(embedded)) {
+                        queue.add(embedded)
+                    }
+                }
+            }
+            entities.forEach { entity ->
+                entriesByEntity[entity]?.let { loadContext.merge(it) }
+                loadedEntitiesByEntity[entity]?.let { loadContext.addLoadedEntity(it) }
+            }
+            result[entityId] = loadContext
+        }
+        return result
+    }
+
     /**
      * Convention: If you want to create a history entry of collections, the oldValue should contain all elements that are removed and the newValue should contain all elements that are added.
      * @param oldValue Supports all types supported by [HistoryValueHandlerRegistry]. Also, collections of objects are supported and will be serialized to a csv string.
@@ -263,15 +382,7 @@ class HistoryService {
         loadContext: HistoryLoadContext,
         customize: ((entry: HistoryEntryDO) -> Unit)? = null,
     ) {
-        val newHistoryEntries = context.executeNamedQuery(
-            namedQuery = HistoryEntryDO.SELECT_HISTORY_BY_ENTITY_IDS,
-            resultClass = HistoryEntryDO::class.java,
-            keyValues = arrayOf(
-                Pair("entityIds", entityIds),
-                Pair("entityName", entityClass.name),
-            ),
-        )
-        processAndMergeHistory(entityClass, entityIds, newHistoryEntries, loadContext, context, customize)
+        loadAndMergeHistory(mapOf(entityClass to entityIds), context, loadContext, customize)
     }
 
     private fun loadAndMergeHistory(
@@ -282,24 +393,106 @@ class HistoryService {
         customize: ((entry: HistoryEntryDO) -> Unit)? = null,
     ) {
         entityId ?: return
-        val newHistoryEntries = context.executeNamedQuery(
-            namedQuery = HistoryEntryDO.SELECT_HISTORY_FOR_BASEDO,
-            resultClass = HistoryEntryDO::class.java,
-            keyValues = arrayOf(
-                Pair("entityId", entityId),
-                Pair("entityName", entityClass.name),
-            ),
-        )
-        processAndMergeHistory(entityClass, listOf(entityId), newHistoryEntries, loadContext, context, customize)
+        loadAndMergeHistory(mapOf(entityClass to listOf(entityId)), context, loadContext, customize)
     }
 
+    /**
+     * Loads the history entries level by level: first of all given entities, then of all their embedded objects
+     * found (of all classes), then of the embedded objects of these and so on.
+     */
+    private fun loadAndMergeHistory(
+        entityIds: Map<out Class<out IdObject<Long>>, Collection<Long>>,
+        context: PfPersistenceContext,
+        loadContext: HistoryLoadContext,
+        customize: ((entry: HistoryEntryDO) -> Unit)? = null,
+        embeddings: MutableMap<Pair<String, Long>, MutableSet<Pair<String, Long>>>? = null,
+    ) {
+        // Entities already processed (key is the class name), for avoiding endless loops:
+        val processed = mutableMapOf<String, MutableSet<Long>>()
+        var current: Map<out Class<out IdObject<Long>>, Collection<Long>> = entityIds
+        var currentCustomize = customize
+        while (current.isNotEmpty()) {
+            val newHistoryEntries = selectHistoryEntries(current, context)
+            // Key is the class name of the embedded objects, values are their ids:
+            val embeddedObjectsMap = mutableMapOf<String, MutableSet<Long>>()
+            current.forEach { (entityClass, ids) ->
+                processed.computeIfAbsent(entityClass.name) { mutableSetOf() }.addAll(ids)
+                processAndMergeHistory(
+                    entityClass,
+                    ids,
+                    newHistoryEntries[entityClass.name] ?: emptyList(),
+                    loadContext,
+                    context,
+                    embeddedObjectsMap,
+                    currentCustomize,
+                    embeddings,
+                )
+            }
+            currentCustomize = null // Embedded objects aren't customized.
+            val next = mutableMapOf<Class<out IdObject<Long>>, Collection<Long>>()
+            embeddedObjectsMap.forEach { (propertyTypeClass, ids) ->
+                val newIds = ids - (processed[propertyTypeClass] ?: emptySet())
+                if (newIds.isEmpty()) {
+                    return@forEach
+                }
+                try {
+                    @Suppress("UNCHECKED_CAST")
+                    next[Class.forName(propertyTypeClass) as Class<out BaseDO<Long>>] = newIds
+                } catch (ex: Exception) {
+                    log.error(ex) { "Can't get class of name '$propertyTypeClass' (skipping): ${ex.message}" }
+                }
+            }
+            current = next
+        }
+    }
+
+    /**
+     * Selects the history entries (including their attributes) of the given entities of all classes by one query
+     * per [MAX_IDS_PER_QUERY] ids.
+     * @return The history entries, key is the entity name (class name).
+     */
+    private fun selectHistoryEntries(
+        entityIds: Map<out Class<out IdObject<Long>>, Collection<Long>>,
+        context: PfPersistenceContext,
+    ): Map<String, List<HistoryEntryDO>> {
+        val entityNames = entityIds.keys.map { it.name }.toSet()
+        val allIds = entityIds.values.flatten().toSet()
+        val result = mutableMapOf<String, MutableList<HistoryEntryDO>>()
+        allIds.chunked(MAX_IDS_PER_QUERY).forEach { ids ->
+            context.executeNamedQuery(
+                namedQuery = HistoryEntryDO.SELECT_HISTORY_BY_ENTITY_NAMES_AND_IDS,
+                resultClass = HistoryEntryDO::class.java,
+                keyValues = arrayOf(
+                    Pair("entityIds", ids),
+                    Pair("entityNames", entityNames),
+                ),
+            ).forEach { entry ->
+                result.computeIfAbsent(entry.entityName!!) { mutableListOf() }.add(entry)
+            }
+        }
+        // Entities of different classes may share the same id, so remove entries of foreign ids:
+        entityIds.forEach { (entityClass, ids) ->
+            val idSet = ids.toHashSet()
+            result[entityClass.name]?.removeIf { !idSet.contains(it.entityId) }
+        }
+        result.values.forEach { list -> list.sortByDescending { it.id } }
+        return result
+    }
+
+    /**
+     * Merges the new history entries and collects the ids of the embedded objects (the ones of the history entries
+     * and the current ones of the entities).
+     * @param embeddings If given, the embedded objects found are registered per embedding entity.
+     */
     private fun processAndMergeHistory(
         entityClass: Class<out IdObject<Long>>,
         entityIds: Collection<Long>,
         newHistoryEntries: List<HistoryEntryDO>,
         loadContext: HistoryLoadContext,
         context: PfPersistenceContext,
+        embeddedObjectsMap: MutableMap<String, MutableSet<Long>>,
         customize: ((entry: HistoryEntryDO) -> Unit)? = null,
+        embeddings: MutableMap<Pair<String, Long>, MutableSet<Pair<String, Long>>>? = null,
     ) {
         newHistoryEntries.forEach { entry ->
             customize?.invoke(entry)
@@ -308,84 +501,89 @@ class HistoryService {
         }
         mergeHistoryEntries(loadContext, newHistoryEntries)
         // Check all history entries for embedded objects:
-        HibernateMetaModel.getEntityInfo(entityClass)?.getPropertiesWithAnnotation(OneToMany::class)
-            ?.let { oneToManyProps ->
-                // Check all history entries for embedded objects.
-                // Key is the class type of the members, e.g. org.projectforge....OrderPositionDO of OrderDO. Values are all entity_ids found.
-                // This is important, because some embedded objects may be removed in the meantime, so we have to look especially in oldValue for removed
-                // entities.
-                val embeddedObjectsMap = mutableMapOf<String, MutableSet<Long>>()
-                // Check all result history entries for embedded objects:
-                newHistoryEntries.forEach { entry ->
-                    entry.attributes?.forEach attributes@{ attr ->
-                        attr.propertyName?.let { propertyName ->
-                            oneToManyProps.find { it.propertyName == propertyName } ?: return@attributes
-                            attr.propertyTypeClass?.let { propertyTypeClass ->
-                                // oneToMany.targetEntity not always given, using propertyName instead:
-                                val setOfIds = mutableSetOf<Long>()
-                                // Ids are part of value if added to list, such as 1234,5678,9012
-                                val ids1 = StringHelper2.splitToListOfLongValues(attr.value)
-                                // Ids are part of oldValue if removed from list, such as 1234,5678,9012
-                                val ids2 = StringHelper2.splitToListOfLongValues(attr.oldValue)
-                                setOfIds.addAll(ids1)
-                                setOfIds.addAll(ids2)
-                                setOfIds.forEach { entityId ->
-                                    embeddedObjectsMap.computeIfAbsent(propertyTypeClass) { mutableSetOf() }
-                                        .add(entityId)
-                                }
-                                log.debug { "${entityClass}: entity ids added: '$propertyTypeClass': ${setOfIds.joinToString()}" }
-                            }
+        val oneToManyProps = HibernateMetaModel.getEntityInfo(entityClass)?.getPropertiesWithAnnotation(OneToMany::class)
+        if (oneToManyProps.isNullOrEmpty()) {
+            return
+        }
+        // Check all history entries for embedded objects.
+        // Key is the class type of the members, e.g. org.projectforge....OrderPositionDO of OrderDO. Values are all entity_ids found.
+        // This is important, because some embedded objects may be removed in the meantime, so we have to look especially in oldValue for removed
+        // entities.
+        // Check all result history entries for embedded objects:
+        newHistoryEntries.forEach { entry ->
+            entry.attributes?.forEach attributes@{ attr ->
+                attr.propertyName?.let { propertyName ->
+                    oneToManyProps.find { it.propertyName == propertyName } ?: return@attributes
+                    attr.propertyTypeClass?.let { propertyTypeClass ->
+                        // oneToMany.targetEntity not always given, using propertyName instead:
+                        val setOfIds = mutableSetOf<Long>()
+                        // Ids are part of value if added to list, such as 1234,5678,9012
+                        val ids1 = StringHelper2.splitToListOfLongValues(attr.value)
+                        // Ids are part of oldValue if removed from list, such as 1234,5678,9012
+                        val ids2 = StringHelper2.splitToListOfLongValues(attr.oldValue)
+                        setOfIds.addAll(ids1)
+                        setOfIds.addAll(ids2)
+                        embeddedObjectsMap.computeIfAbsent(propertyTypeClass) { mutableSetOf() }.addAll(setOfIds)
+                        entry.entityId?.let { entityId ->
+                            embeddings?.computeIfAbsent(Pair(entityClass.name, entityId)) { mutableSetOf() }
+                                ?.addAll(setOfIds.map { Pair(propertyTypeClass, it) })
                         }
+                        log.debug { "${entityClass}: entity ids added: '$propertyTypeClass': ${setOfIds.joinToString()}" }
                     }
                 }
-                context.executeQuery(
-                    "from ${entityClass.simpleName} where ${HibernateMetaModel.getIdProperty(entityClass)} in :entityIds",
-                    entityClass,
-                    "entityIds" to entityIds
-                ).forEach { baseDO ->
-                    loadContext.addLoadedEntity(baseDO)
-                    // Check now all actually embedded objects of the baseDO, load from the database:
-                    oneToManyProps.forEach { propInfo ->
-                        val propertyName = propInfo.propertyName
-                        ClassUtils.getFieldInfo(entityClass, propertyName)?.field?.let { field ->
-                            synchronized(field) {
-                                val wasAccessible = field.canAccess(baseDO)
-                                try {
-                                    field.isAccessible = true
-                                    synchronized(field) {
-                                        field[baseDO]?.let { value ->
-                                            if (value is Collection<*>) {
-                                                value.forEach { embeddedObject ->
-                                                    if (embeddedObject is BaseDO<*>) {
-                                                        embeddedObject.id?.let { entityId ->
-                                                            entityId as Long
-                                                            embeddedObjectsMap.computeIfAbsent(embeddedObject::class.java.name) { mutableSetOf() }
-                                                                .add(entityId)
-                                                            log.debug { "${baseDO::class.java}.${baseDO.id}: entity ids added: '${embeddedObject::class.java.name}': $entityId" }
-                                                        }
-                                                    }
-                                                }
-                                            }
-                                        }
-                                    }
-                                } finally {
-                                    field.isAccessible = wasAccessible
+            }
+        }
+        val fields = oneToManyProps.mapNotNull { EmbeddedFieldAccessors.get(entityClass, it.propertyName) }
+        entityIds.chunked(MAX_IDS_PER_QUERY).forEach { ids ->
+            context.executeQuery(
+                "from ${entityClass.simpleName} where ${HibernateMetaModel.getIdProperty(entityClass)} in :entityIds",
+                entityClass,
+                "entityIds" to ids
+            ).forEach { baseDO ->
+                loadContext.addLoadedEntity(baseDO)
+                // Check now all actually embedded objects of the baseDO, load from the database:
+                fields.forEach { field ->
+                    (field[baseDO] as? Collection<*>)?.forEach { embeddedObject ->
+                        if (embeddedObject is BaseDO<*>) {
+                            embeddedObject.id?.let { entityId ->
+                                entityId as Long
+                                embeddedObjectsMap.computeIfAbsent(embeddedObject::class.java.name) { mutableSetOf() }
+                                    .add(entityId)
+                                baseDO.id?.let { id ->
+                                    embeddings?.computeIfAbsent(Pair(entityClass.name, id)) { mutableSetOf() }
+                                        ?.add(Pair(embeddedObject::class.java.name, entityId))
                                 }
+                                log.debug { "${baseDO::class.java}.${baseDO.id}: entity ids added: '${embeddedObject::class.java.name}': $entityId" }
                             }
                         }
                     }
                 }
-                embeddedObjectsMap.forEach { (propertyTypeClass, entityIds) ->
-                    @Suppress("UNCHECKED_CAST")
-                    val clazz = Class.forName(propertyTypeClass) as Class<out BaseDO<Long>>
-                    try {
-                        loadAndMergeHistory(clazz, entityIds, context, loadContext)
-                    } catch (ex: Exception) {
-                        log.error(ex) { "Can't get class of name '$propertyTypeClass' (skipping): ${ex.message}" }
-                    }
-                }
             }
+        }
+    }
 
+    /**
+     * Fields of the embedded collections, made accessible once (instead of toggling the accessibility of the shared
+     * field instances synchronized on every access).
+     */
+    private object EmbeddedFieldAccessors {
+        private val fields = object : ClassValue<ConcurrentHashMap<String, Optional<Field>>>() {
+            override fun computeValue(type: Class<*>): ConcurrentHashMap<String, Optional<Field>> {
+                return ConcurrentHashMap()
+            }
+        }
+
+        fun get(clazz: Class<*>, propertyName: String): Field? {
+            return fields.get(clazz).computeIfAbsent(propertyName) {
+                val field = ClassUtils.getFieldInfo(clazz, propertyName)?.field
+                if (field?.trySetAccessible() == false) {
+                    log.error { "Can't access field '${clazz.name}.$propertyName' (skipping)." }
+                    Optional.empty()
+                } else {
+                    Optional.ofNullable(field)
+                }
+            }.orElse(null)
+        }
     }
 
     /**
@@ -422,5 +620,10 @@ class HistoryService {
         @JvmStatic
         lateinit var instance: HistoryService
             private set
+
+        /**
+         * Maximum number of entity ids per query (the number of bind parameters is limited by the databases).
+         */
+        const val MAX_IDS_PER_QUERY = 1_000
     }
 }
@@ -78,6 +78,30 @@ class PfPersistenceContext internal constructor(
         callStats = PersistenceCallsRecorder(em, extended)
     }
 
+    /**
+     * Actions to run after the commit of the transaction of this context (dropped on rollback).
+     */
+    private var afterCommitActions: MutableList<() -> Unit>? = null
+
+    internal fun addAfterCommitAction(action: () -> Unit) {
+        (afterCommitActions ?: mutableListOf<() -> Unit>().also { afterCommitActions = it }).add(action)
+    }
+
+    /**
+     * Runs the registered after commit actions. Exceptions are logged, the transaction is already committed.
+     */
+    internal fun runAfterCommitActions() {
+        val actions = afterCommitActions ?: return
+        afterCommitActions = null
+        actions.forEach { action ->
+            try {
+                action()
+            } catch (ex: Exception) {
+                log.error(ex) { "Error while running action after commit: ${ex.message}" }
+            }
+        }
+    }
+
     @JvmOverloads
     fun formatStats(withDuration: Boolean = true, extended: Boolean = false): String {
         val callsStatsString = callStats?.toString(extended)
@@ -68,6 +68,20 @@ open class PfPersistenceService {
         }
     }
 
+    /**
+     * Runs the given action after the commit of the current transaction (e. g. for updating caches only with committed
+     * data). The action is dropped, if the transaction is rolled back. If no transaction is running, the action is run
+     * immediately.
+     */
+    fun runAfterCommit(action: () -> Unit) {
+        val context = PfPersistenceContextThreadLocal.getTransactional()
+        if (context == null) {
+            action()
+        } else {
+            context.addAfterCommitAction(action)
+        }
+    }
+
     /**
      * Creates a new PfPersistenceContext (EntityManager), also if any EntityManager is available in ThreadLocal.
      * After finishing the block, the transactional context will be closed as well as removed from ThreadLocal.
@@ -128,7 +142,8 @@ open class PfPersistenceService {
         run: (context: PfPersistenceContext) -> T
     ): T {
         val saved = PfPersistenceContextThreadLocal.getTransactional()
-        try {
+        var committedContext: PfPersistenceContext? = null
+        val result = try {
             PfPersistenceContext(
                 entityManagerFactory,
                 type = PfPersistenceContext.ContextType.TRANSACTION,
@@ -143,12 +158,12 @@ open class PfPersistenceService {
                 em.transaction.begin()
                 // openedTransactions.add(em.transaction)
                 //log.info { "Begin transaction ${em.transaction}... (${openedTransactions.size} open transactions)" }
-                try {
+                val ret = try {
                     val ret = run(context)
                     em.transaction.commit()
                     //openedTransactions.remove(em.transaction)
                     //log.info { "Commit transaction ${em.transaction}..." }
-                    return ret
+                    ret
                 } catch (ex: Exception) {
                     em.transaction.rollback()
                     //openedTransactions.remove(em.transaction)
@@ -156,6 +171,8 @@ open class PfPersistenceService {
                     log.error(ex.message, ex)
                     throw ex
                 }
+                committedContext = context
+                ret
             }
         } finally {
             val removed = PfPersistenceContextThreadLocal.removeTransactional()
@@ -163,6 +180,9 @@ open class PfPersistenceService {
             saved?.let { PfPersistenceContextThreadLocal.setTransactional(it) } // Restore previous context, if any.
             PfPersistenceContextThreadLocal.getStatsState().transactionClosed()
         }
+        // Outside the closed context, so actions may start new transactions:
+        committedContext?.runAfterCommitActions()
+        return result
     }
 
     /**
@@ -24,6 +24,7 @@
 package org.projectforge.framework.persistence.search
 
 import jakarta.annotation.PostConstruct
+import jakarta.annotation.PreDestroy
 import jakarta.persistence.EntityManager
 import jakarta.persistence.FlushModeType
 import mu.KotlinLogging
@@ -36,12 +37,19 @@ import org.projectforge.registry.RegistryEntry
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.stereotype.Component
 import java.lang.reflect.ParameterizedType
+import java.util.concurrent.ScheduledThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
 
 private val log = KotlinLogging.logger {}
 
 /**
  * Hotfix: Hibernate-search does not update index of dependent objects.
  *
+ * Modified objects are queued (deduplicated by class and id) and processed after [DEBOUNCE_MILLIS] by one worker
+ * thread, so bulk updates result in a few batches instead of one thread per object. The dependents of a batch are
+ * loaded level by level with IN queries.
+ *
  * @author Kai Reinhard (k.reinhard@micromata.de)
  */
 @Component
@@ -55,6 +63,46 @@ class HibernateSearchDependentObjectsReindexer {
     @JvmField
     val map = mutableMapOf<Class<out BaseDO<*>>, MutableList<Entry>>()
 
+    /**
+     * Ids of the modified objects to process by class. Guarded by itself.
+     */
+    private val queue = LinkedHashMap<Class<out BaseDO<*>>, MutableSet<Any>>()
+
+    private var queueSize = 0
+
+    private var processingScheduled = false
+
+    private val executor = ScheduledThreadPoolExecutor(1) { runnable ->
+        Thread(runnable, "HibernateSearchDependentObjectsReindexer").also { it.isDaemon = true }
+    }.also {
+        // Pending debounced batches are dropped on shutdown (the persistence context is going down anyway).
+        it.executeExistingDelayedTasksAfterShutdownPolicy = false
+    }
+
+    val enqueuedCounter = AtomicLong()
+
+    /**
+     * Number of modified objects already queued (not processed twice).
+     */
+    val deduplicatedCounter = AtomicLong()
+
+    /**
+     * Number of modified objects ignored due to a full queue.
+     */
+    val rejectedCounter = AtomicLong()
+
+    val batchCounter = AtomicLong()
+
+    val reindexedCounter = AtomicLong()
+
+    val durationMillis = AtomicLong()
+
+    /**
+     * Number of modified objects waiting for being processed.
+     */
+    val queueDepth: Int
+        get() = synchronized(queue) { queueSize }
+
     @PostConstruct
     fun init() {
         for (registryEntry in Registry.getInstance().orderedList) {
@@ -62,6 +110,21 @@ class HibernateSearchDependentObjectsReindexer {
         }
     }
 
+    @PreDestroy
+    fun shutdown() {
+        executor.shutdown()
+        try {
+            // Wait for a currently running batch only, delayed batches aren't executed anymore.
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn { "Re-indexing of dependent objects not finished after $SHUTDOWN_TIMEOUT_SECONDS seconds, aborting." }
+                executor.shutdownNow()
+            }
+        } catch (ex: InterruptedException) {
+            executor.shutdownNow()
+            Thread.currentThread().interrupt()
+        }
+    }
+
     inner class Entry(// The dependent class which contains the annotated field.
         @JvmField var clazz: Class<out BaseDO<*>>?, @JvmField var fieldName: String?, var setOrCollection: Boolean
     ) {
@@ -93,106 +156,128 @@ class HibernateSearchDependentObjectsReindexer {
         }
     }
 
+    /**
+     * Queues the given object for re-indexing its dependents. Returns immediately, the re-indexing is done
+     * asynchronously.
+     */
     fun reindexDependents(obj: BaseDO<*>) {
-        object : Thread() {
-            override fun run() {
-                persistenceService.runInTransaction() { context ->
-                    val em = context.em
-                    em.flushMode = FlushModeType.AUTO
-                    val alreadyReindexed = mutableSetOf<String>()
-                    val entryList = map[obj.javaClass]
-                    reindexDependents(em, obj, entryList, alreadyReindexed)
-                    val size = alreadyReindexed.size
-                    if (size >= 10) {
-                        log.info(
-                            ("Re-indexing of " + size + " objects done after updating " + obj.javaClass.name + ":"
-                                    + obj.id)
-                        )
-                    }
-                    null
-                }
-            }
-        }.start()
-    }
-
-    private fun reindexDependents(
-        em: EntityManager, obj: BaseDO<*>,
-        entryList: List<Entry>?, alreadyReindexed: MutableSet<String>
-    ) {
-        if (entryList.isNullOrEmpty()) {
-            // Nothing to do.
+        val id = obj.id ?: return
+        if (map[obj.javaClass].isNullOrEmpty()) {
+            // No dependents, nothing to do.
             return
         }
-        for (entry in entryList) {
-            val registryEntry = Registry.getInstance().getEntryByDO(entry.clazz)
-                ?: // Nothing to do
-                return
-            val result = getDependents(em, registryEntry, entry, obj)
-            for (dependentObject in result) {
-                var useObj = dependentObject
-                if (useObj is Array<*> && useObj.isArrayOf<Any>()) {
-                    @Suppress("UNCHECKED_CAST")
-                    useObj = (useObj as Array<Any>)[0]
-                }
-                if (useObj is BaseDO<*>) {
-                    reindexDependents(em, useObj, alreadyReindexed)
+        synchronized(queue) {
+            if (queueSize >= MAX_QUEUE_SIZE) {
+                if (rejectedCounter.incrementAndGet() % 1000 == 1L) {
+                    log.warn { "Re-index queue is full ($MAX_QUEUE_SIZE), dependents of ${obj.javaClass.name}:$id won't be re-indexed." }
                 }
+                return
+            }
+            if (queue.getOrPut(obj.javaClass) { mutableSetOf() }.add(id)) {
+                ++queueSize
+                enqueuedCounter.incrementAndGet()
+            } else {
+                deduplicatedCounter.incrementAndGet()
+            }
+            if (!processingScheduled && !executor.isShutdown) {
+                processingScheduled = true
+                executor.schedule({ processQueue() }, DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)
             }
         }
     }
 
-    private fun reindexDependents(
-        em: EntityManager, obj: BaseDO<*>,
-        alreadyReindexed: MutableSet<String>
-    ) {
-        if (alreadyReindexed.contains(getReindexId(obj))) {
-            if (log.isDebugEnabled) {
-                log.debug("Object already re-indexed (skipping): " + getReindexId(obj))
-            }
+    private fun processQueue() {
+        val batch = synchronized(queue) {
+            val copy = queue.toMap()
+            queue.clear()
+            queueSize = 0
+            processingScheduled = false
+            copy
+        }
+        if (batch.isEmpty()) {
             return
         }
-        em.flush() // Needed to flush the object changes!
-        val searchSession = Search.session(em)
-
-        //HibernateCompatUtils.setCacheMode(fullTextSession, CacheMode.IGNORE);
+        val started = System.currentTimeMillis()
         try {
-            var dbObj = em.find(obj.javaClass, obj.id)
-            if (dbObj == null) {
-                dbObj = em.find(obj.javaClass, obj.id)
+            val size = persistenceService.runInTransaction { context ->
+                val em = context.em
+                em.flushMode = FlushModeType.AUTO
+                reindexDependents(em, batch)
             }
-            searchSession.indexingPlan().addOrUpdate(dbObj)
-            alreadyReindexed.add(getReindexId(dbObj))
-            if (log.isDebugEnabled) {
-                log.debug("Object added to index: " + getReindexId(dbObj))
+            reindexedCounter.addAndGet(size.toLong())
+            if (size >= 10) {
+                log.info(
+                    "Re-indexing of $size objects done after updating ${batch.values.sumOf { it.size }} objects of ${batch.keys.joinToString { it.simpleName }}."
+                )
             }
         } catch (ex: Exception) {
             // Don't fail if any exception while re-indexing occurs.
-            log.info("Fail to re-index " + obj.javaClass + ": " + ex.message)
+            log.error(ex) { "Error while re-indexing dependent objects: ${ex.message}" }
+        } finally {
+            batchCounter.incrementAndGet()
+            durationMillis.addAndGet(System.currentTimeMillis() - started)
         }
-        // em.flush(); // clear every batchSize since the queue is processed
-        val entryList =
-            map[obj.javaClass]!!
-        reindexDependents(em, obj, entryList, alreadyReindexed)
+    }
+
+    /**
+     * Re-indexes all dependents of the given objects, level by level (dependents of dependents etc.).
+     * @return The number of re-indexed objects.
+     */
+    private fun reindexDependents(em: EntityManager, objects: Map<Class<out BaseDO<*>>, Collection<Any>>): Int {
+        val searchSession = Search.session(em)
+        val alreadyReindexed = mutableSetOf<String>()
+        var current = objects
+        while (current.isNotEmpty()) {
+            val next = mutableMapOf<Class<out BaseDO<*>>, MutableSet<Any>>()
+            current.forEach { (clazz, ids) ->
+                map[clazz]?.forEach { entry ->
+                    val registryEntry = Registry.getInstance().getEntryByDO(entry.clazz)
+                    if (registryEntry != null) {
+                        for (dependent in getDependents(em, registryEntry, entry, ids)) {
+                            if (!alreadyReindexed.add(getReindexId(dependent))) {
+                                if (log.isDebugEnabled) {
+                                    log.debug("Object already re-indexed (skipping): " + getReindexId(dependent))
+                                }
+                                continue
+                            }
+                            try {
+                                searchSession.indexingPlan().addOrUpdate(dependent)
+                                if (log.isDebugEnabled) {
+                                    log.debug("Object added to index: " + getReindexId(dependent))
+                                }
+                            } catch (ex: Exception) {
+                                // Don't fail if any exception while re-indexing occurs.
+                                log.info("Fail to re-index " + dependent.javaClass + ": " + ex.message)
+                            }
+                            dependent.id?.let { next.getOrPut(dependent.javaClass) { mutableSetOf() }.add(it) }
+                        }
+                    }
+                }
+            }
+            current = next
+        }
+        return alreadyReindexed.size
     }
 
     private fun getDependents(
         em: EntityManager,
         registryEntry: RegistryEntry,
         entry: Entry,
-        obj: BaseDO<*>
-    ): List<*> {
+        ids: Collection<Any>,
+    ): List<BaseDO<*>> {
         val queryString = if (entry.setOrCollection) {
-            "from " + registryEntry.doClass.name + " o join o." + entry.fieldName + " r where r.id=:id"
+            "select distinct o from " + registryEntry.doClass.name + " o join o." + entry.fieldName + " r where r.id in :ids"
         } else {
-            "from " + registryEntry.doClass.name + " o where o." + entry.fieldName + ".id=:id"
+            "select o from " + registryEntry.doClass.name + " o where o." + entry.fieldName + ".id in :ids"
         }
         if (log.isDebugEnabled) {
-            log.debug(queryString + ", id=" + obj.id)
+            log.debug(queryString + ", ids=" + ids.joinToString())
+        }
+        return ids.chunked(IN_CLAUSE_BATCH_SIZE).flatMap { chunk ->
+            em.createQuery(queryString, registryEntry.doClass)
+                .setParameter("ids", chunk)
+                .resultList
         }
-        val result: List<*> = em.createQuery(queryString, registryEntry.doClass)
-            .setParameter("id", obj.id)
-            .resultList
-        return result
     }
 
     private fun getReindexId(obj: BaseDO<*>): String {
@@ -247,4 +332,17 @@ class HibernateSearchDependentObjectsReindexer {
             }
         }
     }
+
+    companion object {
+        /**
+         * Modified objects are collected for this time before processing them in one batch.
+         */
+        const val DEBOUNCE_MILLIS = 500L
+
+        const val MAX_QUEUE_SIZE = 100_000
+
+        private const val IN_CLAUSE_BATCH_SIZE = 1_000
+
+        private const val SHUTDOWN_TIMEOUT_SECONDS = 10L
+    }
 }
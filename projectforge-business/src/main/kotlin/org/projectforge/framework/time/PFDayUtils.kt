@@ -25,7 +25,6 @@ package org.projectforge.framework.time
 
 import org.apache.commons.lang3.Validate
 import org.projectforge.common.DateFormatType
-import org.projectforge.common.i18n.UserException
 import org.projectforge.framework.calendar.Holidays
 import org.projectforge.framework.persistence.user.api.ThreadLocalUserContext
 import java.math.BigDecimal
@@ -35,6 +34,7 @@ import java.time.Month
 import java.time.ZonedDateTime
 import java.time.format.DateTimeFormatter
 import java.time.format.DateTimeParseException
+import java.time.temporal.ChronoUnit
 import java.time.temporal.TemporalAdjusters
 import java.time.temporal.WeekFields
 import java.util.*
@@ -178,43 +178,28 @@ object PFDayUtils {
      */
     @JvmStatic
     fun getNumberOfWorkingDays(from: LocalDate, to: LocalDate): BigDecimal {
-        return getNumberOfWorkingDays(PFDay.from(from), PFDay.from(to))
+        return Holidays.instance.getNumberOfWorkingDays(from, to)
     }
 
     /**
      * Determines the number of working days in the given period. Please note: there might be also half working days
      * (e. g. on Xmas or New Years Eve), so a BigDecimal is returned.
+     *
+     * The working days are summed up by the precomputed working day indexes of the years, so the period isn't limited.
      */
     @JvmStatic
     fun <T : IPFDate<T>> getNumberOfWorkingDays(from: T, to: T): BigDecimal {
         requireNotNull(from)
         requireNotNull(to)
-        val holidays = Holidays.instance
         if (to.isBefore(from)) {
             return BigDecimal.ZERO
         }
-        var numberOfWorkingDays = BigDecimal.ZERO
-        var numberOfFullWorkingDays = 0
-        var dayCounter = 1
-        var day = from
-        do {
-            if (dayCounter++ > 740) { // Endless loop protection, time period greater 2 years.
-                throw UserException(
-                    "getNumberOfWorkingDays does not support calculation of working days for a time period greater than two years!"
-                )
-            }
-            if (holidays.isWorkingDay(day)) {
-                val workFraction = holidays.getWorkFraction(day)
-                if (workFraction != null) {
-                    numberOfWorkingDays = numberOfWorkingDays.add(workFraction)
-                } else {
-                    numberOfFullWorkingDays++
-                }
-            }
-            day = day.plusDays(1)
-        } while (!day.isAfter(to))
-        numberOfWorkingDays = numberOfWorkingDays.add(BigDecimal(numberOfFullWorkingDays))
-        return numberOfWorkingDays
+        var lastDate = to.localDate
+        if (from.plusDays(from.localDate.until(lastDate, ChronoUnit.DAYS)).isAfter(to)) {
+            // Time of day of from is after time of day of to (date times), so the last day of to isn't reached.
+            lastDate = lastDate.minusDays(1)
+        }
+        return Holidays.instance.getNumberOfWorkingDays(from.localDate, lastDate)
     }
 
     @JvmStatic
@@ -0,0 +1,558 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.mail
+
+import jakarta.annotation.PostConstruct
+import jakarta.annotation.PreDestroy
+import jakarta.mail.Session
+import jakarta.mail.Transport
+import jakarta.mail.internet.MimeMessage
+import mu.KotlinLogging
+import org.projectforge.Constants
+import org.projectforge.business.admin.SystemStatistics
+import org.projectforge.common.extensions.abbreviate
+import org.projectforge.framework.persistence.jpa.PfPersistenceService
+import org.projectforge.framework.time.PFDateTime
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.scheduling.annotation.Scheduled
+import org.springframework.stereotype.Service
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Semaphore
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+private val log = KotlinLogging.logger {}
+
+/**
+ * Persistent outbox of [SendMail]: mails are stored in the data base (T_MAIL_OUTBOX) and delivered by a bounded pool
+ * of senders. Each sender claims a batch of due mails and sends them over one SMTP connection, failed deliveries are
+ * retried with exponential backoff (up to [maxAttempts]). Queued mails survive restarts of ProjectForge.
+ *
+ * Nothing is queued or delivered until [initialize] was called by [SendMail] (sending of mails configured).
+ */
+@Service
+class MailOutbox {
+    @Autowired
+    private lateinit var persistenceService: PfPersistenceService
+
+    @Autowired
+    private lateinit var systemStatistics: SystemStatistics
+
+    /**
+     * Maximum number of parallel SMTP connections.
+     */
+    @Value("\${projectforge.mail.outbox.senders:2}")
+    internal var senders: Int = 2
+
+    /**
+     * Maximum number of mails per minute sent to the SMTP server (all senders). 0 means unlimited.
+     */
+    @Value("\${projectforge.mail.outbox.maxMailsPerMinute:0}")
+    internal var maxMailsPerMinute: Int = 0
+
+    /**
+     * Maximum number of delivery attempts before a mail is marked as failed.
+     */
+    @Value("\${projectforge.mail.outbox.maxAttempts:8}")
+    internal var maxAttempts: Int = 8
+
+    internal val statistics = Statistics()
+
+    @Volatile
+    private var sessionSupplier: (() -> Session)? = null
+
+    /**
+     * Ids of sent mails, which couldn't be deleted from the outbox. They mustn't be sent again, the deletion is
+     * retried by [resetStaleEntries].
+     */
+    private val sentButNotDeleted = ConcurrentHashMap.newKeySet<Long>()
+
+    private val lock = ReentrantLock()
+
+    private val wakeUpCondition = lock.newCondition()
+
+    private var dispatcher: Thread? = null
+
+    private var executor: ExecutorService? = null
+
+    private var pending = false
+
+    private val rateLimiter = RateLimiter()
+
+    @PostConstruct
+    private fun postConstruct() {
+        systemStatistics.registerStatisticsBuilder(MailOutboxStatisticsBuilder(this))
+    }
+
+    @PreDestroy
+    private fun shutdown() {
+        lock.withLock {
+            dispatcher?.interrupt()
+            dispatcher = null
+            executor?.shutdown()
+            executor = null
+        }
+    }
+
+    /**
+     * Sets the supplier of the mail session (SMTP configuration) and starts the delivery of queued mails.
+     */
+    fun initialize(sessionSupplier: () -> Session) {
+        this.sessionSupplier = sessionSupplier
+        wakeUp()
+    }
+
+    /**
+     * True, if [initialize] was called (sending of mails is configured).
+     */
+    val initialized: Boolean
+        get() = sessionSupplier != null
+
+    /**
+     * Stores the given message in the outbox. The message is delivered asynchronously.
+     * @throws IllegalStateException if the outbox isn't initialized.
+     */
+    fun enqueue(message: MimeMessage) {
+        check(initialized) { "Mail outbox isn't initialized (sending of mails not configured)." }
+        val entry = createEntry(message)
+        persistenceService.runInNewTransaction { context ->
+            context.insert(entry)
+        }
+        statistics.queued.incrementAndGet()
+        log.info { "E-Mail queued in outbox (id=${entry.id}): ${entry.info}" }
+        wakeUp()
+    }
+
+    internal fun createEntry(message: MimeMessage): MailOutboxDO {
+        val entry = MailOutboxDO()
+        entry.created = Date()
+        entry.status = MailOutboxDO.Status.QUEUED
+        entry.nextAttempt = entry.created
+        entry.info = getInfo(message)
+        entry.message = ByteArrayOutputStream().use { out ->
+            message.writeTo(out)
+            out.toByteArray()
+        }
+        return entry
+    }
+
+    /**
+     * Number of mails waiting for delivery (including the mails currently being sent).
+     */
+    val queueDepth: Long
+        get() = countByStatus(MailOutboxDO.Status.QUEUED) + countByStatus(MailOutboxDO.Status.SENDING)
+
+    val failedCount: Long
+        get() = countByStatus(MailOutboxDO.Status.FAILED)
+
+    /**
+     * Failed mails are kept for [FAILED_EXPIRE_DAYS] days for inspection.
+     */
+    @Scheduled(fixedDelay = Constants.MILLIS_PER_DAY, initialDelay = Constants.MILLIS_PER_HOUR)
+    fun purgeFailedEntries() {
+        val before = PFDateTime.now().minusDays(FAILED_EXPIRE_DAYS).utilDate
+        val count = persistenceService.runInTransaction { context ->
+            context.executeNamedUpdate(
+                MailOutboxDO.DELETE_OLD_BY_STATUS,
+                Pair("status", MailOutboxDO.Status.FAILED),
+                Pair("before", before),
+            )
+        }
+        if (count > 0) {
+            log.info { "$count failed e-mails older than $FAILED_EXPIRE_DAYS days removed from outbox." }
+        }
+    }
+
+    /**
+     * Re-queues mails in status SENDING, whose sender didn't finish in time (see [SENDING_LEASE_MILLIS]), e.g. after
+     * unexpected errors. Retries also the deletion of sent mails (see [sentButNotDeleted]).
+     */
+    @Scheduled(fixedDelay = RESET_STALE_INTERVAL_MILLIS, initialDelay = RESET_STALE_INTERVAL_MILLIS)
+    fun resetStaleEntries() {
+        if (!initialized) {
+            return
+        }
+        sentButNotDeleted.toList().forEach { id ->
+            if (deleteSentEntry(id)) {
+                sentButNotDeleted.remove(id)
+            }
+        }
+        val count = persistenceService.runInNewTransaction { context ->
+            val ids = context.executeNamedQuery(
+                MailOutboxDO.SELECT_DUE_IDS,
+                Long::class.java,
+                Pair("status", MailOutboxDO.Status.SENDING),
+                Pair("now", Date()),
+            ).filter { !sentButNotDeleted.contains(it) }
+            if (ids.isEmpty()) {
+                0
+            } else {
+                context.executeNamedUpdate(
+                    MailOutboxDO.UPDATE_STATUS_BY_IDS,
+                    Pair("status", MailOutboxDO.Status.QUEUED),
+                    Pair("nextAttempt", Date()),
+                    Pair("ids", ids),
+                )
+            }
+        }
+        if (count > 0) {
+            log.warn { "$count stale e-mails of outbox (status SENDING) re-queued." }
+            wakeUp()
+        }
+    }
+
+    private fun wakeUp() {
+        if (!initialized) {
+            return // Nothing to deliver before initialization.
+        }
+        lock.withLock {
+            if (dispatcher == null) {
+                val threads = senders.coerceAtLeast(1)
+                executor = Executors.newFixedThreadPool(threads) { runnable ->
+                    Thread(runnable, "MailOutbox-sender").also { it.isDaemon = true }
+                }
+                dispatcher = Thread({ dispatch(threads) }, "MailOutbox-dispatcher").also {
+                    it.isDaemon = true
+                    it.start()
+                }
+            }
+            pending = true
+            wakeUpCondition.signalAll()
+        }
+    }
+
+    /**
+     * Runs in the dispatcher thread: claims batches of due mails and hands them over to free senders.
+     */
+    private fun dispatch(threads: Int) {
+        val permits = Semaphore(threads)
+        try {
+            resetClaimedEntries()
+            while (!Thread.currentThread().isInterrupted) {
+                permits.acquire()
+                val ids = try {
+                    claimDueEntries()
+                } catch (ex: Exception) {
+                    log.error("Error while reading mail outbox: ${ex.message}", ex)
+                    emptyList()
+                }
+                if (ids.isEmpty()) {
+                    permits.release()
+                    lock.withLock {
+                        if (!pending) {
+                            wakeUpCondition.await(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)
+                        }
+                        pending = false
+                    }
+                    continue
+                }
+                val pool = lock.withLock { executor } ?: return
+                pool.execute {
+                    try {
+                        sendBatch(ids)
+                    } finally {
+                        permits.release()
+                    }
+                }
+            }
+        } catch (ex: InterruptedException) {
+            log.info { "Mail outbox dispatcher stopped." }
+        }
+    }
+
+    /**
+     * Entries in status SENDING weren't finished by the last run of ProjectForge.
+     */
+    private fun resetClaimedEntries() {
+        val count = persistenceService.runInNewTransaction { context ->
+            context.executeNamedUpdate(
+                MailOutboxDO.RESET_STATUS,
+                Pair("newStatus", MailOutboxDO.Status.QUEUED),
+                Pair("status", MailOutboxDO.Status.SENDING),
+            )
+        }
+        if (count > 0) {
+            log.info { "$count unfinished e-mails of outbox re-queued." }
+        }
+    }
+
+    private fun claimDueEntries(): List<Long> {
+        return persistenceService.runInNewTransaction { context ->
+            val ids = context.executeNamedQuery(
+                MailOutboxDO.SELECT_DUE_IDS,
+                Long::class.java,
+                Pair("status", MailOutboxDO.Status.QUEUED),
+                Pair("now", Date()),
+                maxResults = BATCH_SIZE,
+            )
+            if (ids.isNotEmpty()) {
+                // nextAttempt is used as lease, see resetStaleEntries:
+                context.executeNamedUpdate(
+                    MailOutboxDO.UPDATE_STATUS_BY_IDS,
+                    Pair("status", MailOutboxDO.Status.SENDING),
+                    Pair("nextAttempt", Date(System.currentTimeMillis() + SENDING_LEASE_MILLIS)),
+                    Pair("ids", ids),
+                )
+            }
+            ids
+        }
+    }
+
+    /**
+     * Sends all mails of the given batch over one SMTP connection (a new connection is only opened after errors).
+     * Mails of the batch not processed due to unexpected errors are re-queued.
+     */
+    private fun sendBatch(ids: List<Long>) {
+        // Mails neither sent nor marked as failed yet:
+        val unprocessed = LinkedHashSet(ids)
+        var transport: Transport? = null
+        try {
+            val session = sessionSupplier!!.invoke()
+            for (id in ids) {
+                val entry = persistenceService.find(MailOutboxDO::class.java, id)
+                if (entry == null) {
+                    unprocessed.remove(id)
+                    continue
+                }
+                val message = try {
+                    MimeMessage(session, ByteArrayInputStream(entry.message))
+                } catch (ex: Exception) {
+                    attemptFailed(id, ex)
+                    unprocessed.remove(id)
+                    continue
+                }
+                if (transport == null || !transport.isConnected) {
+                    closeQuietly(transport)
+                    transport = null
+                    try {
+                        transport = session.getTransport("smtp").also { it.connect() }
+                        statistics.connections.incrementAndGet()
+                    } catch (ex: Exception) {
+                        // SMTP server not available, all remaining mails of this batch will be retried later.
+                        log.error("Can't connect to SMTP server: ${ex.message}", ex)
+                        unprocessed.toList().forEach {
+                            attemptFailed(it, ex)
+                            unprocessed.remove(it)
+                        }
+                        return
+                    }
+                }
+                rateLimiter.acquire(maxMailsPerMinute)
+                val started = System.nanoTime()
+                try {
+                    transport!!.sendMessage(message, message.allRecipients)
+                } catch (ex: Exception) {
+                    closeQuietly(transport)
+                    transport = null
+                    attemptFailed(id, ex)
+                    unprocessed.remove(id)
+                    continue
+                }
+                unprocessed.remove(id) // Sent, so never send it again.
+                statistics.addSent(
+                    sendNanos = System.nanoTime() - started,
+                    latencyMillis = System.currentTimeMillis() - entry.created!!.time,
+                )
+                if (!deleteSentEntry(id)) {
+                    sentButNotDeleted.add(id)
+                }
+                log.info { "E-Mail successfully sent (outbox id=$id): ${entry.info}" }
+            }
+        } catch (ex: InterruptedException) {
+            Thread.currentThread().interrupt()
+        } catch (ex: Exception) {
+            log.error("Error while sending e-mails of outbox: ${ex.message}", ex)
+        } finally {
+            closeQuietly(transport)
+            if (unprocessed.isNotEmpty()) {
+                requeue(unprocessed)
+            }
+        }
+    }
+
+    /**
+     * @return true, if the entry was deleted successfully.
+     */
+    private fun deleteSentEntry(id: Long): Boolean {
+        return try {
+            persistenceService.runInNewTransaction { context ->
+                context.delete(MailOutboxDO::class.java, id)
+            }
+            true
+        } catch (ex: Exception) {
+            log.error("Can't delete sent e-mail from outbox (outbox id=$id), will be retried: ${ex.message}", ex)
+            false
+        }
+    }
+
+    /**
+     * Re-queues the given entries (status SENDING) for immediate delivery. On failure, they're re-queued later by
+     * [resetStaleEntries].
+     */
+    private fun requeue(ids: Collection<Long>) {
+        try {
+            persistenceService.runInNewTransaction { context ->
+                context.executeNamedUpdate(
+                    MailOutboxDO.UPDATE_STATUS_BY_IDS,
+                    Pair("status", MailOutboxDO.Status.QUEUED),
+                    Pair("nextAttempt", Date()),
+                    Pair("ids", ids),
+                )
+            }
+            log.warn { "${ids.size} unprocessed e-mails of outbox re-queued." }
+        } catch (ex: Exception) {
+            log.error("Can't re-queue e-mails (outbox ids=${ids.joinToString()}): ${ex.message}", ex)
+        }
+    }
+
+    private fun attemptFailed(id: Long, ex: Exception) {
+        persistenceService.runInNewTransaction { context ->
+            val entry = context.find(MailOutboxDO::class.java, id, attached = true) ?: return@runInNewTransaction
+            entry.attempts += 1
+            entry.lastError = (ex.message ?: ex::class.java.name).abbreviate(1000)
+            if (entry.attempts >= maxAttempts) {
+                entry.status = MailOutboxDO.Status.FAILED
+                statistics.failed.incrementAndGet()
+                log.error { "Sending of e-mail failed finally after ${entry.attempts} attempts (outbox id=$id): ${entry.info}: ${entry.lastError}" }
+            } else {
+                entry.status = MailOutboxDO.Status.QUEUED
+                entry.nextAttempt = Date(System.currentTimeMillis() + getRetryDelayMillis(entry.attempts))
+                statistics.retries.incrementAndGet()
+                log.warn { "Sending of e-mail failed (attempt ${entry.attempts}, next attempt at ${entry.nextAttempt}, outbox id=$id): ${entry.info}: ${entry.lastError}" }
+            }
+        }
+    }
+
+    private fun countByStatus(status: MailOutboxDO.Status): Long {
+        return persistenceService.selectNamedSingleResult(
+            MailOutboxDO.COUNT_BY_STATUS,
+            Long::class.java,
+            Pair("status", status),
+        ) ?: 0L
+    }
+
+    private fun closeQuietly(transport: Transport?) {
+        try {
+            transport?.close()
+        } catch (ex: Exception) {
+            log.debug { "Error while closing SMTP connection: ${ex.message}" }
+        }
+    }
+
+    private fun getInfo(message: MimeMessage): String {
+        return "to=${message.allRecipients?.joinToString()}, subject=${message.subject}".abbreviate(1000)
+    }
+
+    internal class Statistics {
+        val queued = AtomicLong()
+        val sent = AtomicLong()
+        val retries = AtomicLong()
+        val failed = AtomicLong()
+        val connections = AtomicLong()
+        private val sendNanos = AtomicLong()
+        private val latencyMillis = AtomicLong()
+        private val maxLatency = AtomicLong()
+
+        fun addSent(sendNanos: Long, latencyMillis: Long) {
+            sent.incrementAndGet()
+            this.sendNanos.addAndGet(sendNanos)
+            this.latencyMillis.addAndGet(latencyMillis)
+            maxLatency.accumulateAndGet(latencyMillis, ::maxOf)
+        }
+
+        /**
+         * Average time in millis of the SMTP send call.
+         */
+        val averageSendMillis: Long
+            get() = sent.get().let { if (it == 0L) 0L else sendNanos.get() / it / 1_000_000 }
+
+        /**
+         * Average time in millis between queuing and successful delivery.
+         */
+        val averageLatencyMillis: Long
+            get() = sent.get().let { if (it == 0L) 0L else latencyMillis.get() / it }
+
+        val maxLatencyMillis: Long
+            get() = maxLatency.get()
+    }
+
+    /**
+     * Spreads the mails evenly: one mail every (1 minute / maxMailsPerMinute).
+     */
+    private class RateLimiter {
+        private var nextSlot = Long.MIN_VALUE
+
+        fun acquire(maxMailsPerMinute: Int) {
+            if (maxMailsPerMinute <= 0) {
+                return
+            }
+            val intervalNanos = TimeUnit.MINUTES.toNanos(1) / maxMailsPerMinute
+            val waitNanos = synchronized(this) {
+                val now = System.nanoTime()
+                val slot = maxOf(now, nextSlot)
+                nextSlot = slot + intervalNanos
+                slot - now
+            }
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos)
+            }
+        }
+    }
+
+    companion object {
+        internal const val BATCH_SIZE = 20
+
+        private const val POLL_INTERVAL_MILLIS = 10_000L
+
+        /**
+         * Mails in status SENDING are re-queued after this time (a batch is sent within a few seconds, if not
+         * throttled by [maxMailsPerMinute]).
+         */
+        private const val SENDING_LEASE_MILLIS = Constants.MILLIS_PER_HOUR
+
+        private const val RESET_STALE_INTERVAL_MILLIS = 10 * Constants.MILLIS_PER_MINUTE
+
+        private const val FAILED_EXPIRE_DAYS = 30L
+
+        private const val RETRY_BASE_DELAY_MILLIS = Constants.MILLIS_PER_MINUTE
+
+        private const val RETRY_MAX_DELAY_MILLIS = Constants.MILLIS_PER_HOUR
+
+        /**
+         * Exponential backoff: 1, 2, 4, ... minutes after the 1st, 2nd, 3rd, ... failed attempt, 1 hour at maximum.
+         */
+        internal fun getRetryDelayMillis(attempts: Int): Long {
+            val exponent = (attempts - 1).coerceIn(0, 20)
+            return (RETRY_BASE_DELAY_MILLIS shl exponent).coerceAtMost(RETRY_MAX_DELAY_MILLIS)
+        }
+    }
+}
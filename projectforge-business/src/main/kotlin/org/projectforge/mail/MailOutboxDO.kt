@@ -0,0 +1,119 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.mail
+
+import jakarta.persistence.*
+import org.projectforge.framework.persistence.api.IdObject
+import java.util.Date
+
+/**
+ * Persistent entry of the mail outbox. The message is stored as serialized MIME message (RFC 822), so
+ * queued mails survive restarts of ProjectForge.
+ *
+ * @see MailOutbox
+ */
+@NamedQueries(
+    NamedQuery(
+        name = MailOutboxDO.SELECT_DUE_IDS,
+        query = "select id from MailOutboxDO where status = :status and nextAttempt <= :now order by nextAttempt, id"
+    ),
+    NamedQuery(
+        name = MailOutboxDO.UPDATE_STATUS_BY_IDS,
+        query = "update MailOutboxDO set status = :status, nextAttempt = :nextAttempt where id in :ids"
+    ),
+    NamedQuery(
+        name = MailOutboxDO.RESET_STATUS,
+        query = "update MailOutboxDO set status = :newStatus where status = :status"
+    ),
+    NamedQuery(
+        name = MailOutboxDO.COUNT_BY_STATUS,
+        query = "select count(*) from MailOutboxDO where status = :status"
+    ),
+    NamedQuery(
+        name = MailOutboxDO.DELETE_OLD_BY_STATUS,
+        query = "delete from MailOutboxDO where status = :status and created < :before"
+    ),
+)
+@Entity
+@Table(
+    name = "T_MAIL_OUTBOX",
+    indexes = [jakarta.persistence.Index(name = "idx_mail_outbox_status", columnList = "status, next_attempt")]
+)
+open class MailOutboxDO : IdObject<Long> {
+    enum class Status {
+        /** Waiting for (next) delivery attempt. */
+        QUEUED,
+
+        /** Claimed by a sender of the outbox. */
+        SENDING,
+
+        /** All attempts failed, the mail won't be sent anymore. */
+        FAILED
+    }
+
+    @get:Id
+    @get:GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "hibernate_sequence")
+    @get:Column(name = "pk")
+    override open var id: Long? = null
+
+    @get:Column(nullable = false)
+    open var created: Date? = null
+
+    @get:Column(length = 10, nullable = false)
+    @get:Enumerated(EnumType.STRING)
+    open var status: Status? = null
+
+    /**
+     * Number of failed delivery attempts.
+     */
+    @get:Column(nullable = false)
+    open var attempts: Int = 0
+
+    @get:Column(name = "next_attempt", nullable = false)
+    open var nextAttempt: Date? = null
+
+    /**
+     * Recipients and subject, only for logging and administration purposes.
+     */
+    @get:Column(length = 1000)
+    open var info: String? = null
+
+    @get:Column(name = "last_error", length = 1000)
+    open var lastError: String? = null
+
+    /**
+     * The serialized MIME message.
+     */
+    @get:Column(columnDefinition = "BLOB")
+    @get:Basic(fetch = FetchType.LAZY)
+    open var message: ByteArray? = null
+
+    companion object {
+        internal const val SELECT_DUE_IDS = "MailOutboxDO.selectDueIds"
+        internal const val UPDATE_STATUS_BY_IDS = "MailOutboxDO.updateStatusByIds"
+        internal const val RESET_STATUS = "MailOutboxDO.resetStatus"
+        internal const val COUNT_BY_STATUS = "MailOutboxDO.countByStatus"
+        internal const val DELETE_OLD_BY_STATUS = "MailOutboxDO.deleteOldByStatus"
+    }
+}
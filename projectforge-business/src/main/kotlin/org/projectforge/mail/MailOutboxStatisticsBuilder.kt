@@ -0,0 +1,57 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.mail
+
+import org.projectforge.business.admin.SystemStatisticsData
+import org.projectforge.business.admin.SystemsStatisticsBuilderInterface
+import org.projectforge.common.extensions.formatForUser
+
+internal class MailOutboxStatisticsBuilder(private val mailOutbox: MailOutbox) : SystemsStatisticsBuilderInterface {
+    override fun addStatisticsEntries(stats: SystemStatisticsData) {
+        val statistics = mailOutbox.statistics
+        val sb = StringBuilder()
+        sb.append("queue depth=")
+            .append(mailOutbox.queueDepth.formatForUser())
+            .append(", failed=")
+            .append(mailOutbox.failedCount.formatForUser())
+            .append(", queued=")
+            .append(statistics.queued.get().formatForUser())
+            .append(", sent=")
+            .append(statistics.sent.get().formatForUser())
+            .append(", retries=")
+            .append(statistics.retries.get().formatForUser())
+            .append(", finally failed=")
+            .append(statistics.failed.get().formatForUser())
+            .append(", SMTP connections=")
+            .append(statistics.connections.get().formatForUser())
+            .append(", send time avg=")
+            .append(statistics.averageSendMillis.formatForUser())
+            .append("ms, latency avg/max=")
+            .append(statistics.averageLatencyMillis.formatForUser())
+            .append("/")
+            .append(statistics.maxLatencyMillis.formatForUser())
+            .append("ms")
+        stats.add("MailOutbox", "system", "'Mail outbox", sb.toString())
+    }
+}
@@ -66,6 +66,9 @@ open class SendMail {
   @Autowired
   private lateinit var domainService: DomainService
 
+  @Autowired
+  private lateinit var mailOutbox: MailOutbox
+
   enum class Protocol {
     Plain, StartTLS, SSL;
 
@@ -116,6 +119,9 @@ open class SendMail {
   @PostConstruct
   private fun postConstruct() {
     log.info { info }
+    if (isConfigured && !testMode) {
+      mailOutbox.initialize { session }
+    }
   }
 
   /**
@@ -136,6 +142,7 @@ open class SendMail {
    * @param composedMessage the message to send
    * @param icalContent     the ical content to add
    * @param attachments     other attachments to add
+   * @param async           if true (default), the message is stored in the [MailOutbox] and sent asynchronously.
    * @return true for successful sending, otherwise an exception will be thrown.
    * @throws UserException          if to address is not given.
    * @throws InternalErrorException due to technical failures.
@@ -159,7 +166,13 @@ open class SendMail {
       log.error("No to address given. Sending of mail cancelled: $composedMessage")
       throw UserException("mail.error.missingToAddress")
     }
-    if (async) {
+    if (async && !testMode) {
+      if (!mailOutbox.initialized) {
+        log.error { "Mail outbox isn't initialized (sending of mails not configured). Mail is ignored: $composedMessage" }
+        return false
+      }
+      enqueue(composedMessage, icalContent, attachments)
+    } else if (async) {
       CompletableFuture.runAsync { sendIt(composedMessage, icalContent, attachments) }
     } else {
       sendIt(composedMessage, icalContent, attachments)
@@ -170,7 +183,7 @@ open class SendMail {
   val isConfigured: Boolean
     get() = this.mailingEnabled == "true" && !this.mailSmtpHost.isNullOrBlank()
 
-  private val session: Session?
+  private val session: Session
     get() {
       val properties = Properties()
       properties["mail.smtp.host"] = this.mailSmtpHost // Replace with your SMTP server
@@ -206,55 +219,25 @@ open class SendMail {
       return Session.getInstance(properties)
     }
 
+  private fun enqueue(
+    composedMessage: Mail, icalContent: String?,
+    attachments: Collection<IMailAttachment>?
+  ) {
+    try {
+      mailOutbox.enqueue(createMessage(composedMessage, icalContent, attachments))
+    } catch (ex: Exception) {
+      log.error("While creating and queuing message: $composedMessage", ex)
+      throw InternalErrorException("mail.error.exception")
+    }
+  }
+
   private fun sendIt(
     composedMessage: Mail, icalContent: String?,
     attachments: Collection<IMailAttachment>?
   ) {
     log.info("Start sending e-mail message: " + StringUtils.join(composedMessage.to, ", "))
     try {
-      val session = session
-      /*if (SystemStatus.isDevelopmentMode()) {
-        session!!.setDebug(true)
-      }*/
-      val message = MimeMessage(session)
-      if (composedMessage.from != null) {
-        message.setFrom(InternetAddress(composedMessage.from))
-      } else {
-        mailFromStandardEmailSender
-          ?.takeIf { it.isNotBlank() }
-          ?.let { message.setFrom(InternetAddress(it)) }
-          ?: message.setFrom()
-      }
-      message.setRecipients(
-        Message.RecipientType.TO,
-        composedMessage.to.toTypedArray<Address>()
-      )
-      if (CollectionUtils.isNotEmpty(composedMessage.cc)) {
-        message.setRecipients(
-          Message.RecipientType.CC,
-          composedMessage.cc.toTypedArray<Address>()
-        )
-      }
-      //message.setHeader("Return-Path", "")
-      //message.setHeader("Reply-To", "")
-      val subject = composedMessage.subject
-      message.setSubject(subject, CHARSET)
-      message.sentDate = Date()
-      if (StringUtils.isBlank(icalContent) && attachments == null) {
-        // create message without attachments
-        if (composedMessage.contentType != null) {
-          message.setText(composedMessage.content, composedMessage.charset, composedMessage.contentType)
-        } else {
-          message.setText(composedMessage.content, CHARSET)
-        }
-        // message.setContent("Dies ist eine einfache Testnachricht.", "text/plain; charset=UTF-8");
-        // message.setText("Einfache Textnachricht")
-      } else {
-        // create message with attachments
-        val mp = createMailAttachmentContent(message, composedMessage, icalContent, attachments, CHARSET)
-        message.setContent(mp)
-      }
-      message.saveChanges() // don't forget this
+      val message = createMessage(composedMessage, icalContent, attachments)
       if (testMode) {
         log.info("Test mode, do not really send e-mails (OK only for test cases).")
       } else {
@@ -267,6 +250,57 @@ open class SendMail {
     log.info("E-Mail successfully sent: $composedMessage")
   }
 
+  @Throws(MessagingException::class)
+  private fun createMessage(
+    composedMessage: Mail, icalContent: String?,
+    attachments: Collection<IMailAttachment>?
+  ): MimeMessage {
+    val session = session
+    /*if (SystemStatus.isDevelopmentMode()) {
+      session!!.setDebug(true)
+    }*/
+    val message = MimeMessage(session)
+    if (composedMessage.from != null) {
+      message.setFrom(InternetAddress(composedMessage.from))
+    } else {
+      mailFromStandardEmailSender
+        ?.takeIf { it.isNotBlank() }
+        ?.let { message.setFrom(InternetAddress(it)) }
+        ?: message.setFrom()
+    }
+    message.setRecipients(
+      Message.RecipientType.TO,
+      composedMessage.to.toTypedArray<Address>()
+    )
+    if (CollectionUtils.isNotEmpty(composedMessage.cc)) {
+      message.setRecipients(
+        Message.RecipientType.CC,
+        composedMessage.cc.toTypedArray<Address>()
+      )
+    }
+    //message.setHeader("Return-Path", "")
+    //message.setHeader("Reply-To", "")
+    val subject = composedMessage.subject
+    message.setSubject(subject, CHARSET)
+    message.sentDate = Date()
+    if (StringUtils.isBlank(icalContent) && attachments == null) {
+      // create message without attachments
+      if (composedMessage.contentType != null) {
+        message.setText(composedMessage.content, composedMessage.charset, composedMessage.contentType)
+      } else {
+        message.setText(composedMessage.content, CHARSET)
+      }
+      // message.setContent("Dies ist eine einfache Testnachricht.", "text/plain; charset=UTF-8");
+      // message.setText("Einfache Textnachricht")
+    } else {
+      // create message with attachments
+      val mp = createMailAttachmentContent(message, composedMessage, icalContent, attachments, CHARSET)
+      message.setContent(mp)
+    }
+    message.saveChanges() // don't forget this
+    return message
+  }
+
   @Throws(MessagingException::class)
   private fun createMailAttachmentContent(
     message: MimeMessage, composedMessage: Mail, icalContent: String?,
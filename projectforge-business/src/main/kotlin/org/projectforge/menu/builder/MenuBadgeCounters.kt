@@ -0,0 +1,231 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+package org.projectforge.menu.builder
+
+import mu.KotlinLogging
+import org.projectforge.framework.persistence.user.api.ThreadLocalUserContext
+import org.projectforge.framework.persistence.user.api.UserContext
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.Executors
+
+private val log = KotlinLogging.logger {}
+
+/**
+ * Badge counters of the menu items (e.g. open leave applications or orders to be invoiced) per user. The counters are
+ * computed in the background and the listeners (e.g. for pushing the counters to the clients) are notified about
+ * changed counters. So building the menu doesn't compute the counters on every request.
+ *
+ * Only the first request of a user computes the counters synchronously, expired counters are used until the
+ * recomputation in the background is done.
+ *
+ * The counters hold the user context, so they are removed on logout ([evict]) or if they weren't requested for
+ * [EVICT_MILLIS] and no listener is subscribed for the user (e.g. session ended without logout).
+ */
+internal class MenuBadgeCounters {
+    /**
+     * @param userContext The user context and the menu item definitions of the last computation, used for
+     * recomputing after [expireAll].
+     */
+    private class Counters(
+        val values: Map<String, Int>,
+        val userContext: UserContext,
+        val menuItemDefs: Collection<MenuItemDef>,
+        val timestamp: Long = System.currentTimeMillis(),
+        lastAccess: Long = timestamp,
+    ) {
+        /**
+         * Time of the last request of the counters by the user (menu building), not updated by background
+         * recomputations.
+         */
+        @Volatile
+        var lastAccess: Long = lastAccess
+    }
+
+    private class Listener(val listener: (userId: Long) -> Unit, val isSubscribed: (userId: Long) -> Boolean)
+
+    /**
+     * Key is the user id, values are the counters by menu item id.
+     */
+    private val countersByUser = ConcurrentHashMap<Long, Counters>()
+
+    /**
+     * Users with recomputation in progress.
+     */
+    private val inProgress = ConcurrentHashMap.newKeySet<Long>()
+
+    private val listeners = CopyOnWriteArrayList<Listener>()
+
+    @Volatile
+    private var lastEviction = System.currentTimeMillis()
+
+    private val executor = Executors.newFixedThreadPool(2) { runnable ->
+        Thread(runnable, "MenuBadgeCounters").also { it.isDaemon = true }
+    }
+
+    /**
+     * @param userContext The user context of the logged-in user (badge counters of the menu item definitions refer
+     * to the logged-in user).
+     * @param menuItemDefs The menu item definitions with badge counters visible for the user.
+     * @return The current counters by menu item id (may be expired, recomputation is triggered in this case).
+     */
+    fun getCounters(userContext: UserContext, menuItemDefs: Collection<MenuItemDef>): Map<String, Int> {
+        val userId = userContext.user?.id ?: return emptyMap()
+        if (menuItemDefs.isEmpty()) {
+            return emptyMap()
+        }
+        val now = System.currentTimeMillis()
+        if (now - lastEviction > EXPIRE_MILLIS) {
+            evictUnused()
+        }
+        val counters = countersByUser[userId]
+        if (counters == null) {
+            // First request of this user:
+            return compute(userContext, menuItemDefs)
+        }
+        counters.lastAccess = now
+        if (now - counters.timestamp > EXPIRE_MILLIS) {
+            recompute(userContext, menuItemDefs)
+        }
+        return counters.values
+    }
+
+    /**
+     * Gets the current counters of the given user without computing or recomputing anything.
+     */
+    fun getCachedCounters(userId: Long): Map<String, Int>? {
+        return countersByUser[userId]?.values
+    }
+
+    /**
+     * Recomputes the counters of the given user in the background, if not already in progress.
+     */
+    fun recompute(userContext: UserContext, menuItemDefs: Collection<MenuItemDef>) {
+        val userId = userContext.user?.id ?: return
+        if (!inProgress.add(userId)) {
+            return // Already in progress.
+        }
+        try {
+            executor.execute {
+                try {
+                    ThreadLocalUserContext.userContext = userContext
+                    val old = countersByUser[userId]?.values
+                    val values = compute(userContext, menuItemDefs)
+                    if (values != old) {
+                        listeners.forEach { listener ->
+                            try {
+                                listener.listener(userId)
+                            } catch (ex: Exception) {
+                                log.error(ex) { "Error while notifying badge counter listener: ${ex.message}" }
+                            }
+                        }
+                    }
+                } finally {
+                    ThreadLocalUserContext.clear()
+                    inProgress.remove(userId)
+                }
+            }
+        } catch (ex: Exception) {
+            inProgress.remove(userId)
+            log.error(ex) { "Can't schedule recomputation of badge counters: ${ex.message}" }
+        }
+    }
+
+    /**
+     * Expires the counters of all users, so they will be recomputed on next request (e.g. after orders are modified).
+     * The current counters are used until the recomputation is done. The counters of users subscribed by any listener
+     * (e.g. clients waiting for pushed counters) are recomputed in the background immediately.
+     */
+    fun expireAll() {
+        evictUnused()
+        countersByUser.replaceAll { _, counters ->
+            Counters(
+                counters.values, counters.userContext, counters.menuItemDefs,
+                timestamp = 0L, lastAccess = counters.lastAccess,
+            )
+        }
+        if (listeners.isEmpty()) {
+            return
+        }
+        countersByUser.forEach { (userId, counters) ->
+            if (listeners.any { it.isSubscribed(userId) }) {
+                recompute(counters.userContext, counters.menuItemDefs)
+            }
+        }
+    }
+
+    /**
+     * Removes the counters of the given user (e.g. on logout).
+     */
+    fun evict(userId: Long) {
+        countersByUser.remove(userId)
+    }
+
+    /**
+     * Removes the counters of all users not requested for [EVICT_MILLIS] and not subscribed by any listener.
+     */
+    internal fun evictUnused(now: Long = System.currentTimeMillis()) {
+        lastEviction = now
+        countersByUser.entries.removeIf { (userId, counters) ->
+            now - counters.lastAccess > EVICT_MILLIS && listeners.none { it.isSubscribed(userId) }
+        }
+    }
+
+    /**
+     * @param listener Called, if the counters of a user were changed.
+     * @param isSubscribed Returns true, if the listener is interested in the counters of the given user, so they
+     * will be recomputed immediately after [expireAll].
+     */
+    fun addListener(listener: (userId: Long) -> Unit, isSubscribed: (userId: Long) -> Boolean) {
+        listeners.add(Listener(listener, isSubscribed))
+    }
+
+    private fun compute(userContext: UserContext, menuItemDefs: Collection<MenuItemDef>): Map<String, Int> {
+        val userId = userContext.user?.id ?: return emptyMap()
+        val values = mutableMapOf<String, Int>()
+        menuItemDefs.forEach { menuItemDef ->
+            try {
+                menuItemDef.badgeCounter?.invoke()?.let { counter ->
+                    values[menuItemDef.id] = counter
+                }
+            } catch (ex: Exception) {
+                log.error(ex) { "Can't compute badge counter of menu item '${menuItemDef.id}': ${ex.message}" }
+            }
+        }
+        val lastAccess = countersByUser[userId]?.lastAccess ?: System.currentTimeMillis()
+        countersByUser[userId] = Counters(values, userContext, menuItemDefs, lastAccess = lastAccess)
+        return values
+    }
+
+    companion object {
+        /**
+         * Counters older than this are recomputed in the background.
+         */
+        const val EXPIRE_MILLIS = 60_000L
+
+        /**
+         * Counters not requested for this time are removed, if no listener is subscribed for the user.
+         */
+        const val EVICT_MILLIS = 10 * 60_000L
+    }
+}
@@ -23,6 +23,9 @@
 
 package org.projectforge.menu.builder
 
+import jakarta.annotation.PostConstruct
+import jakarta.servlet.http.HttpServletRequest
+import jakarta.servlet.http.HttpServletResponse
 import mu.KotlinLogging
 import org.projectforge.birthdaybutler.BirthdayButlerConfiguration
 import org.projectforge.business.configuration.ConfigurationService
@@ -39,22 +42,30 @@ import org.projectforge.business.orga.PosteingangDao
 import org.projectforge.business.orga.VisitorbookDao
 import org.projectforge.business.sipgate.SipgateConfiguration
 import org.projectforge.business.user.ProjectForgeGroup
+import org.projectforge.business.user.UserGroupCache
 import org.projectforge.business.user.UserRightValue
+import org.projectforge.business.vacation.model.VacationDO
+import org.projectforge.business.vacation.repository.VacationDao
 import org.projectforge.business.vacation.service.ConflictingVacationsCache
 import org.projectforge.business.vacation.service.VacationMenuCounterCache
 import org.projectforge.business.vacation.service.VacationService
 import org.projectforge.framework.access.AccessChecker
+import org.projectforge.framework.access.OperationType
 import org.projectforge.framework.configuration.Configuration
 import org.projectforge.framework.i18n.translate
+import org.projectforge.framework.persistence.api.BaseDOModifiedListener
 import org.projectforge.framework.persistence.api.IUserRightId
 import org.projectforge.framework.persistence.api.UserRightService.*
 import org.projectforge.framework.persistence.user.api.ThreadLocalUserContext
+import org.projectforge.login.LoginService
+import org.projectforge.login.LogoutListener
 import org.projectforge.menu.Menu
 import org.projectforge.menu.MenuConfiguration
 import org.projectforge.menu.MenuItem
 import org.projectforge.sms.SmsSenderConfig
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.stereotype.Component
+import java.util.concurrent.ConcurrentHashMap
 
 private val log = KotlinLogging.logger {}
 
@@ -109,8 +120,41 @@ open class MenuCreator {
     @Autowired
     private lateinit var conflictingVacationsCache: ConflictingVacationsCache
 
+    @Autowired
+    private lateinit var auftragDao: AuftragDao
+
+    @Autowired
+    private lateinit var vacationDao: VacationDao
+
+    @Autowired
+    private lateinit var loginService: LoginService
+
     private var initialized = false
 
+    /**
+     * Cached menu structure of a user (without badges).
+     * @param badgeItemDefs The menu item definitions with badge counters by key of the menu items.
+     */
+    private class CachedMenu(
+        val fingerprint: String,
+        val menu: Menu,
+        val badgeItemDefs: Map<String, MenuItemDef>,
+        val timestamp: Long = System.currentTimeMillis(),
+    )
+
+    /**
+     * Key is the user id.
+     */
+    private val menuCache = ConcurrentHashMap<Long, CachedMenu>()
+
+    private val badgeCounters = MenuBadgeCounters()
+
+    /**
+     * Incremented on every modification of the menu definitions, so all cached menus are invalidated.
+     */
+    @Volatile
+    private var menuGeneration = 0
+
     private val pluginMenuRegistrations = mutableListOf<PluginMenuRegistration>()
 
     /**
@@ -126,12 +170,39 @@ open class MenuCreator {
          */
         @JvmStatic
         var testCase = false
+
+        /**
+         * Safeguard for dynamic access checks not covered by the fingerprint (e.g. configuration changes).
+         */
+        private const val MENU_CACHE_EXPIRE_MILLIS = 10 * 60_000L
+    }
+
+    @PostConstruct
+    private fun postConstruct() {
+        // Badge counters of orders to be invoiced, open leave applications and vacation conflicts:
+        auftragDao.register(object : BaseDOModifiedListener<AuftragDO> {
+            override fun afterInsertOrModify(obj: AuftragDO, operationType: OperationType) {
+                expireBadgeCounters()
+            }
+        })
+        vacationDao.register(object : BaseDOModifiedListener<VacationDO> {
+            override fun afterInsertOrModify(obj: VacationDO, operationType: OperationType) {
+                expireBadgeCounters()
+            }
+        })
+        // The cached menu and badge counters of a user aren't needed anymore after logout:
+        loginService.register(object : LogoutListener {
+            override fun logout(request: HttpServletRequest, response: HttpServletResponse) {
+                LoginService.getUser(request)?.id?.let { evict(it) }
+            }
+        })
     }
 
     @Synchronized
     fun refresh() {
         initialized = false
         menuItemDefHolder = MenuItemDefHolder()
+        ++menuGeneration
         initialize()
         pluginMenuRegistrations.forEach { registration ->
             findById(registration.parentId)?.let {
@@ -156,6 +227,7 @@ open class MenuCreator {
                 it.add(menuItemDef)
             } ?: log.error { "Can't add Menu ${menuItemDef.id}: parentId=$parentId not found." }
             pluginMenuRegistrations.add(PluginMenuRegistration(parentId, menuItemDef))
+            ++menuGeneration
         }
     }
 
@@ -602,18 +674,92 @@ open class MenuCreator {
 
     /**
      * Builds the user's menu.
+     *
+     * The menu structure (without badges) is cached per user and reused as long as the user's groups and rights, the
+     * locale and the menu definitions are unchanged (see [CachedMenu.fingerprint]). The badge counters are taken from
+     * [badgeCounters] and recomputed in the background.
      */
     fun build(menuCreatorContext: MenuCreatorContext): Menu {
         initialize()
+        val user = menuCreatorContext.user
+        val userId = user.id
+        val fingerprint = getFingerprint(menuCreatorContext)
+        var cachedMenu = if (userId != null) menuCache[userId] else null
+        if (cachedMenu == null || cachedMenu.fingerprint != fingerprint
+            || System.currentTimeMillis() - cachedMenu.timestamp > MENU_CACHE_EXPIRE_MILLIS
+        ) {
+            cachedMenu = buildCachedMenu(menuCreatorContext, fingerprint)
+            if (userId != null) {
+                menuCache[userId] = cachedMenu
+            }
+        }
+        val counters = ThreadLocalUserContext.userContext?.let { userContext ->
+            if (userContext.user?.id == userId) {
+                badgeCounters.getCounters(userContext, cachedMenu.badgeItemDefs.values)
+            } else null
+        } ?: emptyMap()
         val menu = Menu()
-        menuItemDefHolder.menuItems.forEach { menuItemDef ->
-            menu.add(build(null, menuItemDef, menuCreatorContext))
+        cachedMenu.menu.menuItems.forEach { menuItem ->
+            menu.add(copy(menuItem, cachedMenu, counters))
         }
         menu.postProcess()
         return menu
     }
 
-    private fun build(parent: MenuItem?, menuItemDef: MenuItemDef, menuCreatorContext: MenuCreatorContext): MenuItem? {
+    /**
+     * Gets the current badge counters of the user's menu items (by menu item key) without building the menu.
+     * The counters are available after the user's menu was built at least once.
+     * @return The counters by key of the menu items or null, if not yet available.
+     */
+    fun getBadgeCounters(userId: Long): Map<String, Int>? {
+        val cachedMenu = menuCache[userId] ?: return null
+        val counters = badgeCounters.getCachedCounters(userId) ?: return null
+        return cachedMenu.badgeItemDefs.entries.associate { (key, menuItemDef) ->
+            key to (counters[menuItemDef.id] ?: 0)
+        }
+    }
+
+    /**
+     * The listener is called (asynchronously) if the badge counters of a user were changed. Use [getBadgeCounters]
+     * for getting the new values.
+     * @param isSubscribed Returns true, if the listener is interested in the badge counters of the given user (e.g.
+     * a client is connected), so the counters are recomputed immediately after [expireBadgeCounters].
+     */
+    fun addBadgeListener(listener: (userId: Long) -> Unit, isSubscribed: (userId: Long) -> Boolean) {
+        badgeCounters.addListener(listener, isSubscribed)
+    }
+
+    /**
+     * Forces the recomputation of the badge counters of all users, e.g. if the underlying data (orders, vacations)
+     * was modified. The current counters are used until the recomputation is done.
+     */
+    fun expireBadgeCounters() {
+        badgeCounters.expireAll()
+    }
+
+    /**
+     * Removes the cached menu and badge counters of the given user (e.g. on logout).
+     */
+    fun evict(userId: Long) {
+        menuCache.remove(userId)
+        badgeCounters.evict(userId)
+    }
+
+    private fun buildCachedMenu(menuCreatorContext: MenuCreatorContext, fingerprint: String): CachedMenu {
+        val menu = Menu()
+        val badgeItemDefs = mutableMapOf<String, MenuItemDef>()
+        menuItemDefHolder.menuItems.forEach { menuItemDef ->
+            menu.add(build(null, menuItemDef, menuCreatorContext, badgeItemDefs))
+        }
+        return CachedMenu(fingerprint, menu, badgeItemDefs)
+    }
+
+    private fun build(
+        parent: MenuItem?,
+        menuItemDef: MenuItemDef,
+        menuCreatorContext: MenuCreatorContext,
+        badgeItemDefs: MutableMap<String, MenuItemDef>,
+    ): MenuItem? {
         if (!MenuConfiguration.instance.isVisible(menuItemDef)) {
             // Not visible for the user (groups customized in projectforge.properties).
             return null
@@ -621,14 +767,51 @@ open class MenuCreator {
         if (!checkAccess(menuCreatorContext, menuItemDef))
             return null // No access
         val menuItem = menuItemDef.createMenu(parent, menuCreatorContext)
+        if (menuItemDef.badgeCounter != null) {
+            menuItem.key?.let { badgeItemDefs[it] = menuItemDef }
+        }
 
         parent?.add(menuItem)
         menuItemDef.children?.forEach { childMenuItemDef ->
-            build(menuItem, childMenuItemDef, menuCreatorContext)
+            build(menuItem, childMenuItemDef, menuCreatorContext, badgeItemDefs)
         }
         return menuItem
     }
 
+    /**
+     * Deep copy of the cached menu item (the returned menu is modified by [Menu.postProcess]) including the badges.
+     */
+    private fun copy(menuItem: MenuItem, cachedMenu: CachedMenu, counters: Map<String, Int>): MenuItem {
+        val badge = cachedMenu.badgeItemDefs[menuItem.key]?.let { it.createBadge(counters[it.id]) }
+        val copy = MenuItem(
+            id = menuItem.id,
+            title = menuItem.title,
+            i18nKey = menuItem.i18nKey,
+            tooltip = menuItem.tooltip,
+            tooltipTitle = menuItem.tooltipTitle,
+            url = menuItem.url,
+            key = menuItem.key,
+            badge = badge,
+            type = menuItem.type,
+        )
+        menuItem.subMenu?.forEach { child ->
+            copy.add(copy(child, cachedMenu, counters))
+        }
+        return copy
+    }
+
+    /**
+     * All user dependent parameters the menu structure depends on.
+     */
+    private fun getFingerprint(menuCreatorContext: MenuCreatorContext): String {
+        val user = menuCreatorContext.user
+        val userGroupCache = UserGroupCache.getInstance()
+        val groupIds = userGroupCache.getUserGroups(user)?.sorted()?.joinToString(",") ?: ""
+        val rights = userGroupCache.getUserRights(user.id)
+            ?.map { "${it.rightIdString}:${it.value}" }?.sorted()?.joinToString(",") ?: ""
+        return "$menuGeneration|${menuCreatorContext.translate}|${ThreadLocalUserContext.locale}|${user.restrictedUser}|$groupIds|$rights"
+    }
+
     private fun checkAccess(menuBuilderContext: MenuCreatorContext, menuItemDef: MenuItemDef): Boolean {
         if (menuItemDef.checkAccess?.invoke() == false)
             return false
@@ -127,6 +127,7 @@ constructor(
     }
 
     /**
+     * Creates the menu item without badge (see [createBadge]).
      * @param parentMenu Only needed for building unique keys
      * @param menuCreatorContext
      */
@@ -137,15 +138,24 @@ constructor(
             menuItem.key = "${parentMenu.key}.$id"
         else
             menuItem.key = id
-        val counter = badgeCounter?.invoke()
-        if ((counter ?: -1) > 0) {
-            menuItem.badge = MenuBadge(counter, style = "danger")
-            if (badgeTooltipKey != null)
-                menuItem.badge?.tooltip = translate(badgeTooltipKey)
-        }
         return menuItem
     }
 
+    /**
+     * Badges aren't created by [createMenu], because the counters are computed asynchronously by [MenuCreator].
+     * @param counter The current counter of [badgeCounter].
+     * @return The badge or null, if the counter isn't positive.
+     */
+    internal fun createBadge(counter: Int?): MenuBadge? {
+        if ((counter ?: -1) <= 0) {
+            return null
+        }
+        val badge = MenuBadge(counter, style = "danger")
+        if (badgeTooltipKey != null)
+            badge.tooltip = translate(badgeTooltipKey)
+        return badge
+    }
+
     companion object {
         /**
          * For Java code, because Kotlin constructors with named parameter doesn't work in Java code.
@@ -0,0 +1,3 @@
+-- Index for the overlap check of time sheets (user_id, start_time, stop_time), replaces idx_timesheet_user_time.
+CREATE INDEX idx_timesheet_user_time_range ON t_timesheet (user_id, start_time, stop_time);
+DROP INDEX idx_timesheet_user_time;
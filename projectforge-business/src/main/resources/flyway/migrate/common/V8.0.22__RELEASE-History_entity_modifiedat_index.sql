@@ -0,0 +1,2 @@
+-- Index for the exists subquery of list filters by modification (user and/or time period) of the history entries.
+CREATE INDEX ix_pf_history_ent_mod ON t_pf_history (entity_name, entity_id, modifiedat);
@@ -0,0 +1,17 @@
+-- Persistent outbox of SendMail, see MailOutbox.
+CREATE TABLE t_mail_outbox
+(
+    pk           BIGINT                      NOT NULL,
+    created      TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    status       CHARACTER VARYING(10)       NOT NULL,
+    attempts     INTEGER                     NOT NULL,
+    next_attempt TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    info         CHARACTER VARYING(1000),
+    last_error   CHARACTER VARYING(1000),
+    message      BYTEA
+);
+
+ALTER TABLE t_mail_outbox
+    ADD CONSTRAINT t_mail_outbox_pkey PRIMARY KEY (pk);
+
+CREATE INDEX idx_mail_outbox_status ON t_mail_outbox (status, next_attempt);
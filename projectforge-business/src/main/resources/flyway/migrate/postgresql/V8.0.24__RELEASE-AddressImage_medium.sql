@@ -0,0 +1,2 @@
+-- Medium sized rendition of address images (AddressImageRendition.PREVIEW).
+ALTER TABLE t_address_image ADD COLUMN image_medium BYTEA;
@@ -0,0 +1,84 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+package org.projectforge.business.ldap;
+
+import org.junit.jupiter.api.Test;
+import org.projectforge.framework.persistence.user.entities.GroupDO;
+import org.projectforge.framework.persistence.user.entities.PFUserDO;
+
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LdapSyncJournalTest {
+  @Test
+  void journalTest() {
+    final LdapSyncJournal journal = new LdapSyncJournal();
+    final PFUserDO user1 = createUser(1L, "kai");
+    final PFUserDO user2 = createUser(2L, "horst");
+    final GroupDO group = new GroupDO();
+    group.setId(10L);
+    group.setName("developers");
+    group.setAssignedUsers(new HashSet<>());
+    group.getAssignedUsers().add(user1);
+    group.getAssignedUsers().add(user2);
+
+    long now = 1_000_000L;
+    assertTrue(journal.startSync(now), "First synchronization is a full one.");
+    assertTrue(journal.isModified(user1));
+    journal.synced(user1);
+    journal.synced(user2);
+    journal.synced(group);
+    journal.finishSync(now);
+
+    now += 1000;
+    assertFalse(journal.startSync(now));
+    assertFalse(journal.isModified(user1));
+    assertFalse(journal.isModified(group));
+
+    user2.setEmail("horst@acme.com");
+    assertTrue(journal.isModified(user2));
+    assertFalse(journal.isModified(group), "Assigned user not yet synchronized.");
+    journal.synced(user2);
+    assertTrue(journal.isModified(group), "Assigned user was modified.");
+    journal.synced(group);
+    assertFalse(journal.isModified(group));
+
+    group.setDescription("All developers");
+    assertTrue(journal.isModified(group));
+    journal.remove(user1);
+    assertTrue(journal.isModified(user1), "Removed users (e. g. after errors) are synchronized again.");
+    journal.finishSync(now);
+
+    assertTrue(journal.startSync(now + LdapSyncJournal.FULL_SYNC_INTERVAL + 1));
+    assertTrue(journal.isModified(user2), "Full synchronization clears the journal.");
+  }
+
+  private PFUserDO createUser(final Long id, final String username) {
+    final PFUserDO user = new PFUserDO();
+    user.setId(id);
+    user.setUsername(username);
+    return user;
+  }
+}
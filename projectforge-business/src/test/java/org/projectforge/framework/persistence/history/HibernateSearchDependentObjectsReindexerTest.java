@@ -57,6 +57,25 @@ public class HibernateSearchDependentObjectsReindexerTest
     assertEntry(list.get(3), UserPrefDO.class, "user");
   }
 
+  @Test
+  public void queue()
+  {
+    final HibernateSearchDependentObjectsReindexer reindexer = new HibernateSearchDependentObjectsReindexer();
+    reindexer.map.clear();
+    reindexer.register(TaskDO.class);
+    final PFUserDO user = new PFUserDO();
+    user.setId(1L);
+    reindexer.reindexDependents(user);
+    reindexer.reindexDependents(user);
+    final TaskDO task = new TaskDO();
+    task.setId(2L);
+    reindexer.reindexDependents(task); // No dependents of tasks registered.
+    assertEquals(1, reindexer.getQueueDepth());
+    assertEquals(1, reindexer.getEnqueuedCounter().get());
+    assertEquals(1, reindexer.getDeduplicatedCounter().get());
+    reindexer.shutdown();
+  }
+
   private void assertEntry(final HibernateSearchDependentObjectsReindexer.Entry entry, final Class<?> clazz,
       final String fieldName)
   {
@@ -32,6 +32,8 @@ import org.projectforge.business.timesheet.TimesheetDao;
 import org.projectforge.common.i18n.UserException;
 import org.projectforge.common.task.TaskStatus;
 import org.projectforge.framework.access.AccessException;
+import org.projectforge.framework.persistence.api.QueryFilter;
+import org.projectforge.framework.persistence.api.impl.DBPredicate;
 import org.projectforge.framework.time.DatePrecision;
 import org.projectforge.framework.time.PFDateTime;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,9 +42,9 @@ import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.Month;
 import java.util.Date;
+import java.util.List;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class TimesheetTest extends AbstractTestBase {
     // private static final Logger log = Logger.getLogger(TaskTest.class);
@@ -81,6 +83,11 @@ public class TimesheetTest extends AbstractTestBase {
             assertEquals("A lot of stuff done and more.", ts.getShortDescription(), "Field should not be overwritten");
             assertEquals("A lot of stuff done and more.", ts.getDescription(), "Field should not be overwritten");
             assertEquals("Office", ts.getLocation(), "Field should not be overwritten");
+            // User has no access to any task, so only the own time sheets are selected by the database:
+            assertInstanceOf(DBPredicate.Equal.class, timesheetDao.getSelectAccessPredicate(getUser("ts-hasSelectAccess-user")));
+            final List<TimesheetDO> list = timesheetDao.select(new QueryFilter());
+            assertEquals(1, list.size());
+            assertEquals(id[0], list.get(0).getId());
             return null;
         });
 
@@ -185,6 +192,53 @@ public class TimesheetTest extends AbstractTestBase {
         });
     }
 
+    @Test
+    public void testFindTimeOverlaps() {
+        persistenceService.runInTransaction(context ->
+        {
+            logon(AbstractTestBase.ADMIN);
+            initTestDB.addTask("timesheet-batch", "root");
+            initTestDB.addUser("timesheet-batch-user");
+            final TimesheetDO existing = createTimesheet("timesheet-batch", "timesheet-batch-user");
+            setTimeperiod(existing, 22, 8, 0, 22, 12, 0); // 11/22 from 8:00 to 12:00
+            final Long existingId = timesheetDao.insert(existing);
+
+            final TimesheetDO ts1 = createTimesheet("timesheet-batch", "timesheet-batch-user");
+            setTimeperiod(ts1, 22, 11, 0, 22, 13, 0); // Overlap with existing time sheet.
+            final TimesheetDO ts2 = createTimesheet("timesheet-batch", "timesheet-batch-user");
+            setTimeperiod(ts2, 22, 14, 0, 22, 16, 0); // Overlap with ts3.
+            final TimesheetDO ts3 = createTimesheet("timesheet-batch", "timesheet-batch-user");
+            setTimeperiod(ts3, 22, 15, 0, 22, 17, 0); // Overlap with ts2.
+            final TimesheetDO ts4 = createTimesheet("timesheet-batch", "timesheet-batch-user");
+            setTimeperiod(ts4, 22, 17, 0, 22, 18, 0); // No overlap (adjacent to ts3).
+            final List<TimesheetDao.TimeOverlap> overlaps = timesheetDao.findTimeOverlaps(List.of(ts1, ts2, ts3, ts4));
+            assertEquals(3, overlaps.size());
+            assertSame(ts1, overlaps.get(0).getTimesheet());
+            assertEquals(existingId, overlaps.get(0).getOverlappingId());
+            assertSame(ts2, overlaps.get(1).getTimesheet());
+            assertNull(overlaps.get(1).getOverlappingId());
+            assertSame(ts3, overlaps.get(2).getTimesheet());
+
+            // Modified existing time sheet replaces its persisted version:
+            final TimesheetDO modified = timesheetDao.find(existingId, false);
+            setTimeperiod(modified, 22, 6, 0, 22, 10, 0);
+            assertTrue(timesheetDao.findTimeOverlaps(List.of(modified, ts1)).isEmpty());
+
+            // Validated time sheets pass the per-row check, modified time periods are checked again:
+            final TimesheetDO other = createTimesheet("timesheet-batch", "timesheet-batch-user");
+            setTimeperiod(other, 22, 13, 0, 22, 14, 0);
+            timesheetDao.insert(other);
+            final TimesheetDO persisted = timesheetDao.find(existingId, false);
+            timesheetDao.runWithValidatedTimeOverlaps(List.of(persisted), () -> {
+                assertFalse(timesheetDao.hasTimeOverlap(persisted, false));
+                setTimeperiod(persisted, 22, 12, 0, 22, 13, 30); // Overlap with other, checked again.
+                assertTrue(timesheetDao.hasTimeOverlap(persisted, false));
+                return null;
+            });
+            return null;
+        });
+    }
+
     @Test
     public void testTimesheetProtection() {
         persistenceService.runInTransaction(context ->
@@ -296,6 +350,13 @@ public class TimesheetTest extends AbstractTestBase {
         });
     }
 
+    private TimesheetDO createTimesheet(final String taskTitle, final String username) {
+        final TimesheetDO timesheet = new TimesheetDO();
+        timesheet.setTask(getTask(taskTitle));
+        timesheet.setUser(getUser(username));
+        return timesheet;
+    }
+
     private void setTimeperiod(final TimesheetDO timesheet, final int fromDay, final int fromHour,
                                final int fromMinute,
                                final int toDay, final int toHour, final int toMinute) {
@@ -0,0 +1,66 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.business.address
+
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+import org.projectforge.Constants
+import java.util.*
+
+class AddressImageCacheTest {
+    @Test
+    fun `test cache of image bytes`() {
+        val cache = AddressImageCache()
+        val lastUpdate = Date()
+        val bytes = byteArrayOf(1, 2, 3)
+        cache.putImageBytes(1, AddressImageRendition.THUMBNAIL, lastUpdate, bytes)
+        Assertions.assertSame(bytes, cache.getImageBytes(1, AddressImageRendition.THUMBNAIL, lastUpdate))
+        Assertions.assertNull(cache.getImageBytes(1, AddressImageRendition.PREVIEW, lastUpdate))
+        Assertions.assertNull(cache.getImageBytes(2, AddressImageRendition.THUMBNAIL, lastUpdate))
+        Assertions.assertNull(
+            cache.getImageBytes(1, AddressImageRendition.THUMBNAIL, Date(lastUpdate.time + 1)),
+            "Bytes of older image versions mustn't be returned."
+        )
+        cache.evictImageBytes(1)
+        Assertions.assertNull(cache.getImageBytes(1, AddressImageRendition.THUMBNAIL, lastUpdate))
+    }
+
+    @Test
+    fun `test size limit of image bytes cache`() {
+        val cache = AddressImageCache()
+        val lastUpdate = Date()
+        for (id in 1L..10L) {
+            cache.putImageBytes(id, AddressImageRendition.PREVIEW, lastUpdate, ByteArray(2 * Constants.MB))
+        }
+        // Access 1, so 2 is the least recently used entry:
+        Assertions.assertNotNull(cache.getImageBytes(1, AddressImageRendition.PREVIEW, lastUpdate))
+        cache.putImageBytes(11, AddressImageRendition.PREVIEW, lastUpdate, ByteArray(2 * Constants.MB))
+        Assertions.assertNotNull(cache.getImageBytes(1, AddressImageRendition.PREVIEW, lastUpdate))
+        Assertions.assertNull(cache.getImageBytes(2, AddressImageRendition.PREVIEW, lastUpdate))
+        Assertions.assertNotNull(cache.getImageBytes(11, AddressImageRendition.PREVIEW, lastUpdate))
+        // Too large for caching:
+        cache.putImageBytes(12, AddressImageRendition.PREVIEW, lastUpdate, ByteArray(3 * Constants.MB))
+        Assertions.assertNull(cache.getImageBytes(12, AddressImageRendition.PREVIEW, lastUpdate))
+    }
+}
@@ -0,0 +1,258 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.business.image
+
+import mu.KotlinLogging
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+import org.projectforge.business.address.ImageType
+import java.awt.Color
+import java.awt.image.BufferedImage
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import javax.imageio.IIOImage
+import javax.imageio.ImageIO
+import javax.imageio.ImageWriteParam
+import kotlin.random.Random
+
+private val log = KotlinLogging.logger {}
+
+class ImageServiceTest {
+    @Test
+    fun `test shrinking to max file size`() {
+        val imageService = ImageService()
+        val bytes = createNoisyImage(800, 600, 1)
+        val original = ImageIO.read(ByteArrayInputStream(bytes))
+        // Reducing JPEG quality is sufficient (resolution is kept):
+        val jpegDefault = imageService.shrinkToMaxFileSize(bytes, Long.MAX_VALUE)
+        val qualityReduced = imageService.shrinkToMaxFileSize(bytes, jpegDefault.bytes.size * 9L / 10)
+        Assertions.assertEquals(ImageType.JPEG, qualityReduced.imageType)
+        Assertions.assertTrue(qualityReduced.bytes.size <= jpegDefault.bytes.size * 9L / 10)
+        assertDimension(qualityReduced.bytes, original.width, original.height)
+
+        // Scaling is required:
+        val maxSize = jpegDefault.bytes.size / 5L
+        val scaled = imageService.shrinkToMaxFileSize(bytes, maxSize)
+        Assertions.assertEquals(ImageType.JPEG, scaled.imageType)
+        Assertions.assertTrue(scaled.bytes.size <= maxSize, "${scaled.bytes.size} <= $maxSize")
+        val scaledImage = ImageIO.read(ByteArrayInputStream(scaled.bytes))
+        Assertions.assertTrue(scaledImage.width < original.width)
+        Assertions.assertTrue(scaledImage.width >= 100)
+    }
+
+    @Test
+    fun `test caller runs if queue of executor is full`() {
+        val executor = ImageProcessingExecutor(threads = 1, queueCapacity = 1)
+        val started = CountDownLatch(1)
+        val release = CountDownLatch(1)
+        val pool = Executors.newFixedThreadPool(2)
+        try {
+            // Occupy the worker and the queue:
+            repeat(2) {
+                pool.submit {
+                    executor.execute {
+                        started.countDown()
+                        release.await(10, TimeUnit.SECONDS)
+                    }
+                }
+            }
+            Assertions.assertTrue(started.await(10, TimeUnit.SECONDS))
+            while (executor.queueSize < 1) {
+                Thread.sleep(10)
+            }
+            // Executed by calling thread:
+            Assertions.assertEquals(Thread.currentThread().name, executor.execute { Thread.currentThread().name })
+            Assertions.assertEquals(1, executor.statistics.rejected.get())
+            release.countDown()
+            Assertions.assertEquals("ImageProcessing", executor.execute { Thread.currentThread().name })
+            // Exceptions are passed to the caller:
+            Assertions.assertThrows(IllegalStateException::class.java) { executor.execute { throw IllegalStateException() } }
+        } finally {
+            release.countDown()
+            pool.shutdown()
+        }
+    }
+
+    /**
+     * Shrinks several noisy photo like images (bad compression ratio), serial and parallel, and compares the number of
+     * encodings and the duration with the previous algorithm (fixed quality steps and binary search of the scale).
+     * The images are kept small for running fast in the normal test suite.
+     */
+    @Test
+    fun benchmarkTest() {
+        val imageService = ImageService()
+        val images = (1..3).map { createNoisyImage(500 + it * 100, 400, it) }
+        val maxSize = 40_000L
+        var begin = System.currentTimeMillis()
+        val previousAlgorithm = PreviousShrinkAlgorithm()
+        images.forEach { previousAlgorithm.shrink(it, maxSize) }
+        val previousDuration = System.currentTimeMillis() - begin
+        begin = System.currentTimeMillis()
+        images.forEach {
+            val result = imageService.shrinkToMaxFileSize(it, maxSize)
+            Assertions.assertTrue(result.bytes.size <= maxSize)
+        }
+        val serialDuration = System.currentTimeMillis() - begin
+        val serialEncodings = imageService.encodings.get()
+        log.info {
+            "Shrinking of ${images.size} images: previous algorithm=${previousDuration}ms (encodings per image=${previousAlgorithm.encodings / images.size}), current algorithm=${serialDuration}ms (encodings per image=${serialEncodings / images.size})"
+        }
+        Assertions.assertTrue(
+            serialEncodings <= previousAlgorithm.encodings,
+            "encodings: $serialEncodings <= ${previousAlgorithm.encodings}",
+        )
+
+        val pool = Executors.newFixedThreadPool(images.size)
+        begin = System.currentTimeMillis()
+        try {
+            images.map { bytes -> pool.submit<ImageResult> { imageService.shrinkToMaxFileSize(bytes, maxSize) } }
+                .forEach { Assertions.assertTrue(it.get().bytes.size <= maxSize) }
+        } finally {
+            pool.shutdown()
+        }
+        val parallelDuration = System.currentTimeMillis() - begin
+        val statistics = imageService.processingExecutor.statistics
+        log.info {
+            "Shrinking of ${images.size} images: serial=${serialDuration}ms, parallel=${parallelDuration}ms (threads=${imageService.processingExecutor.threads}), avg wait=${statistics.averageWaitMillis}ms, avg processing=${statistics.averageProcessingMillis}ms"
+        }
+    }
+
+    /**
+     * The previous algorithm of [ImageService.shrinkToMaxFileSize] (JPEG only) for comparison: JPEG qualities 0.85, 0.8
+     * and 0.7, followed by a binary search of the scale (max. 10 iterations) until the size is within 95-100% of the
+     * maximum size.
+     */
+    private class PreviousShrinkAlgorithm {
+        var encodings = 0
+            private set
+
+        fun shrink(bytes: ByteArray, maxSize: Long): ByteArray {
+            val image = ImageIO.read(ByteArrayInputStream(bytes))
+            var best = encode(image, 0.9f)
+            if (best.size <= maxSize) {
+                return best
+            }
+            val targetMinSize = (maxSize * 0.95).toLong()
+            var bestQuality = 0.9f
+            for (quality in floatArrayOf(0.85f, 0.8f, 0.7f)) {
+                val result = encode(image, quality)
+                if (result.size in targetMinSize..maxSize) {
+                    return result
+                }
+                if (result.size <= maxSize) {
+                    best = result
+                    bestQuality = quality
+                }
+            }
+            var minScale = 0.0
+            var maxScale = 1.0
+            repeat(10) {
+                val scale = (minScale + maxScale) / 2.0
+                val width = (image.width * scale).toInt()
+                val height = (image.height * scale).toInt()
+                if (width < 100 || height < 100) {
+                    return best
+                }
+                val resized = BufferedImage(width, height, image.type.takeIf { it != 0 } ?: BufferedImage.TYPE_INT_ARGB)
+                resized.createGraphics().also {
+                    it.drawImage(image, 0, 0, width, height, null)
+                    it.dispose()
+                }
+                val result = encode(resized, bestQuality)
+                if (result.size in targetMinSize..maxSize) {
+                    return result
+                }
+                if (result.size < best.size) {
+                    best = result
+                }
+                if (result.size > maxSize) {
+                    maxScale = scale
+                } else {
+                    minScale = scale
+                }
+            }
+            return best
+        }
+
+        private fun encode(image: BufferedImage, quality: Float): ByteArray {
+            ++encodings
+            val writer = ImageIO.getImageWritersByFormatName("jpg").next()
+            val param = writer.defaultWriteParam
+            param.compressionMode = ImageWriteParam.MODE_EXPLICIT
+            param.compressionQuality = quality
+            return ByteArrayOutputStream().use { baos ->
+                ImageIO.createImageOutputStream(baos).use { ios ->
+                    writer.output = ios
+                    writer.write(null, IIOImage(image, null, null), param)
+                }
+                writer.dispose()
+                baos.toByteArray()
+            }
+        }
+    }
+
+    private fun createNoisyImage(width: Int, height: Int, seed: Int): ByteArray {
+        val random = Random(seed)
+        val image = BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)
+        for (y in 0 until height) {
+            for (x in 0 until width) {
+                // Gradient with noise:
+                val noise = random.nextInt(64)
+                image.setRGB(x, y, Color((x * 191 / width + noise) % 256, (y * 191 / height + noise) % 256, noise * 2).rgb)
+            }
+        }
+        return ByteArrayOutputStream().use {
+            ImageIO.write(image, "png", it)
+            it.toByteArray()
+        }
+    }
+
+    @Test
+    fun `test creation of renditions`() {
+        val image = BufferedImage(400, 200, BufferedImage.TYPE_INT_RGB)
+        image.createGraphics().also {
+            it.color = Color.ORANGE
+            it.fillRect(0, 0, 400, 200)
+            it.dispose()
+        }
+        val bytes = ByteArrayOutputStream().use {
+            ImageIO.write(image, "png", it)
+            it.toByteArray()
+        }
+        val renditions = ImageService().createRenditions(bytes, listOf(Pair(50, 50), Pair(300, 300), Pair(1000, 1000)), ImageType.PNG)
+        Assertions.assertEquals(3, renditions.size)
+        assertDimension(renditions[0], 50, 25)
+        assertDimension(renditions[1], 300, 150)
+        assertDimension(renditions[2], 400, 200) // Not larger than the original.
+    }
+
+    private fun assertDimension(bytes: ByteArray?, width: Int, height: Int) {
+        val image = ImageIO.read(ByteArrayInputStream(bytes!!))
+        Assertions.assertEquals(width, image.width)
+        Assertions.assertEquals(height, image.height)
+    }
+}
@@ -0,0 +1,98 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.business.scripting
+
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.projectforge.business.configuration.ConfigurationService
+import java.io.File
+import java.util.*
+
+class GroovyTemplateRegistryTest {
+    @TempDir
+    lateinit var resourceDir: File
+
+    @AfterEach
+    fun cleanUp() {
+        GroovyTemplateRegistry.checkIntervalMillis = 5_000L
+        GroovyTemplateRegistry.clear()
+    }
+
+    @Test
+    fun `test includes and caching of template files`() {
+        val configurationService = createConfigurationService()
+        val includeFile = writeFile("include.txt", "Hello \${name}, you owe me 5\\$.")
+        writeFile("main.txt", "<%= 'A' %>: #INCLUDE{registryTest/include.txt} #INCLUDE{registryTest/unknown.txt}")
+        Assertions.assertEquals(
+            "A: Hello Kai, you owe me 5$. *** registryTest/unknown.txt not found! ***",
+            render(configurationService, "registryTest/main.txt"),
+        )
+        val template = GroovyTemplateRegistry.getTemplateFile(configurationService, "registryTest/main.txt")
+        Assertions.assertSame(template, GroovyTemplateRegistry.getTemplateFile(configurationService, "registryTest/main.txt"))
+
+        // Modification of included file:
+        GroovyTemplateRegistry.checkIntervalMillis = 0L
+        includeFile.writeText("Bye \${name}.")
+        includeFile.setLastModified(includeFile.lastModified() + 2_000)
+        Assertions.assertEquals(
+            "A: Bye Kai. *** registryTest/unknown.txt not found! ***",
+            render(configurationService, "registryTest/main.txt"),
+        )
+        // Creation of formerly missing file:
+        writeFile("unknown.txt", "Found.")
+        Assertions.assertEquals("A: Bye Kai. Found.", render(configurationService, "registryTest/main.txt"))
+        val newTemplate = GroovyTemplateRegistry.getTemplateFile(configurationService, "registryTest/main.txt")
+        Assertions.assertNotSame(template, newTemplate)
+        Assertions.assertSame(newTemplate, GroovyTemplateRegistry.getTemplateFile(configurationService, "registryTest/main.txt"))
+    }
+
+    @Test
+    fun `test groovy xml templates`() {
+        val configurationService = createConfigurationService()
+        writeFile("test.xml", "<name><groovy-out>name</groovy-out></name>")
+        val engine = GroovyEngine(configurationService, mutableMapOf<String, Any?>("name" to "Kai"), Locale.ENGLISH, TimeZone.getTimeZone("UTC"))
+        Assertions.assertEquals("<name>Kai</name>", engine.executeGroovyXmlTemplateFile("registryTest/test.xml"))
+        Assertions.assertEquals("", engine.executeTemplateFile("registryTest/missing.xml"))
+    }
+
+    private fun render(configurationService: ConfigurationService, file: String): String {
+        val engine = GroovyEngine(configurationService, Locale.ENGLISH, TimeZone.getTimeZone("UTC"))
+        engine.putVariable("name", "Kai")
+        return engine.executeTemplateFile(file)
+    }
+
+    private fun writeFile(filename: String, content: String): File {
+        val dir = File(resourceDir, "registryTest")
+        dir.mkdirs()
+        return File(dir, filename).also { it.writeText(content) }
+    }
+
+    private fun createConfigurationService(): ConfigurationService {
+        val configurationService = ConfigurationService()
+        configurationService.resourceDirName = resourceDir.absolutePath
+        return configurationService
+    }
+}
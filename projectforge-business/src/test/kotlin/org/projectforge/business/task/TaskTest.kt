@@ -38,6 +38,7 @@ import org.projectforge.common.task.TimesheetBookingStatus
 import org.projectforge.framework.access.AccessException
 import org.projectforge.framework.access.AccessType
 import org.projectforge.framework.access.OperationType
+import org.projectforge.framework.persistence.api.QueryFilter
 import org.projectforge.framework.time.PFDateTime.Companion.withDate
 import org.projectforge.business.test.AbstractTestBase
 import org.springframework.beans.factory.annotation.Autowired
@@ -157,6 +158,17 @@ class TaskTest : AbstractTestBase() {
             Assertions.assertTrue(ids.contains(getTask("d.1.2.1").id))
             Assertions.assertTrue(ids.contains(getTask("d.2").id))
             Assertions.assertFalse(ids.contains(getTask("d").id))
+            // Pre-order slice of the task tree snapshot:
+            Assertions.assertEquals(
+                listOf("d", "d.1", "d.1.1", "d.1.2", "d.1.2.1", "d.2").map { getTask(it).id },
+                taskTree.getDescendantTaskIds(d.id, true),
+            )
+            Assertions.assertEquals(ids.toSet(), taskTree.getDescendantTaskIds(d.id, false).toSet())
+            val d_1_2_1 = taskTree.getTaskNodeById(getTask("d.1.2.1").id)!!
+            Assertions.assertTrue(taskTree.isParentOf(d, d_1_2_1))
+            Assertions.assertFalse(taskTree.isParentOf(d_1_2_1, d))
+            Assertions.assertFalse(taskTree.isParentOf(d, d))
+            Assertions.assertFalse(taskTree.isParentOf(taskTree.getTaskNodeById(getTask("d.2").id)!!, d_1_2_1))
             null
         }
     }
@@ -195,6 +207,8 @@ class TaskTest : AbstractTestBase() {
             val u_1_1 = taskTree.getTaskNodeById(tu_1_1.id)
             Assertions.assertEquals("u.1.1", u_1_1!!.getTask().title)
             Assertions.assertEquals(getTask("u.1").id, u_1_1.getParent().id)
+            Assertions.assertTrue(taskTree.isParentOf(u1, u_1_1))
+            Assertions.assertFalse(taskTree.isParentOf(u2, u_1_1))
             null
         }
     }
@@ -494,7 +508,7 @@ class TaskTest : AbstractTestBase() {
             ts.task = task
             timesheetDao.insert(ts)
             Assertions.assertEquals((4 * 3600).toLong(), taskDao.readTotalDuration(task.id))
-            Assertions.assertEquals((4 * 3600).toLong(), getTotalDuration(taskTree, task.id))
+            Assertions.assertEquals(0, getTotalDuration(taskTree, task.id), "Running sums are updated after commit.")
             ts = TimesheetDO()
             ts.user = getUser(TEST_USER)
             ts.setStartDate(dt.plus(5, ChronoUnit.HOURS).utilDate)
@@ -502,7 +516,7 @@ class TaskTest : AbstractTestBase() {
             ts.task = task
             timesheetDao.insert(ts)
             Assertions.assertEquals((8 * 3600).toLong(), taskDao.readTotalDuration(task.id))
-            Assertions.assertEquals((8 * 3600).toLong(), getTotalDuration(taskTree, task.id))
+            Assertions.assertEquals(0, getTotalDuration(taskTree, task.id), "Running sums are updated after commit.")
             ts = TimesheetDO()
             ts.user = getUser(TEST_USER)
             ts.setStartDate(dt.plus(10, ChronoUnit.HOURS).utilDate)
@@ -544,6 +558,55 @@ class TaskTest : AbstractTestBase() {
             Assertions.assertEquals(0, getTotalDuration(taskTree, subTask2.id))
             Assertions.assertEquals(0, getDuration(taskTree, subTask2.id))
         }
+        // Move the time sheet of sub task 1 to sub task 2:
+        val list = timesheetDao.select(QueryFilter().also { it.add(QueryFilter.eq("task", subTask1)) }, checkAccess = false)
+        Assertions.assertEquals(1, list.size)
+        list[0].task = subTask2
+        timesheetDao.update(list[0], checkAccess = false)
+        Assertions.assertEquals((12 * 3600).toLong(), getTotalDuration(taskTree, task.id))
+        Assertions.assertEquals(0, getTotalDuration(taskTree, subTask1.id))
+        Assertions.assertEquals((4 * 3600).toLong(), getTotalDuration(taskTree, subTask2.id))
+        taskTree.reconcileTotalDurations() // Running sums should match the database.
+        Assertions.assertEquals((12 * 3600).toLong(), getTotalDuration(taskTree, task.id))
+        Assertions.assertEquals((8 * 3600).toLong(), getDuration(taskTree, task.id))
+        Assertions.assertEquals(0, getTotalDuration(taskTree, subTask1.id))
+        Assertions.assertEquals((4 * 3600).toLong(), getDuration(taskTree, subTask2.id))
+    }
+
+    @Test
+    fun totalDurationOnDeletionAndRollback() {
+        logon(getUser(TEST_ADMIN_USER))
+        val task = initTestDB.addTask("totalDurationDeletionTask", "root")
+        val dt = withDate(2010, Month.APRIL, 21, 8, 0)
+        val ts = TimesheetDO()
+        ts.user = getUser(TEST_USER)
+        ts.setStartDate(dt.utilDate).stopTime = dt.plus(4, ChronoUnit.HOURS).sqlTimestamp
+        ts.task = task
+        timesheetDao.insert(ts)
+        Assertions.assertEquals((4 * 3600).toLong(), getTotalDuration(taskTree, task.id))
+        timesheetDao.markAsDeleted(ts)
+        Assertions.assertEquals(0, getTotalDuration(taskTree, task.id))
+        timesheetDao.markAsDeleted(ts) // Already deleted.
+        Assertions.assertEquals(0, getTotalDuration(taskTree, task.id))
+        ts.description = "Modified deleted time sheet" // Minor modification of an already deleted time sheet.
+        timesheetDao.markAsDeleted(ts)
+        Assertions.assertEquals(0, getTotalDuration(taskTree, task.id))
+        timesheetDao.undelete(ts)
+        Assertions.assertEquals((4 * 3600).toLong(), getTotalDuration(taskTree, task.id))
+        timesheetDao.undelete(ts) // Already undeleted.
+        Assertions.assertEquals((4 * 3600).toLong(), getTotalDuration(taskTree, task.id))
+        // Rolled back transaction mustn't modify the running sums:
+        try {
+            persistenceService.runInTransaction { _ ->
+                timesheetDao.markAsDeleted(ts)
+                throw IllegalStateException("Rollback for test purposes.")
+            }
+        } catch (ex: IllegalStateException) {
+            // Expected.
+        }
+        Assertions.assertEquals((4 * 3600).toLong(), getTotalDuration(taskTree, task.id))
+        taskTree.reconcileTotalDurations() // Running sums should match the database.
+        Assertions.assertEquals((4 * 3600).toLong(), getTotalDuration(taskTree, task.id))
     }
 
     private fun getTotalDuration(taskTree: TaskTree, taskId: Long?): Long {
@@ -0,0 +1,89 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.business.teamcal.externalsubscription
+
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+import org.projectforge.business.teamcal.event.model.TeamEventDO
+import java.util.Date
+import kotlin.random.Random
+
+class SubscriptionHolderTest {
+    @Test
+    fun resultListTest() {
+        val holder = SubscriptionHolder()
+        holder.add(createEvent(1, 10 * DAY, 11 * DAY))
+        holder.add(createEvent(2, 0, 100 * DAY)) // Long event, starts first.
+        holder.add(createEvent(3, 20 * DAY, 20 * DAY + HOUR))
+        holder.add(createEvent(4, 50 * DAY, null)) // No end date (open end).
+        Assertions.assertEquals(listOf(1L, 2L), query(holder, 5 * DAY, 10 * DAY))
+        Assertions.assertEquals(listOf(2L), query(holder, 13 * DAY, 18 * DAY))
+        Assertions.assertEquals(listOf(2L, 3L), query(holder, 21 * DAY - 1, 30 * DAY)) // One day extension.
+        Assertions.assertEquals(listOf(2L, 4L), query(holder, 60 * DAY, 70 * DAY))
+        Assertions.assertEquals(listOf(4L), query(holder, 200 * DAY, 300 * DAY))
+        Assertions.assertEquals("uid-3", holder.getEvent("uid-3").uid)
+        Assertions.assertNull(holder.getEvent("unknown"))
+    }
+
+    @Test
+    fun randomizedTest() {
+        val random = Random(42)
+        val holder = SubscriptionHolder()
+        val events = mutableListOf<TeamEventDO>()
+        for (i in 1..2000) {
+            val start = random.nextLong(0, 1000 * DAY)
+            val duration = if (random.nextInt(20) == 0) random.nextLong(0, 200 * DAY) else random.nextLong(0, DAY)
+            val event = createEvent(i.toLong(), start, start + duration)
+            events.add(event)
+            holder.add(event)
+        }
+        repeat(200) {
+            val start = random.nextLong(-10 * DAY, 1010 * DAY)
+            val end = start + random.nextLong(0, 40 * DAY)
+            val expected = events.filter {
+                // Same as SubscriptionHolder.matches plus the break on events starting after end:
+                it.startDate!!.time <= end && it.endDate!!.time >= start - DAY
+            }.map { it.id!! }.sorted()
+            Assertions.assertEquals(expected, query(holder, start, end))
+        }
+    }
+
+    private fun query(holder: SubscriptionHolder, startTime: Long, endTime: Long): List<Long> {
+        return holder.getResultList(startTime, endTime, false).map { it.id!! }.sorted()
+    }
+
+    private fun createEvent(id: Long, startTime: Long, endTime: Long?): TeamEventDO {
+        val event = TeamEventDO()
+        event.id = id
+        event.uid = "uid-$id"
+        event.startDate = Date(startTime)
+        event.endDate = endTime?.let { Date(it) }
+        return event
+    }
+
+    companion object {
+        private const val HOUR = 60L * 60 * 1000
+        private const val DAY = 24 * HOUR
+    }
+}
@@ -0,0 +1,59 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.business.user
+
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+
+class UserPrefCacheDataTest {
+    private class Settings(var value: String)
+
+    @Test
+    fun `read entries are only taken if modified`() {
+        val data = UserPrefCacheData()
+        val listKey = UserPrefCacheDataKey("area", "list")
+        val settingsKey = UserPrefCacheDataKey("area", "settings")
+        data.putEntry(listKey, mutableListOf("a"), persistent = true, originalSerializedHashCode = 1)
+        data.putEntry(settingsKey, Settings("a"), persistent = true, originalSerializedHashCode = 2)
+        Assertions.assertTrue(data.takeModifiedEntries().isEmpty(), "Loaded entries aren't modified.")
+
+        @Suppress("UNCHECKED_CAST")
+        val list = data.getEntry(listKey) as MutableList<String>
+        val settings = data.getEntry(settingsKey) as Settings
+        Assertions.assertEquals(
+            setOf(settingsKey),
+            data.takeModifiedEntries().keys,
+            "List is checked by its hashCode, settings without value based hashCode are taken once after reading.",
+        )
+        Assertions.assertTrue(data.takeModifiedEntries().isEmpty(), "Read entries aren't serialized on every flush.")
+
+        list.add("b")
+        settings.value = "b"
+        Assertions.assertEquals(setOf(listKey), data.takeModifiedEntries().keys, "Modified in-place.")
+        Assertions.assertTrue(data.takeModifiedEntries().isEmpty())
+
+        data.putEntry(settingsKey, settings, persistent = true)
+        Assertions.assertEquals(setOf(settingsKey), data.takeModifiedEntries().keys, "Explicit mutation by put.")
+    }
+}
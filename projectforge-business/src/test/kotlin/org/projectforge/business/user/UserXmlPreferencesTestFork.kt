@@ -48,6 +48,20 @@ class UserXmlPreferencesTestFork : AbstractTestBase() {
         userXmlPreferencesCache.refresh()
         userXmlPreferencesCache.putEntry(null, "value", 42, true, user1.id!!)
         assert(user1.id, "value", false, "Entry has original value and shouldn't be modified.")
+        userXmlPreferencesCache.putEntry(null, "value", 43, true, user1.id!!)
+        assert(user1.id, "value", true, "Entry has new value and should be modified.")
+        userXmlPreferencesCache.flushModifiedToDB()
+        Assertions.assertNotNull(
+            userXmlPreferencesCache.getUserPreferencesData(user1.id!!),
+            "Write-behind shouldn't remove the entries from the cache."
+        )
+        userXmlPreferencesCache.getUserPreferencesData(user1.id!!)!!.let { data ->
+            Assertions.assertTrue(
+                data.takeModifiedEntries().none { (key, value) -> userXmlPreferencesCache.isModified(data, key, value) },
+                "Entries of previous flush shouldn't be modified."
+            )
+        }
+        assert(user1.id, "value", false, "Entry should be written to db and shouldn't be modified.")
         userXmlPreferencesCache.putEntry(null, "application", "ProjectForge", false, user1.id!!)
         Assertions.assertEquals("ProjectForge", userXmlPreferencesCache.getEntry(null, "application", user1.id!!))
         try {
@@ -63,6 +77,21 @@ class UserXmlPreferencesTestFork : AbstractTestBase() {
         Assertions.assertEquals("ProjectForge", userXmlPreferencesCache.getEntry(null, "application", user1.id!!))
     }
 
+    @Test
+    fun inPlaceModificationAfterWriteBehindTest() {
+        val user = getUser("user1")
+        logon(user)
+        userXmlPreferencesCache.putEntry(null, "list", mutableListOf("a"), true, user.id!!)
+        userXmlPreferencesCache.flushModifiedToDB()
+        @Suppress("UNCHECKED_CAST")
+        val list = userXmlPreferencesCache.getEntry(null, "list", user.id!!) as MutableList<String>
+        userXmlPreferencesCache.flushModifiedToDB() // Tick of write-behind between reading and modification.
+        list.add("b") // In-place modification of the read value.
+        assert(user.id, "list", true, "Read entry was modified in-place.")
+        userXmlPreferencesCache.flushModifiedToDB()
+        assert(user.id, "list", false, "Read entry modified in-place should be written to db on next flush.")
+    }
+
     private fun assert(userId: Long?, key: String, expectedModified: Boolean, msg: String? = null) {
         val data = userXmlPreferencesCache.ensureAndGetUserPreferencesData(userId!!)
         val value = data.getEntry(null, key)
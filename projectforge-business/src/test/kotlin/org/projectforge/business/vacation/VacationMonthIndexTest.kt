@@ -0,0 +1,69 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.business.vacation
+
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+import org.projectforge.business.vacation.model.VacationDO
+import java.time.LocalDate
+
+class VacationMonthIndexTest {
+    @Test
+    fun periodTest() {
+        val index = VacationMonthIndex()
+        index.put(createVacation(1, "2025-01-20", "2025-02-10")) // Spans two months.
+        index.put(createVacation(2, "2025-02-15", "2025-02-20"))
+        index.put(createVacation(3, "2025-03-01", "2025-03-01"))
+        index.put(createVacation(4, "2020-01-01", "2030-12-31")) // Long vacation (not put into month buckets).
+        Assertions.assertEquals(4, index.size)
+        Assertions.assertEquals(listOf(1L, 2L, 3L, 4L), query(index, "2025-01-01", "2025-12-31"))
+        Assertions.assertEquals(listOf(1L, 4L), query(index, "2025-02-01", "2025-02-14"))
+        Assertions.assertEquals(listOf(2L, 4L), query(index, "2025-02-11", "2025-02-28"))
+        Assertions.assertEquals(listOf(3L, 4L), query(index, "2025-03-01", "2025-03-01"))
+        Assertions.assertEquals(emptyList<Long>(), query(index, "2031-01-01", "2031-12-31"))
+
+        // Modify vacation (new instance, as delivered by the dao):
+        index.put(createVacation(1, "2025-03-01", "2025-03-05"))
+        Assertions.assertEquals(listOf(4L), query(index, "2025-01-01", "2025-01-31"))
+        Assertions.assertEquals(listOf(1L, 3L, 4L), query(index, "2025-03-01", "2025-03-31"))
+        index.remove(4)
+        index.remove(3)
+        Assertions.assertEquals(listOf(1L), query(index, "2020-01-01", "2030-12-31"))
+        Assertions.assertEquals(1, index.size)
+    }
+
+    private fun query(index: VacationMonthIndex, from: String, until: String): List<Long> {
+        val result = mutableListOf<Long>()
+        index.forEachInPeriod(LocalDate.parse(from), LocalDate.parse(until)) { result.add(it.id!!) }
+        return result.sorted()
+    }
+
+    private fun createVacation(id: Long, from: String, until: String): VacationDO {
+        val vacation = VacationDO()
+        vacation.id = id
+        vacation.startDate = LocalDate.parse(from)
+        vacation.endDate = LocalDate.parse(until)
+        return vacation
+    }
+}
@@ -0,0 +1,189 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.business.vacation.service
+
+import mu.KotlinLogging
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+import org.projectforge.business.fibu.EmployeeDO
+import org.projectforge.business.vacation.model.VacationDO
+import java.time.LocalDate
+import java.time.Month
+import kotlin.random.Random
+
+private val log = KotlinLogging.logger {}
+
+class VacationConflictsEngineTest {
+    private var vacationIdCounter = 0L
+
+    @Test
+    fun conflictsTest() {
+        val employee = createEmployee(1)
+        val substitute1 = createEmployee(2)
+        val substitute2 = createEmployee(3)
+        val vacation = createJuneVacation(employee, 1, 30, substitute1, substitute2)
+        val sub1Vacation1 = createJuneVacation(substitute1, 1, 10)
+        val sub1Vacation2 = createJuneVacation(substitute1, 15, 20)
+        val sub2Vacation = createJuneVacation(substitute2, 8, 16)
+        // Substitute 1 has two vacations: each day not covered by one of them must not count as availability, if it is
+        // covered by the other one.
+        Assertions.assertTrue(
+            VacationConflictsEngine.hasConflict(vacation, listOf(sub1Vacation1, sub1Vacation2, sub2Vacation)),
+            "Day 8-10 and 15-16 without substitute."
+        )
+        sub2Vacation.startDate = LocalDate.of(2022, Month.JUNE, 11)
+        sub2Vacation.endDate = LocalDate.of(2022, Month.JUNE, 14)
+        Assertions.assertFalse(
+            VacationConflictsEngine.hasConflict(vacation, listOf(sub1Vacation1, sub1Vacation2, sub2Vacation)),
+            "Substitutes with disjoint leave times."
+        )
+        // Adjacent vacations of the same substitute are merged:
+        val sub2Vacation2 = createJuneVacation(substitute2, 15, 30)
+        Assertions.assertTrue(
+            VacationConflictsEngine.hasConflict(vacation, listOf(sub1Vacation1, sub1Vacation2, sub2Vacation, sub2Vacation2)),
+        )
+    }
+
+    @Test
+    fun updateTest() {
+        val employee = createEmployee(1)
+        val substitute = createEmployee(2)
+        val vacation = createJuneVacation(employee, 1, 10, substitute)
+        val substituteVacation = createJuneVacation(substitute, 20, 30)
+        val engine = VacationConflictsEngine(listOf(vacation, substituteVacation))
+        Assertions.assertEquals(0, engine.numberOfConflicts)
+        // Substitute moves the vacation into the vacation of the employee:
+        substituteVacation.startDate = LocalDate.of(2022, Month.JUNE, 5)
+        engine.update(listOf(substituteVacation.id!!), listOf(substituteVacation))
+        Assertions.assertTrue(engine.hasConflict(vacation.id))
+        Assertions.assertEquals(1, engine.numberOfConflicts(employee.id))
+        Assertions.assertEquals(0, engine.numberOfConflicts(substitute.id))
+        // Substitute vacation is deleted:
+        engine.update(listOf(substituteVacation.id!!), emptyList())
+        Assertions.assertFalse(engine.hasConflict(vacation.id))
+        Assertions.assertEquals(0, engine.numberOfConflicts)
+        // Vacation of employee is deleted, conflict state set by VacationService is removed as well:
+        engine.setConflict(vacation, true)
+        engine.update(listOf(vacation.id!!), emptyList())
+        Assertions.assertEquals(0, engine.numberOfConflicts(employee.id))
+    }
+
+    @Test
+    fun copyTest() {
+        val employee = createEmployee(1)
+        val substitute = createEmployee(2)
+        val vacation = createJuneVacation(employee, 1, 10, substitute)
+        val engine = VacationConflictsEngine(listOf(vacation))
+        val copy = engine.copy()
+        val substituteVacation = createJuneVacation(substitute, 5, 15)
+        copy.update(listOf(substituteVacation.id!!), listOf(substituteVacation))
+        Assertions.assertTrue(copy.hasConflict(vacation.id))
+        Assertions.assertFalse(engine.hasConflict(vacation.id), "Original engine isn't modified by updating the copy.")
+        Assertions.assertEquals(0, engine.numberOfConflicts(employee.id))
+        // The copy keeps the conflicts of the original:
+        val copyOfCopy = copy.copy()
+        copy.update(listOf(substituteVacation.id!!), emptyList())
+        Assertions.assertFalse(copy.hasConflict(vacation.id))
+        Assertions.assertTrue(copyOfCopy.hasConflict(vacation.id))
+        Assertions.assertEquals(1, copyOfCopy.numberOfConflicts(employee.id))
+    }
+
+    /**
+     * Benchmark on a synthetic data set of 5,000 employees, each with vacations and two replacements. The result of the
+     * engine is compared with the former algorithm (filtering all vacations for the replacements of each vacation).
+     */
+    @Test
+    fun benchmarkTest() {
+        val random = Random(42)
+        val numberOfEmployees = 5_000
+        val employees = (1..numberOfEmployees).map { createEmployee(it.toLong()) }
+        val vacations = mutableListOf<VacationDO>()
+        employees.forEach { employee ->
+            repeat(1 + random.nextInt(3)) {
+                val start = LocalDate.of(2022, Month.JANUARY, 1).plusDays(random.nextLong(365))
+                val vacation = VacationDO()
+                vacation.id = ++vacationIdCounter
+                vacation.employee = employee
+                vacation.startDate = start
+                vacation.endDate = start.plusDays(random.nextLong(14))
+                vacation.replacement = employees[random.nextInt(numberOfEmployees)]
+                vacation.otherReplacements = mutableSetOf(employees[random.nextInt(numberOfEmployees)])
+                vacations.add(vacation)
+            }
+        }
+        var begin = System.currentTimeMillis()
+        val engine = VacationConflictsEngine(vacations)
+        val engineDuration = System.currentTimeMillis() - begin
+
+        begin = System.currentTimeMillis()
+        var expectedConflicts = 0
+        vacations.forEach { vacation ->
+            val vacationsOfReplacements = mutableListOf<VacationDO>()
+            vacation.allReplacements.forEach { replacement ->
+                vacationsOfReplacements.addAll(vacations.filter { it.employee?.id == replacement.id })
+            }
+            val conflict = VacationConflictsEngine.hasConflict(vacation, vacationsOfReplacements)
+            if (conflict) {
+                ++expectedConflicts
+            }
+            Assertions.assertEquals(conflict, engine.hasConflict(vacation.id), "Vacation #${vacation.id}")
+        }
+        val bruteForceDuration = System.currentTimeMillis() - begin
+        Assertions.assertEquals(expectedConflicts, engine.numberOfConflicts)
+
+        begin = System.currentTimeMillis()
+        val modified = vacations.take(100)
+        modified.forEach { it.startDate = it.startDate!!.minusDays(3) }
+        val checked = engine.update(modified.map { it.id!! }, modified)
+        val updateDuration = System.currentTimeMillis() - begin
+        log.info {
+            "${vacations.size} vacations of $numberOfEmployees employees, ${engine.numberOfConflicts} conflicts: engine=${engineDuration}ms, " +
+                    "brute force=${bruteForceDuration}ms, update of ${modified.size} vacations ($checked checked)=${updateDuration}ms."
+        }
+    }
+
+    private fun createJuneVacation(
+        employee: EmployeeDO,
+        fromDay: Int,
+        toDay: Int,
+        vararg replacements: EmployeeDO,
+    ): VacationDO {
+        val vacation = VacationDO()
+        vacation.id = ++vacationIdCounter
+        vacation.employee = employee
+        vacation.startDate = LocalDate.of(2022, Month.JUNE, fromDay)
+        vacation.endDate = LocalDate.of(2022, Month.JUNE, toDay)
+        if (replacements.isNotEmpty()) {
+            vacation.replacement = replacements[0]
+            vacation.otherReplacements = replacements.drop(1).toMutableSet()
+        }
+        return vacation
+    }
+
+    private fun createEmployee(id: Long): EmployeeDO {
+        val employee = EmployeeDO()
+        employee.id = id
+        return employee
+    }
+}
@@ -85,6 +85,42 @@ class AbstractCacheTest {
         }
     }
 
+    /**
+     * Cache supporting delta refreshes: full refreshes and delta refreshes (with their ids) are recorded.
+     */
+    private class DeltaTestCache(expireTime: Long = 60 * TICKS_PER_MINUTE) : AbstractCache(expireTime) {
+        val fullRefreshCount = AtomicInteger(0)
+
+        val deltaRefreshes: MutableList<Set<Long>> = Collections.synchronizedList(mutableListOf())
+
+        var throwExceptionOnDeltaRefresh = false
+
+        /** If true, the default implementation of [refreshDelta] is used. */
+        var useDefaultDeltaRefresh = false
+
+        override val isDeltaRefreshSupported: Boolean
+            get() = true
+
+        override fun refresh() {
+            fullRefreshCount.incrementAndGet()
+        }
+
+        override fun refreshDelta(ids: Set<Long>) {
+            if (useDefaultDeltaRefresh) {
+                super.refreshDelta(ids)
+                return
+            }
+            if (throwExceptionOnDeltaRefresh) {
+                throw IllegalStateException("Exception for test purposes.")
+            }
+            deltaRefreshes.add(ids)
+        }
+
+        fun accessData() {
+            checkRefresh()
+        }
+    }
+
     @Test
     fun `cache is refreshed on first access only`() {
         val cache = TestCache()
@@ -277,6 +313,79 @@ class AbstractCacheTest {
         Assertions.assertEquals(1, cache.maxConcurrentRefreshes.get())
     }
 
+    @Test
+    fun `only modified entries are refreshed by delta refresh`() {
+        val cache = DeltaTestCache()
+        cache.setExpired(listOf(1L)) // Not yet initialized: full refresh required.
+        cache.accessData()
+        Assertions.assertEquals(1, cache.fullRefreshCount.get(), "First refresh is always a full refresh.")
+        Assertions.assertTrue(cache.deltaRefreshes.isEmpty())
+        cache.setExpired(listOf(1L, 2L))
+        cache.setExpired(listOf(2L, 3L))
+        cache.accessData()
+        cache.accessData()
+        Assertions.assertEquals(1, cache.fullRefreshCount.get(), "No further full refresh.")
+        Assertions.assertEquals(listOf(setOf(1L, 2L, 3L)), cache.deltaRefreshes, "One delta refresh for all ids.")
+        Assertions.assertEquals(1, cache.refreshStatistics.fullRefreshCount)
+        Assertions.assertEquals(1, cache.refreshStatistics.deltaRefreshCount)
+        Assertions.assertEquals(3, cache.refreshStatistics.deltaRefreshedEntriesCount)
+        cache.setExpired(listOf(4L))
+        cache.setExpired() // Full invalidation wins.
+        cache.accessData()
+        Assertions.assertEquals(2, cache.fullRefreshCount.get())
+        Assertions.assertEquals(1, cache.deltaRefreshes.size)
+    }
+
+    @Test
+    fun `cache without delta support is refreshed completely`() {
+        val cache = TestCache()
+        cache.accessData()
+        cache.setExpired(listOf(1L))
+        cache.accessData()
+        Assertions.assertEquals(2, cache.refreshCount.get())
+        Assertions.assertEquals(2, cache.refreshStatistics.fullRefreshCount)
+        Assertions.assertEquals(0, cache.refreshStatistics.deltaRefreshCount)
+    }
+
+    @Test
+    fun `failed delta refresh falls back to full refresh`() {
+        val cache = DeltaTestCache()
+        cache.accessData()
+        cache.throwExceptionOnDeltaRefresh = true
+        cache.setExpired(listOf(1L))
+        cache.accessData() // Exception is only logged.
+        Assertions.assertEquals(2, cache.fullRefreshCount.get(), "Full refresh as fallback.")
+        Assertions.assertEquals(0, cache.refreshStatistics.deltaRefreshCount)
+    }
+
+    @Test
+    fun `default delta refresh is a full refresh`() {
+        val cache = DeltaTestCache()
+        cache.useDefaultDeltaRefresh = true
+        cache.accessData()
+        cache.setExpired(listOf(1L))
+        cache.accessData()
+        Assertions.assertEquals(2, cache.fullRefreshCount.get(), "Default delta refresh calls refresh().")
+        Assertions.assertTrue(cache.deltaRefreshes.isEmpty())
+    }
+
+    @Test
+    @Timeout(30)
+    fun `refresh caused by expire time is a full refresh`() {
+        val cache = DeltaTestCache(expireTime = 100)
+        cache.accessData()
+        cache.setExpired(listOf(1L))
+        cache.accessData()
+        Assertions.assertEquals(1, cache.deltaRefreshes.size)
+        Thread.sleep(200) // Delta refreshes don't reset the expire time, so the full reconciliation is due now.
+        cache.accessData()
+        val timeout = System.currentTimeMillis() + 20_000
+        while (cache.fullRefreshCount.get() < 2 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(20)
+        }
+        Assertions.assertEquals(2, cache.fullRefreshCount.get(), "Periodic full refresh (reconciliation) was done.")
+    }
+
     private fun awaitRefreshCount(cache: TestCache, expected: Int) {
         val timeout = System.currentTimeMillis() + 20_000
         while (cache.refreshCount.get() < expected && System.currentTimeMillis() < timeout) {
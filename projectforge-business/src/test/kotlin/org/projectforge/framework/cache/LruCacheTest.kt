@@ -0,0 +1,56 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+package org.projectforge.framework.cache
+
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+
+class LruCacheTest {
+    @Test
+    fun evictionTest() {
+        val cache = LruCache<String, Int>(2)
+        cache.put("a", 1)
+        cache.put("b", 2)
+        Assertions.assertEquals(1, cache.get("a")) // a is now most recently used.
+        cache.put("c", 3)
+        Assertions.assertEquals(2, cache.size)
+        Assertions.assertNull(cache.get("b"), "b is least recently used and should be evicted.")
+        Assertions.assertEquals(1, cache.get("a"))
+        Assertions.assertEquals(3, cache.get("c"))
+        Assertions.assertEquals(3, cache.hitCount)
+        Assertions.assertEquals(1, cache.missCount)
+
+        var computed = 0
+        Assertions.assertEquals(4, cache.getOrPut("d") { ++computed; 4 })
+        Assertions.assertEquals(4, cache.getOrPut("d") { ++computed; 5 })
+        Assertions.assertEquals(1, computed)
+    }
+
+    @Test
+    fun contentHashTest() {
+        val hash = LruCache.contentHash("println(\"Hello world\")")
+        Assertions.assertEquals(64, hash.length)
+        Assertions.assertEquals(hash, LruCache.contentHash("println(\"Hello world\")"))
+        Assertions.assertNotEquals(hash, LruCache.contentHash("println(\"Hello world!\")"))
+    }
+}
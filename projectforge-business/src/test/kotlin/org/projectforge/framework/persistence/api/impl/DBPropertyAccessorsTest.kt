@@ -0,0 +1,52 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.framework.persistence.api.impl
+
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+import org.projectforge.common.BeanHelper
+
+class DBPropertyAccessorsTest {
+    open class Person(val name: String, val age: Int, val active: Boolean, val address: Address? = null)
+    class Employee(name: String, val staffNumber: Long) : Person(name, 42, true)
+    class Address(val city: String)
+
+    @Test
+    fun getPropertyTest() {
+        val person = Person("Dave", 30, true, Address("Kassel"))
+        Assertions.assertEquals("Dave", DBPropertyAccessors.getProperty(person, "name"))
+        Assertions.assertEquals(30, DBPropertyAccessors.getProperty(person, "age"))
+        Assertions.assertEquals(true, DBPropertyAccessors.getProperty(person, "active"))
+        Assertions.assertEquals("Kassel", DBPropertyAccessors.getNestedProperty(person, "address.city"))
+        Assertions.assertNull(DBPropertyAccessors.getNestedProperty(Person("Amy", 20, false), "address.city"))
+        Assertions.assertNull(DBPropertyAccessors.getNestedProperty(null, "address.city"))
+        Assertions.assertThrows(RuntimeException::class.java) { DBPropertyAccessors.getProperty(person, "unknown") }
+
+        // Getters of super classes:
+        val employee = Employee("Betty", 4711)
+        Assertions.assertEquals("Betty", DBPropertyAccessors.getProperty(employee, "name"))
+        Assertions.assertEquals(4711L, DBPropertyAccessors.getProperty(employee, "staffNumber"))
+        Assertions.assertEquals(BeanHelper.getProperty(employee, "age"), DBPropertyAccessors.getProperty(employee, "age"))
+    }
+}
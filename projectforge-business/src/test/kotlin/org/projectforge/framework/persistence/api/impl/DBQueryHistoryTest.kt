@@ -0,0 +1,79 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+package org.projectforge.framework.persistence.api.impl
+
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+import org.projectforge.business.task.TaskDO
+import org.projectforge.business.task.TaskDao
+import org.projectforge.business.test.AbstractTestBase
+import org.projectforge.framework.persistence.api.QueryFilter
+import org.projectforge.framework.time.PFDateTime
+import org.springframework.beans.factory.annotation.Autowired
+
+class DBQueryHistoryTest : AbstractTestBase() {
+    @Autowired
+    private lateinit var dbQuery: DBQuery
+
+    @Autowired
+    private lateinit var taskDao: TaskDao
+
+    @Test
+    fun `test history constraints as exists subquery`() {
+        val parentTask = initTestDB.addTask(this::class.simpleName!!, "root")
+        val user1 = logon(TEST_USER)
+        val task1 = TaskDO().also {
+            it.parentTask = parentTask
+            it.title = "Task modified by user 1"
+            taskDao.insert(it, false)
+        }
+        val user2 = logon(TEST_USER2)
+        val task2 = TaskDO().also {
+            it.parentTask = parentTask
+            it.title = "Task modified by user 2"
+            taskDao.insert(it, false)
+        }
+        logon(TEST_ADMIN_USER)
+        val filter = QueryFilter().also {
+            it.add(QueryFilter.eq("parentTask", parentTask))
+            it.modifiedByUserId = user1.id
+        }
+        dbQuery.select(taskDao, filter, null, false).let { result ->
+            Assertions.assertEquals(1, result.size)
+            Assertions.assertEquals(task1.id, result[0].id)
+        }
+
+        filter.modifiedByUserId = user2.id
+        dbQuery.select(taskDao, filter, null, false).let { result ->
+            Assertions.assertEquals(1, result.size)
+            Assertions.assertEquals(task2.id, result[0].id)
+        }
+
+        filter.modifiedByUserId = null
+        filter.modifiedFrom = PFDateTime.now().plusDays(1)
+        Assertions.assertTrue(dbQuery.select(taskDao, filter, null, false).isEmpty())
+
+        filter.modifiedFrom = PFDateTime.now().minusDays(1)
+        Assertions.assertEquals(2, dbQuery.select(taskDao, filter, null, false).size)
+    }
+}
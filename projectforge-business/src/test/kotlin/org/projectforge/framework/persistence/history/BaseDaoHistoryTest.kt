@@ -109,6 +109,31 @@ class BaseDaoHistoryTest : AbstractTestBase() {
 
             // 22 in total
             Assertions.assertEquals(22, entries.size)
+
+            // Batch loading:
+            Assertions.assertEquals(
+                entries.map { it.historyEntryId }.toSet(),
+                flatHistoryFormatService.selectHistoryEntriesAsSequence(rechnungDao, listOf(invoice), pageSize = 1)
+                    .map { it.historyEntryId }.toSet(),
+            )
+            val loadContext = historyService.loadAndMergeHistory(
+                mapOf(RechnungDO::class.java to listOf(invoice.id!!)),
+                HistoryLoadContext(),
+            )
+            Assertions.assertEquals(
+                entries.map { it.historyEntryId }.toSet(),
+                loadContext.originUnsortedEntries.map { it.id }.toSet(),
+            )
+            // Batch loading, but separated per entity:
+            val loadContexts = historyService.loadHistoryPerEntity(
+                RechnungDO::class.java,
+                listOf(invoice.id!!, -1L),
+            ) { HistoryLoadContext() }
+            Assertions.assertEquals(
+                entries.map { it.historyEntryId }.toSet(),
+                loadContexts[invoice.id!!]!!.originUnsortedEntries.map { it.id }.toSet(),
+            )
+            Assertions.assertTrue(loadContexts[-1L]!!.originUnsortedEntries.isEmpty())
         }
     }
 
@@ -28,6 +28,7 @@ import org.junit.jupiter.api.Assertions.assertEquals
 import org.junit.jupiter.api.BeforeAll
 import org.junit.jupiter.api.Test
 import org.projectforge.business.test.TestSetup
+import org.projectforge.framework.calendar.Holidays
 import java.math.BigDecimal
 import java.time.LocalDate
 import java.time.Month
@@ -40,6 +41,37 @@ class PFDayUtilsTest {
         assertBigDecimal(0.5, PFDayUtils.getNumberOfWorkingDays(LocalDate.of(2019, Month.DECEMBER, 31), LocalDate.of(2019, Month.DECEMBER, 31)))
         assertBigDecimal(1.0, PFDayUtils.getNumberOfWorkingDays(LocalDate.of(2019, Month.DECEMBER, 30), LocalDate.of(2019, Month.DECEMBER, 30)))
         assertBigDecimal(3.0, PFDayUtils.getNumberOfWorkingDays(LocalDate.of(2019, Month.DECEMBER, 24), LocalDate.of(2019, Month.DECEMBER, 31)))
+        assertBigDecimal(0.0, PFDayUtils.getNumberOfWorkingDays(LocalDate.of(2019, Month.DECEMBER, 31), LocalDate.of(2019, Month.DECEMBER, 30)))
+    }
+
+    @Test
+    fun numberOfWorkingDaysOfLongPeriodsTest() {
+        // Periods over years (formerly limited to two years) must match the counting day by day:
+        val from = LocalDate.of(2016, Month.NOVEMBER, 17)
+        val to = LocalDate.of(2024, Month.MARCH, 3)
+        assertBigDecimal(countWorkingDays(from, to).toDouble(), PFDayUtils.getNumberOfWorkingDays(from, to))
+        var day = LocalDate.of(2019, Month.DECEMBER, 20)
+        while (day.isBefore(LocalDate.of(2020, Month.JANUARY, 10))) {
+            val end = day.plusDays(400)
+            assertBigDecimal(countWorkingDays(day, end).toDouble(), PFDayUtils.getNumberOfWorkingDays(day, end), "Period $day - $end")
+            day = day.plusDays(1)
+        }
+        // Date times: the day of to isn't reached, if its time of day is before the time of day of from.
+        val fromDateTime = PFDateTime.withDate(2020, Month.JANUARY, 7, 10, 0)
+        assertBigDecimal(1.0, PFDayUtils.getNumberOfWorkingDays(fromDateTime, fromDateTime.plusHours(23)))
+        assertBigDecimal(2.0, PFDayUtils.getNumberOfWorkingDays(fromDateTime, fromDateTime.plusHours(24)))
+    }
+
+    private fun countWorkingDays(from: LocalDate, to: LocalDate): BigDecimal {
+        var result = BigDecimal.ZERO
+        var day = PFDay.from(from)
+        while (!day.localDate.isAfter(to)) {
+            if (PFDayUtils.isWorkingDay(day)) {
+                result = result.add(Holidays.instance.getWorkFraction(day) ?: BigDecimal.ONE)
+            }
+            day = day.plusDays(1)
+        }
+        return result
     }
 
     @Test
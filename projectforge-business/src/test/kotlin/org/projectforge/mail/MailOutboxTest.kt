@@ -0,0 +1,239 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.mail
+
+import jakarta.mail.Message
+import jakarta.mail.Session
+import jakarta.mail.internet.InternetAddress
+import jakarta.mail.internet.MimeMessage
+import org.junit.jupiter.api.AfterAll
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+import org.projectforge.Constants
+import org.projectforge.business.test.AbstractTestBase
+import org.springframework.beans.factory.annotation.Autowired
+import java.io.BufferedReader
+import java.io.InputStreamReader
+import java.io.PrintWriter
+import java.net.InetAddress
+import java.net.ServerSocket
+import java.net.Socket
+import java.util.*
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.concurrent.thread
+
+class MailOutboxTest : AbstractTestBase() {
+    @Autowired
+    private lateinit var mailOutbox: MailOutbox
+
+    @Test
+    fun `test delivery of batch over one connection`() {
+        server.rejectMessages = false
+        mailOutbox.initialize { session }
+        val connections = server.connections.get()
+        val delivered = server.messages.size
+        persistenceService.runInTransaction { context ->
+            for (i in 1..10) {
+                context.insert(mailOutbox.createEntry(createMessage("Batch $i")))
+            }
+        }
+        mailOutbox.initialize { session } // Wake up.
+        waitFor { server.messages.size >= delivered + 10 }
+        Assertions.assertEquals(delivered + 10, server.messages.size)
+        Assertions.assertEquals(connections + 1, server.connections.get(), "All mails of one batch should be sent over one connection.")
+        Assertions.assertTrue(server.messages.any { it.contains("Subject: Batch 7") })
+        waitFor { mailOutbox.queueDepth == 0L }
+        Assertions.assertEquals(0L, mailOutbox.queueDepth)
+    }
+
+    @Test
+    fun `test retry of rejected mail`() {
+        server.rejectMessages = true
+        try {
+            mailOutbox.initialize { session }
+            val entry = mailOutbox.createEntry(createMessage("Rejected"))
+            persistenceService.runInTransaction { context -> context.insert(entry) }
+            mailOutbox.initialize { session } // Wake up.
+            waitFor { persistenceService.find(MailOutboxDO::class.java, entry.id)!!.attempts > 0 }
+            val dbEntry = persistenceService.find(MailOutboxDO::class.java, entry.id)!!
+            Assertions.assertEquals(1, dbEntry.attempts)
+            Assertions.assertEquals(MailOutboxDO.Status.QUEUED, dbEntry.status)
+            Assertions.assertTrue(dbEntry.nextAttempt!!.time > System.currentTimeMillis() + 30_000)
+            Assertions.assertTrue(dbEntry.lastError!!.contains("554"), "Unexpected error: ${dbEntry.lastError}")
+            persistenceService.runInTransaction { context -> context.delete(MailOutboxDO::class.java, entry.id!!) }
+        } finally {
+            server.rejectMessages = false
+        }
+    }
+
+    @Test
+    fun `test reset of stale entries`() {
+        server.rejectMessages = false
+        mailOutbox.initialize { session }
+        val delivered = server.messages.size
+        val entry = mailOutbox.createEntry(createMessage("Stale"))
+        // Claimed by a sender, which didn't finish in time:
+        entry.status = MailOutboxDO.Status.SENDING
+        entry.nextAttempt = Date(System.currentTimeMillis() - 1_000)
+        persistenceService.runInTransaction { context -> context.insert(entry) }
+        mailOutbox.resetStaleEntries()
+        waitFor { server.messages.size >= delivered + 1 }
+        Assertions.assertTrue(server.messages.any { it.contains("Subject: Stale") })
+        waitFor { persistenceService.find(MailOutboxDO::class.java, entry.id) == null }
+        Assertions.assertNull(persistenceService.find(MailOutboxDO::class.java, entry.id), "Sent mail should be deleted.")
+    }
+
+    @Test
+    fun `test enqueue before initialization`() {
+        Assertions.assertFalse(MailOutbox().initialized)
+        Assertions.assertThrows(IllegalStateException::class.java) {
+            MailOutbox().enqueue(createMessage("Not initialized"))
+        }
+    }
+
+    @Test
+    fun `test retry delays`() {
+        Assertions.assertEquals(Constants.MILLIS_PER_MINUTE, MailOutbox.getRetryDelayMillis(1))
+        Assertions.assertEquals(2 * Constants.MILLIS_PER_MINUTE, MailOutbox.getRetryDelayMillis(2))
+        Assertions.assertEquals(32 * Constants.MILLIS_PER_MINUTE, MailOutbox.getRetryDelayMillis(6))
+        Assertions.assertEquals(Constants.MILLIS_PER_HOUR, MailOutbox.getRetryDelayMillis(7))
+        Assertions.assertEquals(Constants.MILLIS_PER_HOUR, MailOutbox.getRetryDelayMillis(100))
+    }
+
+    private fun createMessage(subject: String): MimeMessage {
+        val message = MimeMessage(session)
+        message.setFrom(InternetAddress("sender@localhost"))
+        message.setRecipients(Message.RecipientType.TO, arrayOf(InternetAddress("recipient@localhost")))
+        message.subject = subject
+        message.setText("Hello world.")
+        message.saveChanges()
+        return message
+    }
+
+    private fun waitFor(condition: () -> Boolean) {
+        val timeout = System.currentTimeMillis() + 20_000
+        while (!condition() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(50)
+        }
+    }
+
+    /**
+     * Minimal SMTP server as stand-in for a real mail server.
+     */
+    private class FakeSmtpServer : AutoCloseable {
+        private val serverSocket = ServerSocket(0, 50, InetAddress.getLoopbackAddress())
+        val port: Int
+            get() = serverSocket.localPort
+        val connections = AtomicInteger()
+        val messages = CopyOnWriteArrayList<String>()
+
+        @Volatile
+        var rejectMessages = false
+
+        init {
+            thread(isDaemon = true, name = "FakeSmtpServer") {
+                while (!serverSocket.isClosed) {
+                    val socket = try {
+                        serverSocket.accept()
+                    } catch (ex: Exception) {
+                        break
+                    }
+                    connections.incrementAndGet()
+                    thread(isDaemon = true) { handle(socket) }
+                }
+            }
+        }
+
+        private fun handle(socket: Socket) {
+            socket.use {
+                val reader = BufferedReader(InputStreamReader(socket.getInputStream(), Charsets.US_ASCII))
+                val writer = PrintWriter(socket.getOutputStream())
+                fun reply(line: String) {
+                    writer.print("$line\r\n")
+                    writer.flush()
+                }
+                reply("220 localhost ESMTP")
+                while (true) {
+                    val line = reader.readLine() ?: return
+                    val command = line.uppercase()
+                    when {
+                        command.startsWith("EHLO") || command.startsWith("HELO") -> reply("250 localhost")
+                        command.startsWith("DATA") -> {
+                            reply("354 End data with <CR><LF>.<CR><LF>")
+                            val sb = StringBuilder()
+                            while (true) {
+                                val dataLine = reader.readLine() ?: return
+                                if (dataLine == ".") {
+                                    break
+                                }
+                                sb.append(dataLine).append("\n")
+                            }
+                            if (rejectMessages) {
+                                reply("554 Message rejected")
+                            } else {
+                                messages.add(sb.toString())
+                                reply("250 OK")
+                            }
+                        }
+
+                        command.startsWith("QUIT") -> {
+                            reply("221 Bye")
+                            return
+                        }
+
+                        else -> reply("250 OK") // MAIL FROM, RCPT TO, RSET, NOOP
+                    }
+                }
+            }
+        }
+
+        override fun close() {
+            serverSocket.close()
+        }
+    }
+
+    companion object {
+        private lateinit var server: FakeSmtpServer
+
+        private lateinit var session: Session
+
+        @JvmStatic
+        @BeforeAll
+        fun startSmtpServer() {
+            server = FakeSmtpServer()
+            val properties = Properties()
+            properties["mail.smtp.host"] = "localhost"
+            properties["mail.smtp.port"] = "${server.port}"
+            session = Session.getInstance(properties)
+        }
+
+        @JvmStatic
+        @AfterAll
+        fun stopSmtpServer() {
+            server.close()
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.menu.builder
+
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+import org.projectforge.framework.persistence.user.api.UserContext
+import org.projectforge.framework.persistence.user.entities.PFUserDO
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+
+class MenuBadgeCountersTest {
+    @Test
+    fun `counters are computed once and recomputed after expiring`() {
+        val badgeCounters = MenuBadgeCounters()
+        val counter = AtomicInteger(1)
+        val computations = AtomicInteger()
+        val menuItemDefs = listOf(
+            MenuItemDef("ITEM1", "item1", badgeCounter = { computations.incrementAndGet(); counter.get() }),
+            MenuItemDef("ITEM2", "item2", badgeCounter = { throw IllegalStateException("test") }),
+        )
+        val userContext = createUserContext(1L)
+        Assertions.assertNull(badgeCounters.getCachedCounters(1L))
+        Assertions.assertEquals(
+            mapOf("ITEM1" to 1),
+            badgeCounters.getCounters(userContext, menuItemDefs),
+            "First request computes synchronously, failing counters are skipped.",
+        )
+        Assertions.assertEquals(mapOf("ITEM1" to 1), badgeCounters.getCounters(userContext, menuItemDefs))
+        Assertions.assertEquals(1, computations.get(), "Not expired, so not recomputed.")
+
+        val changedUsers = ConcurrentHashMap.newKeySet<Long>()
+        badgeCounters.addListener({ userId -> changedUsers.add(userId) }, isSubscribed = { false })
+        counter.set(2)
+        badgeCounters.expireAll()
+        Assertions.assertEquals(1, computations.get(), "No subscriber, so not recomputed immediately.")
+        Assertions.assertEquals(
+            mapOf("ITEM1" to 1),
+            badgeCounters.getCounters(userContext, menuItemDefs),
+            "Expired counters are used until the recomputation in the background is done.",
+        )
+        awaitCondition { changedUsers.contains(1L) }
+        Assertions.assertEquals(mapOf("ITEM1" to 2), badgeCounters.getCachedCounters(1L))
+    }
+
+    @Test
+    fun `subscribed users are recomputed on expiring`() {
+        val badgeCounters = MenuBadgeCounters()
+        val counter = AtomicInteger(1)
+        val menuItemDefs = listOf(MenuItemDef("ITEM", "item", badgeCounter = { counter.get() }))
+        badgeCounters.getCounters(createUserContext(1L), menuItemDefs)
+        badgeCounters.getCounters(createUserContext(2L), menuItemDefs)
+        val changedUsers = ConcurrentHashMap.newKeySet<Long>()
+        badgeCounters.addListener({ userId -> changedUsers.add(userId) }, isSubscribed = { userId -> userId == 1L })
+        counter.set(5)
+        badgeCounters.expireAll()
+        awaitCondition { changedUsers.contains(1L) }
+        Assertions.assertEquals(mapOf("ITEM" to 5), badgeCounters.getCachedCounters(1L))
+        Assertions.assertEquals(
+            mapOf("ITEM" to 1),
+            badgeCounters.getCachedCounters(2L),
+            "Not subscribed, recomputed not until next request.",
+        )
+        Assertions.assertFalse(changedUsers.contains(2L))
+    }
+
+    @Test
+    fun `unused counters are evicted`() {
+        val badgeCounters = MenuBadgeCounters()
+        val menuItemDefs = listOf(MenuItemDef("ITEM", "item", badgeCounter = { 1 }))
+        badgeCounters.getCounters(createUserContext(1L), menuItemDefs)
+        badgeCounters.getCounters(createUserContext(2L), menuItemDefs)
+        badgeCounters.getCounters(createUserContext(3L), menuItemDefs)
+        badgeCounters.addListener({ }, isSubscribed = { userId -> userId == 1L })
+        badgeCounters.evict(3L)
+        Assertions.assertNull(badgeCounters.getCachedCounters(3L), "Evicted on logout.")
+        badgeCounters.evictUnused()
+        Assertions.assertNotNull(badgeCounters.getCachedCounters(2L), "Recently requested.")
+        badgeCounters.evictUnused(System.currentTimeMillis() + MenuBadgeCounters.EVICT_MILLIS + 1)
+        Assertions.assertNotNull(badgeCounters.getCachedCounters(1L), "Subscribed, so not evicted.")
+        Assertions.assertNull(badgeCounters.getCachedCounters(2L), "Not requested anymore and not subscribed.")
+    }
+
+    private fun createUserContext(userId: Long): UserContext {
+        return UserContext(PFUserDO().also { it.id = userId }, nofresh = true)
+    }
+
+    private fun awaitCondition(condition: () -> Boolean) {
+        val timeout = System.currentTimeMillis() + 10_000
+        while (!condition() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(20)
+        }
+    }
+}
@@ -27,6 +27,7 @@ import jakarta.annotation.PostConstruct
 import jakarta.servlet.http.HttpServletRequest
 import mu.KotlinLogging
 import org.projectforge.business.address.AddressImageDao
+import org.projectforge.business.address.AddressImageRendition
 import org.projectforge.business.address.ImageType
 import org.projectforge.common.DataSizeConfig
 import org.projectforge.jcr.FileInfo
@@ -43,6 +44,7 @@ import org.springframework.http.ResponseEntity
 import org.springframework.util.unit.DataSize
 import org.springframework.util.unit.DataUnit
 import org.springframework.web.bind.annotation.*
+import org.springframework.web.context.request.WebRequest
 import org.springframework.web.multipart.MultipartFile
 
 
@@ -111,39 +113,55 @@ class AddressImageServicesRest {
     }
 
     /**
+     * Supports conditional GET (ETag and Last-Modified based on the last update of the image held by the
+     * [org.projectforge.business.address.AddressImageCache]), so unchanged images are answered by 304 without
+     * reading the image data.
      * @param id The id of the address the image is assigned to.
+     * @param rendition thumbnail, preview or full (default).
      */
     @GetMapping("image/{id}")
-    fun getImage(@PathVariable("id") id: Long): ResponseEntity<Resource> {
-        val addressImage =
-            addressImageDao.findImage(id, fetchImage = true) ?: return ResponseEntity(HttpStatus.NOT_FOUND)
-        val image = addressImage.image
-        if (image == null || image.isEmpty()) {
-            log.warn("Image is null or empty for address $id")
-            return ResponseEntity(HttpStatus.NOT_FOUND)
-        }
-        val resource = ByteArrayResource(image)
-
-
-        val extension = addressImage.imageType?.extension ?: "jpg"
-        return RestUtils.downloadFile("ProjectForge-addressImage_$id.$extension", resource)
+    fun getImage(
+        @PathVariable("id") id: Long,
+        @RequestParam("rendition", required = false) rendition: String?,
+        webRequest: WebRequest,
+    ): ResponseEntity<Resource>? {
+        val imageRendition = AddressImageRendition.fromString(rendition) ?: AddressImageRendition.FULL
+        return getImage(id, imageRendition, webRequest)
     }
 
     /**
+     * The thumbnail of the image (used by the address list).
      * @param id The id of the address the image is assigned to.
+     * @see getImage
      */
     @GetMapping("imagePreview/{id}")
-    fun getImagePreview(@PathVariable("id") id: Long): ResponseEntity<Resource> {
-        val addressImage =
-            addressImageDao.findImage(id, fetchPreviewImage = true) ?: return ResponseEntity(HttpStatus.NOT_FOUND)
-        val imagePreview = addressImage.imagePreview
-        if (imagePreview == null || imagePreview.isEmpty()) {
-            log.warn("Image preview is null or empty for address $id")
+    fun getImagePreview(@PathVariable("id") id: Long, webRequest: WebRequest): ResponseEntity<Resource>? {
+        return getImage(id, AddressImageRendition.THUMBNAIL, webRequest)
+    }
+
+    private fun getImage(
+        id: Long,
+        rendition: AddressImageRendition,
+        webRequest: WebRequest,
+    ): ResponseEntity<Resource>? {
+        val info = addressImageDao.getImageInfo(id) ?: return ResponseEntity(HttpStatus.NOT_FOUND)
+        val lastModified = info.lastUpdate?.time ?: 0L
+        val eTag = "\"$id-${rendition.name.lowercase()}-$lastModified\""
+        if (webRequest.checkNotModified(eTag, lastModified)) {
+            return null // 304 (not modified) is already prepared.
+        }
+        val image = addressImageDao.getImage(id, rendition, checkAccess = false)
+        if (image == null || image.isEmpty()) {
+            log.warn("Image ($rendition) is null or empty for address $id")
             return ResponseEntity(HttpStatus.NOT_FOUND)
         }
-        val resource = ByteArrayResource(imagePreview)
-        val extension = addressImage.imageType?.extension ?: "jpg"
-        return RestUtils.downloadFile("ProjectForge-addressImagePreview_$id.$extension", resource)
+        val extension = info.imageType?.extension ?: "jpg"
+        val filename = if (rendition == AddressImageRendition.FULL) {
+            "ProjectForge-addressImage_$id.$extension"
+        } else {
+            "ProjectForge-addressImagePreview_$id.$extension"
+        }
+        return RestUtils.downloadFile(filename, ByteArrayResource(image), eTag, lastModified)
     }
 
     /**
@@ -115,7 +115,7 @@ class AddressViewPageRest : AbstractDynamicPageRest() {
             fieldSet.add(
                 UICustomized(
                     "image",
-                    mutableMapOf("src" to "address/image/${address.id}", "alt" to addressDO.fullNameWithTitleAndForm)
+                    mutableMapOf("src" to "address/image/${address.id}?rendition=preview", "alt" to addressDO.fullNameWithTitleAndForm)
                 )
             )
         }
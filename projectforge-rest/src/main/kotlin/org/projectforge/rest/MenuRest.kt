@@ -23,6 +23,7 @@
 
 package org.projectforge.rest
 
+import jakarta.annotation.PostConstruct
 import org.projectforge.framework.access.AccessChecker
 import org.projectforge.framework.persistence.user.api.ThreadLocalUserContext
 import org.projectforge.menu.Menu
@@ -30,11 +31,14 @@ import org.projectforge.menu.MenuItem
 import org.projectforge.menu.MenuItemTargetType
 import org.projectforge.menu.builder.*
 import org.projectforge.rest.config.Rest
+import org.projectforge.rest.core.SseBroadcastHub
 import org.projectforge.rest.my2fa.My2FASetupMenuBadge
 import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.http.MediaType
 import org.springframework.web.bind.annotation.GetMapping
 import org.springframework.web.bind.annotation.RequestMapping
 import org.springframework.web.bind.annotation.RestController
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter
 
 @RestController
 @RequestMapping("${Rest.URL}/menu")
@@ -55,6 +59,16 @@ class MenuRest {
   @Autowired
   private lateinit var favoritesMenuCreator: FavoritesMenuCreator
 
+  @PostConstruct
+  private fun postConstruct() {
+    menuCreator.addBadgeListener(
+      listener = { userId ->
+        SseBroadcastHub.publish(getBadgesTopic(userId)) { menuCreator.getBadgeCounters(userId) }
+      },
+      isSubscribed = { userId -> SseBroadcastHub.getSubscriberCount(getBadgesTopic(userId)) > 0 },
+    )
+  }
+
   @GetMapping
   fun getMenu(): Menus {
     val mainMenu = menuCreator.build(MenuCreatorContext(ThreadLocalUserContext.loggedInUser!!))
@@ -80,4 +94,18 @@ class MenuRest {
     userNameItem.postProcess()
     return Menus(mainMenu, favoritesMenu, myAccountMenu)
   }
+
+  /**
+   * The badge counters of the main menu are computed in the background. The client is notified about changed counters
+   * (map of menu item keys to counters) by server-sent events.
+   */
+  @GetMapping("badges", produces = [MediaType.TEXT_EVENT_STREAM_VALUE])
+  fun subscribeBadges(): SseEmitter {
+    val userId = ThreadLocalUserContext.loggedInUserId!!
+    return SseBroadcastHub.subscribe(getBadgesTopic(userId)) { menuCreator.getBadgeCounters(userId) }
+  }
+
+  internal fun getBadgesTopic(userId: Long): String {
+    return "menuBadges:$userId"
+  }
 }
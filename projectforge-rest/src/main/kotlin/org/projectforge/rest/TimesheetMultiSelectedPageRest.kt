@@ -237,12 +237,20 @@ class TimesheetMultiSelectedPageRest : AbstractMultiSelectedPage<TimesheetDO>()
         if (timesheets.isNullOrEmpty()) {
             return null
         }
+        massUpdateContext.ignoreFieldsForModificationCheck = listOf("taskAndKost2")
+        // Time periods aren't modified by mass updates, so the time collisions are checked once for all time sheets:
+        timesheetDao.runWithValidatedTimeOverlaps(timesheets) {
+            updateTimesheets(timesheets, massUpdateContext)
+        }
+        return null
+    }
+
+    private fun updateTimesheets(timesheets: List<TimesheetDO>, massUpdateContext: MassUpdateContext<TimesheetDO>) {
         val params = massUpdateContext.massUpdateParams
         val taskId = params["task"]?.id
         val project = taskTree.getProjekt(taskId)
         val availableKost2s = taskTree.getKost2List(taskId)
         val kost2Id = params["kost2"]?.id
-        massUpdateContext.ignoreFieldsForModificationCheck = listOf("taskAndKost2")
         timesheets.forEach { timesheet ->
             massUpdateContext.startUpdate(timesheet)
             TextFieldModification.processTextParameter(timesheet, "bemerkung", params)
@@ -293,7 +301,6 @@ class TimesheetMultiSelectedPageRest : AbstractMultiSelectedPage<TimesheetDO>()
                 update = { timesheetDao.update(timesheet) },
             )
         }
-        return null
     }
 
     override fun ensureUserLogSubscription(): LogSubscription {
@@ -32,6 +32,7 @@ import org.projectforge.web.WebUtils
 import org.springframework.core.io.ByteArrayResource
 import org.springframework.core.io.InputStreamResource
 import org.springframework.core.io.Resource
+import org.springframework.http.CacheControl
 import org.springframework.http.HttpHeaders
 import org.springframework.http.MediaType
 import org.springframework.http.ResponseEntity
@@ -92,6 +93,25 @@ object RestUtils {
       .body(resource)
   }
 
+  /**
+   * Download with validators (ETag, Last-Modified), so clients have to revalidate their copy by a conditional GET
+   * (answered with 304, see [org.springframework.web.context.request.WebRequest.checkNotModified]).
+   */
+  fun downloadFile(
+    filename: String,
+    resource: ByteArrayResource,
+    eTag: String,
+    lastModified: Long,
+  ): ResponseEntity<Resource> {
+    return ResponseEntity.ok()
+      .contentType(getDownloadContentType())
+      .header(HttpHeaders.CONTENT_DISPOSITION, getDownloadContentDisposition(filename))
+      .eTag(eTag)
+      .lastModified(lastModified)
+      .cacheControl(CacheControl.noCache().cachePrivate())
+      .body(resource)
+  }
+
   fun setContentDisposition(response: HttpServletResponse, filename: String) {
     response.addHeader(HttpHeaders.CONTENT_DISPOSITION, getDownloadContentDisposition(filename))
   }
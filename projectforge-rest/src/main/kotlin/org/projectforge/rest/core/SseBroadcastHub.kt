@@ -0,0 +1,275 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.rest.core
+
+import kotlinx.coroutines.*
+import mu.KotlinLogging
+import org.projectforge.framework.json.JsonUtils
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicReference
+
+private val log = KotlinLogging.logger {}
+
+/**
+ * Central hub for Server-Sent Events (SSE). Clients subscribe to a topic, producers publish changes of a topic.
+ *
+ * - Nothing is polled: subscribers are only pushed on [publish].
+ * - Publications are coalesced per topic (at most one push per [COALESCE_MILLIS]) and the payload is serialized to
+ *   json only once per push, independent of the number of subscribers.
+ * - Each subscriber sends at most one payload at a time. If a client is slower than the producer, intermediate
+ *   payloads are replaced by the latest one (back pressure), so nothing queues up for slow clients.
+ * - One shared heartbeat keeps idle connections alive (ping every [HEARTBEAT_MILLIS]).
+ */
+object SseBroadcastHub {
+    /**
+     * Minimal interval between two pushes of the same topic.
+     */
+    const val COALESCE_MILLIS = 200L
+
+    const val HEARTBEAT_MILLIS = 30_000L
+
+    private const val PING = "ping"
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+
+    private val topics = ConcurrentHashMap<String, Topic>()
+
+    private var heartbeatJob: Job? = null
+
+    internal val statistics = Statistics()
+
+    /**
+     * Registers a new client for the given topic.
+     * @param topic The topic (e.g. including the session id, if the data is user specific).
+     * @param timeout The timeout in milliseconds for the emitter. Default is 60_000L (1 minute).
+     * @param initialData If given and not null, the current state is sent to the new client immediately.
+     * @return The emitter to return by the rest controller.
+     */
+    @JvmOverloads
+    fun subscribe(topic: String, timeout: Long = 60_000L, initialData: (() -> Any?)? = null): SseEmitter {
+        return subscribe(topic, SseEmitter(timeout), initialData)
+    }
+
+    /**
+     * Registers the given emitter for the given topic (tests may use their own emitters).
+     */
+    internal fun subscribe(topic: String, emitter: SseEmitter, initialData: (() -> Any?)?): SseEmitter {
+        val subscriber = Subscriber(topic, emitter)
+        topics.compute(topic) { _, t -> (t ?: Topic()).also { it.subscribers.add(subscriber) } }
+        statistics.created.incrementAndGet()
+        emitter.onCompletion { unsubscribe(subscriber) }
+        emitter.onTimeout { unsubscribe(subscriber) }
+        emitter.onError { unsubscribe(subscriber) }
+        ensureHeartbeat()
+        initialData?.invoke()?.let { data ->
+            subscriber.offer(JsonUtils.toJson(data), System.nanoTime())
+        }
+        return emitter
+    }
+
+    /**
+     * Notifies all subscribers of the given topic about a change. Cheap, if the topic has no subscribers. May be called
+     * very often (e.g. on every log message), pushes are coalesced.
+     * @param data Supplier of the current data. Called once per push (not per publish and not per subscriber).
+     */
+    fun publish(topic: String, data: () -> Any?) {
+        val t = topics[topic] ?: return
+        statistics.published.incrementAndGet()
+        t.data = data
+        if (!t.scheduled.compareAndSet(false, true)) {
+            statistics.coalesced.incrementAndGet()
+            return // Push already scheduled, the latest data will be sent.
+        }
+        val publishedAt = System.nanoTime()
+        scope.launch {
+            delay(COALESCE_MILLIS)
+            t.scheduled.set(false)
+            if (t.subscribers.isEmpty()) {
+                return@launch
+            }
+            val json = try {
+                JsonUtils.toJson(t.data?.invoke())
+            } catch (ex: Exception) {
+                log.error(ex) { "Can't serialize data of topic '$topic': ${ex.message}" }
+                return@launch
+            }
+            statistics.serialized.incrementAndGet()
+            t.subscribers.forEach { it.offer(json, publishedAt) }
+        }
+    }
+
+    val activeSubscribers: Int
+        get() = topics.values.sumOf { it.subscribers.size }
+
+    val topicCount: Int
+        get() = topics.size
+
+    internal fun getSubscriberCount(topic: String): Int {
+        return topics[topic]?.subscribers?.size ?: 0
+    }
+
+    private fun unsubscribe(subscriber: Subscriber) {
+        subscriber.closed.set(true)
+        if (!subscriber.unsubscribed.compareAndSet(false, true)) {
+            return // Already unsubscribed (onCompletion is called after onTimeout/onError).
+        }
+        statistics.completed.incrementAndGet()
+        topics.computeIfPresent(subscriber.topic) { _, t ->
+            t.subscribers.remove(subscriber)
+            if (t.subscribers.isEmpty()) null else t // Remove topics without subscribers.
+        }
+    }
+
+    @Synchronized
+    private fun ensureHeartbeat() {
+        if (heartbeatJob?.isActive == true) {
+            return
+        }
+        heartbeatJob = scope.launch {
+            while (true) {
+                delay(HEARTBEAT_MILLIS)
+                val now = System.currentTimeMillis()
+                var count = 0
+                topics.values.forEach { t ->
+                    t.subscribers.forEach { subscriber ->
+                        ++count
+                        if (subscriber.lastSent < now - HEARTBEAT_MILLIS + 1_000) {
+                            log.debug { "Sending ping to client" }
+                            subscriber.offer(PING, null)
+                        }
+                    }
+                }
+                if (count == 0) {
+                    synchronized(this@SseBroadcastHub) {
+                        if (activeSubscribers == 0) {
+                            heartbeatJob = null
+                            return@launch // No more subscribers, restarted by next subscribe.
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private class Topic {
+        val subscribers: MutableSet<Subscriber> = ConcurrentHashMap.newKeySet()
+
+        @Volatile
+        var data: (() -> Any?)? = null
+
+        val scheduled = AtomicBoolean(false)
+    }
+
+    private class Payload(val json: String, val publishedAt: Long?)
+
+    private class Subscriber(val topic: String, val emitter: SseEmitter) {
+        val closed = AtomicBoolean(false)
+
+        val unsubscribed = AtomicBoolean(false)
+
+        private val pending = AtomicReference<Payload?>()
+
+        private val sending = AtomicBoolean(false)
+
+        @Volatile
+        var lastSent = System.currentTimeMillis()
+
+        /**
+         * Only the latest payload is kept: a pending payload not yet sent is replaced.
+         */
+        fun offer(json: String, publishedAt: Long?) {
+            if (closed.get()) {
+                return
+            }
+            if (pending.getAndSet(Payload(json, publishedAt)) != null) {
+                statistics.dropped.incrementAndGet()
+            }
+            if (sending.compareAndSet(false, true)) {
+                scope.launch { drain() }
+            }
+        }
+
+        private fun drain() {
+            while (true) {
+                val payload = pending.getAndSet(null)
+                if (payload == null) {
+                    sending.set(false)
+                    // Re-check: offer may have set a payload after getAndSet but before sending was reset.
+                    if (pending.get() == null || !sending.compareAndSet(false, true)) {
+                        return
+                    }
+                    continue
+                }
+                if (closed.get()) {
+                    sending.set(false)
+                    return
+                }
+                try {
+                    emitter.send(payload.json)
+                    lastSent = System.currentTimeMillis()
+                    payload.publishedAt?.let { statistics.addLatency(System.nanoTime() - it) }
+                } catch (ex: Exception) {
+                    // Connection closed?
+                    log.debug { "Can't send to client (connection closed?): ${ex.message}" }
+                    statistics.sendErrors.incrementAndGet()
+                    unsubscribe(this)
+                    sending.set(false)
+                    emitter.completeWithError(ex)
+                    return
+                }
+            }
+        }
+    }
+
+    internal class Statistics {
+        val created = AtomicLong()
+        val completed = AtomicLong()
+        val published = AtomicLong()
+        val coalesced = AtomicLong()
+        val serialized = AtomicLong()
+        val dropped = AtomicLong()
+        val sendErrors = AtomicLong()
+        val delivered = AtomicLong()
+        private val latencyNanos = AtomicLong()
+        private val maxLatencyNanos = AtomicLong()
+
+        fun addLatency(nanos: Long) {
+            delivered.incrementAndGet()
+            latencyNanos.addAndGet(nanos)
+            maxLatencyNanos.accumulateAndGet(nanos, ::maxOf)
+        }
+
+        /**
+         * Average latency in millis between publishing and sending to the client (including [COALESCE_MILLIS]).
+         */
+        val averageLatencyMillis: Long
+            get() = delivered.get().let { if (it == 0L) 0L else latencyNanos.get() / it / 1_000_000 }
+
+        val maxLatencyMillis: Long
+            get() = maxLatencyNanos.get() / 1_000_000
+    }
+}
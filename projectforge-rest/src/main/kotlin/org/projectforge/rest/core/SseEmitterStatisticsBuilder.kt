@@ -23,25 +23,55 @@
 
 package org.projectforge.rest.core
 
+import jakarta.annotation.PostConstruct
+import org.projectforge.business.admin.SystemStatistics
 import org.projectforge.business.admin.SystemStatisticsData
 import org.projectforge.business.admin.SystemsStatisticsBuilderInterface
 import org.projectforge.common.extensions.formatForUser
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.stereotype.Component
 
+@Component
 class SseEmitterStatisticsBuilder : SystemsStatisticsBuilderInterface {
+    @Autowired
+    private lateinit var systemStatistics: SystemStatistics
+
+    @PostConstruct
+    private fun postConstruct() {
+        systemStatistics.registerStatisticsBuilder(this)
+    }
+
     override fun addStatisticsEntries(stats: SystemStatisticsData) {
-        val coroutineTracker = SseEmitterTool.coroutineTracker
+        val hub = SseBroadcastHub
+        val statistics = hub.statistics
         val sb = StringBuilder()
         sb.append("active=")
-            .append(coroutineTracker.actives.formatForUser())
+            .append(hub.activeSubscribers.formatForUser())
+            .append(", topics=")
+            .append(hub.topicCount.formatForUser())
             .append(", created=")
-            .append(coroutineTracker.created.formatForUser())
+            .append(statistics.created.get().formatForUser())
             .append(", completed=")
-            .append(coroutineTracker.completed.formatForUser())
-        if (coroutineTracker.errorMessage != null) {
-            sb.append(", error=[")
-                .append(coroutineTracker.errorMessage)
-                .append("]")
-        }
-        stats.add("SseEmitterCoroutines", "development", "'SseEmitterCoroutines", sb.toString())
+            .append(statistics.completed.get().formatForUser())
+        stats.add("SseEmitters", "development", "'SseEmitters", sb.toString())
+        sb.clear()
+        sb.append("published=")
+            .append(statistics.published.get().formatForUser())
+            .append(", coalesced=")
+            .append(statistics.coalesced.get().formatForUser())
+            .append(", serialized=")
+            .append(statistics.serialized.get().formatForUser())
+            .append(", delivered=")
+            .append(statistics.delivered.get().formatForUser())
+            .append(", dropped (slow clients)=")
+            .append(statistics.dropped.get().formatForUser())
+            .append(", send errors=")
+            .append(statistics.sendErrors.get().formatForUser())
+            .append(", latency avg/max=")
+            .append(statistics.averageLatencyMillis.formatForUser())
+            .append("/")
+            .append(statistics.maxLatencyMillis.formatForUser())
+            .append("ms")
+        stats.add("SseEmitterEvents", "development", "'SseEmitterEvents", sb.toString())
     }
 }
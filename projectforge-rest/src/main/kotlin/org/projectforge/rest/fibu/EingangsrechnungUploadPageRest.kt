@@ -32,8 +32,11 @@ import org.projectforge.business.user.UserRightValue
 import org.projectforge.framework.access.AccessChecker
 import org.projectforge.framework.i18n.translate
 import org.projectforge.rest.config.Rest
+import org.projectforge.rest.core.ExpiringSessionAttributes
 import org.projectforge.rest.fibu.importer.EingangsrechnungImportStorage
 import org.projectforge.rest.fibu.importer.IncomingInvoiceCsvImporter
+import org.projectforge.rest.fibu.importer.IncomingInvoicePosImportPageRest
+import org.projectforge.rest.importer.AbstractImportPageRest
 import org.projectforge.rest.importer.AbstractImportUploadPageRest
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.web.bind.annotation.RequestMapping
@@ -89,7 +92,7 @@ class EingangsrechnungUploadPageRest : AbstractImportUploadPageRest() {
         }
     }
 
-    override fun proceedUpload(inputstream: InputStream, filename: String): String? {
+    override fun proceedUpload(request: HttpServletRequest, inputstream: InputStream, filename: String): String? {
         // DATEV CSV field mappings with German column names and formatting
         val datevImportSettings = """
             encoding=UTF-8
@@ -133,6 +136,13 @@ class EingangsrechnungUploadPageRest : AbstractImportUploadPageRest() {
                 kostCache,
                 kontoCache
             )
+            // Available for the import page while parsing (progress), stored again in successPage():
+            ExpiringSessionAttributes.setAttribute(
+                request,
+                AbstractImportPageRest.getSessionAttributeName(IncomingInvoicePosImportPageRest::class.java),
+                storage,
+                20,
+            )
             csvImporter.parse(inputstream, storage, storage.importSettings.charSet)
         }
 
@@ -28,11 +28,13 @@ import org.projectforge.business.PfCaches
 import org.projectforge.business.fibu.EingangsrechnungDO
 import org.projectforge.business.fibu.EingangsrechnungDao
 import org.projectforge.business.fibu.RechnungCalculator
+import org.projectforge.common.StringMatchUtils
 import org.projectforge.framework.configuration.ApplicationContextProvider
 import org.projectforge.framework.i18n.translate
 import org.projectforge.rest.dto.Konto
 import org.projectforge.rest.dto.Kost1
 import org.projectforge.rest.dto.Kost2
+import org.projectforge.rest.importer.ImportMatchingEngine
 import org.projectforge.rest.importer.ImportPairEntry
 import org.projectforge.rest.importer.ImportSettings
 import org.projectforge.rest.importer.ImportStorage
@@ -352,26 +354,67 @@ class EingangsrechnungImportStorage(importSettings: String? = null) :
     /**
      * Optimized header-only matching using the same multi-stage approach.
      * When used for consolidated position-based imports, expands matches to all positions.
+     *
+     * The stages are run by the [ImportMatchingEngine] as lookups in hash indexes on (referenz, datum, grossSum),
+     * referenz and kreditor. Only the final fallback stage scores all remaining invoices against each other.
      */
     private fun buildOptimizedHeaderOnlyMatchingPairs(
         readInvoices: List<EingangsrechnungPosImportDTO>,
         dbInvoices: List<EingangsrechnungDO>
     ) {
-        val matchedReadIndices = mutableSetOf<Int>()
-        val matchedDbIndices = mutableSetOf<Int>()
-        val matches = mutableListOf<Pair<Int, Int>>()
+        val engine = ImportMatchingEngine(readInvoices, dbInvoices)
+        // Company similarity is expensive and the same creditors occur in many invoices:
+        val companySimilarities = HashMap<Pair<String, String>, Double>()
+        val companySimilarity = { c1: String, c2: String ->
+            companySimilarities.getOrPut(Pair(c1, c2)) { StringMatchUtils.calculateCompanySimilarity(c1, c2) }
+        }
 
-        // Stage 1: Exact matches - O(n)
+        // Stage 1: Exact matches (referenz + datum + grossSum are all identical)
         log.debug { "Header-only Stage 1: Looking for exact matches..." }
-        findExactMatches(readInvoices, dbInvoices, matchedReadIndices, matchedDbIndices, matches)
+        val exactMatches = engine.matchExact(
+            readKey = { exactMatchKey(it.referenz, it.datum, it.grossSum) },
+            dbKey = { exactMatchKey(it.referenz, it.datum, getGrossSum(it)) },
+        ) { readInvoice, dbInvoice ->
+            log.debug { "STAGE 1 EXACT MATCH: Import='${readInvoice.referenz}' vs DB='${dbInvoice.referenz}' | ImportKreditor='${readInvoice.kreditor}' vs DBKreditor='${dbInvoice.kreditor}' | ImportDate=${readInvoice.datum} vs DBDate=${dbInvoice.datum} | ImportAmount=${readInvoice.grossSum} vs DBAmount=${getGrossSum(dbInvoice)}" }
+        }
+        log.debug { "Stage 1 completed: $exactMatches exact matches found" }
 
-        // Stage 2: Grouped matches - O(n log n)
+        // Stage 2: Grouped matches by invoice number (referenz) and by creditor
         log.debug { "Header-only Stage 2: Looking for grouped matches..." }
-        findGroupedHeaderMatches(readInvoices, dbInvoices, matchedReadIndices, matchedDbIndices, matches)
+        val score = { readInvoice: EingangsrechnungPosImportDTO, dbInvoice: EingangsrechnungDO ->
+            readInvoice.matchScore(dbInvoice, companySimilarity = companySimilarity)
+        }
+        var groupedMatches = engine.matchBestInGroups(
+            readKey = { normalizedKey(it.referenz) },
+            dbKey = { normalizedKey(it.referenz) },
+            minScore = MIN_GROUP_MATCH_SCORE,
+            score = score,
+        ) { readInvoice, dbInvoice, bestScore ->
+            log.debug { "STAGE 2 HEADER REFERENZ GROUP MATCH (score: $bestScore): Import='${readInvoice.referenz}' vs DB='${dbInvoice.referenz}' | ImportKreditor='${readInvoice.kreditor}' vs DBKreditor='${dbInvoice.kreditor}' | ImportDate=${readInvoice.datum} vs DBDate=${dbInvoice.datum}" }
+        }
+        groupedMatches += engine.matchBestInGroups(
+            readKey = { normalizedKey(it.kreditor) },
+            dbKey = { normalizedKey(it.kreditor) },
+            minScore = MIN_GROUP_MATCH_SCORE,
+            score = score,
+        ) { readInvoice, dbInvoice, bestScore ->
+            log.debug { "STAGE 2 HEADER KREDITOR GROUP MATCH (score: $bestScore): Import='${readInvoice.referenz}' vs DB='${dbInvoice.referenz}' | ImportKreditor='${readInvoice.kreditor}' vs DBKreditor='${dbInvoice.kreditor}' | ImportDate=${readInvoice.datum} vs DBDate=${dbInvoice.datum}" }
+        }
+        log.debug { "Header-only Stage 2 completed: $groupedMatches grouped matches found" }
 
         // Stage 3: Fallback matches for remaining invoices
+        // Require minimum score of 50 to avoid false-positive matches based on substring similarity alone
+        // Score 50 = exact invoice number OR strong combination (e.g., similar kreditor + exact date + some more)
         log.debug { "Header-only Stage 3: Fallback matching for remaining invoices..." }
-        findFallbackHeaderMatches(readInvoices, dbInvoices, matchedReadIndices, matchedDbIndices, matches)
+        val fallbackMatches = engine.matchBestRemaining(
+            minScore = MIN_FALLBACK_MATCH_SCORE,
+            score = { readInvoice, dbInvoice ->
+                readInvoice.matchScore(dbInvoice, logErrors = true, companySimilarity = companySimilarity)
+            },
+        ) { readInv, dbInv, maxScore ->
+            log.debug { "STAGE 3 HEADER FALLBACK MATCH (score: $maxScore): Import='${readInv.referenz}' vs DB='${dbInv.referenz}' | ImportKreditor='${readInv.kreditor}' vs DBKreditor='${dbInv.kreditor}' | ImportDate=${readInv.datum} vs DBDate=${dbInv.datum}" }
+        }
+        log.debug { "Header-only Stage 3 completed: $fallbackMatches fallback matches found" }
 
         // Check if we're in consolidated position-based mode
         val isConsolidatedMode = consolidatedInvoicesByHeader.isNotEmpty()
@@ -379,31 +422,47 @@ class EingangsrechnungImportStorage(importSettings: String? = null) :
         if (isConsolidatedMode) {
             // Expand header matches to position-level pair entries
             log.debug { "=== EXPANDING MATCHES TO POSITIONS ===" }
-            expandHeaderMatchesToPositions(readInvoices, dbInvoices, matches, matchedReadIndices, matchedDbIndices)
+            expandHeaderMatchesToPositions(engine)
         } else {
             // Normal header-only mode
             // Create ImportPairEntry objects from matches (header-only style)
-            matches.forEach { (readIndex, dbIndex) ->
+            engine.matches.forEach { (readIndex, dbIndex) ->
                 val dbDto = createImportDTO(dbInvoices[dbIndex])
                 addEntry(createPairEntryWithErrors(readInvoices[readIndex], dbDto))
             }
 
             // Add unmatched read entries as new
-            readInvoices.forEachIndexed { index, invoice ->
-                if (!matchedReadIndices.contains(index)) {
-                    addEntry(createPairEntryWithErrors(invoice, null))
-                }
+            engine.forEachUnmatchedRead { _, invoice ->
+                addEntry(createPairEntryWithErrors(invoice, null))
             }
 
             // Add unmatched database entries as deleted (header-only)
-            dbInvoices.forEachIndexed { index, invoice ->
-                if (!matchedDbIndices.contains(index)) {
-                    addEntry(createPairEntryWithErrors(null, createImportDTO(invoice)))
-                }
+            engine.forEachUnmatchedDb { _, invoice ->
+                addEntry(createPairEntryWithErrors(null, createImportDTO(invoice)))
             }
         }
     }
 
+    private fun exactMatchKey(referenz: String?, datum: LocalDate?, grossSum: BigDecimal?): Triple<String, LocalDate, BigDecimal>? {
+        val normalizedReferenz = normalizedKey(referenz)
+        if (normalizedReferenz == null || datum == null || grossSum == null) {
+            return null
+        }
+        return Triple(normalizedReferenz, datum, grossSum)
+    }
+
+    private fun normalizedKey(str: String?): String? {
+        return str?.trim()?.lowercase()?.ifBlank { null }
+    }
+
+    private fun getGrossSum(dbInvoice: EingangsrechnungDO): BigDecimal? {
+        return try {
+            dbInvoice.ensuredInfo.grossSum
+        } catch (e: Exception) {
+            null
+        }
+    }
+
     /**
      * Expands invoice-level matches to position-level pair entries.
      * This is used after consolidating and matching positions as invoices.
@@ -411,19 +470,13 @@ class EingangsrechnungImportStorage(importSettings: String? = null) :
      * For each matched invoice:
      * - Creates pair entries for ALL import positions of that invoice with the matched DB invoice
      *
-     * @param readHeaders List of consolidated invoice headers
-     * @param dbInvoices List of database invoices
-     * @param matches List of (readIndex, dbIndex) pairs from matching
-     * @param matchedReadIndices Set of matched read indices
-     * @param matchedDbIndices Set of matched DB indices
+     * @param engine The matching engine with the matches of the consolidated invoice headers and the database invoices
      */
     private fun expandHeaderMatchesToPositions(
-        readHeaders: List<EingangsrechnungPosImportDTO>,
-        dbInvoices: List<EingangsrechnungDO>,
-        matches: List<Pair<Int, Int>>,
-        matchedReadIndices: Set<Int>,
-        matchedDbIndices: Set<Int>
+        engine: ImportMatchingEngine<EingangsrechnungPosImportDTO, EingangsrechnungDO>,
     ) {
+        val readHeaders = engine.readEntries
+        val dbInvoices = engine.dbEntries
         // Create a map: header -> consolidated invoice
         val headerToConsolidated = mutableMapOf<EingangsrechnungPosImportDTO, ConsolidatedInvoice>()
         consolidatedInvoicesByHeader.values.forEach { consolidated ->
@@ -431,7 +484,7 @@ class EingangsrechnungImportStorage(importSettings: String? = null) :
         }
 
         // Process matches: expand to positions and pair by index
-        matches.forEach { (readIndex, dbIndex) ->
+        engine.matches.forEach { (readIndex, dbIndex) ->
             val header = readHeaders[readIndex]
             val dbInvoice = dbInvoices[dbIndex]
             val consolidated = headerToConsolidated[header]
@@ -447,21 +500,21 @@ class EingangsrechnungImportStorage(importSettings: String? = null) :
                 // This ensures that Position 2 is matched with DB Position 2, not DB Position 1
                 val importPosByNumber = importPositions.associateBy { it.positionNummer }
                 val dbPositions = dbInvoice.positionen ?: emptyList()
-                val dbPosByNumber = dbPositions
-                    .filter { !it.deleted }
-                    .associateBy { it.number.toInt() }
+                // Position number -> index of the position in dbPositions:
+                val dbPosIndexByNumber = dbPositions.withIndex()
+                    .filter { !it.value.deleted }
+                    .associate { it.value.number.toInt() to it.index }
 
                 // Get all position numbers (import + DB)
-                val allPositionNumbers = (importPosByNumber.keys + dbPosByNumber.keys).toSet()
+                val allPositionNumbers = (importPosByNumber.keys + dbPosIndexByNumber.keys).toSet()
 
                 allPositionNumbers.forEach { posNum ->
                     val importPos = importPosByNumber[posNum]
-                    val dbPos = dbPosByNumber[posNum]
+                    val dbPosIndex = dbPosIndexByNumber[posNum]
 
-                    val dbDto = if (dbPos != null) {
+                    val dbDto = if (dbPosIndex != null) {
                         // Position exists in DB - create full DTO from DB position
-                        val dbIndex = dbPositions.indexOf(dbPos)
-                        createImportDTOForPosition(dbInvoice, dbIndex)
+                        createImportDTOForPosition(dbInvoice, dbPosIndex)
                     } else if (importPos != null) {
                         // Position is new, but invoice exists in DB
                         // Create minimal DTO with invoice ID so groupEntriesByInvoice() can find storedId
@@ -487,122 +540,25 @@ class EingangsrechnungImportStorage(importSettings: String? = null) :
         }
 
         // Add unmatched import invoices as new (expand to all positions)
-        readHeaders.forEachIndexed { index, header ->
-            if (!matchedReadIndices.contains(index)) {
-                val consolidated = headerToConsolidated[header]
-                if (consolidated != null) {
-                    log.debug { "  New: Import invoice '${header.referenz}' (${consolidated.positions.size} positions) → NEW" }
-                    consolidated.positions.forEach { position ->
-                        addEntry(createPairEntryWithErrors(position, null))
-                    }
+        engine.forEachUnmatchedRead { _, header ->
+            val consolidated = headerToConsolidated[header]
+            if (consolidated != null) {
+                log.debug { "  New: Import invoice '${header.referenz}' (${consolidated.positions.size} positions) → NEW" }
+                consolidated.positions.forEach { position ->
+                    addEntry(createPairEntryWithErrors(position, null))
                 }
             }
         }
 
         // Add unmatched database invoices as deleted
-        dbInvoices.forEachIndexed { index, invoice ->
-            if (!matchedDbIndices.contains(index)) {
-                log.debug { "  Deleted: DB invoice '${invoice.referenz}' → DELETED" }
-                addEntry(createPairEntryWithErrors(null, createImportDTO(invoice)))
-            }
+        engine.forEachUnmatchedDb { _, invoice ->
+            log.debug { "  Deleted: DB invoice '${invoice.referenz}' → DELETED" }
+            addEntry(createPairEntryWithErrors(null, createImportDTO(invoice)))
         }
 
         log.debug { "=== EXPANSION COMPLETED ===" }
     }
 
-    /**
-     * Grouped matches for header-only imports using headerMatchScore.
-     */
-    private fun findGroupedHeaderMatches(
-        readInvoices: List<EingangsrechnungPosImportDTO>,
-        dbInvoices: List<EingangsrechnungDO>,
-        matchedReadIndices: MutableSet<Int>,
-        matchedDbIndices: MutableSet<Int>,
-        matches: MutableList<Pair<Int, Int>>
-    ) {
-        val initialMatches = matches.size
-
-        // Use header-specific matching for grouped searches
-        findHeaderMatchesInReferenzGroups(readInvoices, dbInvoices, matchedReadIndices, matchedDbIndices, matches)
-        findHeaderMatchesInCreditorGroups(readInvoices, dbInvoices, matchedReadIndices, matchedDbIndices, matches)
-
-        log.debug { "Header-only Stage 2 completed: ${matches.size - initialMatches} grouped matches found" }
-    }
-
-    /**
-     * Fallback header-only matches using headerMatchScore.
-     */
-    private fun findFallbackHeaderMatches(
-        readInvoices: List<EingangsrechnungPosImportDTO>,
-        dbInvoices: List<EingangsrechnungDO>,
-        matchedReadIndices: MutableSet<Int>,
-        matchedDbIndices: MutableSet<Int>,
-        matches: MutableList<Pair<Int, Int>>
-    ) {
-        val initialMatches = matches.size
-        val unmatchedRead = readInvoices.filterIndexed { index, _ -> !matchedReadIndices.contains(index) }
-        val unmatchedDb = dbInvoices.filterIndexed { index, _ -> !matchedDbIndices.contains(index) }
-
-        if (unmatchedRead.isEmpty() || unmatchedDb.isEmpty()) {
-            return
-        }
-
-        val readToOriginalIndex = readInvoices.mapIndexed { index, invoice -> invoice to index }.toMap()
-        val dbToOriginalIndex = dbInvoices.mapIndexed { index, invoice -> invoice to index }.toMap()
-
-        val scoreMatrix = Array(unmatchedRead.size) { IntArray(unmatchedDb.size) }
-
-        // Calculate scores
-        for (i in unmatchedRead.indices) {
-            for (j in unmatchedDb.indices) {
-                val score = unmatchedRead[i].matchScore(unmatchedDb[j], logErrors = true)
-                scoreMatrix[i][j] = score
-            }
-        }
-
-        val takenReadIndices = mutableSetOf<Int>()
-        val takenDbIndices = mutableSetOf<Int>()
-
-        // Find best matches iteratively
-        while (true) {
-            var maxScore = 0
-            var maxReadIndex = -1
-            var maxDbIndex = -1
-
-            for (i in unmatchedRead.indices) {
-                if (takenReadIndices.contains(i)) continue
-                for (j in unmatchedDb.indices) {
-                    if (takenDbIndices.contains(j)) continue
-                    if (scoreMatrix[i][j] > maxScore) {
-                        maxScore = scoreMatrix[i][j]
-                        maxReadIndex = i
-                        maxDbIndex = j
-                    }
-                }
-            }
-
-            // Require minimum score of 50 to avoid false-positive matches based on substring similarity alone
-            // Score 50 = exact invoice number OR strong combination (e.g., similar kreditor + exact date + some more)
-            if (maxScore < 50) break
-
-            takenReadIndices.add(maxReadIndex)
-            takenDbIndices.add(maxDbIndex)
-
-            val originalReadIndex = readToOriginalIndex[unmatchedRead[maxReadIndex]]!!
-            val originalDbIndex = dbToOriginalIndex[unmatchedDb[maxDbIndex]]!!
-
-            val readInv = unmatchedRead[maxReadIndex]
-            val dbInv = unmatchedDb[maxDbIndex]
-            log.debug { "STAGE 3 HEADER FALLBACK MATCH (score: $maxScore): Import='${readInv.referenz}' vs DB='${dbInv.referenz}' | ImportKreditor='${readInv.kreditor}' vs DBKreditor='${dbInv.kreditor}' | ImportDate=${readInv.datum} vs DBDate=${dbInv.datum}" }
-
-            matches.add(Pair(originalReadIndex, originalDbIndex))
-            matchedReadIndices.add(originalReadIndex)
-            matchedDbIndices.add(originalDbIndex)
-        }
-
-        log.debug { "Header-only Stage 3 completed: ${matches.size - initialMatches} fallback matches found" }
-    }
-
     /**
      * Creates an import DTO from a DB invoice header (without position-specific fields).
      * Used for header-only imports and deleted invoice entries.
@@ -686,164 +642,6 @@ class EingangsrechnungImportStorage(importSettings: String? = null) :
         return dto
     }
 
-    /**
-     * Stage 1: Find exact matches using hash-based lookups for maximum performance.
-     * Creates hash maps for fast O(1) lookups of exact matches.
-     */
-    private fun findExactMatches(
-        readInvoices: List<EingangsrechnungPosImportDTO>,
-        dbInvoices: List<EingangsrechnungDO>,
-        matchedReadIndices: MutableSet<Int>,
-        matchedDbIndices: MutableSet<Int>,
-        matches: MutableList<Pair<Int, Int>>
-    ) {
-        // Create hash map for fast lookups - O(n)
-        val dbByReferenzDateAmount = mutableMapOf<String, MutableList<Pair<Int, EingangsrechnungDO>>>()
-
-        // Build hash map for database invoices using exact match key (referenz + datum + grossSum)
-        dbInvoices.forEachIndexed { index, dbInvoice ->
-            if (matchedDbIndices.contains(index)) return@forEachIndexed
-
-            val referenz = dbInvoice.referenz?.trim()?.lowercase()
-            val datum = dbInvoice.datum
-            val grossSum = try {
-                dbInvoice.ensuredInfo.grossSum
-            } catch (e: Exception) {
-                null
-            }
-
-            if (!referenz.isNullOrBlank() && datum != null && grossSum != null) {
-                val primaryKey = "$referenz|$datum|$grossSum"
-                dbByReferenzDateAmount.getOrPut(primaryKey) { mutableListOf() }.add(Pair(index, dbInvoice))
-            }
-        }
-
-        // Find matches for read invoices - O(n)
-        readInvoices.forEachIndexed { readIndex, readInvoice ->
-            if (matchedReadIndices.contains(readIndex)) return@forEachIndexed
-
-            val referenz = readInvoice.referenz?.trim()?.lowercase()
-            val datum = readInvoice.datum
-            val grossSum = readInvoice.grossSum
-
-            // Only match if referenz + datum + grossSum are all identical
-            if (!referenz.isNullOrBlank() && datum != null && grossSum != null) {
-                val primaryKey = "$referenz|$datum|$grossSum"
-                dbByReferenzDateAmount[primaryKey]?.firstOrNull { (dbIndex, _) ->
-                    !matchedDbIndices.contains(dbIndex)
-                }?.let { (dbIndex, dbInvoice) ->
-                    matches.add(Pair(readIndex, dbIndex))
-                    matchedReadIndices.add(readIndex)
-                    matchedDbIndices.add(dbIndex)
-                    log.debug {
-                        "STAGE 1 EXACT MATCH: Import='${readInvoice.referenz}' vs DB='${dbInvoice.referenz}' | ImportKreditor='${readInvoice.kreditor}' vs DBKreditor='${dbInvoice.kreditor}' | ImportDate=${readInvoice.datum} vs DBDate=${dbInvoice.datum} | ImportAmount=${readInvoice.grossSum} vs DBAmount=${
-                            try {
-                                dbInvoice.ensuredInfo.grossSum
-                            } catch (e: Exception) {
-                                null
-                            }
-                        }"
-                    }
-                    return@forEachIndexed
-                }
-            }
-        }
-
-        log.debug { "Stage 1 completed: ${matches.size} exact matches found" }
-    }
-
-    /**
-     * Group by invoice number (referenz) and find header matches within each group.
-     */
-    private fun findHeaderMatchesInReferenzGroups(
-        readInvoices: List<EingangsrechnungPosImportDTO>,
-        dbInvoices: List<EingangsrechnungDO>,
-        matchedReadIndices: MutableSet<Int>,
-        matchedDbIndices: MutableSet<Int>,
-        matches: MutableList<Pair<Int, Int>>
-    ) {
-        val dbByReferenz = dbInvoices.mapIndexed { index, invoice ->
-            index to invoice
-        }.filter { (index, _) -> !matchedDbIndices.contains(index) }
-            .groupBy { (_, invoice) -> invoice.referenz?.trim()?.lowercase() }
-            .filterKeys { !it.isNullOrBlank() }
-
-        readInvoices.forEachIndexed { readIndex, readInvoice ->
-            if (matchedReadIndices.contains(readIndex)) return@forEachIndexed
-
-            val referenz = readInvoice.referenz?.trim()?.lowercase()
-            if (referenz.isNullOrBlank()) return@forEachIndexed
-
-            val candidateGroup = dbByReferenz[referenz] ?: return@forEachIndexed
-            var bestMatch: Pair<Int, Int>? = null
-            var bestScore = 24
-
-            candidateGroup.forEach { (dbIndex, dbInvoice) ->
-                if (matchedDbIndices.contains(dbIndex)) return@forEach
-
-                val score = readInvoice.matchScore(dbInvoice)
-                if (score > bestScore) {
-                    bestScore = score
-                    bestMatch = Pair(readIndex, dbIndex)
-                }
-            }
-
-            bestMatch?.let { (readIdx, dbIdx) ->
-                val dbInvoice = candidateGroup.first { it.first == dbIdx }.second
-                matches.add(Pair(readIdx, dbIdx))
-                matchedReadIndices.add(readIdx)
-                matchedDbIndices.add(dbIdx)
-                log.debug { "STAGE 2 HEADER REFERENZ GROUP MATCH (score: $bestScore): Import='${readInvoice.referenz}' vs DB='${dbInvoice.referenz}' | ImportKreditor='${readInvoice.kreditor}' vs DBKreditor='${dbInvoice.kreditor}' | ImportDate=${readInvoice.datum} vs DBDate=${dbInvoice.datum}" }
-            }
-        }
-    }
-
-    /**
-     * Group by creditor and find header matches within each group.
-     */
-    private fun findHeaderMatchesInCreditorGroups(
-        readInvoices: List<EingangsrechnungPosImportDTO>,
-        dbInvoices: List<EingangsrechnungDO>,
-        matchedReadIndices: MutableSet<Int>,
-        matchedDbIndices: MutableSet<Int>,
-        matches: MutableList<Pair<Int, Int>>
-    ) {
-        val dbByKreditor = dbInvoices.mapIndexed { index, invoice ->
-            index to invoice
-        }.filter { (index, _) -> !matchedDbIndices.contains(index) }
-            .groupBy { (_, invoice) -> invoice.kreditor?.trim()?.lowercase() }
-            .filterKeys { !it.isNullOrBlank() }
-
-        readInvoices.forEachIndexed { readIndex, readInvoice ->
-            if (matchedReadIndices.contains(readIndex)) return@forEachIndexed
-
-            val kreditor = readInvoice.kreditor?.trim()?.lowercase()
-            if (kreditor.isNullOrBlank()) return@forEachIndexed
-
-            val candidateGroup = dbByKreditor[kreditor] ?: return@forEachIndexed
-            var bestMatch: Pair<Int, Int>? = null
-            var bestScore = 24
-
-            candidateGroup.forEach { (dbIndex, dbInvoice) ->
-                if (matchedDbIndices.contains(dbIndex)) return@forEach
-
-                val score = readInvoice.matchScore(dbInvoice)
-                if (score > bestScore) {
-                    bestScore = score
-                    bestMatch = Pair(readIndex, dbIndex)
-                }
-            }
-
-            bestMatch?.let { (readIdx, dbIdx) ->
-                val dbInvoice = candidateGroup.first { it.first == dbIdx }.second
-                matches.add(Pair(readIdx, dbIdx))
-                matchedReadIndices.add(readIdx)
-                matchedDbIndices.add(dbIdx)
-                log.debug { "STAGE 2 HEADER KREDITOR GROUP MATCH (score: $bestScore): Import='${readInvoice.referenz}' vs DB='${dbInvoice.referenz}' | ImportKreditor='${readInvoice.kreditor}' vs DBKreditor='${dbInvoice.kreditor}' | ImportDate=${readInvoice.datum} vs DBDate=${dbInvoice.datum}" }
-            }
-        }
-    }
-
     /**
      * Enriches read objects with stored values that are not present in the import data.
      * This prevents the frontend from showing deletions for fields that are simply not
@@ -980,4 +778,16 @@ class EingangsrechnungImportStorage(importSettings: String? = null) :
         }
         return pairEntry
     }
+
+    companion object {
+        /**
+         * Minimum score for matches within groups of equal invoice number or creditor.
+         */
+        private const val MIN_GROUP_MATCH_SCORE = 25
+
+        /**
+         * Minimum score for fallback matches of all remaining invoices.
+         */
+        private const val MIN_FALLBACK_MATCH_SCORE = 50
+    }
 }
@@ -228,11 +228,17 @@ class EingangsrechnungPosImportDTO(
      * Uses StringMatchUtils for advanced similarity matching of invoice numbers and creditors.
      *
      * @param logErrors If true, logs errors when amount calculation fails
+     * @param companySimilarity Calculation of the creditor similarity, may be replaced by a cached one for reconciling
+     * many invoices of the same creditors.
      */
-    fun matchScore(dbInvoice: EingangsrechnungDO, logErrors: Boolean = false): Int {
+    fun matchScore(
+        dbInvoice: EingangsrechnungDO,
+        logErrors: Boolean = false,
+        companySimilarity: (String, String) -> Double = { c1, c2 -> StringMatchUtils.calculateCompanySimilarity(c1, c2) },
+    ): Int {
         var score = 0
         val referenzScore = calculateReferenzMatchScore(dbInvoice)
-        val kreditorScore = calculateKreditorMatchScore(dbInvoice)
+        val kreditorScore = calculateKreditorMatchScore(dbInvoice, companySimilarity)
         val dateScore = calculateDateMatchScore(dbInvoice)
         val amountScore = calculateAmountMatchScore(dbInvoice, logErrors)
 
@@ -301,12 +307,15 @@ class EingangsrechnungPosImportDTO(
     /**
      * Calculate kreditor (creditor) match score using enhanced similarity matching.
      */
-    private fun calculateKreditorMatchScore(dbInvoice: EingangsrechnungDO): Int {
+    private fun calculateKreditorMatchScore(
+        dbInvoice: EingangsrechnungDO,
+        companySimilarity: (String, String) -> Double,
+    ): Int {
         val thisKreditor = this.kreditor
         val dbKreditor = dbInvoice.kreditor
         return if (!thisKreditor.isNullOrBlank() && !dbKreditor.isNullOrBlank()) {
             // Use StringMatchUtils for company similarity calculation
-            val similarity = StringMatchUtils.calculateCompanySimilarity(thisKreditor, dbKreditor)
+            val similarity = companySimilarity(thisKreditor, dbKreditor)
             convertSimilarityToScore(similarity)
         } else 0
     }
@@ -26,12 +26,20 @@ package org.projectforge.rest.importer
 import mu.KotlinLogging
 import org.projectforge.common.BeanHelper
 import org.projectforge.common.CSVParser
+import org.projectforge.common.extensions.format
+import org.projectforge.framework.i18n.translateMsg
 import org.projectforge.framework.utils.ValueParser
 import java.io.ByteArrayInputStream
 import java.io.InputStream
 import java.io.Reader
+import java.io.SequenceInputStream
+import java.lang.reflect.Method
 import java.math.BigDecimal
+import java.nio.ByteBuffer
+import java.nio.CharBuffer
+import java.nio.charset.CharacterCodingException
 import java.nio.charset.Charset
+import java.nio.charset.CodingErrorAction
 import java.nio.charset.StandardCharsets
 import java.time.LocalDate
 import java.util.*
@@ -79,7 +87,35 @@ abstract class AbstractCsvImporter<O : ImportPairEntry.Modified<O>> {
     open val logErrorOnPropertyParsing: Boolean = true
 
     /**
-     * Parse CSV from InputStream with charset detection.
+     * If true, the records are committed to the import storage in chunks of [chunkSize] rows while parsing (streaming
+     * mode), so the records of large files aren't held twice (as records and as import entries). [finalizeImport] is
+     * called for each chunk.
+     * If false (default), all records are committed after parsing the whole file and [finalizeImport] gets all records,
+     * e.g. for consolidating records.
+     *
+     * Limitation of the streaming mode: the number format of decimal fields without parse formats is auto-detected
+     * on the values of the first chunk only. The detected formats are added to the [ImportFieldSettings] of the
+     * import storage's settings and used for all following rows. So, if the values of the first chunk are ambiguous
+     * (e.g. only `1,234` or only integers, which may be read in German and in English style), later values might be
+     * parsed in the wrong style. Define the parse formats in the import settings for such files.
+     */
+    protected open val streaming: Boolean = false
+
+    /**
+     * Number of rows per chunk (committing in streaming mode and progress reporting).
+     */
+    protected open val chunkSize: Int = 1000
+
+    /**
+     * Maximum number of rows to read, the remaining rows are ignored and a warning is added to the import storage.
+     * May be overridden by the import setting `maxRows` (see [ImportSettings.maxRows]). All rows are held in memory
+     * by the import storage, so don't raise this limit too much.
+     */
+    protected open val maxRows: Int = DEFAULT_MAX_ROWS
+
+    /**
+     * Parse CSV from InputStream with charset detection. The input stream isn't read completely into memory, the
+     * charset is detected on the first bytes only (see [CHARSET_DETECTION_PREFIX_SIZE]).
      *
      * @param inputStream the input stream containing CSV data
      * @param importStorage the storage to hold imported data
@@ -90,11 +126,32 @@ abstract class AbstractCsvImporter<O : ImportPairEntry.Modified<O>> {
         importStorage: ImportStorage<O>,
         defaultCharset: Charset? = null,
     ) {
-        val bytes = inputStream.readAllBytes()
-        val detectedCharset = detectCharset(bytes, defaultCharset)
-
+        val prefix = inputStream.readNBytes(CHARSET_DETECTION_PREFIX_SIZE)
+        // If the prefix is smaller than the max size, the input stream is read completely:
+        val complete = prefix.size < CHARSET_DETECTION_PREFIX_SIZE
+        val detectedCharset = if (complete) {
+            detectCharset(prefix, defaultCharset)
+        } else {
+            // A multibyte character might be cut at the end of the prefix:
+            detectCharset(prefix.copyOf(prefix.size - countIncompleteTrailingUTF8Bytes(prefix)), defaultCharset)
+        }
+        if (!complete) {
+            log.info { "Parsing CSV (streaming, charset ${detectedCharset.name()})..." }
+            val stream = SequenceInputStream(ByteArrayInputStream(prefix), inputStream)
+            val reader = if (detectedCharset == StandardCharsets.UTF_8) {
+                // The detection on the prefix only isn't reliable for the rest of the input:
+                Utf8OrLatin1Reader(stream) { msg ->
+                    log.warn { msg }
+                    importStorage.addWarning(msg)
+                }
+            } else {
+                stream.reader(charset = detectedCharset)
+            }
+            parse(reader, importStorage)
+            return
+        }
         try {
-            parse(ByteArrayInputStream(bytes).reader(charset = detectedCharset), importStorage)
+            parse(ByteArrayInputStream(prefix).reader(charset = detectedCharset), importStorage)
         } catch (e: Exception) {
             log.warn("Failed to parse with detected charset ${detectedCharset.name()}, trying fallback charset", e)
             // Try with alternative charset if the first attempt fails
@@ -104,7 +161,9 @@ abstract class AbstractCsvImporter<O : ImportPairEntry.Modified<O>> {
                 StandardCharsets.UTF_8
             }
             log.info("Retrying CSV parse with fallback charset: ${fallbackCharset.name()}")
-            parse(ByteArrayInputStream(bytes).reader(charset = fallbackCharset), importStorage)
+            // Entries already committed by the first attempt (e.g. chunks in streaming mode) would be duplicated:
+            importStorage.clearEntries()
+            parse(ByteArrayInputStream(prefix).reader(charset = fallbackCharset), importStorage)
         }
     }
 
@@ -116,7 +175,15 @@ abstract class AbstractCsvImporter<O : ImportPairEntry.Modified<O>> {
      * @param importStorage the storage to hold imported data
      */
     fun parse(reader: Reader, importStorage: ImportStorage<O>) {
-        val settings = importStorage.importSettings
+        importStorage.parsing = true
+        try {
+            parseRows(reader, importStorage)
+        } finally {
+            importStorage.parsing = false
+        }
+    }
+
+    private fun parseRows(reader: Reader, importStorage: ImportStorage<O>) {
         val parser = CSVParser(reader)
 
         // Parse headers with custom processing hook
@@ -128,12 +195,20 @@ abstract class AbstractCsvImporter<O : ImportPairEntry.Modified<O>> {
 
         // Initialize for row processing
         val autodetectNumberFormatMap = AutodetectNumberMap<O>()
+        val propertyAccessors = PropertyAccessors()
         val records = mutableListOf<O>()
+        val maxRows = importStorage.importSettings.maxRows ?: this.maxRows
+        importStorage.numberOfParsedRows = 0
 
         // Process each data row
         var rowIndex = 0
-        for (i in 0..100000) { // Paranoid loop, read 100000 lines at max.
+        while (true) {
             val line = parser.parseLine() ?: break  // Finished
+            if (rowIndex >= maxRows) {
+                log.warn { "Maximum number of $maxRows rows exceeded, ignoring the remaining rows." }
+                importStorage.addWarning(translateMsg("import.warning.maxRowsExceeded", maxRows.format()))
+                break
+            }
 
             val record = prepareEntity(importStorage)
 
@@ -143,7 +218,7 @@ abstract class AbstractCsvImporter<O : ImportPairEntry.Modified<O>> {
             // Process each cell in the row
             line.forEachIndexed { columnIndex, value ->
                 importStorage.columnMapping[columnIndex]?.let { fieldSettings ->
-                    processRowCell(record, fieldSettings, value, autodetectNumberFormatMap, rowContext)
+                    processRowCell(record, fieldSettings, value, autodetectNumberFormatMap, rowContext, propertyAccessors)
                 }
             }
 
@@ -152,10 +227,32 @@ abstract class AbstractCsvImporter<O : ImportPairEntry.Modified<O>> {
 
             records.add(record)
             rowIndex++
+            if (rowIndex % chunkSize == 0) {
+                if (streaming) {
+                    commitRecords(records, autodetectNumberFormatMap, importStorage, propertyAccessors)
+                }
+                reportProgress(rowIndex, importStorage)
+            }
+        }
+        if (!streaming || records.isNotEmpty()) {
+            commitRecords(records, autodetectNumberFormatMap, importStorage, propertyAccessors)
         }
+        reportProgress(rowIndex, importStorage)
+    }
 
+    /**
+     * Processes the auto-detected number formats, finalizes and commits the given records. The list of records
+     * is cleared afterwards.
+     */
+    private fun commitRecords(
+        records: MutableList<O>,
+        autodetectNumberFormatMap: AutodetectNumberMap<O>,
+        importStorage: ImportStorage<O>,
+        propertyAccessors: PropertyAccessors,
+    ) {
         // Handle number format auto-detection
-        processAutodetectedNumberFormats(autodetectNumberFormatMap)
+        processAutodetectedNumberFormats(autodetectNumberFormatMap, propertyAccessors)
+        autodetectNumberFormatMap.clear()
 
         // Finalize import with custom logic
         finalizeImport(records, importStorage)
@@ -164,6 +261,12 @@ abstract class AbstractCsvImporter<O : ImportPairEntry.Modified<O>> {
         records.forEach { record ->
             importStorage.commitEntity(record)
         }
+        records.clear()
+    }
+
+    private fun reportProgress(numberOfRows: Int, importStorage: ImportStorage<O>) {
+        importStorage.numberOfParsedRows = numberOfRows
+        onProgress(numberOfRows, importStorage)
     }
 
     // =============================================================================
@@ -232,6 +335,16 @@ abstract class AbstractCsvImporter<O : ImportPairEntry.Modified<O>> {
         // Default: no additional processing
     }
 
+    /**
+     * Hook for reporting the progress, called every [chunkSize] rows and after the last row.
+     *
+     * @param numberOfRows the number of rows parsed so far
+     * @param importStorage the import storage
+     */
+    protected open fun onProgress(numberOfRows: Int, importStorage: ImportStorage<O>) {
+        log.debug { "$numberOfRows rows parsed." }
+    }
+
     // =============================================================================
     // Standard Implementation Methods
     // =============================================================================
@@ -256,7 +369,8 @@ abstract class AbstractCsvImporter<O : ImportPairEntry.Modified<O>> {
         fieldSettings: ImportFieldSettings,
         value: String,
         autodetectNumberFormatMap: AutodetectNumberMap<O>,
-        rowContext: CsvRowContext<O>
+        rowContext: CsvRowContext<O>,
+        propertyAccessors: PropertyAccessors,
     ) {
         // Try custom processing first
         if (processField(record, fieldSettings, value, rowContext)) {
@@ -266,22 +380,23 @@ abstract class AbstractCsvImporter<O : ImportPairEntry.Modified<O>> {
         // Check if ImportStorage wants to handle it
         if (!rowContext.importStorage.setProperty(record, fieldSettings, value)) {
             // Standard type-based processing
-            val targetValue = parseValueByType(record, fieldSettings, value, autodetectNumberFormatMap)
+            val propertyAccessor = propertyAccessors.get(record, fieldSettings)
+            val targetValue = parseValueByType(record, propertyAccessor, fieldSettings, value, autodetectNumberFormatMap)
 
             if (targetValue != null) {
-                setPropertyValue(record, fieldSettings, targetValue)
+                setPropertyValue(record, propertyAccessor, fieldSettings, targetValue)
             }
         }
     }
 
     private fun parseValueByType(
         record: O,
+        propertyAccessor: PropertyAccessor,
         fieldSettings: ImportFieldSettings,
         value: String,
         autodetectNumberFormatMap: AutodetectNumberMap<O>
     ): Any? {
-        val propertyType = BeanHelper.determinePropertyType(record::class.java, fieldSettings.property)
-        return when (propertyType) {
+        return when (propertyAccessor.type) {
             LocalDate::class.java -> {
                 fieldSettings.parseLocalDate(value)
             }
@@ -319,21 +434,26 @@ abstract class AbstractCsvImporter<O : ImportPairEntry.Modified<O>> {
         }
     }
 
-    private fun setPropertyValue(record: O, fieldSettings: ImportFieldSettings, targetValue: Any) {
+    private fun setPropertyValue(
+        record: O,
+        propertyAccessor: PropertyAccessor,
+        fieldSettings: ImportFieldSettings,
+        targetValue: Any,
+    ) {
         try {
             if (targetValue is String && targetValue.isNotBlank()) {
-                val existingValue = BeanHelper.getProperty(record, fieldSettings.property)
+                val existingValue = propertyAccessor.get(record)
                 if (existingValue != null && existingValue is String && existingValue.isNotBlank()) {
                     if (existingValue.trim() != targetValue.trim()) {
                         // Only concat if new value differs:
-                        BeanHelper.setProperty(record, fieldSettings.property, "$existingValue$targetValue")
+                        propertyAccessor.set(record, "$existingValue$targetValue")
                     }
                 } else {
                     // Set value because no existing one as String given:
-                    BeanHelper.setProperty(record, fieldSettings.property, targetValue)
+                    propertyAccessor.set(record, targetValue)
                 }
             } else if (targetValue !is String) {
-                BeanHelper.setProperty(record, fieldSettings.property, targetValue)
+                propertyAccessor.set(record, targetValue)
             }
         } catch (ex: Exception) {
             if (logErrorOnPropertyParsing) {
@@ -344,7 +464,10 @@ abstract class AbstractCsvImporter<O : ImportPairEntry.Modified<O>> {
         }
     }
 
-    private fun processAutodetectedNumberFormats(autodetectNumberFormatMap: AutodetectNumberMap<O>) {
+    private fun processAutodetectedNumberFormats(
+        autodetectNumberFormatMap: AutodetectNumberMap<O>,
+        propertyAccessors: PropertyAccessors,
+    ) {
         autodetectNumberFormatMap.storedFieldSettings.forEach { fieldSettings ->
             // Check format:
             var englishStyle = true
@@ -374,7 +497,7 @@ abstract class AbstractCsvImporter<O : ImportPairEntry.Modified<O>> {
                 val str = autodetectNumberEntry.valueStrings[fieldSettings]
                 if (str != null) {
                     val targetValue = fieldSettings.parseBigDecimal(str)
-                    BeanHelper.setProperty(record, fieldSettings.property, targetValue)
+                    propertyAccessors.get(record, fieldSettings).set(record, targetValue)
                 }
             }
         }
@@ -457,15 +580,39 @@ abstract class AbstractCsvImporter<O : ImportPairEntry.Modified<O>> {
 
     private fun isValidUTF8(bytes: ByteArray): Boolean {
         return try {
-            val decoded = String(bytes, StandardCharsets.UTF_8)
-            // Check if re-encoding produces the same bytes (valid UTF-8)
-            val reencoded = decoded.toByteArray(StandardCharsets.UTF_8)
-            bytes.contentEquals(reencoded)
-        } catch (e: Exception) {
+            // Strict decoding (without creating a string), fails on malformed sequences:
+            StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .decode(ByteBuffer.wrap(bytes))
+            true
+        } catch (e: CharacterCodingException) {
             false
         }
     }
 
+    /**
+     * @return the number of bytes at the end of the given bytes belonging to a UTF-8 multibyte character, which is
+     * cut (0, if the last character is complete or the bytes aren't UTF-8 at all).
+     */
+    private fun countIncompleteTrailingUTF8Bytes(bytes: ByteArray): Int {
+        // Search for the start byte of the last character (max. 3 continuation bytes 10xxxxxx):
+        for (i in 1..minOf(4, bytes.size)) {
+            val b = bytes[bytes.size - i].toInt() and 0xFF
+            if (b and 0xC0 == 0x80) {
+                continue // Continuation byte.
+            }
+            val expectedLength = when {
+                b and 0xE0 == 0xC0 -> 2
+                b and 0xF0 == 0xE0 -> 3
+                b and 0xF8 == 0xF0 -> 4
+                else -> 1
+            }
+            return if (expectedLength > i) i else 0
+        }
+        return 0
+    }
+
     private fun hasGermanCharsInISO88591Range(bytes: ByteArray): Boolean {
         // Check for German umlauts in ISO-8859-1 byte range (0x80-0xFF)
         val germanCharsISO88591 = setOf(
@@ -481,6 +628,128 @@ abstract class AbstractCsvImporter<O : ImportPairEntry.Modified<O>> {
         return bytes.any { byte -> byte in germanCharsISO88591 }
     }
 
+    /**
+     * Decodes UTF-8, but switches to ISO-8859-1 on the first malformed sequence, if all bytes before were ASCII (the
+     * charset detection on the first bytes wasn't meaningful, e.g. ISO-8859-1 umlauts appear only later). Otherwise,
+     * malformed sequences are replaced by U+FFFD. The given callback is informed once about the switch or replacement.
+     */
+    internal class Utf8OrLatin1Reader(
+        private val input: InputStream,
+        private val onMalformedInput: (message: String) -> Unit,
+    ) : Reader() {
+        private var decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT)
+
+        private val bytes = ByteBuffer.allocate(BUFFER_SIZE).flip()
+
+        private val chars = CharBuffer.allocate(BUFFER_SIZE).flip()
+
+        private var eof = false
+
+        private var nonAscii = false
+
+        private var switched = false
+
+        private var reported = false
+
+        private var finished = false
+
+        private var decodedBytes = 0L
+
+        override fun read(): Int {
+            if (!chars.hasRemaining() && !decode()) {
+                return -1
+            }
+            return chars.get().code
+        }
+
+        override fun read(cbuf: CharArray, off: Int, len: Int): Int {
+            if (len == 0) {
+                return 0
+            }
+            if (!chars.hasRemaining() && !decode()) {
+                return -1
+            }
+            val count = minOf(len, chars.remaining())
+            chars.get(cbuf, off, count)
+            return count
+        }
+
+        override fun close() {
+            input.close()
+        }
+
+        /**
+         * Decodes the next characters into [chars].
+         * @return false on end of input.
+         */
+        private fun decode(): Boolean {
+            if (finished) {
+                return false
+            }
+            chars.clear()
+            try {
+                while (chars.position() == 0) {
+                    if (!eof) {
+                        fill()
+                    }
+                    val start = bytes.position()
+                    val result = decoder.decode(bytes, chars, eof)
+                    if (!nonAscii && !switched) {
+                        nonAscii = (start until bytes.position()).any { bytes.get(it) < 0 }
+                    }
+                    decodedBytes += bytes.position() - start
+                    if (result.isError) {
+                        if (!nonAscii && !switched) {
+                            switched = true
+                            decoder = StandardCharsets.ISO_8859_1.newDecoder()
+                            report("Malformed UTF-8 input at byte $decodedBytes (only ASCII before), ISO-8859-1 is assumed for the rest of the file.")
+                        } else {
+                            report("Malformed UTF-8 input at byte $decodedBytes, replaced by '\uFFFD' (wrong charset of file?).")
+                            chars.put('\uFFFD')
+                            bytes.position(bytes.position() + result.length())
+                            decodedBytes += result.length()
+                        }
+                        continue
+                    }
+                    if (result.isOverflow || !eof) {
+                        continue
+                    }
+                    // End of input:
+                    decoder.flush(chars)
+                    finished = true
+                    break
+                }
+            } finally {
+                chars.flip()
+            }
+            return chars.hasRemaining()
+        }
+
+        private fun fill() {
+            bytes.compact()
+            val count = input.read(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining())
+            if (count < 0) {
+                eof = true
+            } else {
+                bytes.position(bytes.position() + count)
+            }
+            bytes.flip()
+        }
+
+        private fun report(message: String) {
+            if (!reported) {
+                reported = true
+                onMalformedInput(message)
+            }
+        }
+
+        companion object {
+            private const val BUFFER_SIZE = 8192
+        }
+    }
+
     private class AutodetectNumberMap<O> {
         val entries = mutableMapOf<O, AutodetectNumberEntry>()
         val storedFieldSettings = mutableListOf<ImportFieldSettings>()
@@ -497,6 +766,56 @@ abstract class AbstractCsvImporter<O : ImportPairEntry.Modified<O>> {
             }
             value.add(fieldSettings, str)
         }
+
+        fun clear() {
+            entries.clear()
+            storedFieldSettings.clear()
+        }
+    }
+
+    /**
+     * Getter, setter and type of a property, determined only once per parsing (the reflective lookup via [BeanHelper]
+     * is expensive for every cell).
+     */
+    private class PropertyAccessor(val beanClass: Class<*>, val property: String) {
+        private val getter: Method? = BeanHelper.determineGetter(beanClass, property)
+        private val setter: Method? = BeanHelper.determineSetter(beanClass, property)
+        val type: Class<*>? = BeanHelper.determinePropertyType(getter)
+
+        fun get(bean: Any): Any? {
+            getter ?: throw RuntimeException("Getter for property '$beanClass.$property' not found.")
+            return invoke(getter, bean)
+        }
+
+        fun set(bean: Any, value: Any?) {
+            setter ?: throw RuntimeException("Setter for property '$property' not found.")
+            invoke(setter, bean, value)
+        }
+
+        private fun invoke(method: Method, bean: Any, vararg args: Any?): Any? {
+            try {
+                return method.invoke(bean, *args)
+            } catch (ex: ReflectiveOperationException) {
+                throw RuntimeException("For property '$property'.", ex)
+            } catch (ex: IllegalArgumentException) {
+                throw RuntimeException("For property '$property'.", ex)
+            }
+        }
+    }
+
+    /**
+     * Cache of the property accessors per field settings.
+     */
+    private class PropertyAccessors {
+        private val accessors = mutableMapOf<ImportFieldSettings, PropertyAccessor>()
+
+        fun get(bean: Any, fieldSettings: ImportFieldSettings): PropertyAccessor {
+            val accessor = accessors[fieldSettings]
+            if (accessor != null && accessor.beanClass == bean.javaClass) {
+                return accessor
+            }
+            return PropertyAccessor(bean.javaClass, fieldSettings.property).also { accessors[fieldSettings] = it }
+        }
     }
 
     private class AutodetectNumberEntry {
@@ -630,6 +949,13 @@ abstract class AbstractCsvImporter<O : ImportPairEntry.Modified<O>> {
     }
 
     companion object {
+        /**
+         * Maximum number of bytes used for charset detection.
+         */
+        const val CHARSET_DETECTION_PREFIX_SIZE = 256 * 1024
+
+        const val DEFAULT_MAX_ROWS = 100_000
+
         private const val UTF8_ESCAPE_BYTE = 195.toByte() // C3
         private const val UTF16_NULL_BYTE = 0.toByte() // 00
     }
@@ -77,7 +77,8 @@ abstract class AbstractImportPageRest<O : ImportPairEntry.Modified<O>> : Abstrac
         val layout = createLayout(request, importStorage)
         val data = importStorage?.info
         val formLayoutData = FormLayoutData(data, layout, createServerData(request))
-        importStorage?.let { storage ->
+        // No entries while the upload request is still parsing:
+        importStorage?.takeUnless { it.parsing }?.let { storage ->
             val entries = createListEntries(storage, data?.displayOptions ?: ImportStorage.DisplayOptions())
             formLayoutData.variables = mapOf("entries" to (entries))
         }
@@ -102,7 +103,15 @@ abstract class AbstractImportPageRest<O : ImportPairEntry.Modified<O>> : Abstrac
         val fieldset = UIFieldset(title = title)
         layout.add(fieldset)
         val hasEntries = importStorage?.pairEntries?.isNotEmpty() == true
-        if (!hasEntries) {
+        if (importStorage?.parsing == true) {
+            // The upload request is still parsing the file:
+            fieldset.add(
+                UIAlert(
+                    "'${translateMsg("import.info.parsing", importStorage.numberOfParsedRows.format())}",
+                    color = UIColor.INFO,
+                )
+            )
+        } else if (!hasEntries) {
             fieldset.add(UIAlert("import.error.nothingToImport", color = UIColor.DANGER))
             fieldset.add(
                 UIButton.createCancelButton(
@@ -417,6 +426,8 @@ abstract class AbstractImportPageRest<O : ImportPairEntry.Modified<O>> : Abstrac
             }
             if (importSettings != null) {
                 sb.appendLine("encoding=${importSettings.charSet.name()}")
+                sb.appendLine("# Maximum number of rows to read (optional)")
+                sb.appendLine("#maxRows=${importSettings.maxRows ?: AbstractCsvImporter.DEFAULT_MAX_ROWS}")
                 importSettings.allFieldNames.forEach { fieldName ->
                     if (!arrayOf("id", "created", "lastUpdate", "deleted", "importSettings").contains(fieldName)) {
                         val fieldSettings = importSettings.getFieldSettings(fieldName)
@@ -155,7 +155,7 @@ abstract class AbstractImportUploadPageRest : AbstractDynamicPageRest() {
                 return result(error, isStatusError = true)
             }
             file.inputStream.use { inputStream ->
-                val result = proceedUpload(inputStream, filename)
+                val result = proceedUpload(request, inputStream, filename)
                 if (result != null) {
                     return result("${translate("file.upload.error")} $result", isStatusError = true)
                 }
@@ -176,9 +176,11 @@ abstract class AbstractImportUploadPageRest : AbstractDynamicPageRest() {
     }
 
     /**
+     * Parsing runs synchronously in the upload request. The import storage may be put into the user's session before
+     * parsing, so the import page is able to show the progress (see [ImportStorage.parsing]).
      * @return Returns the error messages if the upload was not successful, otherwise null.
      */
-    abstract fun proceedUpload(inputstream: InputStream, filename: String): String?
+    abstract fun proceedUpload(request: HttpServletRequest, inputstream: InputStream, filename: String): String?
 
     /**
      * Called from UIButton cancel above.
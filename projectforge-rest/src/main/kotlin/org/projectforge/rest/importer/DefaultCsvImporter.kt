@@ -25,13 +25,14 @@ package org.projectforge.rest.importer
 
 /**
  * Default CSV importer implementation that provides the same behavior as the original CsvImporter object.
- * This class uses only the standard processing logic without any custom extensions.
+ * This class uses only the standard processing logic without any custom extensions (in streaming mode).
  *
  * @param O the type of objects being imported, must extend ImportPairEntry.Modified
  */
 class DefaultCsvImporter<O : ImportPairEntry.Modified<O>> : AbstractCsvImporter<O>() {
 
-    // No overrides needed - uses all default implementations from AbstractCsvImporter
-    // This provides the exact same behavior as the original CsvImporter object
+    // Uses all default implementations from AbstractCsvImporter. No finalizing over all records is needed, so the
+    // records are committed in chunks while parsing:
+    override val streaming: Boolean = true
 
 }
@@ -0,0 +1,201 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.rest.importer
+
+import mu.KotlinLogging
+import java.util.*
+
+private val log = KotlinLogging.logger {}
+
+/**
+ * Reusable engine for reconciling read import entries with database entries. The matching strategies (stages) are
+ * run in the order of calling the match functions, each stage only regards the entries not matched by the previous
+ * ones. The entries are referred by their index in [readEntries] and [dbEntries].
+ *
+ * The stages use hash indexes on the given keys (built once per stage), so only entries with equal keys are compared,
+ * only the final [matchBestRemaining] stage compares all remaining entries with each other.
+ *
+ * @param R type of read (imported) entries.
+ * @param D type of database entries.
+ */
+class ImportMatchingEngine<R : Any, D : Any>(
+    val readEntries: List<R>,
+    val dbEntries: List<D>,
+) {
+    private val matchedRead = BitSet(readEntries.size)
+    private val matchedDb = BitSet(dbEntries.size)
+    private val matchList = mutableListOf<Pair<Int, Int>>()
+
+    /**
+     * All matches as pairs of (read index, db index) in the order of matching.
+     */
+    val matches: List<Pair<Int, Int>>
+        get() = matchList
+
+    fun isReadMatched(readIndex: Int): Boolean = matchedRead[readIndex]
+
+    fun isDbMatched(dbIndex: Int): Boolean = matchedDb[dbIndex]
+
+    fun forEachUnmatchedRead(action: (readIndex: Int, entry: R) -> Unit) {
+        readEntries.forEachIndexed { index, entry ->
+            if (!matchedRead[index]) {
+                action(index, entry)
+            }
+        }
+    }
+
+    fun forEachUnmatchedDb(action: (dbIndex: Int, entry: D) -> Unit) {
+        dbEntries.forEachIndexed { index, entry ->
+            if (!matchedDb[index]) {
+                action(index, entry)
+            }
+        }
+    }
+
+    /**
+     * Exact matching: every unmatched read entry is matched with the first unmatched db entry with an equal key.
+     * Entries with null keys aren't matched.
+     * @param onMatch Optional callback for each match (e.g. for logging).
+     * @return The number of matches found by this stage.
+     */
+    fun <K : Any> matchExact(
+        readKey: (R) -> K?,
+        dbKey: (D) -> K?,
+        onMatch: ((read: R, db: D) -> Unit)? = null,
+    ): Int {
+        val initialMatches = matchList.size
+        val dbIndex = buildDbIndex(dbKey)
+        forEachUnmatchedRead { readIndex, read ->
+            val key = readKey(read) ?: return@forEachUnmatchedRead
+            val candidates = dbIndex[key] ?: return@forEachUnmatchedRead
+            val dbIdx = candidates.firstOrNull { !matchedDb[it] } ?: return@forEachUnmatchedRead
+            addMatch(readIndex, dbIdx)
+            onMatch?.invoke(read, dbEntries[dbIdx])
+        }
+        return matchList.size - initialMatches
+    }
+
+    /**
+     * Group matching: every unmatched read entry is matched with the unmatched db entry of the same group (equal group
+     * key) with the best score. On equal scores, the first db entry wins.
+     * @param minScore Minimum score required for a match.
+     * @param onMatch Optional callback for each match (e.g. for logging).
+     * @return The number of matches found by this stage.
+     */
+    fun <K : Any> matchBestInGroups(
+        readKey: (R) -> K?,
+        dbKey: (D) -> K?,
+        minScore: Int,
+        score: (read: R, db: D) -> Int,
+        onMatch: ((read: R, db: D, score: Int) -> Unit)? = null,
+    ): Int {
+        val initialMatches = matchList.size
+        val dbIndex = buildDbIndex(dbKey)
+        forEachUnmatchedRead { readIndex, read ->
+            val key = readKey(read) ?: return@forEachUnmatchedRead
+            val candidates = dbIndex[key] ?: return@forEachUnmatchedRead
+            var bestDbIndex = -1
+            var bestScore = minScore - 1
+            candidates.forEach { dbIdx ->
+                if (matchedDb[dbIdx]) {
+                    return@forEach
+                }
+                val currentScore = score(read, dbEntries[dbIdx])
+                if (currentScore > bestScore) {
+                    bestScore = currentScore
+                    bestDbIndex = dbIdx
+                }
+            }
+            if (bestDbIndex >= 0) {
+                addMatch(readIndex, bestDbIndex)
+                onMatch?.invoke(read, dbEntries[bestDbIndex], bestScore)
+            }
+        }
+        return matchList.size - initialMatches
+    }
+
+    /**
+     * Greedy matching of all remaining entries: the pair with the highest score is matched first, then the pair with
+     * the next highest score of the remaining entries and so on. On equal scores, the pair with the lowest read index
+     * (and then lowest db index) wins.
+     *
+     * All remaining read entries are scored against all remaining db entries once (instead of searching the maximum
+     * of the score matrix for every match).
+     * @param minScore Minimum score required for a match.
+     * @param onMatch Optional callback for each match (e.g. for logging).
+     * @return The number of matches found by this stage.
+     */
+    fun matchBestRemaining(
+        minScore: Int,
+        score: (read: R, db: D) -> Int,
+        onMatch: ((read: R, db: D, score: Int) -> Unit)? = null,
+    ): Int {
+        val initialMatches = matchList.size
+        val unmatchedDbIndices = dbEntries.indices.filter { !matchedDb[it] }
+        if (unmatchedDbIndices.isEmpty()) {
+            return 0
+        }
+        val candidates = mutableListOf<Candidate>()
+        forEachUnmatchedRead { readIndex, read ->
+            unmatchedDbIndices.forEach { dbIdx ->
+                val currentScore = score(read, dbEntries[dbIdx])
+                if (currentScore >= minScore) {
+                    candidates.add(Candidate(readIndex, dbIdx, currentScore))
+                }
+            }
+        }
+        // Candidates are already sorted by read index and db index, sortWith is stable:
+        candidates.sortWith(compareByDescending<Candidate> { it.score })
+        candidates.forEach { candidate ->
+            if (!matchedRead[candidate.readIndex] && !matchedDb[candidate.dbIndex]) {
+                addMatch(candidate.readIndex, candidate.dbIndex)
+                onMatch?.invoke(readEntries[candidate.readIndex], dbEntries[candidate.dbIndex], candidate.score)
+            }
+        }
+        log.debug { "Scored ${candidates.size} candidate pairs in final stage." }
+        return matchList.size - initialMatches
+    }
+
+    /**
+     * @return Hash index of the unmatched db entries by the given key (entries with null keys are ignored). The values
+     * are the indices of the db entries in ascending order.
+     */
+    private fun <K : Any> buildDbIndex(dbKey: (D) -> K?): Map<K, List<Int>> {
+        val index = HashMap<K, MutableList<Int>>()
+        forEachUnmatchedDb { dbIdx, entry ->
+            dbKey(entry)?.let { key ->
+                index.getOrPut(key) { mutableListOf() }.add(dbIdx)
+            }
+        }
+        return index
+    }
+
+    private fun addMatch(readIndex: Int, dbIndex: Int) {
+        matchList.add(Pair(readIndex, dbIndex))
+        matchedRead.set(readIndex)
+        matchedDb.set(dbIndex)
+    }
+
+    private class Candidate(val readIndex: Int, val dbIndex: Int, val score: Int)
+}
@@ -34,6 +34,11 @@ import java.util.*
 class ImportSettings {
   val fieldSettings = mutableListOf<ImportFieldSettings>()
   var encoding: String? = null
+
+  /**
+   * Optional maximum number of rows to read (overrides the default limit of the importer).
+   */
+  var maxRows: Int? = null
   val charSet: Charset
     get() {
       encoding ?: return StandardCharsets.UTF_8
@@ -93,6 +98,8 @@ class ImportSettings {
    * Example:
    * # Not a field, but optional encoding setting (UTF-8 is default)
    * encoding=iso-8859-15
+   * # Not a field, but optional maximum number of rows to read
+   * maxRows=200000
    * birthday=born*|*birthday*|:MM/dd/yyyy|:MM/dd/yyy
    * firstName=first*name|sur*name*
    *
@@ -113,6 +120,8 @@ class ImportSettings {
         val value = props[key] as String?
         if (key == "encoding") {
           encoding = value
+        } else if (key == "maxRows") {
+          maxRows = value?.trim()?.toIntOrNull()
         } else {
           val entry = ensureFieldSettings(key)
           if (value != null) {
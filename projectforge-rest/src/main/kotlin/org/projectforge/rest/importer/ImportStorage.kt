@@ -78,6 +78,19 @@ abstract class ImportStorage<O : ImportPairEntry.Modified<O>>(
   val detectedColumns = mutableMapOf<String, ImportFieldSettings>()
   val unknownColumns = mutableListOf<String>()
 
+  /**
+   * Number of rows read so far by the parser, updated while parsing (e.g. for displaying the progress).
+   */
+  @Volatile
+  var numberOfParsedRows: Int = 0
+
+  /**
+   * True while the uploaded file is being parsed. The storage may be put into the user's session before parsing, so
+   * the import page is able to show the progress ([numberOfParsedRows]) while the upload request is still running.
+   */
+  @Volatile
+  var parsing: Boolean = false
+
   /**
    * Mapping of columns to properties.
    */
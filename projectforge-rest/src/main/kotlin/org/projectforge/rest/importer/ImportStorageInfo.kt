@@ -32,14 +32,23 @@ class ImportStorageInfo() {
   var numberOfUnknownEntries: Int = 0
   var numberOfFaultyEntries: Int = 0
 
+  /**
+   * Progress of parsing the uploaded file, see [ImportStorage.numberOfParsedRows].
+   */
+  var numberOfParsedRows: Int = 0
+  var parsing: Boolean = false
+
   var detectedColumns: List<String>? = null
   var unknownColumns: List<String>? = null
 
   var displayOptions = ImportStorage.DisplayOptions()
 
   constructor(importStorage: ImportStorage<*>) : this() {
-    totalNumber = importStorage.pairEntries.size
-    importStorage.pairEntries.forEach {
+    numberOfParsedRows = importStorage.numberOfParsedRows
+    parsing = importStorage.parsing
+    val pairEntries = synchronized(importStorage.pairEntries) { importStorage.pairEntries.toList() }
+    totalNumber = pairEntries.size
+    pairEntries.forEach {
       when (it.status) {
         ImportEntry.Status.NEW -> numberOfNewEntries += 1
         ImportEntry.Status.UNKNOWN, ImportEntry.Status.UNKNOWN_MODIFICATION -> numberOfUnknownEntries += 1
@@ -220,6 +220,11 @@ abstract class AbstractScriptExecutePageRest : AbstractDynamicPageRest() {
         val session = request.getSession(false)
         // Store the scriptLogger in user's session to show the log entries in the UI.
         ExpiringSessionAttributes.setAttribute(session, getSessionAttr(script.id), scriptLogger, 5)
+        session?.id?.let { sessionId ->
+            val topic = getSseTopic(sessionId, script.id)
+            // Push new log entries to the clients listening (see streamLogs):
+            scriptLogger.onChange = { SseBroadcastHub.publish(topic) { getLogEntries(scriptLogger) } }
+        }
         val result = scriptExecution.execute(request, script, parameters, scriptDao, pagesRest, scriptLogger)
         val output = StringBuilder()
         output.append("'") // ProjectForge shouldn't try to find i18n-key.
@@ -271,9 +276,7 @@ abstract class AbstractScriptExecutePageRest : AbstractDynamicPageRest() {
             getSessionAttr(scriptId),
             ScriptLogger::class.java,
         ) ?: return emptyList()
-        return scriptLogger.messages.map {
-            LogEntry(it.timestamp, it.level, it.message ?: "")
-        }
+        return getLogEntries(scriptLogger)
     }
 
     @GetMapping("logs/{scriptId}", produces = [MediaType.TEXT_EVENT_STREAM_VALUE])
@@ -282,24 +285,11 @@ abstract class AbstractScriptExecutePageRest : AbstractDynamicPageRest() {
         @PathVariable("scriptId") scriptIdString: String?
     ): SseEmitter {
         val scriptId = scriptIdString?.toLongOrNull()
-        object : SseEmitterTool() {
-            var scriptLogger: ScriptLogger? = ExpiringSessionAttributes.getAttribute(
-                request.getSession(false),
-                getSessionAttr(scriptId),
-                ScriptLogger::class.java,
-            )
-
-            override val lastModified: Date?
-                get() = scriptLogger?.lastModified
-
-            override fun getData(): Any? {
-                return scriptLogger?.messages?.map {
-                    LogEntry(it.timestamp, it.level, it.message ?: "")
-                }
-            }
-        }.also {
-            it.launch()
-            return it.emitter
+        val session = request.getSession(false)
+            ?: return SseEmitter().also { it.complete() } // No log entries without session.
+        return SseBroadcastHub.subscribe(getSseTopic(session.id, scriptId)) {
+            ExpiringSessionAttributes.getAttribute(session, getSessionAttr(scriptId), ScriptLogger::class.java)
+                ?.let { getLogEntries(it) }
         }
     }
 
@@ -381,5 +371,15 @@ abstract class AbstractScriptExecutePageRest : AbstractDynamicPageRest() {
         private fun getSessionAttr(scriptId: Long?): String {
             return "${AbstractScriptExecutePageRest::class.simpleName}:$scriptId"
         }
+
+        private fun getSseTopic(sessionId: String, scriptId: Long?): String {
+            return "$sessionId:${getSessionAttr(scriptId)}"
+        }
+
+        private fun getLogEntries(scriptLogger: ScriptLogger): List<LogEntry> {
+            return scriptLogger.getMessagesSnapshot().map {
+                LogEntry(it.timestamp, it.level, it.message ?: "")
+            }
+        }
     }
 }
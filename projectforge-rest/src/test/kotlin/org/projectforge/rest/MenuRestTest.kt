@@ -0,0 +1,69 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.rest
+
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+import org.projectforge.business.test.AbstractTestBase
+import org.projectforge.framework.persistence.user.api.ThreadLocalUserContext
+import org.projectforge.menu.builder.MenuCreator
+import org.projectforge.menu.builder.MenuItemDefId
+import org.projectforge.rest.core.SseBroadcastHub
+import org.springframework.beans.factory.annotation.Autowired
+
+class MenuRestTest : AbstractTestBase() {
+    @Autowired
+    private lateinit var menuRest: MenuRest
+
+    @Autowired
+    private lateinit var menuCreator: MenuCreator
+
+    @Test
+    fun getMenuTest() {
+        logon(ADMIN)
+        val menus = menuRest.getMenu()
+        Assertions.assertTrue(menus.mainMenu.menuItems.isNotEmpty())
+        val userNameItem = menus.myAccountMenu.menuItems.single()
+        Assertions.assertEquals("username", userNameItem.id)
+        Assertions.assertTrue(userNameItem.subMenu!!.any { it.id == MenuItemDefId.LOGOUT.id })
+        // Same menu structure from the cache:
+        Assertions.assertEquals(
+            menus.mainMenu.menuItems.map { it.id },
+            menuRest.getMenu().mainMenu.menuItems.map { it.id },
+        )
+    }
+
+    @Test
+    fun subscribeBadgesTest() {
+        logon(ADMIN)
+        val userId = ThreadLocalUserContext.loggedInUserId!!
+        menuRest.getMenu() // Computes the badge counters of the user.
+        Assertions.assertNotNull(menuCreator.getBadgeCounters(userId))
+        val topic = menuRest.getBadgesTopic(userId)
+        val count = SseBroadcastHub.getSubscriberCount(topic)
+        val emitter = menuRest.subscribeBadges()
+        Assertions.assertEquals(count + 1, SseBroadcastHub.getSubscriberCount(topic))
+        emitter.complete()
+    }
+}
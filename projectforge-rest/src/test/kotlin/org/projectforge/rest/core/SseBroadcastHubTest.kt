@@ -0,0 +1,129 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+package org.projectforge.rest.core
+
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter
+import java.io.IOException
+import java.util.Collections
+
+class SseBroadcastHubTest {
+    /**
+     * Records the sent payloads and the registered callbacks instead of writing to a http response.
+     */
+    private class TestEmitter : SseEmitter(60_000L) {
+        val sent: MutableList<String> = Collections.synchronizedList(mutableListOf())
+
+        @Volatile
+        var failOnSend = false
+
+        var timeoutCallback: Runnable? = null
+
+        override fun send(`object`: Any) {
+            if (failOnSend) {
+                throw IOException("Connection closed (for test purposes).")
+            }
+            sent.add(`object` as String)
+        }
+
+        override fun onTimeout(callback: Runnable) {
+            timeoutCallback = callback
+            super.onTimeout(callback)
+        }
+    }
+
+    @Test
+    fun `subscribe and unsubscribe`() {
+        val topic = "test-subscribe"
+        val emitter1 = TestEmitter()
+        val emitter2 = TestEmitter()
+        SseBroadcastHub.subscribe(topic, emitter1) { "initial" }
+        SseBroadcastHub.subscribe(topic, emitter2, null)
+        Assertions.assertEquals(2, SseBroadcastHub.getSubscriberCount(topic))
+        awaitSent(emitter1, 1)
+        Assertions.assertEquals("\"initial\"", emitter1.sent[0], "Initial data is sent to the new client only.")
+        Assertions.assertTrue(emitter2.sent.isEmpty())
+        emitter1.timeoutCallback!!.run()
+        Assertions.assertEquals(1, SseBroadcastHub.getSubscriberCount(topic))
+        emitter2.timeoutCallback!!.run()
+        emitter2.timeoutCallback!!.run() // Unsubscribing twice is harmless.
+        Assertions.assertEquals(0, SseBroadcastHub.getSubscriberCount(topic))
+    }
+
+    @Test
+    fun `broadcast to several emitters`() {
+        val topic = "test-broadcast"
+        val emitters = (1..3).map { TestEmitter().also { emitter -> SseBroadcastHub.subscribe(topic, emitter, null) } }
+        var serialized = 0
+        SseBroadcastHub.publish(topic) { ++serialized; "first" }
+        SseBroadcastHub.publish(topic) { ++serialized; "latest" } // Coalesced with the first one.
+        emitters.forEach { awaitSent(it, 1) }
+        emitters.forEach { Assertions.assertEquals(listOf("\"latest\""), it.sent) }
+        Assertions.assertEquals(1, serialized, "Payload is serialized once for all subscribers.")
+        SseBroadcastHub.publish("test-broadcast-no-subscribers") { Assertions.fail("No subscribers, nothing to serialize.") }
+        emitters.forEach { it.timeoutCallback!!.run() }
+    }
+
+    @Test
+    fun `dead emitters are removed after send failure`() {
+        val topic = "test-dead-emitter"
+        val alive = TestEmitter()
+        val dead = TestEmitter().also { it.failOnSend = true }
+        SseBroadcastHub.subscribe(topic, alive, null)
+        SseBroadcastHub.subscribe(topic, dead, null)
+        SseBroadcastHub.publish(topic) { "data" }
+        awaitSent(alive, 1)
+        awaitCondition { SseBroadcastHub.getSubscriberCount(topic) == 1 }
+        Assertions.assertEquals(1, SseBroadcastHub.getSubscriberCount(topic), "Dead emitter is removed.")
+        SseBroadcastHub.publish(topic) { "more data" }
+        awaitSent(alive, 2)
+        Assertions.assertTrue(dead.sent.isEmpty())
+        alive.timeoutCallback!!.run()
+    }
+
+    @Test
+    fun `topic is removed after timeout of all emitters`() {
+        val topic = "test-timeout"
+        val emitter = TestEmitter()
+        SseBroadcastHub.subscribe(topic, emitter, null)
+        Assertions.assertEquals(1, SseBroadcastHub.getSubscriberCount(topic))
+        emitter.timeoutCallback!!.run()
+        Assertions.assertEquals(0, SseBroadcastHub.getSubscriberCount(topic))
+        SseBroadcastHub.publish(topic) { "data" }
+        Thread.sleep(SseBroadcastHub.COALESCE_MILLIS * 2)
+        Assertions.assertTrue(emitter.sent.isEmpty(), "Nothing is sent after the timeout.")
+    }
+
+    private fun awaitSent(emitter: TestEmitter, expected: Int) {
+        awaitCondition { emitter.sent.size >= expected }
+        Assertions.assertEquals(expected, emitter.sent.size)
+    }
+
+    private fun awaitCondition(condition: () -> Boolean) {
+        val timeout = System.currentTimeMillis() + 10_000
+        while (!condition() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(20)
+        }
+    }
+}
@@ -25,7 +25,9 @@ package org.projectforge.rest.importer
 
 import org.junit.jupiter.api.Assertions.*
 import org.junit.jupiter.api.Test
+import java.io.ByteArrayInputStream
 import java.io.StringReader
+import java.nio.charset.StandardCharsets
 import java.math.BigDecimal
 import java.time.LocalDate
 import kotlin.reflect.KProperty
@@ -60,6 +62,22 @@ class AbstractCsvImporterTest {
     // Test importer that uses default behavior
     class DefaultTestImporter : AbstractCsvImporter<TestDTO>()
 
+    // Test importer in streaming mode with small chunks
+    class StreamingTestImporter : AbstractCsvImporter<TestDTO>() {
+        override val streaming = true
+        override val chunkSize = 100
+        val finalizedChunkSizes = mutableListOf<Int>()
+        val committedOnProgress = mutableListOf<Int>()
+
+        override fun finalizeImport(records: List<TestDTO>, importStorage: ImportStorage<TestDTO>) {
+            finalizedChunkSizes.add(records.size)
+        }
+
+        override fun onProgress(numberOfRows: Int, importStorage: ImportStorage<TestDTO>) {
+            committedOnProgress.add((importStorage as TestImportStorage).entities.size)
+        }
+    }
+
     // Test importer with custom processing
     class CustomTestImporter : AbstractCsvImporter<TestDTO>() {
         val processedHeaders = mutableListOf<String>()
@@ -317,4 +335,126 @@ class AbstractCsvImporterTest {
         assertEquals("PRODUCT A_ROW_0", entity1.name)
         assertTrue(entity1.customField!!.contains("High quality\nproduct with\nmultiple features"))
     }
+
+    @Test
+    fun `test streaming of large ISO-8859-1 input stream`() {
+        val numberOfRows = 150_000 // More than the charset detection prefix and more than the default row limit.
+        val csv = StringBuilder()
+        csv.appendLine("name;age;amount")
+        for (i in 1..numberOfRows) {
+            csv.appendLine("Müller $i;${i % 100};${i},50")
+        }
+        val bytes = csv.toString().toByteArray(StandardCharsets.ISO_8859_1)
+        assertTrue(bytes.size > AbstractCsvImporter.CHARSET_DETECTION_PREFIX_SIZE)
+
+        val importSettings = ImportSettings()
+        importSettings.addFieldSettings(ImportFieldSettings("name"))
+        importSettings.addFieldSettings(ImportFieldSettings("age"))
+        importSettings.addFieldSettings(ImportFieldSettings("amount"))
+        importSettings.maxRows = numberOfRows
+        val importStorage = TestImportStorage(importSettings)
+        val importer = StreamingTestImporter()
+        importer.parse(ByteArrayInputStream(bytes), importStorage)
+
+        assertEquals(numberOfRows, importStorage.entities.size)
+        assertTrue(importStorage.warningList.isEmpty())
+        assertFalse(importStorage.parsing)
+        assertEquals(numberOfRows, importStorage.numberOfParsedRows)
+        // Records are committed chunk by chunk while parsing:
+        assertEquals(numberOfRows / 100, importer.finalizedChunkSizes.size)
+        assertTrue(importer.finalizedChunkSizes.all { it == 100 })
+        assertEquals(listOf(100, 200, 300), importer.committedOnProgress.take(3))
+
+        val last = importStorage.entities.last()
+        assertEquals("Müller $numberOfRows", last.name)
+        assertEquals(0, last.age)
+        // German number format detected on first chunk:
+        assertEquals(0, BigDecimal("150000.50").compareTo(last.amount))
+        assertEquals(0, BigDecimal("1.50").compareTo(importStorage.entities.first().amount))
+    }
+
+    @Test
+    fun `test max rows`() {
+        val csv = StringBuilder()
+        csv.appendLine("name")
+        for (i in 1..250) {
+            csv.appendLine("Name $i")
+        }
+        val importSettings = ImportSettings().parseSettings("maxRows=120")
+        importSettings.addFieldSettings(ImportFieldSettings("name"))
+        val importStorage = TestImportStorage(importSettings)
+        val importer = StreamingTestImporter()
+        importer.parse(StringReader(csv.toString()), importStorage)
+
+        assertEquals(120, importStorage.entities.size)
+        assertEquals(120, importStorage.numberOfParsedRows)
+        assertEquals("Name 120", importStorage.entities.last().name)
+        assertEquals(1, importStorage.warningList.size, "The user is warned about the ignored rows.")
+
+        // Exactly at the limit: no warning.
+        val exactSettings = ImportSettings().parseSettings("maxRows=250")
+        exactSettings.addFieldSettings(ImportFieldSettings("name"))
+        val exactStorage = TestImportStorage(exactSettings)
+        importer.parse(StringReader(csv.toString()), exactStorage)
+        assertEquals(250, exactStorage.entities.size)
+        assertTrue(exactStorage.warningList.isEmpty())
+    }
+
+    @Test
+    fun `test streaming of ISO-8859-1 input stream with ASCII prefix`() {
+        val numberOfRows = 40_000
+        val csv = StringBuilder()
+        csv.appendLine("name")
+        for (i in 1..numberOfRows) {
+            csv.appendLine("Mueller $i")
+        }
+        csv.appendLine("Müller") // First non-ASCII character after the charset detection prefix.
+        val bytes = csv.toString().toByteArray(StandardCharsets.ISO_8859_1)
+        assertTrue(bytes.size > AbstractCsvImporter.CHARSET_DETECTION_PREFIX_SIZE)
+
+        val importSettings = ImportSettings()
+        importSettings.addFieldSettings(ImportFieldSettings("name"))
+        val importStorage = TestImportStorage(importSettings)
+        StreamingTestImporter().parse(ByteArrayInputStream(bytes), importStorage)
+
+        assertEquals(numberOfRows + 1, importStorage.entities.size)
+        assertEquals("Müller", importStorage.entities.last().name, "ISO-8859-1 should be assumed after the ASCII prefix.")
+        assertEquals(1, importStorage.warningList.size, "Switching of charset should be reported.")
+    }
+
+    @Test
+    fun `test UTF-8 reader with malformed input`() {
+        val messages = mutableListOf<String>()
+        val bytes = "Müller\n".toByteArray(StandardCharsets.UTF_8) + "Mäier\n".toByteArray(StandardCharsets.ISO_8859_1)
+        val text = AbstractCsvImporter.Utf8OrLatin1Reader(ByteArrayInputStream(bytes)) { messages.add(it) }.readText()
+        // UTF-8 before, so the malformed sequence is replaced:
+        assertEquals("Müller\nM\uFFFDier\n", text)
+        assertEquals(1, messages.size)
+        assertEquals(
+            "Mäier\n",
+            AbstractCsvImporter.Utf8OrLatin1Reader(
+                ByteArrayInputStream("Mäier\n".toByteArray(StandardCharsets.ISO_8859_1))
+            ) {}.readText(),
+        )
+    }
+
+    @Test
+    fun `test charset detection with multibyte character cut at end of prefix`() {
+        val prefixSize = AbstractCsvImporter.CHARSET_DETECTION_PREFIX_SIZE
+        val header = "name\n"
+        // 'ü' (2 bytes in UTF-8) starts at the last byte of the prefix:
+        val csv = header + "a".repeat(prefixSize - header.length - 1) + "ü\nMüller\n"
+        val importSettings = ImportSettings()
+        importSettings.addFieldSettings(ImportFieldSettings("name"))
+        val importStorage = TestImportStorage(importSettings)
+        // Without respecting the cut character, the prefix would be invalid UTF-8 and the default charset would be used:
+        DefaultTestImporter().parse(
+            ByteArrayInputStream(csv.toByteArray(StandardCharsets.UTF_8)),
+            importStorage,
+            StandardCharsets.ISO_8859_1,
+        )
+        assertEquals(2, importStorage.entities.size)
+        assertTrue(importStorage.entities[0].name!!.endsWith("aü"))
+        assertEquals("Müller", importStorage.entities[1].name)
+    }
 }
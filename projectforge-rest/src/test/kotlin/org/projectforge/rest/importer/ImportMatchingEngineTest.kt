@@ -0,0 +1,159 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2026 Micromata GmbH, Germany (www.micromata.com)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+package org.projectforge.rest.importer
+
+import mu.KotlinLogging
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+import kotlin.math.abs
+import kotlin.random.Random
+
+private val log = KotlinLogging.logger {}
+
+class ImportMatchingEngineTest {
+    private data class Invoice(val referenz: String?, val kreditor: String?, val day: Int, val amount: Int)
+
+    @Test
+    fun `test matching stages`() {
+        val read = listOf(
+            Invoice("R-1", "ACME", 1, 100), // Exact match with db[1]
+            Invoice("R-2", "ACME", 2, 200), // Referenz group match with db[2] (different amount)
+            Invoice("X-3", "Foo", 3, 300), // Kreditor group match with db[0] (same date)
+            Invoice("R-4", "Bar", 4, 400), // Fallback match with db[3] (same referenz ignoring case not indexed)
+            Invoice("R-5", "Baz", 5, 500), // New
+        )
+        val db = listOf(
+            Invoice("Y-3", "Foo", 3, 301),
+            Invoice("R-1", "ACME", 1, 100),
+            Invoice("R-2", "ACME", 2, 201),
+            Invoice("r-4 ", "Other", 30, 0),
+            Invoice("R-6", "Other", 6, 600), // Deleted
+        )
+        val engine = ImportMatchingEngine(read, db)
+        Assertions.assertEquals(1, engine.matchExact({ exactKey(it) }, { exactKey(it) }))
+        Assertions.assertEquals(1, engine.matchBestInGroups({ it.referenz }, { it.referenz }, 25, ::score))
+        Assertions.assertEquals(1, engine.matchBestInGroups({ it.kreditor }, { it.kreditor }, 25, ::score))
+        Assertions.assertEquals(1, engine.matchBestRemaining(50) { r, d -> if (r.referenz.equals(d.referenz?.trim(), true)) 50 else 0 })
+        Assertions.assertEquals(listOf(Pair(0, 1), Pair(1, 2), Pair(2, 0), Pair(3, 3)), engine.matches)
+        val unmatchedRead = mutableListOf<Int>()
+        engine.forEachUnmatchedRead { index, _ -> unmatchedRead.add(index) }
+        Assertions.assertEquals(listOf(4), unmatchedRead)
+        val unmatchedDb = mutableListOf<Int>()
+        engine.forEachUnmatchedDb { index, _ -> unmatchedDb.add(index) }
+        Assertions.assertEquals(listOf(4), unmatchedDb)
+    }
+
+    @Test
+    fun `test greedy fallback matching equals matching by score matrix`() {
+        val random = Random(42)
+        val read = (0 until 300).map { randomInvoice(random) }
+        val db = (0 until 300).map { randomInvoice(random) }
+        val engine = ImportMatchingEngine(read, db)
+        engine.matchBestRemaining(30, ::score)
+        Assertions.assertEquals(matchByScoreMatrix(read, db, 30), engine.matches.sortedBy { it.first })
+    }
+
+    /**
+     * Reconciles 50,000 read positions with 50,000 database entries (about 90% exact matches, the rest by
+     * groups and fallback).
+     */
+    @Test
+    fun benchmarkTest() {
+        val random = Random(42)
+        val numberOfPositions = 50_000
+        val creditors = (1..500).map { "Creditor $it" }
+        val db = (0 until numberOfPositions).map {
+            Invoice("RE-$it", creditors[random.nextInt(creditors.size)], random.nextInt(365), random.nextInt(100_000))
+        }
+        val read = db.mapIndexed { index, invoice ->
+            when (index % 20) {
+                0 -> invoice.copy(amount = invoice.amount + 1) // Referenz group
+                1 -> invoice.copy(referenz = "${invoice.referenz}-corrected") // Creditor group
+                2 -> invoice.copy(referenz = "NEW-$index", kreditor = "New creditor") // New
+                else -> invoice
+            }
+        }.shuffled(random)
+        val begin = System.currentTimeMillis()
+        val engine = ImportMatchingEngine(read, db)
+        val exactMatches = engine.matchExact({ exactKey(it) }, { exactKey(it) })
+        val referenzMatches = engine.matchBestInGroups({ it.referenz }, { it.referenz }, 25, ::score)
+        val creditorMatches = engine.matchBestInGroups({ it.kreditor }, { it.kreditor }, 25, ::score)
+        val fallbackMatches = engine.matchBestRemaining(50, ::score)
+        val duration = System.currentTimeMillis() - begin
+        log.info { "Reconciliation of $numberOfPositions positions: ${duration}ms (exact=$exactMatches, referenz=$referenzMatches, creditor=$creditorMatches, fallback=$fallbackMatches)" }
+        Assertions.assertEquals(numberOfPositions * 17 / 20, exactMatches)
+        Assertions.assertEquals(numberOfPositions / 20, referenzMatches)
+        Assertions.assertEquals(numberOfPositions / 20, creditorMatches)
+        Assertions.assertEquals(numberOfPositions * 19 / 20, engine.matches.size)
+    }
+
+    private fun exactKey(invoice: Invoice): Triple<String, Int, Int>? {
+        return Triple(invoice.referenz ?: return null, invoice.day, invoice.amount)
+    }
+
+    private fun score(read: Invoice, db: Invoice): Int {
+        var score = 0
+        if (read.referenz == db.referenz) score += 50
+        if (read.kreditor == db.kreditor) score += 30
+        val days = abs(read.day - db.day)
+        score += if (days == 0) 20 else if (days <= 7) 5 else 0
+        if (read.amount == db.amount) score += 10
+        return score
+    }
+
+    private fun randomInvoice(random: Random): Invoice {
+        return Invoice("R-${random.nextInt(100)}", "K-${random.nextInt(10)}", random.nextInt(60), random.nextInt(5))
+    }
+
+    /**
+     * Former implementation: searches the maximum of the whole score matrix for every match.
+     */
+    private fun matchByScoreMatrix(read: List<Invoice>, db: List<Invoice>, minScore: Int): List<Pair<Int, Int>> {
+        val scoreMatrix = Array(read.size) { i -> IntArray(db.size) { j -> score(read[i], db[j]) } }
+        val takenRead = mutableSetOf<Int>()
+        val takenDb = mutableSetOf<Int>()
+        val result = mutableListOf<Pair<Int, Int>>()
+        while (true) {
+            var maxScore = 0
+            var maxI = -1
+            var maxJ = -1
+            for (i in read.indices) {
+                if (takenRead.contains(i)) continue
+                for (j in db.indices) {
+                    if (takenDb.contains(j)) continue
+                    if (scoreMatrix[i][j] > maxScore) {
+                        maxScore = scoreMatrix[i][j]
+                        maxI = i
+                        maxJ = j
+                    }
+                }
+            }
+            if (maxScore < minScore) break
+            takenRead.add(maxI)
+            takenDb.add(maxJ)
+            result.add(Pair(maxI, maxJ))
+        }
+        return result.sortedBy { it.first }
+    }
+}
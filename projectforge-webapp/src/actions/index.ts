@@ -10,7 +10,9 @@ export {
     MENU_LOAD_BEGIN,
     MENU_LOAD_SUCCESS,
     MENU_LOAD_FAILURE,
+    MENU_BADGES_UPDATE,
     loadMenu,
+    updateBadges as updateMenuBadges,
 } from './menu';
 
 export {
@@ -2,6 +2,7 @@
 export const MENU_LOAD_BEGIN: 'MENU_LOAD_BEGIN';
 export const MENU_LOAD_SUCCESS: 'MENU_LOAD_SUCCESS';
 export const MENU_LOAD_FAILURE: 'MENU_LOAD_FAILURE';
+export const MENU_BADGES_UPDATE: 'MENU_BADGES_UPDATE';
 
 // Menu Item interfaces
 interface MenuItem {
@@ -29,11 +30,19 @@ interface MenuLoadFailureAction {
     };
 }
 
+interface MenuBadgesUpdateAction {
+    type: typeof MENU_BADGES_UPDATE;
+    payload: {
+        counters: { [key: string]: number };
+    };
+}
+
 // Union type for all possible actions
 export type MenuActionTypes =
     | MenuLoadBeginAction
     | MenuLoadSuccessAction
-    | MenuLoadFailureAction;
+    | MenuLoadFailureAction
+    | MenuBadgesUpdateAction;
 
 // Action Creator Types
 export type AppDispatch = <T extends MenuActionTypes>(action: T) => T;
@@ -50,5 +59,7 @@ export function loadSuccess(
 
 export function loadFailure(error: Error): MenuLoadFailureAction;
 
+export function updateBadges(counters: { [key: string]: number }): MenuBadgesUpdateAction;
+
 // Thunk Action Creator
 export function loadMenu(): ThunkAction;
@@ -3,6 +3,7 @@ import { getServiceURL, handleHTTPErrors } from '../utilities/rest';
 export const MENU_LOAD_BEGIN = 'MENU_LOAD_BEGIN';
 export const MENU_LOAD_SUCCESS = 'MENU_LOAD_SUCCESS';
 export const MENU_LOAD_FAILURE = 'MENU_LOAD_FAILURE';
+export const MENU_BADGES_UPDATE = 'MENU_BADGES_UPDATE';
 
 export const loadBegin = () => ({
     type: MENU_LOAD_BEGIN,
@@ -22,6 +23,12 @@ export const loadFailure = (error) => ({
     payload: { error },
 });
 
+// The badge counters (by menu item key) pushed by the server.
+export const updateBadges = (counters) => ({
+    type: MENU_BADGES_UPDATE,
+    payload: { counters },
+});
+
 export const loadMenu = () => (dispatch) => {
     dispatch(loadBegin());
 
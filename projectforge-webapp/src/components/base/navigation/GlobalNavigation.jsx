@@ -1,8 +1,9 @@
 import PropTypes from 'prop-types';
 import React from 'react';
 import { connect } from 'react-redux';
-import { loadMenu } from '../../../actions';
+import { loadMenu, updateMenuBadges } from '../../../actions';
 import { badgePropType, menuItemPropType } from '../../../utilities/propTypes';
+import { getServiceURL } from '../../../utilities/rest';
 import { Collapse, Navbar, NavbarToggler } from '../../design';
 import CategoriesDropdown from './categories-dropdown';
 import Navigation from './index';
@@ -17,12 +18,43 @@ class GlobalNavigation extends React.Component {
         };
 
         this.toggleMobile = this.toggleMobile.bind(this);
+        this.connectBadges = this.connectBadges.bind(this);
     }
 
     componentDidMount() {
         const { loadNavigation } = this.props;
 
         loadNavigation();
+        this.connectBadges();
+    }
+
+    componentWillUnmount() {
+        clearTimeout(this.reconnectTimeout);
+        if (this.badgesEventSource) {
+            this.badgesEventSource.close();
+        }
+    }
+
+    // The badge counters of the main menu are pushed by the server (server-sent events).
+    connectBadges() {
+        const { updateBadges } = this.props;
+
+        this.badgesEventSource = new EventSource(getServiceURL('menu/badges'), { withCredentials: true });
+
+        this.badgesEventSource.onmessage = (event) => {
+            if (event.data !== 'ping') {
+                const counters = JSON.parse(event.data);
+
+                if (counters) {
+                    updateBadges(counters);
+                }
+            }
+        };
+
+        this.badgesEventSource.onerror = () => {
+            this.badgesEventSource.close(); // Close connection on error (or timeout)
+            this.reconnectTimeout = setTimeout(this.connectBadges, 5000); // Reconnect after 5 seconds
+        };
     }
 
     toggleMobile() {
@@ -71,6 +103,7 @@ GlobalNavigation.propTypes = {
     loadNavigation: PropTypes.func.isRequired,
     mainMenu: PropTypes.arrayOf(menuItemPropType).isRequired,
     myAccountMenu: PropTypes.arrayOf(menuItemPropType).isRequired,
+    updateBadges: PropTypes.func.isRequired,
     badge: badgePropType,
 };
 
@@ -78,6 +111,7 @@ const mapStateToProps = (state) => ({ ...state.menu });
 
 const actions = {
     loadNavigation: loadMenu,
+    updateBadges: updateMenuBadges,
 };
 
 export default connect(mapStateToProps, actions)(GlobalNavigation);
@@ -1,4 +1,5 @@
 import {
+    MENU_BADGES_UPDATE,
     MENU_LOAD_BEGIN,
     MENU_LOAD_FAILURE,
     MENU_LOAD_SUCCESS,
@@ -13,6 +14,34 @@ const initialState = {
     myAccountMenu: [],
 };
 
+const sumCounters = (menuItems) => menuItems
+    .reduce((sum, { badge }) => sum + (badge && badge.counter > 0 ? badge.counter : 0), 0);
+
+const accumulatedBadge = (counter) => (counter > 0 ? { counter, style: 'danger' } : undefined);
+
+// Sets the counters of the menu items (by key) and accumulates the counters of the parent menus (as done by the
+// server).
+const updateBadges = (menuItems, counters) => menuItems.map((item) => {
+    if (item.subMenu && item.subMenu.length) {
+        const subMenu = updateBadges(item.subMenu, counters);
+
+        return {
+            ...item,
+            subMenu,
+            badge: accumulatedBadge(sumCounters(subMenu)),
+        };
+    }
+    if (!item.key || !Object.prototype.hasOwnProperty.call(counters, item.key)) {
+        return item;
+    }
+    const counter = counters[item.key];
+
+    return {
+        ...item,
+        badge: counter > 0 ? { ...item.badge, counter } : undefined,
+    };
+});
+
 const reducer = (state = initialState, { type, payload } = {}) => {
     switch (type) {
         case USER_LOGIN_BEGIN:
@@ -35,6 +64,15 @@ const reducer = (state = initialState, { type, payload } = {}) => {
                 myAccountMenu: payload.myAccountMenu.menuItems,
                 favoritesMenu: payload.favoritesMenu.menuItems,
             };
+        case MENU_BADGES_UPDATE: {
+            const mainMenu = updateBadges(state.mainMenu, payload.counters);
+
+            return {
+                ...state,
+                badge: accumulatedBadge(sumCounters(mainMenu)),
+                mainMenu,
+            };
+        }
         case MENU_LOAD_FAILURE:
             return {
                 ...state,